@@ -35,6 +35,7 @@ import org.mule.api.registry.MuleRegistry;
 import org.mule.api.registry.RegistrationException;
 import org.mule.api.registry.Registry;
 import org.mule.api.security.SecurityManager;
+import org.mule.api.serialization.ObjectSerializer;
 import org.mule.api.store.ListableObjectStore;
 import org.mule.api.store.ObjectStoreManager;
 import org.mule.api.transaction.TransactionManagerFactory;
@@ -55,6 +56,7 @@ import org.mule.management.stats.AllStatistics;
 import org.mule.management.stats.ProcessingTimeWatcher;
 import org.mule.registry.DefaultRegistryBroker;
 import org.mule.registry.MuleRegistryHelper;
+import org.mule.serialization.JavaObjectSerializer;
 import org.mule.transport.DefaultPollingController;
 import org.mule.transport.PollingController;
 import org.mule.util.ApplicationShutdownSplashScreen;
@@ -164,6 +166,8 @@ public class DefaultMuleContext implements MuleContext
 
     private ProcessingTimeWatcher processingTimeWatcher;
 
+    private volatile ObjectSerializer objectSerializer;
+
     private final Latch startLatch = new Latch();
 
     private QueueManager queueManager;
@@ -930,6 +934,23 @@ public class DefaultMuleContext implements MuleContext
         return this.processingTimeWatcher;
     }
 
+    @Override
+    public ObjectSerializer getObjectSerializer()
+    {
+        if (this.objectSerializer == null)
+        {
+            ObjectSerializer serializer = registryBroker.get(MuleProperties.OBJECT_SERIALIZER);
+            if (serializer == null)
+            {
+                JavaObjectSerializer javaObjectSerializer = new JavaObjectSerializer();
+                javaObjectSerializer.setMuleContext(this);
+                serializer = javaObjectSerializer;
+            }
+            this.objectSerializer = serializer;
+        }
+        return this.objectSerializer;
+    }
+
     @Override
     public boolean waitUntilStarted(int timeout) throws InterruptedException
     {
@@ -345,7 +345,7 @@ public class DefaultMuleEvent implements MuleEvent, ThreadSafeAccess, Deserializ
             }
             else
             {
-                this.flowVariables.putAll(((DefaultMuleEvent) rewriteEvent).flowVariables);
+                this.flowVariables = ((DefaultMuleEvent) rewriteEvent).flowVariables.clone();
                 this.session = new DefaultMuleSession(session);
             }
         }
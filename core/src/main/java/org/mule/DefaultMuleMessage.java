@@ -107,6 +107,13 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
      */
     private transient Map<String, DataHandler> outboundAttachments = new HashMap<String, DataHandler>();
 
+    /**
+     * Whether the attachment maps are shared with a copy of this message, in which case they
+     * are copied before being modified
+     */
+    private transient boolean inboundAttachmentsShared;
+    private transient boolean outboundAttachmentsShared;
+
     private transient byte[] cache;
     protected transient MuleContext muleContext;
 
@@ -195,7 +202,7 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
         {
             MuleMessage payloadMessage = (MuleMessage) message;
             setPayload(payloadMessage.getPayload());
-            copyMessageProperties(payloadMessage);
+            copyMessagePropertiesContext(payloadMessage);
         }
         else
         {
@@ -259,13 +266,15 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
 
     private void copyAttachments(MuleMessage previous)
     {
-        if (previous.getInboundAttachmentNames().size() > 0)
+        DefaultMuleMessage previousMessage = previous instanceof DefaultMuleMessage ? (DefaultMuleMessage) previous : null;
+
+        if (previousMessage == null || !shareInboundAttachments(previousMessage))
         {
             for (String name : previous.getInboundAttachmentNames())
             {
                 try
                 {
-                    inboundAttachments.put(name, previous.getInboundAttachment(name));
+                    getWritableInboundAttachments().put(name, previous.getInboundAttachment(name));
                 }
                 catch (Exception e)
                 {
@@ -274,7 +283,7 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
             }
         }
 
-        if (previous.getOutboundAttachmentNames().size() > 0)
+        if (previousMessage == null || !shareOutboundAttachments(previousMessage))
         {
             for (String name : previous.getOutboundAttachmentNames())
             {
@@ -290,6 +299,68 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
         }
     }
 
+    /**
+     * Makes this message use the inbound attachment map of the previous one when it has none
+     * of its own, so copying a message does not copy its attachments until one of the messages
+     * modifies them.
+     *
+     * @return false if this message has attachments of its own, which have to be merged
+     */
+    private boolean shareInboundAttachments(DefaultMuleMessage previous)
+    {
+        if (previous.inboundAttachments.isEmpty() || previous.inboundAttachments == inboundAttachments)
+        {
+            return true;
+        }
+        if (!inboundAttachments.isEmpty())
+        {
+            return false;
+        }
+        inboundAttachments = previous.inboundAttachments;
+        inboundAttachmentsShared = true;
+        previous.inboundAttachmentsShared = true;
+        return true;
+    }
+
+    /**
+     * Same as {@link #shareInboundAttachments(DefaultMuleMessage)} for outbound attachments.
+     */
+    private boolean shareOutboundAttachments(DefaultMuleMessage previous)
+    {
+        if (previous.outboundAttachments.isEmpty() || previous.outboundAttachments == outboundAttachments)
+        {
+            return true;
+        }
+        if (!outboundAttachments.isEmpty())
+        {
+            return false;
+        }
+        outboundAttachments = previous.outboundAttachments;
+        outboundAttachmentsShared = true;
+        previous.outboundAttachmentsShared = true;
+        return true;
+    }
+
+    private Map<String, DataHandler> getWritableInboundAttachments()
+    {
+        if (inboundAttachmentsShared)
+        {
+            inboundAttachments = new HashMap<String, DataHandler>(inboundAttachments);
+            inboundAttachmentsShared = false;
+        }
+        return inboundAttachments;
+    }
+
+    private Map<String, DataHandler> getWritableOutboundAttachments()
+    {
+        if (outboundAttachmentsShared)
+        {
+            outboundAttachments = new HashMap<String, DataHandler>(outboundAttachments);
+            outboundAttachmentsShared = false;
+        }
+        return outboundAttachments;
+    }
+
     public DefaultMuleMessage(MuleMessage message)
     {
         this(message.getPayload(), message, message.getMuleContext());
@@ -1081,7 +1152,7 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
     public void addOutboundAttachment(String name, DataHandler dataHandler) throws Exception
     {
         assertAccess(WRITE);
-        outboundAttachments.put(name, dataHandler);
+        getWritableOutboundAttachments().put(name, dataHandler);
     }
 
     ///TODO this should not be here, but needed so that a message factory can add attachments
@@ -1090,7 +1161,7 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
     public void addInboundAttachment(String name, DataHandler dataHandler) throws Exception
     {
         assertAccess(WRITE);
-        inboundAttachments.put(name, dataHandler);
+        getWritableInboundAttachments().put(name, dataHandler);
     }
 
     @Override
@@ -1140,14 +1211,14 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
         {
             dh = new DataHandler(object, contentType);
         }
-        outboundAttachments.put(name, dh);
+        getWritableOutboundAttachments().put(name, dh);
     }
 
     @Override
     public void removeOutboundAttachment(String name) throws Exception
     {
         assertAccess(WRITE);
-        outboundAttachments.remove(name);
+        getWritableOutboundAttachments().remove(name);
     }
 
     @Override
@@ -1314,7 +1385,7 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
     public void clearAttachments()
     {
         assertAccess(WRITE);
-        outboundAttachments.clear();
+        getWritableOutboundAttachments().clear();
     }
 
 
@@ -2012,8 +2083,8 @@ public class DefaultMuleMessage implements MuleMessage, ThreadSafeAccess, Deseri
             newMessage.setInboundProperty(s.getKey(), s.getValue());
         }
 
-        newMessage.inboundAttachments.clear();
-        newMessage.outboundAttachments.clear();
+        newMessage.getWritableInboundAttachments().clear();
+        newMessage.getWritableOutboundAttachments().clear();
 
         for (Map.Entry<String, DataHandler> s : attachments.entrySet())
         {
@@ -26,6 +26,7 @@ import org.mule.api.registry.MuleRegistry;
 import org.mule.api.registry.RegistrationException;
 import org.mule.api.registry.Registry;
 import org.mule.api.security.SecurityManager;
+import org.mule.api.serialization.ObjectSerializer;
 import org.mule.api.store.ListableObjectStore;
 import org.mule.api.store.ObjectStoreManager;
 import org.mule.api.util.StreamCloserService;
@@ -326,6 +327,12 @@ public interface MuleContext extends Lifecycle
      */
     ProcessingTimeWatcher getProcessorTimeWatcher();
 
+    /**
+     * @return {@link ObjectSerializer} used to write and read objects kept by the persistent
+     *         object and queue stores
+     */
+    ObjectSerializer getObjectSerializer();
+
     /**
      * Makes the caller wait until the {@link MuleContext} was started
      *
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.api.serialization;
+
+import org.mule.api.MuleContext;
+import org.mule.util.store.DeserializationPostInitialisable;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.lang.SerializationException;
+
+/**
+ * Converts objects to and from bytes. Used by the persistent object and queue stores and by
+ * the serialization transformers and wire format. The serializer used by a Mule application is
+ * the one returned by {@link MuleContext#getObjectSerializer()}, which can be replaced by
+ * registering another implementation under the
+ * {@link org.mule.api.config.MuleProperties#OBJECT_SERIALIZER} key.
+ * <p/>
+ * Implementations must be thread safe. Deserialized objects that implement
+ * {@link DeserializationPostInitialisable} are initialised before being returned. Failures are
+ * reported with the same {@link SerializationException} thrown by
+ * {@link org.mule.util.SerializationUtils}.
+ */
+public interface ObjectSerializer
+{
+
+    /**
+     * @param object the object to serialize, may be null
+     * @return the serialized form of the object
+     * @throws SerializationException if the object can not be serialized
+     */
+    byte[] serialize(Object object) throws SerializationException;
+
+    /**
+     * Writes the serialized form of the object to the given stream, which is then closed.
+     *
+     * @param object the object to serialize, may be null
+     * @param out    the stream to write to
+     * @throws SerializationException if the object can not be serialized
+     */
+    void serialize(Object object, OutputStream out) throws SerializationException;
+
+    /**
+     * Deserializes an object using the execution class loader of the application.
+     *
+     * @param bytes the serialized form of the object
+     * @return the deserialized object
+     * @throws SerializationException if the object can not be deserialized
+     */
+    <T> T deserialize(byte[] bytes) throws SerializationException;
+
+    /**
+     * @param bytes       the serialized form of the object
+     * @param classLoader class loader used to resolve the classes of the object
+     * @return the deserialized object
+     * @throws SerializationException if the object can not be deserialized
+     */
+    <T> T deserialize(byte[] bytes, ClassLoader classLoader) throws SerializationException;
+
+    /**
+     * Deserializes an object from the given stream, which is then closed.
+     *
+     * @param inputStream the stream to read from
+     * @return the deserialized object
+     * @throws SerializationException if the object can not be deserialized
+     */
+    <T> T deserialize(InputStream inputStream) throws SerializationException;
+
+    /**
+     * Deserializes an object from the given stream, which is then closed.
+     *
+     * @param inputStream the stream to read from
+     * @param classLoader class loader used to resolve the classes of the object
+     * @return the deserialized object
+     * @throws SerializationException if the object can not be deserialized
+     */
+    <T> T deserialize(InputStream inputStream, ClassLoader classLoader) throws SerializationException;
+}
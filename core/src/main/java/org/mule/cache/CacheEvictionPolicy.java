@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+/**
+ * Determines which entry an {@link InMemoryCachingStrategy} discards when it runs out of room.
+ */
+public enum CacheEvictionPolicy
+{
+    /**
+     * Discards the least recently used entry
+     */
+    LRU,
+
+    /**
+     * Discards the least frequently used entry among the least recently used ones
+     */
+    LFU
+}
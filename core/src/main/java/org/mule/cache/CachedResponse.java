@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.api.MuleContext;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+import org.mule.util.SerializationUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Detached copy of a response, from which any number of equivalent responses can be created.
+ * <p/>
+ * Streaming payloads are kept as bytes and replayed as a new stream every time. Strings are
+ * immutable so they are shared, byte arrays are copied and any other payload is kept serialized,
+ * so changes made to a response never reach the cache. Attachments are not cached.
+ */
+class CachedResponse
+{
+
+    /**
+     * Rough size of the entry besides its payload and its key
+     */
+    static final int ENTRY_OVERHEAD = 256;
+
+    private enum PayloadType
+    {
+        STREAM, BYTES, STRING, SERIALIZED
+    }
+
+    private final Object payload;
+    private final PayloadType payloadType;
+    private final String encoding;
+    private final Map<String, Object> inboundProperties;
+    private final Map<String, Object> outboundProperties;
+    private final long sizeInBytes;
+    private final long expirationTime;
+    private int hits;
+
+    private CachedResponse(Object payload, PayloadType payloadType, long payloadSize, MuleMessage message, long expirationTime)
+    {
+        this.payload = payload;
+        this.payloadType = payloadType;
+        this.encoding = message.getEncoding();
+        this.inboundProperties = copyProperties(message, true);
+        this.outboundProperties = copyProperties(message, false);
+        this.sizeInBytes = payloadSize + ENTRY_OVERHEAD;
+        this.expirationTime = expirationTime;
+    }
+
+    /**
+     * Creates a copy of the given response. A streaming payload is consumed, so the response
+     * message gets a new stream with the same content.
+     *
+     * @param expirationTime value of {@link System#nanoTime()} after which the entry is stale,
+     *                       or <em>Long.MAX_VALUE</em> if it never expires
+     * @return the copy, or null if the payload can not be cached
+     */
+    static CachedResponse create(MuleMessage message, long expirationTime) throws Exception
+    {
+        Object payload = message.getPayload();
+        if (payload instanceof InputStream)
+        {
+            byte[] bytes = message.getPayloadAsBytes();
+            message.setPayload(new ByteArrayInputStream(bytes));
+            return new CachedResponse(bytes, PayloadType.STREAM, bytes.length, message, expirationTime);
+        }
+        else if (payload instanceof byte[])
+        {
+            byte[] bytes = ((byte[]) payload).clone();
+            return new CachedResponse(bytes, PayloadType.BYTES, bytes.length, message, expirationTime);
+        }
+        else if (payload instanceof String)
+        {
+            return new CachedResponse(payload, PayloadType.STRING, 2L * ((String) payload).length(), message, expirationTime);
+        }
+        else if (payload instanceof Serializable)
+        {
+            byte[] bytes = SerializationUtils.serialize((Serializable) payload);
+            return new CachedResponse(bytes, PayloadType.SERIALIZED, bytes.length, message, expirationTime);
+        }
+        return null;
+    }
+
+    /**
+     * Creates a new response for the given request.
+     */
+    MuleEvent createResponse(MuleEvent request)
+    {
+        MuleContext muleContext = request.getMuleContext();
+        DefaultMuleMessage message = new DefaultMuleMessage(createPayload(muleContext), inboundProperties, outboundProperties, null, muleContext);
+        message.setEncoding(encoding);
+        return new DefaultMuleEvent(message, request);
+    }
+
+    long getSizeInBytes()
+    {
+        return sizeInBytes;
+    }
+
+    boolean isExpired(long now)
+    {
+        return now - expirationTime > 0;
+    }
+
+    int getHits()
+    {
+        return hits;
+    }
+
+    void hit()
+    {
+        if (hits < Integer.MAX_VALUE)
+        {
+            hits++;
+        }
+    }
+
+    private Object createPayload(MuleContext muleContext)
+    {
+        switch (payloadType)
+        {
+            case STREAM:
+                return new ByteArrayInputStream((byte[]) payload);
+            case BYTES:
+                return ((byte[]) payload).clone();
+            case SERIALIZED:
+                return SerializationUtils.deserialize((byte[]) payload, muleContext);
+            default:
+                return payload;
+        }
+    }
+
+    private static Map<String, Object> copyProperties(MuleMessage message, boolean inbound)
+    {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        for (String name : inbound ? message.getInboundPropertyNames() : message.getOutboundPropertyNames())
+        {
+            properties.put(name, inbound ? message.getInboundProperty(name) : message.getOutboundProperty(name));
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+import org.mule.VoidMuleEvent;
+import org.mule.api.DefaultMuleException;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleEventKeyGenerator;
+import org.mule.api.MuleException;
+import org.mule.api.MuleMessage;
+import org.mule.api.NameableObject;
+import org.mule.api.cache.CachingStrategy;
+import org.mule.api.cache.InvalidatableCachingStrategy;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.keygenerator.SHA256MuleEventKeyGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * {@link CachingStrategy} that keeps the responses in memory, bounded by their estimated size in
+ * bytes rather than by their number.
+ * <p/>
+ * Requests are identified by the key returned by the configured {@link MuleEventKeyGenerator},
+ * by default a SHA-256 digest of the payload. A streaming request is read to generate its key and
+ * then replaced by a new stream with the same content, so the message processor can still consume
+ * it. A streaming response is read and cached as bytes, and every response created from the cache
+ * gets its own stream.
+ * <p/>
+ * Responses with an exception payload and responses whose payload can not be copied are not
+ * cached. Concurrent requests with the same key that miss the cache are all processed.
+ */
+public class InMemoryCachingStrategy implements CachingStrategy, InvalidatableCachingStrategy, NameableObject
+{
+
+    public static final long DEFAULT_MAX_SIZE_IN_BYTES = 10 * 1024 * 1024;
+
+    protected transient Log logger = LogFactory.getLog(getClass());
+
+    private String name;
+    private MuleEventKeyGenerator keyGenerator = new SHA256MuleEventKeyGenerator();
+    private long maxSizeInBytes = DEFAULT_MAX_SIZE_IN_BYTES;
+    private long entryTtl = 0;
+    private CacheEvictionPolicy evictionPolicy = CacheEvictionPolicy.LRU;
+    private volatile ResponseCache cache;
+
+    @Override
+    public MuleEvent process(MuleEvent request, MessageProcessor messageProcessor) throws MuleException
+    {
+        Serializable key = generateKey(request);
+        if (key == null)
+        {
+            return messageProcessor.process(request);
+        }
+
+        ResponseCache responseCache = getCache();
+        CachedResponse cachedResponse = responseCache.get(key, System.nanoTime());
+        if (cachedResponse != null)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Returning cached response for key: " + key);
+            }
+            return cachedResponse.createResponse(request);
+        }
+
+        MuleEvent response = messageProcessor.process(request);
+        if (isCacheable(response))
+        {
+            cachedResponse = createCachedResponse(response.getMessage());
+            if (cachedResponse != null && !responseCache.put(key, cachedResponse) && logger.isDebugEnabled())
+            {
+                logger.debug(String.format("Response for key %s was not cached as its size (%d bytes) exceeds the size of the cache", key, cachedResponse.getSizeInBytes()));
+            }
+        }
+        return response;
+    }
+
+    @Override
+    public void invalidate()
+    {
+        getCache().clear();
+    }
+
+    @Override
+    public void invalidate(Serializable key)
+    {
+        getCache().remove(key);
+    }
+
+    /**
+     * @return the number of cached responses
+     */
+    public int getSize()
+    {
+        return getCache().size();
+    }
+
+    /**
+     * @return the estimated size of the cached responses
+     */
+    public long getSizeInBytes()
+    {
+        return getCache().getSizeInBytes();
+    }
+
+    private Serializable generateKey(MuleEvent request) throws MuleException
+    {
+        MuleMessage message = request.getMessage();
+        boolean streaming = message.getPayload() instanceof InputStream;
+        Serializable key;
+        try
+        {
+            key = keyGenerator.generateKey(request);
+        }
+        catch (NotSerializableException e)
+        {
+            logger.warn("Unable to generate a cache key, processing the request without using the cache: " + e.getMessage());
+            return null;
+        }
+
+        if (streaming)
+        {
+            try
+            {
+                message.setPayload(new ByteArrayInputStream(message.getPayloadAsBytes()));
+            }
+            catch (Exception e)
+            {
+                throw new DefaultMuleException(CoreMessages.createStaticMessage("Unable to read the streaming request"), e);
+            }
+        }
+        return key;
+    }
+
+    private boolean isCacheable(MuleEvent response)
+    {
+        return response != null && !VoidMuleEvent.getInstance().equals(response)
+               && response.getMessage() != null && response.getMessage().getExceptionPayload() == null;
+    }
+
+    private CachedResponse createCachedResponse(MuleMessage message) throws MuleException
+    {
+        long expirationTime = entryTtl > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(entryTtl) : Long.MAX_VALUE;
+        try
+        {
+            CachedResponse cachedResponse = CachedResponse.create(message, expirationTime);
+            if (cachedResponse == null && logger.isDebugEnabled())
+            {
+                logger.debug("Response was not cached as its payload is not serializable: " + message.getPayload().getClass().getName());
+            }
+            return cachedResponse;
+        }
+        catch (Exception e)
+        {
+            throw new DefaultMuleException(CoreMessages.createStaticMessage("Unable to cache the response"), e);
+        }
+    }
+
+    private ResponseCache getCache()
+    {
+        if (cache == null)
+        {
+            synchronized (this)
+            {
+                if (cache == null)
+                {
+                    cache = new ResponseCache(maxSizeInBytes, evictionPolicy);
+                }
+            }
+        }
+        return cache;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public void setName(String name)
+    {
+        this.name = name;
+    }
+
+    public MuleEventKeyGenerator getKeyGenerator()
+    {
+        return keyGenerator;
+    }
+
+    public void setKeyGenerator(MuleEventKeyGenerator keyGenerator)
+    {
+        this.keyGenerator = keyGenerator;
+    }
+
+    public long getMaxSizeInBytes()
+    {
+        return maxSizeInBytes;
+    }
+
+    /**
+     * @param maxSizeInBytes estimated size of the cached responses above which the cache starts
+     *                       discarding them
+     */
+    public void setMaxSizeInBytes(long maxSizeInBytes)
+    {
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    public long getEntryTtl()
+    {
+        return entryTtl;
+    }
+
+    /**
+     * @param entryTtl milliseconds a response is kept since it was cached. Zero or negative
+     *                 means responses never expire.
+     */
+    public void setEntryTtl(long entryTtl)
+    {
+        this.entryTtl = entryTtl;
+    }
+
+    public CacheEvictionPolicy getEvictionPolicy()
+    {
+        return evictionPolicy;
+    }
+
+    public void setEvictionPolicy(CacheEvictionPolicy evictionPolicy)
+    {
+        this.evictionPolicy = evictionPolicy;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread safe store of {@link CachedResponse} bounded by the estimated size in bytes of its
+ * entries instead of by their number.
+ * <p/>
+ * Entries are kept in access order, so the eldest one is the least recently used. When the
+ * policy is {@link CacheEvictionPolicy#LFU} the entry with fewer hits among the
+ * {@link #LFU_SAMPLE_SIZE} least recently used ones is discarded, which approximates LFU without
+ * keeping the entries sorted by frequency. The entry being added is never discarded to make room
+ * for itself. Expired entries are discarded when they are found.
+ */
+class ResponseCache
+{
+
+    static final int LFU_SAMPLE_SIZE = 16;
+
+    private final long maxSizeInBytes;
+    private final CacheEvictionPolicy evictionPolicy;
+    private final LinkedHashMap<Serializable, CachedResponse> entries = new LinkedHashMap<Serializable, CachedResponse>(16, 0.75f, true);
+    private long sizeInBytes;
+
+    ResponseCache(long maxSizeInBytes, CacheEvictionPolicy evictionPolicy)
+    {
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    /**
+     * @return the entry for the given key, or null if there is none or it has expired
+     */
+    synchronized CachedResponse get(Serializable key, long now)
+    {
+        CachedResponse entry = entries.get(key);
+        if (entry == null)
+        {
+            return null;
+        }
+        if (entry.isExpired(now))
+        {
+            remove(key);
+            return null;
+        }
+        entry.hit();
+        return entry;
+    }
+
+    /**
+     * Adds an entry, discarding as many entries as needed to keep the cache within its size.
+     *
+     * @return false if the entry is bigger than the whole cache, so it was not added
+     */
+    synchronized boolean put(Serializable key, CachedResponse entry)
+    {
+        if (entry.getSizeInBytes() > maxSizeInBytes)
+        {
+            return false;
+        }
+        CachedResponse previous = entries.put(key, entry);
+        if (previous != null)
+        {
+            sizeInBytes -= previous.getSizeInBytes();
+        }
+        sizeInBytes += entry.getSizeInBytes();
+        while (sizeInBytes > maxSizeInBytes)
+        {
+            evict(key);
+        }
+        return true;
+    }
+
+    synchronized void remove(Serializable key)
+    {
+        CachedResponse entry = entries.remove(key);
+        if (entry != null)
+        {
+            sizeInBytes -= entry.getSizeInBytes();
+        }
+    }
+
+    synchronized void clear()
+    {
+        entries.clear();
+        sizeInBytes = 0;
+    }
+
+    synchronized int size()
+    {
+        return entries.size();
+    }
+
+    synchronized long getSizeInBytes()
+    {
+        return sizeInBytes;
+    }
+
+    /**
+     * Discards an entry other than the one just added, which is the most recently used one
+     */
+    private void evict(Serializable addedKey)
+    {
+        Iterator<Map.Entry<Serializable, CachedResponse>> iterator = entries.entrySet().iterator();
+        Map.Entry<Serializable, CachedResponse> victim = iterator.next();
+        if (evictionPolicy == CacheEvictionPolicy.LFU)
+        {
+            for (int i = 1; i < LFU_SAMPLE_SIZE && iterator.hasNext(); i++)
+            {
+                Map.Entry<Serializable, CachedResponse> candidate = iterator.next();
+                if (!candidate.getKey().equals(addedKey) && candidate.getValue().getHits() < victim.getValue().getHits())
+                {
+                    victim = candidate;
+                }
+            }
+        }
+        sizeInBytes -= victim.getValue().getSizeInBytes();
+        entries.remove(victim.getKey());
+    }
+}
@@ -25,6 +25,7 @@ import org.mule.management.stats.DefaultProcessingTimeWatcher;
 import org.mule.model.seda.SedaModel;
 import org.mule.retry.policies.NoRetryPolicyTemplate;
 import org.mule.security.MuleSecurityManager;
+import org.mule.serialization.JavaObjectSerializer;
 import org.mule.util.DefaultStreamCloserService;
 import org.mule.util.lock.MuleLockFactory;
 import org.mule.util.lock.SingleServerLockProvider;
@@ -97,6 +98,8 @@ public class DefaultsConfigurationBuilder extends AbstractConfigurationBuilder
         registry.registerObject(MuleProperties.OBJECT_PROCESSING_TIME_WATCHER,
             new DefaultProcessingTimeWatcher());
 
+        registry.registerObject(MuleProperties.OBJECT_SERIALIZER, new JavaObjectSerializer());
+
         configureThreadingProfiles(registry);
 
         registry.registerObject(MuleProperties.OBJECT_DEFAULT_RETRY_POLICY_TEMPLATE,
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.context.notification;
+
+/**
+ * Decides what the {@link ServerNotificationManager} does with an asynchronous
+ * notification when the bounded dispatch queue of the listeners it is addressed to is full.
+ */
+public enum NotificationOverflowPolicy
+{
+    /**
+     * The thread firing the notification waits until there is room in the queue.
+     */
+    BLOCK,
+
+    /**
+     * The notification is discarded for the listeners whose queue is full.
+     */
+    DROP,
+
+    /**
+     * Only one out of every <code>overflowSampleRate</code> overflowing notifications is
+     * kept, waiting for room in the queue as with {@link #BLOCK}. The rest are discarded.
+     */
+    SAMPLE
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.context.notification;
+
+import org.mule.api.context.WorkManager;
+import org.mule.api.context.notification.ServerNotification;
+import org.mule.management.stats.NotificationStatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkListener;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Delivers asynchronous notifications using a fixed number of worker threads. Every listener
+ * is assigned to exactly one partition and each partition is consumed by a single worker, so
+ * a listener still receives notifications in the order they were queued while different
+ * listeners are notified in parallel.
+ * <p/>
+ * Partition queues may be bounded, in which case the {@link NotificationOverflowPolicy}
+ * decides what happens to notifications that do not fit.
+ */
+class PartitionedNotificationDispatcher
+{
+    protected Log logger = LogFactory.getLog(getClass());
+
+    private final Partition[] partitions;
+    private final NotificationOverflowPolicy overflowPolicy;
+    private final int overflowSampleRate;
+    private final int pollTimeout;
+    private final NotificationStatistics statistics;
+    private final AtomicLong overflowCount = new AtomicLong(0);
+    private volatile boolean stopped = false;
+    private volatile boolean drainOnStop = false;
+
+    /**
+     * @param partitionCount number of partitions, and therefore of worker threads
+     * @param capacity maximum number of queued notifications per partition, or <em>0</em>
+     *            for unbounded partition queues
+     * @param overflowPolicy what to do with notifications that do not fit in a bounded queue
+     * @param overflowSampleRate one out of how many overflowing notifications is kept when
+     *            using {@link NotificationOverflowPolicy#SAMPLE}
+     * @param pollTimeout milliseconds a worker waits for a notification before checking
+     *            whether the dispatcher was stopped
+     * @param statistics where dispatched and dropped notifications are accounted
+     */
+    PartitionedNotificationDispatcher(int partitionCount,
+                                      int capacity,
+                                      NotificationOverflowPolicy overflowPolicy,
+                                      int overflowSampleRate,
+                                      int pollTimeout,
+                                      NotificationStatistics statistics)
+    {
+        this.overflowPolicy = overflowPolicy;
+        this.overflowSampleRate = overflowSampleRate;
+        this.pollTimeout = pollTimeout;
+        this.statistics = statistics;
+
+        partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++)
+        {
+            BlockingQueue<QueuedNotification> queue;
+            if (capacity > 0)
+            {
+                queue = new ArrayBlockingQueue<QueuedNotification>(capacity);
+            }
+            else
+            {
+                queue = new LinkedBlockingQueue<QueuedNotification>();
+            }
+            partitions[i] = new Partition(queue);
+        }
+    }
+
+    void start(WorkManager workManager, WorkListener workListener) throws WorkException
+    {
+        for (Partition partition : partitions)
+        {
+            workManager.scheduleWork(partition, WorkManager.INDEFINITE, null, workListener);
+        }
+    }
+
+    /**
+     * Stops the worker threads.
+     *
+     * @param drain whether notifications already queued must still be delivered before the
+     *            workers finish
+     */
+    void stop(boolean drain)
+    {
+        drainOnStop = drain;
+        stopped = true;
+    }
+
+    /**
+     * Queues a notification for the given senders, splitting them by partition.
+     */
+    @SuppressWarnings("unchecked")
+    void dispatch(ServerNotification notification, List<Sender> senders) throws InterruptedException
+    {
+        if (senders.isEmpty())
+        {
+            return;
+        }
+
+        if (partitions.length == 1)
+        {
+            enqueue(partitions[0], new QueuedNotification(notification, senders, new Delivery(1)));
+            return;
+        }
+
+        List<Sender>[] sendersByPartition = new List[partitions.length];
+        for (Sender sender : senders)
+        {
+            int index = partitionFor(sender);
+            if (sendersByPartition[index] == null)
+            {
+                sendersByPartition[index] = new ArrayList<Sender>(senders.size());
+            }
+            sendersByPartition[index].add(sender);
+        }
+
+        int partitionCount = 0;
+        for (List<Sender> partitionSenders : sendersByPartition)
+        {
+            if (partitionSenders != null)
+            {
+                partitionCount++;
+            }
+        }
+        Delivery delivery = new Delivery(partitionCount);
+        for (int i = 0; i < partitions.length; i++)
+        {
+            if (sendersByPartition[i] != null)
+            {
+                enqueue(partitions[i], new QueuedNotification(notification, sendersByPartition[i], delivery));
+            }
+        }
+    }
+
+    int getQueueDepth()
+    {
+        int depth = 0;
+        for (Partition partition : partitions)
+        {
+            depth += partition.queue.size();
+        }
+        return depth;
+    }
+
+    private void enqueue(Partition partition, QueuedNotification queued) throws InterruptedException
+    {
+        if (partition.queue.offer(queued))
+        {
+            return;
+        }
+
+        boolean keep;
+        switch (overflowPolicy)
+        {
+            case BLOCK:
+                keep = true;
+                break;
+            case SAMPLE:
+                keep = overflowCount.incrementAndGet() % overflowSampleRate == 0;
+                break;
+            default:
+                keep = false;
+        }
+
+        if (keep)
+        {
+            partition.queue.put(queued);
+        }
+        else
+        {
+            queued.delivery.partDropped(queued.notification);
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Notification queue is full, dropping " + queued.notification.getClass().getName()
+                             + " for " + queued.notification.getResourceIdentifier());
+            }
+        }
+    }
+
+    private int partitionFor(Sender sender)
+    {
+        int hash = System.identityHashCode(sender.getListener());
+        hash ^= (hash >>> 16);
+        return (hash & Integer.MAX_VALUE) % partitions.length;
+    }
+
+    /**
+     * A notification waiting to be delivered to the senders of one partition.
+     */
+    private static class QueuedNotification
+    {
+        private final ServerNotification notification;
+        private final List<Sender> senders;
+        private final Delivery delivery;
+
+        QueuedNotification(ServerNotification notification, List<Sender> senders, Delivery delivery)
+        {
+            this.notification = notification;
+            this.senders = senders;
+            this.delivery = delivery;
+        }
+    }
+
+    /**
+     * Tracks the partitions a notification was queued to, so that it is accounted once in
+     * the statistics when the last of them is done with it. A notification is accounted as
+     * dropped if any partition dropped it.
+     */
+    private class Delivery
+    {
+        private final AtomicInteger pendingParts;
+        private volatile boolean dropped = false;
+
+        Delivery(int parts)
+        {
+            pendingParts = new AtomicInteger(parts);
+        }
+
+        void partDispatched(ServerNotification notification)
+        {
+            if (pendingParts.decrementAndGet() == 0)
+            {
+                if (dropped)
+                {
+                    statistics.notificationDropped();
+                }
+                else
+                {
+                    statistics.notificationDispatched(System.currentTimeMillis() - notification.getTimestamp());
+                }
+            }
+        }
+
+        void partDropped(ServerNotification notification)
+        {
+            dropped = true;
+            partDispatched(notification);
+        }
+    }
+
+    /**
+     * Consumes the queue of a single partition.
+     */
+    private class Partition implements Work
+    {
+        private final BlockingQueue<QueuedNotification> queue;
+        private volatile boolean released = false;
+
+        Partition(BlockingQueue<QueuedNotification> queue)
+        {
+            this.queue = queue;
+        }
+
+        @Override
+        public void run()
+        {
+            while (!released && (!stopped || (drainOnStop && !queue.isEmpty())))
+            {
+                try
+                {
+                    QueuedNotification queued = queue.poll(pollTimeout, TimeUnit.MILLISECONDS);
+                    if (queued != null)
+                    {
+                        for (Sender sender : queued.senders)
+                        {
+                            sender.dispatch(queued.notification);
+                        }
+                        queued.delivery.partDispatched(queued.notification);
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void release()
+        {
+            // only this worker is asked to finish, the other partitions keep being consumed
+            released = true;
+        }
+    }
+}
@@ -11,8 +11,10 @@ import org.mule.api.context.notification.ServerNotificationListener;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -34,6 +36,9 @@ class Policy
     private ConcurrentMap knownEventsExact = new ConcurrentHashMap();
     private ConcurrentMap knownEventsSuper = new ConcurrentHashMap();
 
+    // senders resolved for each exact event type, used for partitioned dispatch
+    private ConcurrentMap<Class<?>, List<Sender>> sendersByExactEvent = new ConcurrentHashMap<Class<?>, List<Sender>>();
+
     /**
      * For each listener, we check each interface and see what events can be delivered.
      */
@@ -124,6 +129,32 @@ class Policy
         }
     }
 
+    /**
+     * Resolves the senders a notification would be dispatched to, without dispatching it.
+     *
+     * @return the senders in dispatch order, never null
+     */
+    List<Sender> getSenders(ServerNotification notification)
+    {
+        Class<?> notfnClass = notification.getClass();
+        List<Sender> senders = sendersByExactEvent.get(notfnClass);
+        if (senders == null)
+        {
+            senders = new ArrayList<Sender>();
+            for (Class<? extends ServerNotification> event : eventToSenders.keySet())
+            {
+                if (event.isAssignableFrom(notfnClass))
+                {
+                    senders.addAll(eventToSenders.get(event));
+                }
+            }
+            senders = senders.isEmpty() ? Collections.<Sender>emptyList() : Collections.unmodifiableList(senders);
+            knownEventsExact.put(notfnClass, Boolean.valueOf(!senders.isEmpty()));
+            sendersByExactEvent.putIfAbsent(notfnClass, senders);
+        }
+        return senders;
+    }
+
     /**
      * This returns a very "conservative" value - it is true if the notification or any subclass would be
      * accepted.  So if it returns false then you can be sure that there is no need to send the
@@ -15,6 +15,8 @@ import org.mule.api.context.notification.ServerNotificationHandler;
 import org.mule.api.context.notification.ServerNotificationListener;
 import org.mule.api.lifecycle.Disposable;
 import org.mule.api.lifecycle.LifecycleException;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.management.stats.NotificationStatistics;
 import org.mule.util.ClassUtils;
 
 import java.util.Collection;
@@ -59,6 +61,13 @@ import org.apache.commons.logging.LogFactory;
  * <li>Disabling an event or interface disables all uses of that class or any subclass.</li>
  * <li>Enquiring whether an event is enabled returns true if any subclass is enabled.</li>
  * </ul>
+ *
+ * <p>By default asynchronous notifications are delivered by a single thread consuming an
+ * unbounded queue. Configuring more than one dispatcher thread or a queue capacity switches
+ * to partitioned dispatch: each listener is assigned to one of the dispatcher threads, which
+ * preserves the order in which a listener receives notifications, and the per thread queues
+ * are bounded, handling overflow according to the configured
+ * {@link NotificationOverflowPolicy}.</p>
  */
 public class ServerNotificationManager implements Work, Disposable, ServerNotificationHandler, MuleContextAware
 {
@@ -69,6 +78,14 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
     private AtomicBoolean disposed = new AtomicBoolean(false);
     private BlockingDeque<ServerNotification> eventQueue = new LinkedBlockingDeque<ServerNotification>();
     private MuleContext muleContext;
+    private WorkManager workManager;
+    private WorkListener workListener;
+    private int dispatcherThreads = 1;
+    private int queueCapacity = 0;
+    private NotificationOverflowPolicy overflowPolicy = NotificationOverflowPolicy.BLOCK;
+    private int overflowSampleRate = 10;
+    private volatile PartitionedNotificationDispatcher partitionedDispatcher;
+    private final NotificationStatistics statistics = new NotificationStatistics();
 
     @Override
     public boolean isNotificationDynamic()
@@ -97,6 +114,94 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
         {
             throw new LifecycleException(e, this);
         }
+        this.workManager = workManager;
+        this.workListener = workListener;
+    }
+
+    public int getDispatcherThreads()
+    {
+        return dispatcherThreads;
+    }
+
+    /**
+     * Sets the number of threads that deliver asynchronous notifications. Listeners are
+     * partitioned among them, so each listener is always notified by the same thread.
+     */
+    public void setDispatcherThreads(int dispatcherThreads)
+    {
+        if (dispatcherThreads <= 0)
+        {
+            throw new IllegalArgumentException(CoreMessages.propertyHasInvalidValue("dispatcherThreads",
+                dispatcherThreads).toString());
+        }
+        this.dispatcherThreads = dispatcherThreads;
+        resetPartitionedDispatcher();
+    }
+
+    public int getQueueCapacity()
+    {
+        return queueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of notifications waiting to be delivered by each dispatcher
+     * thread, <em>0</em> meaning unbounded.
+     */
+    public void setQueueCapacity(int queueCapacity)
+    {
+        if (queueCapacity < 0)
+        {
+            throw new IllegalArgumentException(CoreMessages.propertyHasInvalidValue("queueCapacity",
+                queueCapacity).toString());
+        }
+        this.queueCapacity = queueCapacity;
+        resetPartitionedDispatcher();
+    }
+
+    public NotificationOverflowPolicy getOverflowPolicy()
+    {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(NotificationOverflowPolicy overflowPolicy)
+    {
+        this.overflowPolicy = overflowPolicy;
+        resetPartitionedDispatcher();
+    }
+
+    public int getOverflowSampleRate()
+    {
+        return overflowSampleRate;
+    }
+
+    public void setOverflowSampleRate(int overflowSampleRate)
+    {
+        if (overflowSampleRate <= 0)
+        {
+            throw new IllegalArgumentException(CoreMessages.propertyHasInvalidValue("overflowSampleRate",
+                overflowSampleRate).toString());
+        }
+        this.overflowSampleRate = overflowSampleRate;
+        resetPartitionedDispatcher();
+    }
+
+    public NotificationStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * @return the number of asynchronous notifications waiting to be delivered
+     */
+    public int getQueueDepth()
+    {
+        PartitionedNotificationDispatcher dispatcher = partitionedDispatcher;
+        return eventQueue.size() + (dispatcher == null ? 0 : dispatcher.getQueueDepth());
+    }
+
+    protected boolean isPartitionedDispatch()
+    {
+        return dispatcherThreads > 1 || queueCapacity > 0;
     }
 
     public void addInterfaceToType(Class<? extends ServerNotificationListener> iface, Class<? extends ServerNotification> event)
@@ -199,7 +304,15 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
             {
                 try
                 {
-                    eventQueue.put(notification);
+                    PartitionedNotificationDispatcher dispatcher = getPartitionedDispatcher();
+                    if (dispatcher != null)
+                    {
+                        dispatcher.dispatch(notification, configuration.getPolicy().getSenders(notification));
+                    }
+                    else
+                    {
+                        eventQueue.put(notification);
+                    }
                 }
                 catch (InterruptedException e)
                 {
@@ -235,9 +348,66 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
     public void dispose()
     {
         disposed.set(true);
+        synchronized (this)
+        {
+            if (partitionedDispatcher != null)
+            {
+                partitionedDispatcher.stop(false);
+                partitionedDispatcher = null;
+            }
+        }
         configuration = null;
     }
 
+    /**
+     * Lazily creates the partitioned dispatcher once the manager has been started, as the
+     * dispatch settings are usually configured after that.
+     *
+     * @return the dispatcher to use or null if notifications go through the default queue
+     */
+    private PartitionedNotificationDispatcher getPartitionedDispatcher()
+    {
+        PartitionedNotificationDispatcher dispatcher = partitionedDispatcher;
+        if (dispatcher == null && isPartitionedDispatch() && workManager != null)
+        {
+            synchronized (this)
+            {
+                dispatcher = partitionedDispatcher;
+                if (dispatcher == null && !disposed.get())
+                {
+                    dispatcher = new PartitionedNotificationDispatcher(dispatcherThreads, queueCapacity,
+                        overflowPolicy, overflowSampleRate, muleContext.getConfiguration().getDefaultQueueTimeout(),
+                        statistics);
+                    try
+                    {
+                        dispatcher.start(workManager, workListener);
+                        partitionedDispatcher = dispatcher;
+                    }
+                    catch (WorkException e)
+                    {
+                        logger.error("Failed to start partitioned notification dispatch, using the default queue", e);
+                        dispatcher.stop(false);
+                        dispatcher = null;
+                    }
+                }
+            }
+        }
+        return dispatcher;
+    }
+
+    /**
+     * Discards the current partitioned dispatcher after a configuration change. Its workers
+     * still deliver what was already queued while a new one is created on demand.
+     */
+    private synchronized void resetPartitionedDispatcher()
+    {
+        if (partitionedDispatcher != null)
+        {
+            partitionedDispatcher.stop(true);
+            partitionedDispatcher = null;
+        }
+    }
+
     protected void notifyListeners(ServerNotification notification)
     {
         if (!disposed.get())
@@ -268,6 +438,7 @@ public class ServerNotificationManager implements Work, Disposable, ServerNotifi
                 if (notification != null)
                 {
                     notifyListeners(notification);
+                    statistics.notificationDispatched(System.currentTimeMillis() - notification.getTimestamp());
                 }
             }
             catch (InterruptedException e)
@@ -8,6 +8,7 @@
 package org.mule.el.mvel;
 
 import org.mule.api.MuleRuntimeException;
+import org.mule.api.config.MuleProperties;
 import org.mule.api.el.ExpressionExecutor;
 import org.mule.api.expression.InvalidExpressionException;
 import org.mule.mvel2.MVEL;
@@ -31,6 +32,13 @@ import org.slf4j.LoggerFactory;
  * This MVEL executor uses MVEL {@link ReflectiveAccessorOptimizer} implementation rather than the default
  * {@link DynamicOptimizer} (which generates byte-code accessors using ASM) because we found that, at least
  * with JDK7, the {@link ReflectiveAccessorOptimizer} was fastest in typical Mule use cases.
+ * <p/>
+ * Applications that evaluate the same expressions a very large number of times may benefit from byte-code
+ * accessors instead. The optimizer can be changed using the {@value #OPTIMIZER_PROPERTY} system property
+ * with the name of any MVEL optimizer: "reflective" (default), "dynamic" (reflective accessors that are
+ * replaced by byte-code ones once an expression has been used enough) or "ASM". The number of compiled
+ * expressions kept can be changed using the {@value #COMPILED_EXPRESSION_CACHE_SIZE_PROPERTY} system
+ * property.
  */
 public class MVELExpressionExecutor implements ExpressionExecutor<MVELExpressionLanguageContext>
 {
@@ -39,6 +47,9 @@ public class MVELExpressionExecutor implements ExpressionExecutor<MVELExpression
 
     protected static final int COMPILED_EXPRESSION_MAX_CACHE_SIZE = 1000;
 
+    public static final String OPTIMIZER_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX + "mel.optimizer";
+    public static final String COMPILED_EXPRESSION_CACHE_SIZE_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX + "mel.compiledExpressionCacheSize";
+
     protected ParserConfiguration parserConfiguration;
 
     protected LoadingCache<String, Serializable> compiledExpressionsCache;
@@ -48,10 +59,10 @@ public class MVELExpressionExecutor implements ExpressionExecutor<MVELExpression
         this.parserConfiguration = parserConfiguration;
 
         MVEL.COMPILER_OPT_PROPERTY_ACCESS_DOESNT_FAIL = true;
-        OptimizerFactory.setDefaultOptimizer(OptimizerFactory.SAFE_REFLECTIVE);
+        OptimizerFactory.setDefaultOptimizer(System.getProperty(OPTIMIZER_PROPERTY, OptimizerFactory.SAFE_REFLECTIVE));
 
         compiledExpressionsCache = CacheBuilder.newBuilder()
-            .maximumSize(COMPILED_EXPRESSION_MAX_CACHE_SIZE)
+            .maximumSize(Integer.getInteger(COMPILED_EXPRESSION_CACHE_SIZE_PROPERTY, COMPILED_EXPRESSION_MAX_CACHE_SIZE))
             .build(new CacheLoader<String, Serializable>()
             {
                 @Override
@@ -50,6 +50,8 @@ public class MVELExpressionLanguage implements ExpressionLanguage, Initialisable
 
     protected VariableResolverFactory staticContext;
     protected VariableResolverFactory globalContext;
+    // Resolves static and global variables, shared by all the evaluations without a message
+    protected VariableResolverFactory staticAndGlobalContext;
 
     // Configuration
     protected String globalFunctionsString;
@@ -79,6 +81,7 @@ public class MVELExpressionLanguage implements ExpressionLanguage, Initialisable
         staticContext = new StaticVariableResolverFactory(parserConfiguration, muleContext);
         globalContext = new GlobalVariableResolverFactory(getAliases(), getGlobalFunctions(),
             parserConfiguration, muleContext);
+        staticAndGlobalContext = new DelegateVariableResolverFactory(staticContext, globalContext);
     }
 
     protected void loadGlobalFunctions() throws InitialisationException
@@ -116,12 +119,11 @@ public class MVELExpressionLanguage implements ExpressionLanguage, Initialisable
         MVELExpressionLanguageContext context = createExpressionLanguageContext();
         if (vars != null)
         {
-            context.setNextFactory(new CachedMapVariableResolverFactory(vars,
-                new DelegateVariableResolverFactory(staticContext, globalContext)));
+            context.setNextFactory(new CachedMapVariableResolverFactory(vars, staticAndGlobalContext));
         }
         else
         {
-            context.setNextFactory(new DelegateVariableResolverFactory(staticContext, globalContext));
+            context.setNextFactory(staticAndGlobalContext);
         }
         return (T) evaluateInternal(expression, context);
     }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.execution;
+
+import org.mule.api.MessagingException;
+import org.mule.api.MuleEvent;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.config.i18n.MessageFactory;
+
+/**
+ * Does not execute the message processor when the {@link ProcessingCancellation} bound to the
+ * current thread was cancelled.
+ */
+class MessageProcessorCancellationExecutionInterceptor implements MessageProcessorExecutionInterceptor
+{
+
+    private MessageProcessorExecutionInterceptor next;
+
+    MessageProcessorCancellationExecutionInterceptor(MessageProcessorExecutionInterceptor next)
+    {
+        this.next = next;
+    }
+
+    @Override
+    public MuleEvent execute(MessageProcessor messageProcessor, MuleEvent event) throws MessagingException
+    {
+        if (ProcessingCancellation.isCurrentCancelled())
+        {
+            throw new MessagingException(MessageFactory.createStaticMessage("Processing was cancelled"), event,
+                                         messageProcessor);
+        }
+        return next.execute(messageProcessor, event);
+    }
+}
@@ -26,12 +26,12 @@ public class MessageProcessorExecutionTemplate
     
     public static MessageProcessorExecutionTemplate createExceptionTransformerExecutionTemplate()
     {
-        return new MessageProcessorExecutionTemplate(new ExceptionToMessagingExceptionExecutionInterceptor());
+        return new MessageProcessorExecutionTemplate(new MessageProcessorCancellationExecutionInterceptor(new ExceptionToMessagingExceptionExecutionInterceptor()));
     }
 
     public static MessageProcessorExecutionTemplate createExecutionTemplate()
     {
-        return new MessageProcessorExecutionTemplate(new MessageProcessorNotificationExecutionInterceptor(new ExceptionToMessagingExceptionExecutionInterceptor()));
+        return new MessageProcessorExecutionTemplate(new MessageProcessorCancellationExecutionInterceptor(new MessageProcessorNotificationExecutionInterceptor(new MessageProcessorStatisticsExecutionInterceptor(new ExceptionToMessagingExceptionExecutionInterceptor()))));
     }
 
     public static MessageProcessorExecutionTemplate createNotificationExecutionTemplate()
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.execution;
+
+import org.mule.api.MessagingException;
+import org.mule.api.MuleEvent;
+import org.mule.api.construct.FlowConstruct;
+import org.mule.api.construct.MessageProcessorPathResolver;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.management.stats.FlowConstructStatistics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the time each message processor of a flow takes to process an event in the flow
+ * statistics, when they are enabled.
+ */
+class MessageProcessorStatisticsExecutionInterceptor implements MessageProcessorExecutionInterceptor
+{
+
+    private MessageProcessorExecutionInterceptor next;
+
+    MessageProcessorStatisticsExecutionInterceptor(MessageProcessorExecutionInterceptor next)
+    {
+        this.next = next;
+    }
+
+    @Override
+    public MuleEvent execute(MessageProcessor messageProcessor, MuleEvent event) throws MessagingException
+    {
+        FlowConstruct flowConstruct = event.getFlowConstruct();
+        if (!(flowConstruct instanceof MessageProcessorPathResolver))
+        {
+            return next.execute(messageProcessor, event);
+        }
+        FlowConstructStatistics statistics = flowConstruct.getStatistics();
+        if (statistics == null || !statistics.isEnabled())
+        {
+            return next.execute(messageProcessor, event);
+        }
+        String processorPath = ((MessageProcessorPathResolver) flowConstruct).getProcessorPath(messageProcessor);
+        if (processorPath == null)
+        {
+            return next.execute(messageProcessor, event);
+        }
+
+        long startTime = System.nanoTime();
+        try
+        {
+            return next.execute(messageProcessor, event);
+        }
+        finally
+        {
+            statistics.addMessageProcessorLatency(processorPath, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+        }
+    }
+}
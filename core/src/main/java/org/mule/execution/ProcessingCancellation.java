@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.execution;
+
+/**
+ * Cooperative cancellation of the processing done by a thread. While a cancellation is bound
+ * to a thread, the message processor chains executed by it check it before each message
+ * processor and stop with a {@link org.mule.api.MessagingException} once it is cancelled.
+ * <p/>
+ * Cancelling does not interrupt the thread, so a message processor that is already executing
+ * is left to complete.
+ */
+public class ProcessingCancellation
+{
+
+    private static final ThreadLocal<ProcessingCancellation> CURRENT = new ThreadLocal<ProcessingCancellation>();
+
+    private volatile boolean cancelled;
+
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Binds a cancellation to the current thread.
+     *
+     * @param cancellation the cancellation to bind, or null to unbind the current one
+     * @return the cancellation that was bound to the thread, to be bound again once done
+     */
+    public static ProcessingCancellation bind(ProcessingCancellation cancellation)
+    {
+        ProcessingCancellation previous = CURRENT.get();
+        if (cancellation == null)
+        {
+            CURRENT.remove();
+        }
+        else
+        {
+            CURRENT.set(cancellation);
+        }
+        return previous;
+    }
+
+    /**
+     * @return whether the cancellation bound to the current thread, if any, was cancelled
+     */
+    static boolean isCurrentCancelled()
+    {
+        ProcessingCancellation cancellation = CURRENT.get();
+        return cancellation != null && cancellation.cancelled;
+    }
+}
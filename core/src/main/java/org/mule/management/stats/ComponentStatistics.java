@@ -11,6 +11,7 @@ import org.mule.management.stats.printers.SimplePrinter;
 import org.mule.util.StringUtils;
 
 import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -28,14 +29,14 @@ public class ComponentStatistics implements Statistics
      */
     private static final long serialVersionUID = -2086999226732861674L;
 
-    private long minExecutionTime = 0;
-    private long maxExecutionTime = 0;
-    private long averageExecutionTime = 0;
-    private long executedEvent = 0;
-    private long totalExecTime = 0;
+    // updated without locking, so concurrent executions do not wait for each other
+    private final AtomicLong minExecutionTime = new AtomicLong(0);
+    private final AtomicLong maxExecutionTime = new AtomicLong(0);
+    private final StripedCounter executedEvent = new StripedCounter();
+    private final StripedCounter totalExecTime = new StripedCounter();
     private boolean enabled = false;
     private long intervalTime = 0;
-    private long currentIntervalStartTime = 0;
+    private final AtomicLong currentIntervalStartTime = new AtomicLong(0);
     private boolean statIntervalTimeEnabled = false;
 
     /**
@@ -72,11 +73,10 @@ public class ComponentStatistics implements Statistics
 
     public void clear()
     {
-        minExecutionTime = 0;
-        maxExecutionTime = 0;
-        executedEvent = 0;
-        totalExecTime = 0;
-        averageExecutionTime = 0;
+        minExecutionTime.set(0);
+        maxExecutionTime.set(0);
+        executedEvent.reset();
+        totalExecTime.reset();
     }
 
     public boolean isEnabled()
@@ -101,17 +101,17 @@ public class ComponentStatistics implements Statistics
 
     public long getMaxExecutionTime()
     {
-        return maxExecutionTime;
+        return maxExecutionTime.get();
     }
 
     public long getMinExecutionTime()
     {
-        return minExecutionTime;
+        return minExecutionTime.get();
     }
 
     public long getTotalExecutionTime()
     {
-        return totalExecTime;
+        return totalExecTime.sum();
     }
 
     /*
@@ -119,7 +119,7 @@ public class ComponentStatistics implements Statistics
      */
     public long getExecutedEvents()
     {
-        return executedEvent;
+        return executedEvent.sum();
     }
 
     /**
@@ -128,47 +128,27 @@ public class ComponentStatistics implements Statistics
      * @param branch the time to execute this branch
      * @param total the total time (so far) for  processing this event
      */
-    public synchronized void addExecutionBranchTime(boolean first, long branch, long total)
+    public void addExecutionBranchTime(boolean first, long branch, long total)
     {
-        if (statIntervalTimeEnabled)
-        {
-            long currentTime = System.currentTimeMillis();
-            if (currentIntervalStartTime == 0)
-            {
-                currentIntervalStartTime = currentTime;
-            }
-
-            if ((currentTime - currentIntervalStartTime) > intervalTime)
-            {
-                clear();
-                currentIntervalStartTime = currentTime;
-            }
-        }
+        checkInterval();
 
         if (first)
         {
-            executedEvent++;
+            executedEvent.increment();
         }
 
-        totalExecTime += ProcessingTime.getEffectiveTime(branch);
+        totalExecTime.add(ProcessingTime.getEffectiveTime(branch));
         long effectiveTotal = ProcessingTime.getEffectiveTime(total);
-        if (maxExecutionTime == 0 || effectiveTotal > maxExecutionTime)
-        {
-            maxExecutionTime = effectiveTotal;
-        }
-        averageExecutionTime = Math.round(totalExecTime / executedEvent);
+        updateMaximum(maxExecutionTime, effectiveTotal, effectiveTotal);
     }
 
     /**
      * Add the complete execution time for a flow that also reports branhc execution times
      */
-    public synchronized void addCompleteExecutionTime(long time)
+    public void addCompleteExecutionTime(long time)
     {
         long effectiveTime = ProcessingTime.getEffectiveTime(time);
-        if (minExecutionTime == 0 || effectiveTime < minExecutionTime)
-        {
-            minExecutionTime = effectiveTime;
-        }
+        updateMinimum(minExecutionTime, effectiveTime, effectiveTime);
     }
 
     /**
@@ -176,42 +156,69 @@ public class ComponentStatistics implements Statistics
      *
      * @param time
      */
-    public synchronized void addExecutionTime(long time)
+    public void addExecutionTime(long time)
+    {
+        checkInterval();
+
+        executedEvent.increment();
+
+        long effectiveTime = ProcessingTime.getEffectiveTime(time);
+        totalExecTime.add(effectiveTime);
+
+        updateMinimum(minExecutionTime, effectiveTime, time);
+        updateMaximum(maxExecutionTime, effectiveTime, time);
+    }
+
+    /**
+     * Clears the statistics when the current measuring interval is over. Only one of the
+     * threads that notice it clears them.
+     */
+    private void checkInterval()
     {
         if (statIntervalTimeEnabled)
         {
             long currentTime = System.currentTimeMillis();
-            if (currentIntervalStartTime == 0)
+            long intervalStartTime = currentIntervalStartTime.get();
+            if (intervalStartTime == 0)
             {
-                currentIntervalStartTime = currentTime;
+                currentIntervalStartTime.compareAndSet(0, currentTime);
             }
-
-            if ((currentTime - currentIntervalStartTime) > intervalTime)
+            else if ((currentTime - intervalStartTime) > intervalTime
+                     && currentIntervalStartTime.compareAndSet(intervalStartTime, currentTime))
             {
                 clear();
-                currentIntervalStartTime = currentTime;
             }
         }
+    }
 
-        executedEvent++;
-
-        long effectiveTime = ProcessingTime.getEffectiveTime(time);
-        totalExecTime += effectiveTime;
-
-        if (minExecutionTime == 0 || effectiveTime < minExecutionTime)
+    /**
+     * Sets the minimum to value if it was not set yet or candidate is lower than it.
+     */
+    private static void updateMinimum(AtomicLong minimum, long candidate, long value)
+    {
+        long current = minimum.get();
+        while ((current == 0 || candidate < current) && !minimum.compareAndSet(current, value))
         {
-            minExecutionTime = time;
+            current = minimum.get();
         }
-        if (maxExecutionTime == 0 || effectiveTime > maxExecutionTime)
+    }
+
+    /**
+     * Sets the maximum to value if it was not set yet or candidate is greater than it.
+     */
+    private static void updateMaximum(AtomicLong maximum, long candidate, long value)
+    {
+        long current = maximum.get();
+        while ((current == 0 || candidate > current) && !maximum.compareAndSet(current, value))
         {
-            maxExecutionTime = time;
+            current = maximum.get();
         }
-        averageExecutionTime = Math.round(totalExecTime / executedEvent);
     }
 
     public long getAverageExecutionTime()
     {
-        return averageExecutionTime;
+        long executed = executedEvent.sum();
+        return executed == 0 ? 0 : totalExecTime.sum() / executed;
     }
 
 }
@@ -9,22 +9,42 @@ package org.mule.management.stats;
 import org.mule.api.processor.ProcessingStrategy;
 import org.mule.processor.strategy.AsynchronousProcessingStrategy;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class FlowConstructStatistics extends AbstractFlowConstructStatistics implements QueueStatistics
 {
     private static final long serialVersionUID = 5337576392583767442L;
+
+    /**
+     * Greatest processing time tracked by the histograms, in milliseconds
+     */
+    private static final long MAX_TRACKED_PROCESSING_TIME = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Greatest message processor latency tracked by the histograms, in microseconds
+     */
+    private static final long MAX_TRACKED_MESSAGE_PROCESSOR_LATENCY = TimeUnit.HOURS.toMicros(1);
+
     private final AtomicLong executionError = new AtomicLong(0);
     private final AtomicLong fatalError = new AtomicLong(0);
     private int threadPoolSize = 0;
     protected final ComponentStatistics flowStatistics = new ComponentStatistics();
-    
-    // these can't sensibly converted to AtomicLong as they are processed together
-    // in incQueuedEvent
-    private long queuedEvent = 0;
-    private long maxQueuedEvent = 0;
-    private long averageQueueSize = 0;
-    private long totalQueuedEvent = 0;
+    private final LatencyHistogram processingTimeHistogram = new LatencyHistogram(MAX_TRACKED_PROCESSING_TIME);
+    private final ConcurrentMap<String, LatencyHistogram> messageProcessorLatencies = new ConcurrentHashMap<String, LatencyHistogram>();
+
+    private final StripedCounter queuedEvent = new StripedCounter();
+    private final StripedCounter totalQueuedEvent = new StripedCounter();
+    private final StripedCounter dequeuedBatches = new StripedCounter();
+    private final StripedCounter batchDequeuedEvents = new StripedCounter();
+    private final StripedCounter totalQueueWaitTime = new StripedCounter();
+    private final Map<String, RouterStatistics> routerStatistics = new LinkedHashMap<String, RouterStatistics>();
 
 
     public FlowConstructStatistics(String flowConstructType, String name, ProcessingStrategy processingStrategy)
@@ -82,6 +102,10 @@ public class FlowConstructStatistics extends AbstractFlowConstructStatistics imp
     {
         super.setEnabled(b);
         flowStatistics.setEnabled(enabled);
+        for (RouterStatistics statistics : routerStatistics.values())
+        {
+            statistics.setEnabled(enabled);
+        }
     }
 
     public synchronized void clear()
@@ -94,11 +118,85 @@ public class FlowConstructStatistics extends AbstractFlowConstructStatistics imp
         {
             flowStatistics.clear();
         }
+        if (processingTimeHistogram != null)
+        {
+            processingTimeHistogram.reset();
+            messageProcessorLatencies.clear();
+        }
+        if (dequeuedBatches != null)
+        {
+            dequeuedBatches.reset();
+            batchDequeuedEvents.reset();
+            totalQueueWaitTime.reset();
+        }
+        if (routerStatistics != null)
+        {
+            for (RouterStatistics statistics : routerStatistics.values())
+            {
+                statistics.clear();
+            }
+        }
+    }
+
+    /**
+     * Registers the statistics of a router of this flow construct, which are enabled
+     * along with the statistics of the flow construct.
+     *
+     * @param name name for the router statistics, a suffix is appended to it if
+     *            another router already registered statistics with the same name
+     * @return the name the statistics were registered with
+     */
+    public synchronized String addRouterStatistics(String name, RouterStatistics statistics)
+    {
+        String uniqueName = name;
+        for (int i = 2; routerStatistics.containsKey(uniqueName); i++)
+        {
+            uniqueName = name + "-" + i;
+        }
+        statistics.setEnabled(enabled);
+        routerStatistics.put(uniqueName, statistics);
+        return uniqueName;
+    }
+
+    public synchronized void removeRouterStatistics(String name)
+    {
+        routerStatistics.remove(name);
+    }
+
+    /**
+     * @return the statistics of the routers of this flow construct by the name they
+     *         were registered with
+     */
+    public synchronized Map<String, RouterStatistics> getRouterStatistics()
+    {
+        return new LinkedHashMap<String, RouterStatistics>(routerStatistics);
     }
 
     public void addCompleteFlowExecutionTime(long time)
     {
         flowStatistics.addCompleteExecutionTime(time);
+        processingTimeHistogram.recordValue(ProcessingTime.getEffectiveTime(time));
+    }
+
+    /**
+     * Adds the time it took to a message processor of this flow construct to process an event.
+     *
+     * @param processorPath path of the message processor within the flow construct
+     * @param latency processing time in microseconds
+     */
+    public void addMessageProcessorLatency(String processorPath, long latency)
+    {
+        LatencyHistogram histogram = messageProcessorLatencies.get(processorPath);
+        if (histogram == null)
+        {
+            LatencyHistogram newHistogram = new LatencyHistogram(MAX_TRACKED_MESSAGE_PROCESSOR_LATENCY);
+            histogram = messageProcessorLatencies.putIfAbsent(processorPath, newHistogram);
+            if (histogram == null)
+            {
+                histogram = newHistogram;
+            }
+        }
+        histogram.recordValue(latency);
     }
 
     public void addFlowExecutionBranchTime(long time, long total)
@@ -126,6 +224,36 @@ public class FlowConstructStatistics extends AbstractFlowConstructStatistics imp
         return flowStatistics.getMinExecutionTime();
     }
 
+    /**
+     * @param percentile percentile to calculate, between 0 and 100
+     * @return the complete processing time, in milliseconds, that the given percentage of the
+     *         processed events did not exceed
+     */
+    public long getProcessingTimePercentile(double percentile)
+    {
+        return processingTimeHistogram.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * @return the paths of the message processors with recorded latencies
+     */
+    public Set<String> getMessageProcessorPaths()
+    {
+        return Collections.unmodifiableSet(messageProcessorLatencies.keySet());
+    }
+
+    /**
+     * @param processorPath path of the message processor within the flow construct
+     * @param percentile percentile to calculate, between 0 and 100
+     * @return the processing time, in microseconds, that the given percentage of the events
+     *         processed by the message processor did not exceed
+     */
+    public long getMessageProcessorLatencyPercentile(String processorPath, double percentile)
+    {
+        LatencyHistogram histogram = messageProcessorLatencies.get(processorPath);
+        return histogram == null ? 0 : histogram.getValueAtPercentile(percentile);
+    }
+
     public long getTotalProcessingTime()
     {
         return flowStatistics.getTotalExecutionTime();
@@ -146,25 +274,52 @@ public class FlowConstructStatistics extends AbstractFlowConstructStatistics imp
         return threadPoolSize;
     }
 
-    public synchronized void incQueuedEvent()
+    public void incQueuedEvent()
     {
-        queuedEvent++;
-        totalQueuedEvent++;
-        if (queuedEvent > maxQueuedEvent)
-        {
-            maxQueuedEvent = queuedEvent;
-        }
-        averageQueueSize = receivedEventASync.get() / totalQueuedEvent;
+        queuedEvent.increment();
+        totalQueuedEvent.increment();
+    }
+
+    public void decQueuedEvent()
+    {
+        queuedEvent.decrement();
     }
 
-    public synchronized void decQueuedEvent()
+    public long getQueuedEvents()
     {
-        queuedEvent--;
+        return queuedEvent.sum();
     }
     
-    public synchronized long getAverageQueueSize()
+    public long getAverageQueueSize()
+    {
+        long totalQueued = totalQueuedEvent.sum();
+        return totalQueued == 0 ? 0 : receivedEventASync.sum() / totalQueued;
+    }
+
+    public void addDequeuedBatch(int batchSize, long queueWaitTime)
+    {
+        dequeuedBatches.increment();
+        batchDequeuedEvents.add(batchSize);
+        totalQueueWaitTime.add(queueWaitTime);
+    }
+
+    /**
+     * @return the average number of events taken together from the queue, or zero if the queue
+     *         is not consumed in batches
+     */
+    public long getAverageDequeuedBatchSize()
+    {
+        long batches = dequeuedBatches.sum();
+        return batches == 0 ? 0 : batchDequeuedEvents.sum() / batches;
+    }
+
+    /**
+     * @return the average time, in milliseconds, the events taken in batches spent in the queue
+     */
+    public long getAverageQueueWaitTime()
     {
-        return averageQueueSize;
+        long events = batchDequeuedEvents.sum();
+        return events == 0 ? 0 : totalQueueWaitTime.sum() / events;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of latencies, used to calculate percentiles with a bounded relative
+ * error and a fixed memory footprint.
+ * <p/>
+ * Values below <em>2^precisionBits</em> have a bucket each. Above that, every power of two range
+ * is split in <em>2^(precisionBits - 1)</em> buckets, so a value is reported with a relative
+ * error of at most <em>2^(1 - precisionBits)</em>. Recording a value only increments the
+ * counter of its bucket, so it never blocks and never allocates.
+ * <p/>
+ * The histogram does not care about the unit of the values, it is up to its users to record
+ * all of them in the same unit.
+ */
+public class LatencyHistogram implements Serializable
+{
+
+    private static final long serialVersionUID = 4785632897812632155L;
+
+    /**
+     * Gives a relative error of at most 1/32, about 3%
+     */
+    public static final int DEFAULT_PRECISION_BITS = 6;
+
+    private final int precisionBits;
+    private final int subBucketCount;
+    private final int subBucketHalfCount;
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * @param highestTrackableValue greater values are recorded as this one
+     */
+    public LatencyHistogram(long highestTrackableValue)
+    {
+        this(highestTrackableValue, DEFAULT_PRECISION_BITS);
+    }
+
+    /**
+     * @param highestTrackableValue greater values are recorded as this one
+     * @param precisionBits number of bits of each value that are preserved
+     */
+    public LatencyHistogram(long highestTrackableValue, int precisionBits)
+    {
+        if (precisionBits < 1 || precisionBits > 30)
+        {
+            throw new IllegalArgumentException("Precision bits must be between 1 and 30");
+        }
+        if (highestTrackableValue < 1)
+        {
+            throw new IllegalArgumentException("Highest trackable value must be positive");
+        }
+        this.precisionBits = precisionBits;
+        this.subBucketCount = 1 << precisionBits;
+        this.subBucketHalfCount = subBucketCount >> 1;
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new AtomicLongArray(bucketIndex(highestTrackableValue) + 1);
+    }
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     */
+    public void recordValue(long value)
+    {
+        long trackedValue = Math.min(Math.max(value, 0), highestTrackableValue);
+        counts.incrementAndGet(bucketIndex(trackedValue));
+
+        long currentMax = maxValue.get();
+        while (trackedValue > currentMax && !maxValue.compareAndSet(currentMax, trackedValue))
+        {
+            currentMax = maxValue.get();
+        }
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getTotalCount()
+    {
+        long totalCount = 0;
+        for (int i = 0; i < counts.length(); i++)
+        {
+            totalCount += counts.get(i);
+        }
+        return totalCount;
+    }
+
+    /**
+     * @return the greatest recorded value
+     */
+    public long getMaxValue()
+    {
+        return maxValue.get();
+    }
+
+    /**
+     * @param percentile percentile to calculate, between 0 and 100
+     * @return the value that the given percentage of the recorded values do not exceed, or
+     *         <em>0</em> if no value was recorded
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        long[] snapshot = new long[counts.length()];
+        long totalCount = 0;
+        for (int i = 0; i < snapshot.length; i++)
+        {
+            snapshot[i] = counts.get(i);
+            totalCount += snapshot[i];
+        }
+        if (totalCount == 0)
+        {
+            return 0;
+        }
+
+        double boundedPercentile = Math.min(Math.max(percentile, 0), 100);
+        long countAtPercentile = Math.max(1, (long) Math.ceil(boundedPercentile / 100 * totalCount));
+        long cumulativeCount = 0;
+        for (int i = 0; i < snapshot.length; i++)
+        {
+            cumulativeCount += snapshot[i];
+            if (cumulativeCount >= countAtPercentile)
+            {
+                return Math.min(highestEquivalentValue(i), getMaxValue());
+            }
+        }
+        return getMaxValue();
+    }
+
+    /**
+     * Discards all the recorded values.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < counts.length(); i++)
+        {
+            counts.set(i, 0);
+        }
+        maxValue.set(0);
+    }
+
+    private int bucketIndex(long value)
+    {
+        if (value < subBucketCount)
+        {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - precisionBits;
+        return subBucketCount + (shift - 1) * subBucketHalfCount + (int) (value >>> shift) - subBucketHalfCount;
+    }
+
+    private long highestEquivalentValue(int bucketIndex)
+    {
+        if (bucketIndex < subBucketCount)
+        {
+            return bucketIndex;
+        }
+        int offset = bucketIndex - subBucketCount;
+        int shift = offset / subBucketHalfCount + 1;
+        long lowestEquivalentValue = (long) (offset % subBucketHalfCount + subBucketHalfCount) << shift;
+        return lowestEquivalentValue + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import org.mule.api.management.stats.Statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <code>NotificationStatistics</code> keeps track of the asynchronous notifications
+ * delivered by the {@link org.mule.context.notification.ServerNotificationManager}: how
+ * many have been dispatched or dropped and how long they waited before being delivered.
+ * Latencies are measured from the creation of the notification and are expressed in
+ * milliseconds.
+ */
+public class NotificationStatistics implements Statistics
+{
+    private static final long serialVersionUID = 2519846524350137413L;
+
+    private volatile boolean enabled = false;
+    private final AtomicLong dispatched = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
+    private final AtomicLong totalLatency = new AtomicLong(0);
+    private final AtomicLong maxLatency = new AtomicLong(0);
+
+    public void notificationDispatched(long latency)
+    {
+        if (enabled)
+        {
+            dispatched.incrementAndGet();
+            totalLatency.addAndGet(latency);
+
+            long currentMax = maxLatency.get();
+            while (latency > currentMax && !maxLatency.compareAndSet(currentMax, latency))
+            {
+                currentMax = maxLatency.get();
+            }
+        }
+    }
+
+    public void notificationDropped()
+    {
+        if (enabled)
+        {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public long getDispatchedNotifications()
+    {
+        return dispatched.get();
+    }
+
+    public long getDroppedNotifications()
+    {
+        return dropped.get();
+    }
+
+    public long getAverageLatency()
+    {
+        long count = dispatched.get();
+        return count == 0 ? 0 : totalLatency.get() / count;
+    }
+
+    public long getMaxLatency()
+    {
+        return maxLatency.get();
+    }
+
+    public void clear()
+    {
+        dispatched.set(0);
+        dropped.set(0);
+        totalLatency.set(0);
+        maxLatency.set(0);
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+}
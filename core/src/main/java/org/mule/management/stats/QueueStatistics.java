@@ -16,4 +16,12 @@ public interface QueueStatistics extends Statistics
     void incQueuedEvent();
 
     void decQueuedEvent();
+
+    /**
+     * Records a batch of events taken together from the queue to be processed.
+     *
+     * @param batchSize number of events in the batch
+     * @param queueWaitTime milliseconds the events of the batch spent in the queue, added up
+     */
+    void addDequeuedBatch(int batchSize, long queueWaitTime);
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import org.mule.api.management.stats.Statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of a message receiver that reads from its transport on its own: the messages
+ * received and dropped, the responses that could not be sent and the periods during which
+ * the receiver stopped reading because it could not keep up.
+ * <p/>
+ * The counters are always updated, as they are cheap to maintain.
+ */
+public class ReceiverStatistics implements Statistics
+{
+
+    private static final long serialVersionUID = 2474130623459014547L;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong droppedResponses = new AtomicLong();
+    private final AtomicLong suspendCount = new AtomicLong();
+    private final AtomicLong suspendedTime = new AtomicLong();
+
+    /**
+     * Start of the current suspension in nanoseconds, or 0 if the receiver is reading
+     */
+    private volatile long suspendedSince;
+
+    public boolean isEnabled()
+    {
+        return true;
+    }
+
+    public synchronized void clear()
+    {
+        received.set(0);
+        dropped.set(0);
+        droppedResponses.set(0);
+        suspendCount.set(0);
+        suspendedTime.set(0);
+        if (suspendedSince != 0)
+        {
+            suspendedSince = System.nanoTime();
+        }
+    }
+
+    public void addReceived(int count)
+    {
+        received.addAndGet(count);
+    }
+
+    public void addDropped(int count)
+    {
+        dropped.addAndGet(count);
+    }
+
+    public void incDroppedResponses()
+    {
+        droppedResponses.incrementAndGet();
+    }
+
+    /**
+     * Records that the receiver stopped reading. Has no effect if it is already suspended.
+     */
+    public synchronized void suspended()
+    {
+        if (suspendedSince == 0)
+        {
+            suspendCount.incrementAndGet();
+            suspendedSince = System.nanoTime();
+        }
+    }
+
+    /**
+     * Records that the receiver reads again. Has no effect if it is not suspended.
+     */
+    public synchronized void resumed()
+    {
+        if (suspendedSince != 0)
+        {
+            suspendedTime.addAndGet(System.nanoTime() - suspendedSince);
+            suspendedSince = 0;
+        }
+    }
+
+    /**
+     * @return the number of messages received
+     */
+    public long getReceivedCount()
+    {
+        return received.get();
+    }
+
+    /**
+     * @return the number of messages that were received but not processed
+     */
+    public long getDroppedCount()
+    {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of responses that could not be sent
+     */
+    public long getDroppedResponseCount()
+    {
+        return droppedResponses.get();
+    }
+
+    /**
+     * @return the number of times the receiver stopped reading
+     */
+    public long getSuspendCount()
+    {
+        return suspendCount.get();
+    }
+
+    /**
+     * @return the milliseconds the receiver spent not reading, including the current
+     *         suspension
+     */
+    public synchronized long getSuspendedTime()
+    {
+        long time = suspendedTime.get();
+        if (suspendedSince != 0)
+        {
+            time += System.nanoTime() - suspendedSince;
+        }
+        return time / 1000000;
+    }
+
+    public boolean isSuspended()
+    {
+        return suspendedSince != 0;
+    }
+}
@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+/**
+ * Implemented by the message receivers that keep {@link ReceiverStatistics}, so that they
+ * can be published along with their endpoint.
+ */
+public interface ReceiverStatisticsProvider
+{
+
+    ReceiverStatistics getReceiverStatistics();
+
+}
@@ -11,6 +11,7 @@ import org.mule.api.management.stats.Statistics;
 import org.mule.management.stats.printers.SimplePrinter;
 
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -40,6 +41,7 @@ public class RouterStatistics implements Statistics
     private long totalRouted;
     private long totalReceived;
     private Map routed;
+    private Map<String, RouteProcessingTime> processingTimes;
     private int type;
 
     public synchronized void clear()
@@ -49,6 +51,7 @@ public class RouterStatistics implements Statistics
         totalReceived = 0;
         caughtInCatchAll = 0;
         routed.clear();
+        processingTimes.clear();
     }
 
     /**
@@ -82,6 +85,7 @@ public class RouterStatistics implements Statistics
         super();
         this.type = type;
         routed = new HashMap();
+        processingTimes = new HashMap<String, RouteProcessingTime>();
     }
 
     /**
@@ -117,15 +121,7 @@ public class RouterStatistics implements Statistics
             return;
         }
 
-        String name;
-        if (endpoint instanceof ImmutableEndpoint)
-        {
-            name = ((ImmutableEndpoint)endpoint).getName();
-        }
-        else
-        {
-            name = endpoint.toString();
-        }
+        String name = getRouteName(endpoint);
 
         Long cpt = (Long) routed.get(name);
         long count = 0;
@@ -209,6 +205,59 @@ public class RouterStatistics implements Statistics
         }
     }
 
+    /**
+     * Adds the time it took a route to process a message
+     *
+     * @param endpoint The endpoint or message processor of the route
+     * @param processingTime The processing time in milliseconds
+     */
+    public synchronized void addRouteProcessingTime(Object endpoint, long processingTime)
+    {
+        if (endpoint == null)
+        {
+            return;
+        }
+
+        String name = getRouteName(endpoint);
+        RouteProcessingTime time = processingTimes.get(name);
+        if (time == null)
+        {
+            time = new RouteProcessingTime();
+            processingTimes.put(name, time);
+        }
+        time.add(processingTime);
+    }
+
+    /**
+     * @return the average processing time in milliseconds of the route, or 0 if none was recorded
+     */
+    public synchronized long getAverageRouteProcessingTime(String endpointName)
+    {
+        RouteProcessingTime time = processingTimes.get(endpointName);
+        return time == null ? 0 : time.total / time.count;
+    }
+
+    /**
+     * @return the maximum processing time in milliseconds of the route, or 0 if none was recorded
+     */
+    public synchronized long getMaxRouteProcessingTime(String endpointName)
+    {
+        RouteProcessingTime time = processingTimes.get(endpointName);
+        return time == null ? 0 : time.max;
+    }
+
+    private String getRouteName(Object endpoint)
+    {
+        if (endpoint instanceof ImmutableEndpoint)
+        {
+            return ((ImmutableEndpoint) endpoint).getName();
+        }
+        else
+        {
+            return endpoint.toString();
+        }
+    }
+
     public boolean isInbound()
     {
         return type == TYPE_INBOUND;
@@ -218,4 +267,21 @@ public class RouterStatistics implements Statistics
     {
         return routed;
     }
+
+    private static class RouteProcessingTime implements Serializable
+    {
+
+        private static final long serialVersionUID = -2377435362813757614L;
+
+        private long count;
+        private long total;
+        private long max;
+
+        private void add(long processingTime)
+        {
+            count++;
+            total += processingTime;
+            max = Math.max(max, processingTime);
+        }
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter that spreads its updates over several cells, each one on its own cache line, so
+ * threads updating it concurrently do not contend on the same memory location. Reading the
+ * value adds up all the cells, so it is more expensive than updating it.
+ * <p/>
+ * The value read while other threads update the counter is not an atomic snapshot, which is
+ * fine for statistics.
+ */
+public class StripedCounter implements Serializable
+{
+
+    private static final long serialVersionUID = -2389129405271823532L;
+
+    /**
+     * Number of longs in a 64 bytes cache line. Only the first one of each line is used.
+     */
+    private static final int CELL_PADDING = 8;
+    private static final int MAXIMUM_STRIPES = 64;
+    private static final int DEFAULT_STRIPES = stripesFor(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    public StripedCounter()
+    {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes number of cells to spread the updates over. Rounded up to a power of two.
+     */
+    public StripedCounter(int stripes)
+    {
+        int cellCount = stripesFor(stripes);
+        this.cells = new AtomicLongArray(cellCount * CELL_PADDING);
+        this.mask = cellCount - 1;
+    }
+
+    public void add(long delta)
+    {
+        cells.getAndAdd(cellIndex(), delta);
+    }
+
+    public void increment()
+    {
+        add(1);
+    }
+
+    public void decrement()
+    {
+        add(-1);
+    }
+
+    /**
+     * @return the current value of the counter
+     */
+    public long sum()
+    {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += CELL_PADDING)
+        {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+
+    /**
+     * Sets the counter back to zero.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < cells.length(); i += CELL_PADDING)
+        {
+            cells.set(i, 0);
+        }
+    }
+
+    private int cellIndex()
+    {
+        // spreads consecutive thread ids over different cells
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return ((int) (hash >>> 32) & mask) * CELL_PADDING;
+    }
+
+    private static int stripesFor(int requested)
+    {
+        int stripes = 1;
+        while (stripes < requested && stripes < MAXIMUM_STRIPES)
+        {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.valueOf(sum());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+/**
+ * Statistics of an asynchronous until successful router: besides the routed messages, the
+ * events waiting for a processing attempt and how long the attempts waited to be started
+ * once they were due.
+ * <p/>
+ * The attempts are counted even when the statistics are disabled, as they are cheap to
+ * update.
+ */
+public class UntilSuccessfulStatistics extends RouterStatistics
+{
+
+    private static final long serialVersionUID = -4683560285207326165L;
+
+    private final StripedCounter attempts = new StripedCounter();
+    private final StripedCounter totalDispatchDelay = new StripedCounter();
+    private volatile int retryBacklog;
+
+    public UntilSuccessfulStatistics()
+    {
+        super(TYPE_OUTBOUND);
+    }
+
+    @Override
+    public synchronized void clear()
+    {
+        super.clear();
+        attempts.reset();
+        totalDispatchDelay.reset();
+    }
+
+    /**
+     * Records a processing attempt being started.
+     *
+     * @param dispatchDelay milliseconds between the attempt being due and it being started
+     */
+    public void addAttempt(long dispatchDelay)
+    {
+        attempts.increment();
+        totalDispatchDelay.add(dispatchDelay);
+    }
+
+    /**
+     * @return the number of processing attempts started
+     */
+    public long getAttemptCount()
+    {
+        return attempts.sum();
+    }
+
+    /**
+     * @return the average time in milliseconds between an attempt being due and it being
+     *         started
+     */
+    public long getAverageDispatchDelay()
+    {
+        long count = attempts.sum();
+        return count == 0 ? 0 : totalDispatchDelay.sum() / count;
+    }
+
+    public void setRetryBacklog(int retryBacklog)
+    {
+        this.retryBacklog = retryBacklog;
+    }
+
+    /**
+     * @return the number of events waiting for an attempt or being attempted
+     */
+    public int getRetryBacklog()
+    {
+        return retryBacklog;
+    }
+}
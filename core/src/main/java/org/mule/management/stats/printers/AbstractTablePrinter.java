@@ -38,7 +38,7 @@ public class AbstractTablePrinter extends PrintWriter
 
     public String[] getHeaders()
     {
-        String[] column = new String[41];
+        String[] column = new String[44];
         column[0] = "Name";
         column[1] = "Service Pool Max Size";
         column[2] = "Service Pool Size";
@@ -80,6 +80,9 @@ public class AbstractTablePrinter extends PrintWriter
         column[38] = "By Provider";
         column[39] = "";
         column[40] = "Sample Period";
+        column[41] = "Processing Time p50";
+        column[42] = "Processing Time p99";
+        column[43] = "Processing Time p999";
         return column;
     }
 
@@ -152,6 +155,12 @@ public class AbstractTablePrinter extends PrintWriter
         }
 
         col[40] = String.valueOf(stats.getSamplePeriod());
+
+        // percentiles are the last columns of every printer
+        int percentiles = col.length - 3;
+        col[percentiles] = String.valueOf(stats.getProcessingTimePercentile(50));
+        col[percentiles + 1] = String.valueOf(stats.getProcessingTimePercentile(99));
+        col[percentiles + 2] = String.valueOf(stats.getProcessingTimePercentile(99.9));
     }
 
     protected int getRouterInfo(RouterStatistics stats, String[] col, int index)
@@ -40,7 +40,7 @@ public class XMLPrinter extends AbstractTablePrinter
 
     public String[] getHeaders()
     {
-        String[] column = new String[42];
+        String[] column = new String[45];
         column[0] = "Service Name";
         column[1] = "Service Pool Max Size";
         column[2] = "Service Pool Size";
@@ -83,6 +83,9 @@ public class XMLPrinter extends AbstractTablePrinter
         column[39] = "Providers";
         column[40] = "Router";
         column[41] = "Sample Period";
+        column[42] = "Processing Time p50";
+        column[43] = "Processing Time p99";
+        column[44] = "Processing Time p999";
         return column;
     }
     
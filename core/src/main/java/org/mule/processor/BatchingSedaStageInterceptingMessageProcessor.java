@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.processor;
+
+import org.mule.api.MuleContext;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.config.ThreadingProfile;
+import org.mule.api.context.WorkManager;
+import org.mule.config.QueueProfile;
+import org.mule.management.stats.QueueStatistics;
+import org.mule.service.Pausable;
+import org.mule.util.queue.QueueSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkException;
+
+/**
+ * SEDA stage whose worker threads take the events from the queue themselves, in batches, and
+ * process them in the same thread. Unlike {@link SedaStageInterceptingMessageProcessor} there is
+ * no thread dedicated to polling the queue, and no hand-off to the work manager for each event.
+ * <p/>
+ * As many consumers as the maximum number of active threads of the threading profile are
+ * started. Each one takes up to {@code maxBatchSize} events from the queue, waiting only for the
+ * first one, and processes them one after the other. When its queue is empty, a consumer takes a
+ * batch from any other started stage of the same group before waiting on its own queue, so idle
+ * threads help with the stages that are falling behind.
+ * <p/>
+ * The events taken by a consumer are not available to the other consumers until it processes
+ * them, so a small batch size should be used when the processing time of each event is long.
+ */
+public class BatchingSedaStageInterceptingMessageProcessor extends SedaStageInterceptingMessageProcessor
+{
+
+    private final int maxBatchSize;
+    private final int consumers;
+    private final Collection<BatchingSedaStageInterceptingMessageProcessor> stageGroup;
+    private final AtomicInteger runningConsumers = new AtomicInteger(0);
+    private final ConcurrentMap<String, Long> enqueueTimes = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * @param stageGroup stages whose queues can be consumed by the consumers of this one when
+     *            its own queue is empty, or null to only consume its own queue. This stage is
+     *            added to it while started.
+     */
+    public BatchingSedaStageInterceptingMessageProcessor(String threadName,
+                                                         String queueName,
+                                                         QueueProfile queueProfile,
+                                                         int queueTimeout,
+                                                         ThreadingProfile threadingProfile,
+                                                         QueueStatistics queueStatistics,
+                                                         MuleContext muleContext,
+                                                         int maxBatchSize,
+                                                         Collection<BatchingSedaStageInterceptingMessageProcessor> stageGroup)
+    {
+        super(threadName, queueName, queueProfile, queueTimeout, threadingProfile, queueStatistics, muleContext);
+        if (maxBatchSize < 1)
+        {
+            throw new IllegalArgumentException("maxBatchSize must be greater than zero");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.consumers = Math.max(1, threadingProfile.getMaxThreadsActive());
+        this.stageGroup = stageGroup;
+    }
+
+    @Override
+    protected void enqueue(MuleEvent event) throws Exception
+    {
+        if (isStatsEnabled())
+        {
+            enqueueTimes.put(event.getId(), System.currentTimeMillis());
+        }
+        try
+        {
+            super.enqueue(event);
+        }
+        catch (Exception e)
+        {
+            enqueueTimes.remove(event.getId());
+            throw e;
+        }
+    }
+
+    @Override
+    protected void scheduleQueueConsumers() throws WorkException, MuleException
+    {
+        running.set(true);
+        for (int i = 0; i < consumers; i++)
+        {
+            runningConsumers.incrementAndGet();
+            try
+            {
+                workManagerSource.getWorkManager().scheduleWork(new QueueConsumer(), WorkManager.INDEFINITE,
+                    null, new AsyncWorkListener(next));
+            }
+            catch (WorkException e)
+            {
+                consumerFinished();
+                throw e;
+            }
+        }
+        if (stageGroup != null)
+        {
+            stageGroup.add(this);
+        }
+    }
+
+    @Override
+    public void stop() throws MuleException
+    {
+        if (stageGroup != null)
+        {
+            stageGroup.remove(this);
+        }
+        super.stop();
+        enqueueTimes.clear();
+    }
+
+    @Override
+    public void run()
+    {
+        // the queue is consumed by the QueueConsumer works
+    }
+
+    /**
+     * Takes up to {@code maxBatchSize} events from the queue, waiting for the first one at most
+     * the given number of milliseconds.
+     *
+     * @return true if any event was taken
+     */
+    private boolean dequeueBatch(List<MuleEvent> batch, long timeout) throws Exception
+    {
+        MuleEvent event = dequeue(timeout);
+        while (event != null)
+        {
+            batch.add(event);
+            if (batch.size() >= maxBatchSize)
+            {
+                break;
+            }
+            event = dequeue(0);
+        }
+        return !batch.isEmpty();
+    }
+
+    /**
+     * Takes a batch from the queue of another stage of the group.
+     *
+     * @return the stage the batch was taken from, or null if there was nothing to take
+     */
+    private BatchingSedaStageInterceptingMessageProcessor stealBatch(List<MuleEvent> batch) throws Exception
+    {
+        if (stageGroup == null)
+        {
+            return null;
+        }
+        List<BatchingSedaStageInterceptingMessageProcessor> stages = new ArrayList<BatchingSedaStageInterceptingMessageProcessor>(stageGroup);
+        int size = stages.size();
+        if (size < 2)
+        {
+            return null;
+        }
+        // start at a random stage so idle consumers do not all go to the same one
+        int offset = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; i++)
+        {
+            BatchingSedaStageInterceptingMessageProcessor stage = stages.get((offset + i) % size);
+            if (stage != this && stage.canBeStolenFrom() && stage.dequeueBatch(batch, 0))
+            {
+                return stage;
+            }
+        }
+        return null;
+    }
+
+    private boolean canBeStolenFrom()
+    {
+        return queue != null && lifecycleManager.getState().isStarted()
+               && !lifecycleManager.isPhaseComplete(Pausable.PHASE_NAME) && getQueueSize() > 0;
+    }
+
+    private void processBatch(List<MuleEvent> batch)
+    {
+        if (isStatsEnabled())
+        {
+            long now = System.currentTimeMillis();
+            long queueWaitTime = 0;
+            for (MuleEvent event : batch)
+            {
+                Long enqueueTime = enqueueTimes.remove(event.getId());
+                if (enqueueTime != null)
+                {
+                    queueWaitTime += now - enqueueTime;
+                }
+            }
+            queueStatistics.addDequeuedBatch(batch.size(), queueWaitTime);
+        }
+
+        for (MuleEvent event : batch)
+        {
+            if (isStatsEnabled())
+            {
+                queueStatistics.decQueuedEvent();
+            }
+            if (logger.isDebugEnabled())
+            {
+                logger.debug(String.format("%s: Dequeued event from %s", getStageDescription(), getQueueName()));
+            }
+            new AsyncMessageProcessorWorker(event).run();
+        }
+    }
+
+    /**
+     * Puts the events of a batch that will not be processed back at the front of the queue, in
+     * their original order.
+     */
+    private void rollbackBatch(List<MuleEvent> batch)
+    {
+        if (batch.isEmpty())
+        {
+            return;
+        }
+        // the queue does not accept events from an interrupted thread
+        boolean interrupted = Thread.interrupted();
+        for (int i = batch.size() - 1; i >= 0; i--)
+        {
+            rollbackDequeue(batch.get(i));
+        }
+        batch.clear();
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consumerFinished()
+    {
+        if (runningConsumers.decrementAndGet() == 0)
+        {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Takes batches from the queue and processes them until the stage is stopped.
+     */
+    private class QueueConsumer implements Work
+    {
+
+        @Override
+        public void run()
+        {
+            QueueSession queueSession = muleContext.getQueueManager().getQueueSession();
+            List<MuleEvent> batch = new ArrayList<MuleEvent>(maxBatchSize);
+            try
+            {
+                while (!lifecycleManager.getState().isStopped())
+                {
+                    BatchingSedaStageInterceptingMessageProcessor source = BatchingSedaStageInterceptingMessageProcessor.this;
+                    try
+                    {
+                        if (!waitUntilConsuming(queueSession))
+                        {
+                            break;
+                        }
+                        if (!dequeueBatch(batch, 0))
+                        {
+                            BatchingSedaStageInterceptingMessageProcessor victim = stealBatch(batch);
+                            if (victim != null)
+                            {
+                                source = victim;
+                            }
+                            else
+                            {
+                                dequeueBatch(batch, queueTimeout);
+                            }
+                        }
+                    }
+                    catch (InterruptedException e)
+                    {
+                        source.rollbackBatch(batch);
+                        break;
+                    }
+                    catch (Exception e)
+                    {
+                        muleContext.getExceptionListener().handleException(e);
+                    }
+
+                    if (!batch.isEmpty())
+                    {
+                        source.processBatch(batch);
+                        batch.clear();
+                    }
+                }
+            }
+            finally
+            {
+                consumerFinished();
+            }
+        }
+
+        @Override
+        public void release()
+        {
+            // nothing to release
+        }
+    }
+}
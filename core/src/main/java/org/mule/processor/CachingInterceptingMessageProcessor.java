@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.processor;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.cache.CachingStrategy;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.cache.InMemoryCachingStrategy;
+
+/**
+ * Processes the next {@link MessageProcessor} through a {@link CachingStrategy}, so its
+ * response may be taken from a cache instead. When no strategy is configured an
+ * {@link InMemoryCachingStrategy} with its default settings is used.
+ */
+public class CachingInterceptingMessageProcessor extends AbstractInterceptingMessageProcessor
+{
+
+    private CachingStrategy cachingStrategy = new InMemoryCachingStrategy();
+
+    public MuleEvent process(MuleEvent event) throws MuleException
+    {
+        if (next == null)
+        {
+            return event;
+        }
+        return cachingStrategy.process(event, new MessageProcessor()
+        {
+            @Override
+            public MuleEvent process(MuleEvent event) throws MuleException
+            {
+                return processNext(event);
+            }
+        });
+    }
+
+    public CachingStrategy getCachingStrategy()
+    {
+        return cachingStrategy;
+    }
+
+    public void setCachingStrategy(CachingStrategy cachingStrategy)
+    {
+        this.cachingStrategy = cachingStrategy;
+    }
+}
@@ -56,7 +56,7 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
     protected String queueName;
     protected Queue queue;
     protected QueueConfiguration queueConfiguration;
-    private WaitableBoolean running = new WaitableBoolean(false);
+    protected WaitableBoolean running = new WaitableBoolean(false);
     protected SedaStageLifecycleManager lifecycleManager;
 
     public SedaStageInterceptingMessageProcessor(String threadName,
@@ -118,6 +118,15 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
     }
 
     protected MuleEvent dequeue() throws Exception
+    {
+        return dequeue(queueTimeout);
+    }
+
+    /**
+     * Takes the next event from the queue, waiting up to the given number of milliseconds for it
+     * to arrive. A timeout of zero returns immediately if the queue is empty.
+     */
+    protected MuleEvent dequeue(long timeout) throws Exception
     {
         if (queue == null)
         {
@@ -126,10 +135,10 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
         if (logger.isTraceEnabled())
         {
             logger.trace(MessageFormat.format("{0}: Polling queue {1}, timeout = {2}", getStageName(),
-                getStageDescription(), queueTimeout));
+                getStageDescription(), timeout));
         }
 
-        MuleEvent event = (MuleEvent)queue.poll(queueTimeout);
+        MuleEvent event = (MuleEvent)queue.poll(timeout);
         // If the service has been paused why the poll was waiting for an event to
         // arrive on the queue,
         // we put the object back on the queue
@@ -175,33 +184,9 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
         {
             try
             {
-                // Wait if the service is paused
-                if (lifecycleManager.isPhaseComplete(Pausable.PHASE_NAME))
+                if (!waitUntilConsuming(queueSession))
                 {
-                    waitIfPaused();
-
-                    // If service is resumed as part of stopping
-                    if (lifecycleManager.getState().isStopping())
-                    {
-                        if (!isQueuePersistent() && (queueSession != null && getQueueSize() > 0))
-                        {
-                            // Any messages in a non-persistent queue when paused
-                            // service is stopped are lost
-                            logger.warn(CoreMessages.stopPausedSedaStageNonPeristentQueueMessageLoss(
-                                getQueueSize(), getQueueName()));
-                        }
-                        break;
-                    }
-                }
-
-                // If we're doing a draining stop, read all events from the queue
-                // before stopping
-                if (lifecycleManager.getState().isStopping())
-                {
-                    if (isQueuePersistent() || queueSession == null || getQueueSize() <= 0)
-                    {
-                        break;
-                    }
+                    break;
                 }
 
                 event = (DefaultMuleEvent)dequeue();
@@ -271,6 +256,46 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
         running.set(false);
     }
 
+    /**
+     * Waits while the stage is paused and tells whether events should still be taken from the
+     * queue: once the stage is stopping, only the events of a non persistent queue are consumed
+     * before stopping.
+     *
+     * @return false if the thread consuming the queue should finish
+     */
+    protected boolean waitUntilConsuming(QueueSession queueSession) throws InterruptedException
+    {
+        // Wait if the service is paused
+        if (lifecycleManager.isPhaseComplete(Pausable.PHASE_NAME))
+        {
+            waitIfPaused();
+
+            // If service is resumed as part of stopping
+            if (lifecycleManager.getState().isStopping())
+            {
+                if (!isQueuePersistent() && (queueSession != null && getQueueSize() > 0))
+                {
+                    // Any messages in a non-persistent queue when paused
+                    // service is stopped are lost
+                    logger.warn(CoreMessages.stopPausedSedaStageNonPeristentQueueMessageLoss(
+                        getQueueSize(), getQueueName()));
+                }
+                return false;
+            }
+        }
+
+        // If we're doing a draining stop, read all events from the queue
+        // before stopping
+        if (lifecycleManager.getState().isStopping())
+        {
+            if (isQueuePersistent() || queueSession == null || getQueueSize() <= 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /** Are the events in the SEDA queue persistent? */
     protected boolean isQueuePersistent()
     {
@@ -367,9 +392,7 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
                 SedaStageInterceptingMessageProcessor.super.start();
                 try
                 {
-                    workManagerSource.getWorkManager().scheduleWork(
-                        SedaStageInterceptingMessageProcessor.this, WorkManager.INDEFINITE, null,
-                        new AsyncWorkListener(next));
+                    scheduleQueueConsumers();
                 }
                 catch (WorkException e)
                 {
@@ -380,6 +403,16 @@ public class SedaStageInterceptingMessageProcessor extends AsyncInterceptingMess
         });
     }
 
+    /**
+     * Schedules the work that consumes the queue of this stage, which by default is this stage
+     * itself.
+     */
+    protected void scheduleQueueConsumers() throws WorkException, MuleException
+    {
+        workManagerSource.getWorkManager().scheduleWork(this, WorkManager.INDEFINITE, null,
+            new AsyncWorkListener(next));
+    }
+
     @Override
     public void stop() throws MuleException
     {
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.processor.strategy;
+
+import org.mule.api.MuleContext;
+import org.mule.api.config.ThreadingProfile;
+import org.mule.config.QueueProfile;
+import org.mule.processor.AsyncInterceptingMessageProcessor;
+import org.mule.processor.BatchingSedaStageInterceptingMessageProcessor;
+import org.mule.util.concurrent.ThreadNameHelper;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Queued asynchronous strategy whose worker threads take the events from the queue in batches and
+ * process them without handing them off to another thread. When the queue of a stage is empty,
+ * its threads take events from the other stages created by the same strategy, so a strategy
+ * shared by several flows balances their load. See
+ * {@link BatchingSedaStageInterceptingMessageProcessor}.
+ */
+public class BatchingQueuedAsynchronousProcessingStrategy extends QueuedAsynchronousProcessingStrategy
+{
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 16;
+
+    protected int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    protected boolean workStealing = true;
+
+    private final List<BatchingSedaStageInterceptingMessageProcessor> stageGroup = new CopyOnWriteArrayList<BatchingSedaStageInterceptingMessageProcessor>();
+
+    @Override
+    protected AsyncInterceptingMessageProcessor createAsyncMessageProcessor(org.mule.api.processor.StageNameSource nameSource,
+                                                                            MuleContext muleContext)
+    {
+        Integer timeout = queueTimeout != null ? queueTimeout : muleContext.getConfiguration()
+            .getDefaultQueueTimeout();
+
+        initQueueStore(muleContext);
+
+        QueueProfile queueProfile = new QueueProfile(maxQueueSize, queueStore);
+        ThreadingProfile threadingProfile = createThreadingProfile(muleContext);
+        String stageName = nameSource.getName();
+        return new BatchingSedaStageInterceptingMessageProcessor(ThreadNameHelper.flow(muleContext, stageName),
+            stageName, queueProfile, timeout, threadingProfile, queueStatistics, muleContext, maxBatchSize,
+            workStealing ? stageGroup : null);
+    }
+
+    public int getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    /**
+     * @param maxBatchSize maximum number of events a worker thread takes from the queue at once
+     */
+    public void setMaxBatchSize(int maxBatchSize)
+    {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public boolean isWorkStealing()
+    {
+        return workStealing;
+    }
+
+    /**
+     * @param workStealing whether idle worker threads take events from the queues of the other
+     *            stages created by this strategy
+     */
+    public void setWorkStealing(boolean workStealing)
+    {
+        this.workStealing = workStealing;
+    }
+}
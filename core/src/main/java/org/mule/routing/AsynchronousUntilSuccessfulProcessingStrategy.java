@@ -7,6 +7,7 @@
 package org.mule.routing;
 
 import static org.mule.routing.UntilSuccessful.DEFAULT_PROCESS_ATTEMPT_COUNT_PROPERTY_VALUE;
+import static org.mule.routing.UntilSuccessful.NEXT_PROCESS_ATTEMPT_TIME_PROPERTY_NAME;
 import static org.mule.routing.UntilSuccessful.PROCESS_ATTEMPT_COUNT_PROPERTY_NAME;
 
 import org.mule.DefaultMuleEvent;
@@ -15,25 +16,35 @@ import org.mule.VoidMuleEvent;
 import org.mule.api.MessagingException;
 import org.mule.api.MuleEvent;
 import org.mule.api.MuleMessage;
+import org.mule.api.construct.FlowConstruct;
 import org.mule.api.exception.MessagingExceptionHandler;
 import org.mule.api.exception.MessagingExceptionHandlerAware;
+import org.mule.api.lifecycle.Disposable;
 import org.mule.api.lifecycle.Initialisable;
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.api.lifecycle.Startable;
 import org.mule.api.lifecycle.Stoppable;
+import org.mule.api.store.ObjectDoesNotExistException;
 import org.mule.api.store.ObjectStoreException;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.config.i18n.MessageFactory;
+import org.mule.management.stats.UntilSuccessfulStatistics;
 import org.mule.retry.RetryPolicyExhaustedException;
+import org.mule.routing.UntilSuccessfulRetryIndex.PendingRetry;
 import org.mule.util.concurrent.ThreadNameHelper;
 import org.mule.util.queue.objectstore.QueueKey;
 import org.mule.util.store.QueuePersistenceObjectStore;
 
 import java.io.NotSerializableException;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -48,13 +59,35 @@ import org.apache.commons.logging.LogFactory;
  * If route was not successfully executed after the configured retry count then the message
  * will be routed to the defined dead letter queue route or in case there is no dead letter
  * queue route then it will be handled by the flow exception strategy.
+ * <p/>
+ * The keys of the events waiting for an attempt are kept in an index ordered by the time of
+ * their next attempt. Due events are taken from it in batches no bigger than the number of free
+ * threads of the threading profile, so a large backlog of retries, like the one loaded from the
+ * object store on start, does not queue a task for each event. The time of the next attempt is
+ * stored along with the event, so the events loaded on start keep the delay between retries.
+ * <p/>
+ * The retry backlog, the attempts and the delay between an attempt being due and it being
+ * started are published with the {@link UntilSuccessfulStatistics} registered in the statistics
+ * of the flow construct.
  */
-public class AsynchronousUntilSuccessfulProcessingStrategy extends AbstractUntilSuccessfulProcessingStrategy implements Initialisable, Startable, Stoppable, MessagingExceptionHandlerAware
+public class AsynchronousUntilSuccessfulProcessingStrategy extends AbstractUntilSuccessfulProcessingStrategy implements Initialisable, Startable, Stoppable, Disposable, MessagingExceptionHandlerAware
 {
 
     protected transient Log logger = LogFactory.getLog(getClass());
     private MessagingExceptionHandler messagingExceptionHandler;
     private ScheduledExecutorService scheduledPool;
+    private final UntilSuccessfulRetryIndex retryIndex = new UntilSuccessfulRetryIndex();
+    private final AtomicInteger attemptsInProgress = new AtomicInteger();
+    private final Set<Serializable> keysInProgress = Collections.newSetFromMap(new ConcurrentHashMap<Serializable, Boolean>());
+    private int maxAttemptsInProgress;
+    // guarded by this
+    private long nextWakeUpTime = Long.MAX_VALUE;
+
+    private UntilSuccessfulStatistics statistics;
+    /**
+     * Name the {@link #statistics} were registered with in the statistics of the flow construct
+     */
+    private String statisticsName;
 
     @Override
     public void initialise() throws InitialisationException
@@ -65,6 +98,16 @@ public class AsynchronousUntilSuccessfulProcessingStrategy extends AbstractUntil
                     MessageFactory.createStaticMessage("A ListableObjectStore must be configured on UntilSuccessful."),
                     this);
         }
+        statistics = new UntilSuccessfulStatistics();
+        FlowConstruct flowConstruct = getUntilSuccessfulConfiguration().getFlowConstruct();
+        if (flowConstruct != null && flowConstruct.getStatistics() != null)
+        {
+            statisticsName = flowConstruct.getStatistics().addRouterStatistics("until-successful", statistics);
+        }
+        else
+        {
+            statistics.setEnabled(getUntilSuccessfulConfiguration().getMuleContext().getStatistics().isEnabled());
+        }
     }
 
     @Override
@@ -72,16 +115,32 @@ public class AsynchronousUntilSuccessfulProcessingStrategy extends AbstractUntil
     {
         final String threadPrefix = String.format("%s%s.%s", ThreadNameHelper.getPrefix(getUntilSuccessfulConfiguration().getMuleContext()),
                                                   getUntilSuccessfulConfiguration().getFlowConstruct().getName(), "until-successful");
+        maxAttemptsInProgress = Math.max(1, getUntilSuccessfulConfiguration().getThreadingProfile().getMaxThreadsActive());
         scheduledPool = getUntilSuccessfulConfiguration().getThreadingProfile().createScheduledPool(threadPrefix);
         scheduleAllPendingEventsForProcessing();
     }
 
 
     @Override
-    public void stop()
+    public synchronized void stop()
     {
         scheduledPool.shutdown();
         scheduledPool = null;
+        nextWakeUpTime = Long.MAX_VALUE;
+        // the events are still in the object store, so they are indexed again on start. Attempts
+        // still in progress do not schedule their events again until then, see scheduleForProcessing
+        retryIndex.clear();
+        statistics.setRetryBacklog(getRetryBacklog());
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (statisticsName != null)
+        {
+            getUntilSuccessfulConfiguration().getFlowConstruct().getStatistics().removeRouterStatistics(statisticsName);
+            statisticsName = null;
+        }
     }
 
     @Override
@@ -99,7 +158,7 @@ public class AsynchronousUntilSuccessfulProcessingStrategy extends AbstractUntil
         try
         {
             final Serializable eventStoreKey = storeEvent(event);
-            scheduleForProcessing(eventStoreKey, true);
+            scheduleForProcessing(eventStoreKey, System.currentTimeMillis());
             if (getUntilSuccessfulConfiguration().getAckExpression() == null)
             {
                 return VoidMuleEvent.getInstance();
@@ -118,19 +177,26 @@ public class AsynchronousUntilSuccessfulProcessingStrategy extends AbstractUntil
     {
         try
         {
-            for (final Serializable eventStoreKey : getUntilSuccessfulConfiguration().getObjectStore().allKeys())
+            long now = System.currentTimeMillis();
+            synchronized (this)
             {
-                try
-                {
-                    scheduleForProcessing(eventStoreKey, true);
-                }
-                catch (final Exception e)
+                for (final Serializable eventStoreKey : getUntilSuccessfulConfiguration().getObjectStore().allKeys())
                 {
-                    logger.error(
-                            MessageFactory.createStaticMessage("Failed to schedule for processing event stored with key: "
-                                                               + eventStoreKey), e);
+                    // an attempt that was in progress when stopped schedules its event itself
+                    if (!keysInProgress.contains(eventStoreKey))
+                    {
+                        try
+                        {
+                            retryIndex.schedule(eventStoreKey, getNextProcessAttemptTime(eventStoreKey, now));
+                        }
+                        catch (ObjectDoesNotExistException e)
+                        {
+                            // processed since the keys were listed
+                        }
+                    }
                 }
             }
+            dispatchDueAttempts();
         }
         catch (Exception e)
         {
@@ -142,24 +208,120 @@ public class AsynchronousUntilSuccessfulProcessingStrategy extends AbstractUntil
         }
     }
 
-    private void scheduleForProcessing(final Serializable eventStoreKey, boolean firstTime) throws Exception
+    /**
+     * @return the time of the next attempt stored with the event, or the given default time for
+     *         the events that were not attempted yet
+     */
+    private long getNextProcessAttemptTime(Serializable eventStoreKey, long defaultTime) throws ObjectStoreException
     {
-        this.scheduledPool.schedule(new Callable<Object>()
+        MuleEvent event = getUntilSuccessfulConfiguration().getObjectStore().retrieve(eventStoreKey);
+        Object nextAttemptTime = event.getMessage().getInvocationProperty(NEXT_PROCESS_ATTEMPT_TIME_PROPERTY_NAME);
+        return nextAttemptTime instanceof Long ? (Long) nextAttemptTime : defaultTime;
+    }
+
+    private void scheduleForProcessing(final Serializable eventStoreKey, long dueTime) throws Exception
+    {
+        synchronized (this)
         {
-            @Override
-            public Object call() throws Exception
+            if (scheduledPool == null)
             {
+                // stopped, the event is indexed again from the object store on start
+                return;
+            }
+            retryIndex.schedule(eventStoreKey, dueTime);
+        }
+        dispatchDueAttempts();
+    }
+
+    /**
+     * Starts an attempt for as many due events as there are free threads, and makes sure the
+     * dispatch runs again when the next event is due. It also runs each time an attempt
+     * finishes.
+     */
+    private synchronized void dispatchDueAttempts()
+    {
+        if (scheduledPool == null)
+        {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int freeThreads = maxAttemptsInProgress - attemptsInProgress.get();
+        if (freeThreads > 0)
+        {
+            for (PendingRetry retry : retryIndex.pollDue(now, freeThreads))
+            {
+                attemptsInProgress.incrementAndGet();
+                keysInProgress.add(retry.getEventStoreKey());
                 try
                 {
-                    retrieveAndProcessEvent(eventStoreKey);
+                    scheduledPool.schedule(new ProcessAttempt(retry, now), 0, TimeUnit.MILLISECONDS);
                 }
-                catch (Exception e)
+                catch (RejectedExecutionException e)
                 {
-                    incrementProcessAttemptCountAndRescheduleOrRemoveFromStore(eventStoreKey);
+                    keysInProgress.remove(retry.getEventStoreKey());
+                    attemptsInProgress.decrementAndGet();
+                    logger.warn("Could not schedule processing of event stored with key: " + retry.getEventStoreKey());
                 }
-                return null;
             }
-        }, firstTime ? 0 : getUntilSuccessfulConfiguration().getMillisBetweenRetries(), TimeUnit.MILLISECONDS);
+        }
+
+        statistics.setRetryBacklog(getRetryBacklog());
+
+        long nextDueTime = retryIndex.getNextDueTime();
+        if (nextDueTime > now && nextDueTime < nextWakeUpTime)
+        {
+            nextWakeUpTime = nextDueTime;
+            try
+            {
+                scheduledPool.schedule(new Callable<Object>()
+                {
+                    @Override
+                    public Object call() throws Exception
+                    {
+                        synchronized (AsynchronousUntilSuccessfulProcessingStrategy.this)
+                        {
+                            nextWakeUpTime = Long.MAX_VALUE;
+                        }
+                        dispatchDueAttempts();
+                        return null;
+                    }
+                }, nextDueTime - now, TimeUnit.MILLISECONDS);
+            }
+            catch (RejectedExecutionException e)
+            {
+                nextWakeUpTime = Long.MAX_VALUE;
+            }
+        }
+    }
+
+    /**
+     * @return the number of events waiting for an attempt or being attempted
+     */
+    public int getRetryBacklog()
+    {
+        return retryIndex.size() + attemptsInProgress.get();
+    }
+
+    /**
+     * @return the number of processing attempts started
+     */
+    public long getAttemptCount()
+    {
+        return statistics.getAttemptCount();
+    }
+
+    /**
+     * @return the average time in milliseconds between an attempt being due and it being
+     *         started
+     */
+    public long getAverageDispatchDelay()
+    {
+        return statistics.getAverageDispatchDelay();
+    }
+
+    public UntilSuccessfulStatistics getStatistics()
+    {
+        return statistics;
     }
 
     private void incrementProcessAttemptCountAndRescheduleOrRemoveFromStore(final Serializable eventStoreKey) throws Exception
@@ -176,13 +338,19 @@ public class AsynchronousUntilSuccessfulProcessingStrategy extends AbstractUntil
             if (deliveryAttemptCount <= getUntilSuccessfulConfiguration().getMaxRetries())
             {
                 // we store the incremented version unless the max attempt count has
-                // been reached
+                // been reached, along with the time of the next attempt
+                long nextAttemptTime = System.currentTimeMillis() + getUntilSuccessfulConfiguration().getMillisBetweenRetries();
                 message.setInvocationProperty(PROCESS_ATTEMPT_COUNT_PROPERTY_NAME, deliveryAttemptCount + 1);
+                message.setInvocationProperty(NEXT_PROCESS_ATTEMPT_TIME_PROPERTY_NAME, nextAttemptTime);
                 getUntilSuccessfulConfiguration().getObjectStore().store(eventStoreKey, mutableEvent);
-                this.scheduleForProcessing(eventStoreKey, false);
+                this.scheduleForProcessing(eventStoreKey, nextAttemptTime);
             }
             else
             {
+                if (statistics.isEnabled())
+                {
+                    statistics.incrementNoRoutedMessage();
+                }
                 abandonRetries(event, mutableEvent);
             }
         }
@@ -246,6 +414,44 @@ public class AsynchronousUntilSuccessfulProcessingStrategy extends AbstractUntil
         }
     }
 
+    private class ProcessAttempt implements Callable<Object>
+    {
+
+        private final PendingRetry retry;
+        private final long dispatchTime;
+
+        ProcessAttempt(PendingRetry retry, long dispatchTime)
+        {
+            this.retry = retry;
+            this.dispatchTime = dispatchTime;
+        }
+
+        @Override
+        public Object call() throws Exception
+        {
+            statistics.addAttempt(Math.max(0, dispatchTime - retry.getDueTime()));
+            Serializable eventStoreKey = retry.getEventStoreKey();
+            try
+            {
+                try
+                {
+                    retrieveAndProcessEvent(eventStoreKey);
+                }
+                catch (Exception e)
+                {
+                    incrementProcessAttemptCountAndRescheduleOrRemoveFromStore(eventStoreKey);
+                }
+            }
+            finally
+            {
+                keysInProgress.remove(eventStoreKey);
+                attemptsInProgress.decrementAndGet();
+                dispatchDueAttempts();
+            }
+            return null;
+        }
+    }
+
     private void removeFromStore(final Serializable eventStoreKey)
     {
         try
@@ -264,6 +470,10 @@ public class AsynchronousUntilSuccessfulProcessingStrategy extends AbstractUntil
         final MuleEvent mutableEvent = threadSafeCopy(persistedEvent);
         processEvent(mutableEvent);
         removeFromStore(eventStoreKey);
+        if (statistics.isEnabled())
+        {
+            statistics.incrementRoutedMessage(getUntilSuccessfulConfiguration().getRoute());
+        }
     }
 
     protected MuleEvent threadSafeCopy(final MuleEvent event)
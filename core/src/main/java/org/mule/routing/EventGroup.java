@@ -14,28 +14,38 @@ import org.mule.api.MuleEvent;
 import org.mule.api.MuleException;
 import org.mule.api.MuleMessage;
 import org.mule.api.MuleMessageCollection;
+import org.mule.api.MuleRuntimeException;
 import org.mule.api.MuleSession;
 import org.mule.api.config.MuleProperties;
 import org.mule.api.store.ListableObjectStore;
+import org.mule.api.store.ObjectDoesNotExistException;
 import org.mule.api.store.ObjectStoreException;
 import org.mule.api.store.ObjectStoreManager;
+import org.mule.config.i18n.CoreMessages;
 import org.mule.session.DefaultMuleSession;
 import org.mule.util.ClassUtils;
 import org.mule.util.store.DeserializationPostInitialisable;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.apache.commons.collections.IteratorUtils;
 
 /**
  * <code>EventGroup</code> is a holder over events grouped by a common group Id. This
  * can be used by components such as routers to managed related events.
+ * <p/>
+ * Besides storing the events in its object store, the group keeps the keys of the events
+ * it added in arrival order. This makes {@link #size()} constant time and avoids retrieving
+ * and sorting all the events whenever they are needed in arrival order, which made aggregating
+ * large groups quadratic. A group that was deserialized from a persistent store does not know
+ * the arrival order of the events stored before, so it rebuilds it from the store the first
+ * time it is needed.
  */
 // @ThreadSafe
 public class EventGroup implements Comparable<EventGroup>, Serializable, DeserializationPostInitialisable
@@ -61,6 +71,8 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
     private static boolean hasNoCommonRootId = false;
     private int arrivalOrderCounter = 0;
     private Serializable lastStoredEventKey;
+    // @GuardedBy events, null when the arrival order is unknown
+    transient private List<Serializable> arrivalOrderKeys = new ArrayList<Serializable>();
 
     public static final String DEFAULT_STORE_PREFIX = "DEFAULT_STORE";
 
@@ -186,6 +198,10 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
      * {@link #removeEvent(MuleEvent)}. If you need to do so atomically in order to
      * prevent e.g. concurrent reception/aggregation of the group during iteration,
      * wrap the iteration in a synchronized block on the group instance.
+     * <p/>
+     * The snapshot only includes the keys of the events, which are retrieved from the
+     * store as the iteration goes, so iterating over a large group does not require
+     * holding all its events in memory.
      *
      * @return an iterator over collected {@link MuleEvent}s.
      * @throws ObjectStoreException
@@ -201,7 +217,7 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
             }
             else
             {
-                return IteratorUtils.arrayIterator(this.toArray(sortByArrival));
+                return new EventIterator(new ArrayList<Serializable>(getArrivalOrderKeys()));
             }
         }
     }
@@ -228,22 +244,61 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
     {
         synchronized (events)
         {
-            if (events.allKeys().isEmpty())
+            List<Serializable> keys = getArrivalOrderKeys();
+            if (keys.isEmpty())
             {
                 return EMPTY_EVENTS_ARRAY;
             }
-            List<Serializable> keys = events.allKeys();
             MuleEvent[] eventArray = new MuleEvent[keys.size()];
-            for (int i = 0; i < keys.size(); i++)
+            for (int i = 0; i < eventArray.length; i++)
             {
                 eventArray[i] = events.retrieve(keys.get(i));
             }
-            if (sortByArrival)
+            return eventArray;
+        }
+    }
+
+    /**
+     * @return the keys of the events of this group in arrival order, rebuilding the order from
+     *         the store if it is not known. The order is rebuilt once and then kept up to date.
+     */
+    private List<Serializable> getArrivalOrderKeys() throws ObjectStoreException
+    {
+        if (arrivalOrderKeys == null)
+        {
+            final List<Serializable> keys = events.allKeys();
+            final List<MuleEvent> storedEvents = new ArrayList<MuleEvent>(keys.size());
+            List<Integer> positions = new ArrayList<Integer>(keys.size());
+            for (int i = 0; i < keys.size(); i++)
             {
-                Arrays.sort(eventArray, new ArrivalOrderEventComparator());
+                storedEvents.add(events.retrieve(keys.get(i)));
+                positions.add(i);
             }
-            return eventArray;
+            final ArrivalOrderEventComparator comparator = new ArrivalOrderEventComparator();
+            Collections.sort(positions, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer position1, Integer position2)
+                {
+                    return comparator.compare(storedEvents.get(position1), storedEvents.get(position2));
+                }
+            });
+
+            arrivalOrderKeys = new ArrayList<Serializable>(keys.size());
+            for (Integer position : positions)
+            {
+                arrivalOrderKeys.add(keys.get(position));
+            }
+            // the stored copy of the group may not know about the events added after it was stored
+            if (!positions.isEmpty())
+            {
+                MuleEvent lastEvent = storedEvents.get(positions.get(positions.size() - 1));
+                int lastArrivalOrder = lastEvent.getMessage().getInvocationProperty(MULE_ARRIVAL_ORDER_PROPERTY, -1);
+                arrivalOrderCounter = Math.max(arrivalOrderCounter, lastArrivalOrder);
+            }
+            arrivalOrderCounter = Math.max(arrivalOrderCounter, arrivalOrderKeys.size());
         }
+        return arrivalOrderKeys;
     }
 
     /**
@@ -259,9 +314,11 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
             //Using both event ID and CorrelationSequence since in certain instances
             //when an event is split up, the same event IDs are used.
             Serializable key=event.getId()+event.getMessage().getCorrelationSequence();
+            List<Serializable> keys = getArrivalOrderKeys();
             event.getMessage().setInvocationProperty(MULE_ARRIVAL_ORDER_PROPERTY, ++arrivalOrderCounter);
             lastStoredEventKey = key;
             events.store(key, event);
+            keys.add(key);
 
             if (!hasNoCommonRootId)
             {
@@ -291,6 +348,10 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
         synchronized (events)
         {
             events.remove(event.getId());
+            if (arrivalOrderKeys != null)
+            {
+                arrivalOrderKeys.remove(event.getId());
+            }
         }
     }
 
@@ -315,7 +376,7 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
         {
             try
             {
-                return events.allKeys().size();
+                return getArrivalOrderKeys().size();
             }
             catch (ObjectStoreException e)
             {
@@ -343,7 +404,11 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
      */
     public void clear() throws ObjectStoreException
     {
-        getObjectStoreManager().disposeStore(events);
+        synchronized (events)
+        {
+            getObjectStoreManager().disposeStore(events);
+            arrivalOrderKeys = new ArrayList<Serializable>();
+        }
     }
 
     @Override
@@ -402,18 +467,9 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
         DefaultMessageCollection col = new DefaultMessageCollection(muleContext);
         List<MuleMessage> messages = new ArrayList<MuleMessage>();
 
-        synchronized (events)
-        {
-            for (Serializable id : events.allKeys())
-            {
-                MuleMessage message = events.retrieve(id).getMessage();
-                messages.add(message);
-            }
-        }
-
-        if (sortByArrival)
+        for (MuleEvent event : toArray(sortByArrival))
         {
-            Collections.sort(messages, new ArrivalOrderMessageComparator());
+            messages.add(event.getMessage());
         }
         col.addMessages(messages);
         return col;
@@ -462,7 +518,12 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
         MuleEvent lastStoredEvent = retrieveLastStoredEvent();
         MuleSession session = new DefaultMuleSession(
                 lastStoredEvent.getSession());
-        for (Serializable key : events.allKeys())
+        List<Serializable> keys;
+        synchronized (events)
+        {
+            keys = new ArrayList<Serializable>(getArrivalOrderKeys());
+        }
+        for (Serializable key : keys)
         {
             if (!key.equals(lastStoredEventKey))
             {
@@ -498,6 +559,8 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
 
         String storeKey = storePrefix + ".eventGroup." + groupId;
         this.events = getObjectStoreManager().getObjectStore(storeKey, true);
+        // the events stored while this group was serialized are not known
+        this.arrivalOrderKeys = null;
     }
 
     public boolean isInitialised()
@@ -505,6 +568,61 @@ public class EventGroup implements Comparable<EventGroup>, Serializable, Deseria
         return muleContext != null;
     }
 
+    /**
+     * Iterates over a snapshot of event keys, retrieving each event from the store as it is
+     * reached. Events removed from the group since the snapshot was taken are skipped.
+     */
+    private class EventIterator implements Iterator<MuleEvent>
+    {
+
+        private final Iterator<Serializable> keys;
+        private MuleEvent nextEvent;
+
+        EventIterator(List<Serializable> keys)
+        {
+            this.keys = keys.iterator();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while (nextEvent == null && keys.hasNext())
+            {
+                try
+                {
+                    nextEvent = events.retrieve(keys.next());
+                }
+                catch (ObjectDoesNotExistException e)
+                {
+                    // removed from the group, skip it
+                }
+                catch (ObjectStoreException e)
+                {
+                    throw new MuleRuntimeException(CoreMessages.createStaticMessage("Unable to retrieve event of group " + groupId), e);
+                }
+            }
+            return nextEvent != null;
+        }
+
+        @Override
+        public MuleEvent next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            MuleEvent event = nextEvent;
+            nextEvent = null;
+            return event;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     public final class ArrivalOrderMessageComparator implements Comparator<MuleMessage>
     {
         @Override
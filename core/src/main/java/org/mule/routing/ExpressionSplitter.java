@@ -8,16 +8,24 @@ package org.mule.routing;
 
 import org.mule.DefaultMuleMessage;
 import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
 import org.mule.api.MuleMessage;
 import org.mule.api.expression.ExpressionManager;
 import org.mule.api.lifecycle.Initialisable;
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.expression.ExpressionConfig;
+import org.mule.routing.outbound.CollectionMessageSequence;
+import org.mule.routing.outbound.IteratorMessageSequence;
+import org.mule.streaming.Consumer;
+import org.mule.streaming.ConsumerIterator;
+import org.mule.streaming.Producer;
+import org.mule.streaming.SimpleConsumer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -54,12 +62,50 @@ public class ExpressionSplitter extends AbstractSplitter
         config.validate(expressionManager);
     }
 
+    /**
+     * Iterators, consumers and producers returned by the expression are split lazily, creating the
+     * message of each part only when the part is processed.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected MessageSequence<?> splitMessageIntoSequence(MuleEvent event) throws MuleException
+    {
+        Object result = evaluate(event);
+        if (result instanceof Consumer<?>)
+        {
+            result = new ConsumerIterator<Object>((Consumer<Object>) result);
+        }
+        else if (result instanceof Producer<?>)
+        {
+            result = new ConsumerIterator<Object>(new SimpleConsumer<Object>((Producer<Object>) result));
+        }
+        else if (result instanceof Iterable<?> && !(result instanceof Collection<?>))
+        {
+            result = ((Iterable<?>) result).iterator();
+        }
+
+        if (result instanceof Iterator<?>)
+        {
+            return new IteratorMessageSequence<MuleMessage>(new MessageIterator((Iterator<?>) result));
+        }
+        return new CollectionMessageSequence(splitResult(result));
+    }
+
     @Override
     protected List<MuleMessage> splitMessage(MuleEvent event)
     {
-        Object result = event.getMuleContext()
+        return splitResult(evaluate(event));
+    }
+
+    private Object evaluate(MuleEvent event)
+    {
+        return event.getMuleContext()
             .getExpressionManager()
             .evaluate(config.getFullExpression(expressionManager), event);
+    }
+
+    private List<MuleMessage> splitResult(Object result)
+    {
         if (result instanceof Object[])
         {
             result = Arrays.asList((Object[]) result);
@@ -100,6 +146,35 @@ public class ExpressionSplitter extends AbstractSplitter
         }
     }
 
+    private class MessageIterator implements Iterator<MuleMessage>
+    {
+
+        private final Iterator<?> iterator;
+
+        MessageIterator(Iterator<?> iterator)
+        {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public MuleMessage next()
+        {
+            return new DefaultMuleMessage(iterator.next(), muleContext);
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     public String getCustomEvaluator()
     {
         return config.getCustomEvaluator();
@@ -171,6 +171,8 @@ public class Foreach extends AbstractMessageProcessorOwner implements Initialisa
         }
         splitter.setBatchSize(batchSize);
         splitter.setCounterVariableName(counterVariableName);
+        // the event that arrived to foreach is always returned, so results are not needed
+        splitter.setCollectResults(false);
         splitter.setMuleContext(muleContext);
         messageProcessors.add(0, splitter);
         messageProcessors.add(new MessageFilter(new Filter()
@@ -8,6 +8,7 @@
 package org.mule.routing;
 
 import org.mule.DefaultMuleEvent;
+import org.mule.VoidMuleEvent;
 import org.mule.api.DefaultMuleException;
 import org.mule.api.ExceptionPayload;
 import org.mule.api.MuleEvent;
@@ -23,9 +24,12 @@ import org.mule.api.routing.AggregationContext;
 import org.mule.api.routing.CouldNotRouteOutboundMessageException;
 import org.mule.api.routing.ResponseTimeoutException;
 import org.mule.api.routing.RoutePathNotFoundException;
+import org.mule.api.routing.RouterStatisticsRecorder;
 import org.mule.api.transport.DispatchException;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.config.i18n.MessageFactory;
+import org.mule.execution.ProcessingCancellation;
+import org.mule.management.stats.RouterStatistics;
 import org.mule.message.DefaultExceptionPayload;
 import org.mule.processor.AbstractMessageProcessorOwner;
 import org.mule.processor.chain.DefaultMessageProcessorChainBuilder;
@@ -36,6 +40,9 @@ import org.mule.work.ProcessingMuleEventWork;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import javax.resource.spi.work.WorkException;
@@ -72,6 +79,20 @@ import org.slf4j.LoggerFactory;
  * For advanced use cases, a custom {@link AggregationStrategy} can be applied to
  * customize the logic used to aggregate the route responses back into one single
  * element or to throw exception
+ * </p>
+ * <p>
+ * The routes can be executed by a {@link WorkManager} shared with other routers, in
+ * which case the router does not manage its lifecycle. The number of routes of the
+ * router executing at the same time can be limited with
+ * {@link #setMaxConcurrentRoutes(int)}, and the router can complete as soon as a
+ * number of routes succeeded (first-N or quorum) with
+ * {@link #setMinSuccessfulRoutes(int)}. The routes that are still executing by then
+ * are cancelled and their responses are {@link VoidMuleEvent}s. A route that
+ * already started executing is not interrupted when cancelled: it stops before its
+ * next message processor, and keeps its place in {@link #setMaxConcurrentRoutes(int)}
+ * until then. A message processor that is executing, like one blocked on I/O, is left
+ * to complete.
+ * </p>
  * <p>
  * <b>EIP Reference:</b> <a
  * href="http://www.eaipatterns.com/BroadcastAggregate.html"<a/>
@@ -79,7 +100,8 @@ import org.slf4j.LoggerFactory;
  * 
  * @since 3.5.0
  */
-public class ScatterGatherRouter extends AbstractMessageProcessorOwner implements MessageRouter
+public class ScatterGatherRouter extends AbstractMessageProcessorOwner
+    implements MessageRouter, RouterStatisticsRecorder
 {
 
     private static final Logger logger = LoggerFactory.getLogger(ScatterGatherRouter.class);
@@ -120,6 +142,36 @@ public class ScatterGatherRouter extends AbstractMessageProcessorOwner implement
      */
     private WorkManager workManager;
 
+    /**
+     * Whether {@link #workManager} was created by this router, as opposed to being
+     * shared with other components
+     */
+    private boolean ownsWorkManager;
+
+    /**
+     * Maximum number of routes executing at the same time for all the events
+     * processed by this router. Values lower or equal to zero mean no limit
+     */
+    private int maxConcurrentRoutes = 0;
+
+    /**
+     * Number of routes that need to succeed for the router to complete without
+     * waiting for the remaining routes. Values lower or equal to zero mean all routes
+     */
+    private int minSuccessfulRoutes = 0;
+
+    private int requiredRoutes;
+
+    private Semaphore routePermits;
+
+    private RouterStatistics routerStatistics;
+
+    /**
+     * Name the {@link #routerStatistics} were registered with in the statistics of
+     * the flow construct, if they were created by this router
+     */
+    private String routerStatisticsName;
+
     @Override
     public MuleEvent process(MuleEvent event) throws MuleException
     {
@@ -131,8 +183,7 @@ public class ScatterGatherRouter extends AbstractMessageProcessorOwner implement
         MuleMessage message = event.getMessage();
         AbstractRoutingStrategy.validateMessageIsNotConsumable(event, message);
 
-        List<ProcessingMuleEventWork> works = executeWork(event);
-        MuleEvent response = processResponses(event, works);
+        MuleEvent response = processRoutes(event);
 
         if (response instanceof DefaultMuleEvent)
         {
@@ -145,87 +196,188 @@ public class ScatterGatherRouter extends AbstractMessageProcessorOwner implement
         return response;
     }
 
-    private MuleEvent processResponses(MuleEvent event, List<ProcessingMuleEventWork> works)
-        throws MuleException
+    /**
+     * Executes the routes and collects their responses as they complete. Routes are
+     * scheduled while there is room for them in {@link #maxConcurrentRoutes}, each
+     * one times out {@link #timeout} milliseconds after it was requested and the
+     * routes still running are cancelled once {@link #minSuccessfulRoutes} routes
+     * completed successfully.
+     */
+    private MuleEvent processRoutes(MuleEvent event) throws MuleException
     {
-        List<MuleEvent> responses = new ArrayList<MuleEvent>(works.size());
+        BlockingQueue<RouteWork> completedWorks = new LinkedBlockingQueue<RouteWork>();
+        List<RouteWork> works = new ArrayList<RouteWork>(routes.size());
+        MuleEvent[] responses = new MuleEvent[routes.size()];
+        int pendingRoutes = 0;
+        int successfulRoutes = 0;
 
-        long remainingTimeout = timeout;
-        for (int routeIndex = 0; routeIndex < works.size(); routeIndex++)
+        try
         {
-            MuleEvent response = null;
-            Exception exception = null;
-
-            ProcessingMuleEventWork work = works.get(routeIndex);
-            MessageProcessor route = routes.get(routeIndex);
-
-            long startedAt = System.currentTimeMillis();
-            try
-            {
-                response = work.getResult(remainingTimeout, TimeUnit.MILLISECONDS);
-            }
-            catch (ResponseTimeoutException e)
-            {
-                exception = e;
-            }
-            catch (InterruptedException e)
-            {
-                throw new DefaultMuleException(MessageFactory.createStaticMessage(String.format(
-                    "Was interrupted while waiting for route %d", routeIndex)), e);
-            }
-            catch (Exception e)
+            for (int routeIndex = 0; routeIndex < routes.size() && successfulRoutes < requiredRoutes; routeIndex++)
             {
-                exception = new DispatchException(MessageFactory.createStaticMessage(String.format(
-                    "route number %d failed to be executed", routeIndex)), event, route, e);
-            }
+                RouteWork work = new RouteWork(routeIndex, event, completedWorks);
+                works.add(work);
+                if (scheduleWork(work))
+                {
+                    pendingRoutes++;
+                }
+                else
+                {
+                    // no room for the route before its timeout
+                    collectResponse(work, event, responses);
+                }
 
-            remainingTimeout -= System.currentTimeMillis() - startedAt;
+                for (RouteWork completed = completedWorks.poll(); completed != null; completed = completedWorks.poll())
+                {
+                    // routes do not time out while they are being scheduled, so it was not collected yet
+                    pendingRoutes--;
+                    successfulRoutes += collectResponse(completed, event, responses) ? 1 : 0;
+                }
+            }
 
-            if (exception != null)
+            while (pendingRoutes > 0 && successfulRoutes < requiredRoutes)
             {
-                if (logger.isDebugEnabled())
+                long now = System.currentTimeMillis();
+                long nextDeadline = Long.MAX_VALUE;
+                for (RouteWork work : works)
                 {
-                    logger.debug(
-                        String.format("route %d generated exception for MuleEvent %s", routeIndex,
-                            event.getId()), exception);
+                    if (work.scheduled && !work.collected)
+                    {
+                        if (work.deadline <= now)
+                        {
+                            pendingRoutes--;
+                            collectResponse(work, event, responses);
+                        }
+                        else
+                        {
+                            nextDeadline = Math.min(nextDeadline, work.deadline);
+                        }
+                    }
+                }
+                if (pendingRoutes == 0)
+                {
+                    break;
+                }
+
+                RouteWork completed = completedWorks.poll(nextDeadline - now, TimeUnit.MILLISECONDS);
+                if (completed != null && !completed.collected)
+                {
+                    pendingRoutes--;
+                    successfulRoutes += collectResponse(completed, event, responses) ? 1 : 0;
                 }
-                response = DefaultMuleEvent.copy(event);
-                response.getMessage().setExceptionPayload(new DefaultExceptionPayload(exception));
             }
-            else
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new DefaultMuleException(MessageFactory.createStaticMessage(
+                "Was interrupted while waiting for routes"), e);
+        }
+        finally
+        {
+            for (RouteWork work : works)
             {
-                if (logger.isDebugEnabled())
+                if (!work.collected)
                 {
-                    logger.debug(String.format("route %d executed successfully for event %s", routeIndex,
-                        event.getId()));
+                    work.cancel();
                 }
             }
-
-            responses.add(response);
         }
 
-        return aggregationStrategy.aggregate(new AggregationContext(event, responses));
+        List<MuleEvent> responseList = new ArrayList<MuleEvent>(responses.length);
+        for (int routeIndex = 0; routeIndex < responses.length; routeIndex++)
+        {
+            // routes that were not waited for because enough routes succeeded
+            boolean collected = routeIndex < works.size() && works.get(routeIndex).collected;
+            responseList.add(collected ? responses[routeIndex] : VoidMuleEvent.getInstance());
+        }
+        return aggregationStrategy.aggregate(new AggregationContext(event, responseList));
     }
 
-    private List<ProcessingMuleEventWork> executeWork(MuleEvent event) throws MuleException
+    /**
+     * @return <code>true</code> if the route succeeded
+     */
+    private boolean collectResponse(RouteWork work, MuleEvent event, MuleEvent[] responses)
     {
-        List<ProcessingMuleEventWork> works = new ArrayList<ProcessingMuleEventWork>(routes.size());
+        MuleEvent response = null;
+        Exception exception = null;
+        int routeIndex = work.routeIndex;
+
         try
         {
-            for (final MessageProcessor route : routes)
+            // the work is either finished or timed out at this point
+            response = work.getResult(0, TimeUnit.MILLISECONDS);
+        }
+        catch (ResponseTimeoutException e)
+        {
+            exception = e;
+            work.cancel();
+        }
+        catch (Exception e)
+        {
+            exception = new DispatchException(MessageFactory.createStaticMessage(String.format(
+                "route number %d failed to be executed", routeIndex)), event, routes.get(routeIndex), e);
+        }
+
+        if (exception != null)
+        {
+            if (logger.isDebugEnabled())
             {
-                ProcessingMuleEventWork work = new ProcessingMuleEventWork(route, event);
-                workManager.scheduleWork(work);
-                works.add(work);
+                logger.debug(
+                    String.format("route %d generated exception for MuleEvent %s", routeIndex,
+                        event.getId()), exception);
+            }
+            response = DefaultMuleEvent.copy(event);
+            response.getMessage().setExceptionPayload(new DefaultExceptionPayload(exception));
+        }
+        else
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug(String.format("route %d executed successfully for event %s", routeIndex,
+                    event.getId()));
+            }
+        }
+
+        work.collected = true;
+        responses[routeIndex] = response;
+        return exception == null;
+    }
+
+    /**
+     * @return <code>false</code> if there was no room to execute the route before its
+     *         timeout
+     */
+    private boolean scheduleWork(RouteWork work) throws MuleException, InterruptedException
+    {
+        if (routePermits != null)
+        {
+            long remaining = work.deadline - System.currentTimeMillis();
+            if (!routePermits.tryAcquire(remaining, TimeUnit.MILLISECONDS))
+            {
+                return false;
             }
         }
+
+        try
+        {
+            workManager.scheduleWork(work);
+        }
         catch (WorkException e)
         {
+            if (routePermits != null)
+            {
+                routePermits.release();
+            }
             throw new DefaultMuleException(
                 MessageFactory.createStaticMessage("Could not schedule work for route"), e);
         }
-
-        return works;
+        work.scheduled = true;
+        if (routerStatistics.isEnabled())
+        {
+            routerStatistics.incrementRoutedMessage(routes.get(work.routeIndex));
+        }
+        return true;
     }
 
     @Override
@@ -250,9 +402,25 @@ public class ScatterGatherRouter extends AbstractMessageProcessorOwner implement
                 timeout = Long.MAX_VALUE;
             }
 
-            workManager = threadingProfile.createWorkManager(
-                ThreadNameHelper.getPrefix(muleContext) + "ScatterGatherWorkManager",
-                muleContext.getConfiguration().getShutdownTimeout());
+            if (workManager == null)
+            {
+                workManager = threadingProfile.createWorkManager(
+                    ThreadNameHelper.getPrefix(muleContext) + "ScatterGatherWorkManager",
+                    muleContext.getConfiguration().getShutdownTimeout());
+                ownsWorkManager = true;
+            }
+
+            if (maxConcurrentRoutes > 0)
+            {
+                routePermits = new Semaphore(maxConcurrentRoutes);
+            }
+
+            requiredRoutes = minSuccessfulRoutes > 0 ? Math.min(minSuccessfulRoutes, routes.size()) : routes.size();
+
+            if (routerStatistics == null)
+            {
+                configureStatistics();
+            }
         }
         catch (Exception e)
         {
@@ -263,10 +431,27 @@ public class ScatterGatherRouter extends AbstractMessageProcessorOwner implement
         initialised = true;
     }
 
+    private void configureStatistics()
+    {
+        routerStatistics = new RouterStatistics(RouterStatistics.TYPE_OUTBOUND);
+        if (flowConstruct != null && flowConstruct.getStatistics() != null)
+        {
+            routerStatisticsName = flowConstruct.getStatistics().addRouterStatistics("scatter-gather",
+                routerStatistics);
+        }
+        else
+        {
+            routerStatistics.setEnabled(muleContext.getStatistics().isEnabled());
+        }
+    }
+
     @Override
     public void start() throws MuleException
     {
-        workManager.start();
+        if (ownsWorkManager)
+        {
+            workManager.start();
+        }
         super.start();
     }
 
@@ -275,7 +460,10 @@ public class ScatterGatherRouter extends AbstractMessageProcessorOwner implement
     {
         try
         {
-            workManager.dispose();
+            if (ownsWorkManager)
+            {
+                workManager.dispose();
+            }
         }
         catch (Exception e)
         {
@@ -284,6 +472,11 @@ public class ScatterGatherRouter extends AbstractMessageProcessorOwner implement
         }
         finally
         {
+            if (routerStatisticsName != null)
+            {
+                flowConstruct.getStatistics().removeRouterStatistics(routerStatisticsName);
+                routerStatisticsName = null;
+            }
             super.dispose();
         }
     }
@@ -355,4 +548,106 @@ public class ScatterGatherRouter extends AbstractMessageProcessorOwner implement
     {
         this.routes = routes;
     }
+
+    /**
+     * Sets a {@link WorkManager} to execute the routes instead of creating one from
+     * the {@link ThreadingProfile}. The work manager can be shared with other
+     * routers, so this router neither starts nor disposes it
+     */
+    public void setWorkManager(WorkManager workManager)
+    {
+        this.workManager = workManager;
+    }
+
+    public void setMaxConcurrentRoutes(int maxConcurrentRoutes)
+    {
+        this.maxConcurrentRoutes = maxConcurrentRoutes;
+    }
+
+    public void setMinSuccessfulRoutes(int minSuccessfulRoutes)
+    {
+        this.minSuccessfulRoutes = minSuccessfulRoutes;
+    }
+
+    @Override
+    public void setRouterStatistics(RouterStatistics routerStatistics)
+    {
+        this.routerStatistics = routerStatistics;
+    }
+
+    public RouterStatistics getRouterStatistics()
+    {
+        return routerStatistics;
+    }
+
+    /**
+     * Work executing a route, which notifies its completion through a queue and can
+     * be cancelled. Cancelling a route that did not start prevents it from executing,
+     * a route that already started stops before its next message processor through a
+     * {@link ProcessingCancellation} bound to the thread executing it. The thread is
+     * not interrupted, as that would close the NIO channels it is using.
+     */
+    private class RouteWork extends ProcessingMuleEventWork
+    {
+
+        private final int routeIndex;
+        private final long deadline;
+        private final BlockingQueue<RouteWork> completedWorks;
+
+        // only accessed by the thread processing the event
+        private boolean scheduled;
+        private boolean collected;
+
+        private final ProcessingCancellation cancellation = new ProcessingCancellation();
+
+        RouteWork(int routeIndex, MuleEvent event, BlockingQueue<RouteWork> completedWorks)
+        {
+            super(routes.get(routeIndex), event);
+            this.routeIndex = routeIndex;
+            this.completedWorks = completedWorks;
+            long now = System.currentTimeMillis();
+            this.deadline = timeout > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeout;
+        }
+
+        @Override
+        protected void doRun()
+        {
+            if (cancellation.isCancelled())
+            {
+                releasePermit();
+                return;
+            }
+
+            long startedAt = System.currentTimeMillis();
+            ProcessingCancellation previousCancellation = ProcessingCancellation.bind(cancellation);
+            try
+            {
+                super.doRun();
+            }
+            finally
+            {
+                ProcessingCancellation.bind(previousCancellation);
+                if (routerStatistics.isEnabled())
+                {
+                    routerStatistics.addRouteProcessingTime(routes.get(routeIndex), System.currentTimeMillis()
+                                                                                     - startedAt);
+                }
+                releasePermit();
+                completedWorks.offer(this);
+            }
+        }
+
+        void cancel()
+        {
+            cancellation.cancel();
+        }
+
+        private void releasePermit()
+        {
+            if (routePermits != null)
+            {
+                routePermits.release();
+            }
+        }
+    }
 }
@@ -14,6 +14,7 @@ import org.mule.api.config.ThreadingProfile;
 import org.mule.api.endpoint.EndpointBuilder;
 import org.mule.api.endpoint.EndpointException;
 import org.mule.api.exception.MessagingExceptionHandlerAware;
+import org.mule.api.lifecycle.Disposable;
 import org.mule.api.lifecycle.Initialisable;
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.api.lifecycle.Startable;
@@ -52,6 +53,7 @@ public class UntilSuccessful extends AbstractOutboundRouter implements UntilSucc
 {
 
     public static final String PROCESS_ATTEMPT_COUNT_PROPERTY_NAME = "process.attempt.count";
+    public static final String NEXT_PROCESS_ATTEMPT_TIME_PROPERTY_NAME = "process.next.attempt.time";
     static final int DEFAULT_PROCESS_ATTEMPT_COUNT_PROPERTY_VALUE = 1;
     private static final long DEFAULT_MILLIS_BETWEEN_RETRIES = 60 * 1000;
 
@@ -201,6 +203,16 @@ public class UntilSuccessful extends AbstractOutboundRouter implements UntilSucc
         super.stop();
     }
 
+    @Override
+    public void dispose()
+    {
+        if (untilSuccessfulStrategy instanceof Disposable)
+        {
+            ((Disposable) untilSuccessfulStrategy).dispose();
+        }
+        super.dispose();
+    }
+
     @Override
     public boolean isMatch(final MuleMessage message) throws MuleException
     {
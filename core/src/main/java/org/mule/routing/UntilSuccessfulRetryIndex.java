@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.routing;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keys of the events waiting for a processing attempt of an until successful router,
+ * ordered by the time of their next attempt.
+ * <p/>
+ * Only the keys are held in memory, the events stay in the object store until they are
+ * attempted, so the size of the index does not depend on the size of the events. An event
+ * is held at most once: scheduling a key that is already waiting replaces its due time.
+ */
+class UntilSuccessfulRetryIndex
+{
+
+    private final ConcurrentSkipListSet<PendingRetry> pendingRetries = new ConcurrentSkipListSet<PendingRetry>();
+    // guarded by this, like the changes to pendingRetries
+    private final Map<Serializable, PendingRetry> pendingRetriesByKey = new HashMap<Serializable, PendingRetry>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Adds the key of an event to be attempted once the given time is reached.
+     */
+    synchronized void schedule(Serializable eventStoreKey, long dueTime)
+    {
+        PendingRetry retry = new PendingRetry(eventStoreKey, dueTime, sequence.getAndIncrement());
+        PendingRetry previous = pendingRetriesByKey.put(eventStoreKey, retry);
+        if (previous != null)
+        {
+            pendingRetries.remove(previous);
+        }
+        pendingRetries.add(retry);
+    }
+
+    /**
+     * Removes the retries that are due, in the order they became due.
+     *
+     * @param now the current time
+     * @param maxRetries the maximum number of retries to remove
+     * @return the removed retries, which may be less than maxRetries
+     */
+    synchronized List<PendingRetry> pollDue(long now, int maxRetries)
+    {
+        List<PendingRetry> dueRetries = new ArrayList<PendingRetry>(Math.min(maxRetries, 16));
+        while (dueRetries.size() < maxRetries)
+        {
+            PendingRetry first = firstPendingRetry();
+            if (first == null || first.getDueTime() > now)
+            {
+                break;
+            }
+            pendingRetries.remove(first);
+            pendingRetriesByKey.remove(first.getEventStoreKey());
+            dueRetries.add(first);
+        }
+        return dueRetries;
+    }
+
+    /**
+     * @return the time at which the next retry is due, or {@link Long#MAX_VALUE} if there is none
+     */
+    long getNextDueTime()
+    {
+        PendingRetry first = firstPendingRetry();
+        return first == null ? Long.MAX_VALUE : first.getDueTime();
+    }
+
+    int size()
+    {
+        return pendingRetries.size();
+    }
+
+    synchronized void clear()
+    {
+        pendingRetries.clear();
+        pendingRetriesByKey.clear();
+    }
+
+    private PendingRetry firstPendingRetry()
+    {
+        // unlike first(), does not fail when the set is empty
+        return pendingRetries.ceiling(PendingRetry.FIRST);
+    }
+
+    static class PendingRetry implements Comparable<PendingRetry>
+    {
+
+        private static final PendingRetry FIRST = new PendingRetry(null, Long.MIN_VALUE, Long.MIN_VALUE);
+
+        private final Serializable eventStoreKey;
+        private final long dueTime;
+        private final long sequence;
+
+        PendingRetry(Serializable eventStoreKey, long dueTime, long sequence)
+        {
+            this.eventStoreKey = eventStoreKey;
+            this.dueTime = dueTime;
+            this.sequence = sequence;
+        }
+
+        Serializable getEventStoreKey()
+        {
+            return eventStoreKey;
+        }
+
+        long getDueTime()
+        {
+            return dueTime;
+        }
+
+        @Override
+        public int compareTo(PendingRetry other)
+        {
+            if (dueTime != other.dueTime)
+            {
+                return dueTime < other.dueTime ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+}
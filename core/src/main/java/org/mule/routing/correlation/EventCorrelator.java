@@ -42,6 +42,7 @@ import org.mule.util.store.DeserializationPostInitialisable;
 import java.io.Serializable;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -60,8 +61,12 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
 
     public static final int MAX_PROCESSED_GROUPS = 50000;
 
+    private static final int GROUP_LOCK_STRIPES = 256;
+
     private static final long ONE_DAY_IN_MILLI = 1000 * 60 * 60 * 24;
 
+    private static final long DEFAULT_EXPIRY_INDEXES_RECONCILE_INTERVAL = -1;
+
     protected long groupTimeToLive = ONE_DAY_IN_MILLI;
 
     /**
@@ -71,11 +76,42 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
      */
     protected ListableObjectStore<EventGroup> eventGroups;
 
+    /**
+     * @deprecated no longer used by this class, which locks each group with
+     *             {@link #getGroupLock(Object)}
+     */
+    @Deprecated
     protected final Object groupsLock = new Object();
 
-    // @GuardedBy groupsLock
+    /**
+     * Locks used to ensure only one thread at a time evaluates a group, striped by group id so
+     * that events for different groups do not contend
+     */
+    private final Object[] groupLocks = new Object[GROUP_LOCK_STRIPES];
+
+    // @GuardedBy the lock of each group
     protected ObjectStore<Long> processedGroups = null;
 
+    /**
+     * Creation time of the groups in {@link #eventGroups}, used to find the expired ones
+     */
+    private final EventGroupExpiryIndex eventGroupsExpiryIndex = new EventGroupExpiryIndex();
+
+    /**
+     * Milliseconds between the reconciliations of the expiry indexes with the stores, which pick
+     * up the groups stored by other nodes of a cluster or written to the stores by other means.
+     * Each reconciliation lists all the stored groups, so by default the indexes are only
+     * reconciled when this node becomes the primary one. A positive value opts in to periodic
+     * reconciliations, which is only needed when the stores are shared with other nodes.
+     */
+    protected long expiryIndexesReconcileInterval = DEFAULT_EXPIRY_INDEXES_RECONCILE_INTERVAL;
+
+    /**
+     * When the expiry indexes were last reconciled with the stores, or <em>-1</em> if they must be
+     * reconciled on the next run, as when this node becomes the primary one.
+     */
+    private volatile long expiryIndexesReconciled = -1;
+
     private long timeout = -1; // undefined
 
     private boolean failOnTimeout = true;
@@ -93,6 +129,8 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
      */
     private ListableObjectStore<Long> expiredAndDispatchedGroups = null;
 
+    private final EventGroupExpiryIndex expiredAndDispatchedGroupsExpiryIndex = new EventGroupExpiryIndex();
+
     private EventCorrelator.ExpiringGroupMonitoringThread expiringGroupMonitoringThread;
     private final String name;
 
@@ -140,6 +178,10 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
                                                                                           + ".eventGroups",
                                                                                           persistentStores);
         this.flowConstruct = flowConstruct;
+        for (int i = 0; i < groupLocks.length; i++)
+        {
+            groupLocks[i] = new Object();
+        }
     }
 
     public void forceGroupExpiry(String groupId) throws MessagingException
@@ -237,7 +279,7 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
             }
 
             // ensure that only one thread at a time evaluates this EventGroup
-            synchronized (groupsLock)
+            synchronized (getGroupLock(groupId))
             {
                 if (logger.isDebugEnabled())
                 {
@@ -317,6 +359,7 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
         try
         {
             eventGroups.store((Serializable) group.getGroupId(), group);
+            eventGroupsExpiryIndex.add((Serializable) group.getGroupId(), group.getCreated());
             return group;
         }
         catch (ObjectAlreadyExistsException e)
@@ -329,12 +372,13 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
     {
         final Object groupId = group.getGroupId();
         eventGroups.remove((Serializable) groupId);
+        eventGroupsExpiryIndex.remove((Serializable) groupId);
         addProcessedGroup(groupId);
     }
 
     protected void addProcessedGroup(Object id) throws ObjectStoreException
     {
-        synchronized (groupsLock)
+        synchronized (getGroupLock(id))
         {
             processedGroups.store((Serializable) id, System.currentTimeMillis());
         }
@@ -342,12 +386,67 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
 
     protected boolean isGroupAlreadyProcessed(Object id) throws ObjectStoreException
     {
-        synchronized (groupsLock)
+        synchronized (getGroupLock(id))
         {
             return processedGroups.contains((Serializable) id);
         }
     }
 
+    protected Object getGroupLock(Object groupId)
+    {
+        int hash = groupId.hashCode();
+        hash ^= (hash >>> 16);
+        return groupLocks[hash & (groupLocks.length - 1)];
+    }
+
+    /**
+     * Adds to the expiry indexes the groups that are in the stores but not indexed and removes the
+     * ones that are no longer stored. Only the groups that were not indexed are retrieved.
+     */
+    private void reconcileExpiryIndexes() throws ObjectStoreException
+    {
+        List<Serializable> groupIds = eventGroups.allKeys();
+        eventGroupsExpiryIndex.retainAll(new HashSet<Serializable>(groupIds));
+        for (Serializable groupId : groupIds)
+        {
+            if (!eventGroupsExpiryIndex.contains(groupId))
+            {
+                EventGroup group = getEventGroup(groupId);
+                if (group != null)
+                {
+                    eventGroupsExpiryIndex.add(groupId, group.getCreated());
+                }
+            }
+        }
+
+        groupIds = expiredAndDispatchedGroups.allKeys();
+        expiredAndDispatchedGroupsExpiryIndex.retainAll(new HashSet<Serializable>(groupIds));
+        for (Serializable groupId : groupIds)
+        {
+            if (!expiredAndDispatchedGroupsExpiryIndex.contains(groupId))
+            {
+                try
+                {
+                    expiredAndDispatchedGroupsExpiryIndex.add(groupId, expiredAndDispatchedGroups.retrieve(groupId));
+                }
+                catch (ObjectDoesNotExistException e)
+                {
+                    // Removed since the keys were listed
+                }
+            }
+        }
+    }
+
+    public long getExpiryIndexesReconcileInterval()
+    {
+        return expiryIndexesReconcileInterval;
+    }
+
+    public void setExpiryIndexesReconcileInterval(long expiryIndexesReconcileInterval)
+    {
+        this.expiryIndexesReconcileInterval = expiryIndexesReconcileInterval;
+    }
+
     public boolean isFailOnTimeout()
     {
         return failOnTimeout;
@@ -444,6 +543,8 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
                         }
                         expiredAndDispatchedGroups.store((Serializable) group.getGroupId(),
                                                          group.getCreated());
+                        expiredAndDispatchedGroupsExpiryIndex.add((Serializable) group.getGroupId(),
+                                                                  group.getCreated());
                     }
                     else
                     {
@@ -508,13 +609,14 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
         {
             try
             {
-                for (Serializable o : expiredAndDispatchedGroups.allKeys())
+                long now = System.currentTimeMillis();
+                for (EventGroupExpiryIndex.Entry entry : expiredAndDispatchedGroupsExpiryIndex.getCreatedBefore(now - groupTimeToLive))
                 {
-                    Long time = expiredAndDispatchedGroups.retrieve(o);
-                    if (time + groupTimeToLive < System.currentTimeMillis())
+                    expiredAndDispatchedGroupsExpiryIndex.remove(entry);
+                    if (expiredAndDispatchedGroups.contains(entry.getGroupId()))
                     {
-                        expiredAndDispatchedGroups.remove(o);
-                        logger.warn(MessageFormat.format("Discarding group {0}", o));
+                        expiredAndDispatchedGroups.remove(entry.getGroupId());
+                        logger.warn(MessageFormat.format("Discarding group {0}", entry.getGroupId()));
                     }
                 }
             }
@@ -533,19 +635,34 @@ public class EventCorrelator implements Startable, Stoppable, Disposable
             ////in a different node when the primary goes down.
             if (!muleContext.isPrimaryPollingInstance())
             {
+                expiryIndexesReconciled = -1;
                 return;
             }
 
             List<EventGroup> expired = new ArrayList<EventGroup>(1);
             try
             {
-                for (Serializable o : eventGroups.allKeys())
+                long now = System.currentTimeMillis();
+                if (expiryIndexesReconciled < 0
+                    || (expiryIndexesReconcileInterval > 0 && now - expiryIndexesReconciled >= expiryIndexesReconcileInterval))
                 {
-                    EventGroup group = getEventGroup(o);
-                    if (group.getCreated() + getTimeout() < System.currentTimeMillis())
+                    reconcileExpiryIndexes();
+                    expiryIndexesReconciled = now;
+                }
+
+                // only the groups created before the timeout are visited, so the cost of each
+                // run depends on the number of expired groups rather than on the open ones
+                for (EventGroupExpiryIndex.Entry entry : eventGroupsExpiryIndex.getCreatedBefore(now - getTimeout()))
+                {
+                    EventGroup group = getEventGroup(entry.getGroupId());
+                    if (group != null)
                     {
                         expired.add(group);
                     }
+                    else
+                    {
+                        eventGroupsExpiryIndex.remove(entry);
+                    }
                 }
             }
             catch (ObjectStoreException e)
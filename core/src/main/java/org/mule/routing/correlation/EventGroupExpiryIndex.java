@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.routing.correlation;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Keeps the ids of event groups ordered by their creation time, so the groups created before a
+ * given time can be found without going through all of them.
+ * <p/>
+ * The index does not own the groups: entries may remain for groups that were removed by other
+ * means, so callers must check the group still exists and remove the stale entry if it does not.
+ */
+class EventGroupExpiryIndex
+{
+
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<Entry>();
+    private final ConcurrentMap<Serializable, Long> creationTimes = new ConcurrentHashMap<Serializable, Long>();
+
+    public void add(Serializable groupId, long created)
+    {
+        Long previous = creationTimes.put(groupId, created);
+        if (previous != null && previous != created)
+        {
+            entries.remove(new Entry(groupId, previous));
+        }
+        entries.add(new Entry(groupId, created));
+    }
+
+    public void remove(Serializable groupId)
+    {
+        Long created = creationTimes.remove(groupId);
+        if (created != null)
+        {
+            entries.remove(new Entry(groupId, created));
+        }
+    }
+
+    public void remove(Entry entry)
+    {
+        entries.remove(entry);
+        creationTimes.remove(entry.getGroupId(), entry.getCreated());
+    }
+
+    /**
+     * @return the entries of the groups created before the given time, oldest first
+     */
+    public List<Entry> getCreatedBefore(long time)
+    {
+        List<Entry> result = new ArrayList<Entry>();
+        for (Entry entry : entries)
+        {
+            if (entry.getCreated() >= time)
+            {
+                break;
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    public boolean contains(Serializable groupId)
+    {
+        return creationTimes.containsKey(groupId);
+    }
+
+    /**
+     * Removes the groups that are not in the given collection.
+     */
+    public void retainAll(Collection<Serializable> groupIds)
+    {
+        for (Serializable groupId : creationTimes.keySet())
+        {
+            if (!groupIds.contains(groupId))
+            {
+                remove(groupId);
+            }
+        }
+    }
+
+    public void clear()
+    {
+        entries.clear();
+        creationTimes.clear();
+    }
+
+    public int size()
+    {
+        return creationTimes.size();
+    }
+
+    static final class Entry implements Comparable<Entry>
+    {
+
+        private final Serializable groupId;
+        private final long created;
+
+        Entry(Serializable groupId, long created)
+        {
+            this.groupId = groupId;
+            this.created = created;
+        }
+
+        public Serializable getGroupId()
+        {
+            return groupId;
+        }
+
+        public long getCreated()
+        {
+            return created;
+        }
+
+        @Override
+        public int compareTo(Entry other)
+        {
+            if (created != other.created)
+            {
+                return created < other.created ? -1 : 1;
+            }
+            return groupId.toString().compareTo(other.groupId.toString());
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Entry))
+            {
+                return false;
+            }
+            Entry other = (Entry) obj;
+            return created == other.created && groupId.equals(other.groupId);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * groupId.hashCode() + (int) (created ^ (created >>> 32));
+        }
+    }
+}
@@ -48,6 +48,7 @@ public abstract class AbstractMessageSequenceSplitter extends AbstractIntercepti
     protected MessageInfoMapping messageInfoMapping;
     protected int batchSize;
     protected String counterVariableName;
+    protected boolean collectResults = true;
 
     public final MuleEvent process(MuleEvent event) throws MuleException
     {
@@ -130,6 +131,10 @@ public abstract class AbstractMessageSequenceSplitter extends AbstractIntercepti
             if (resultEvent != null && !VoidMuleEvent.getInstance().equals(resultEvent))
             {
                 currentEvent = resultEvent;
+                if (!collectResults)
+                {
+                    resultEvents.clear();
+                }
                 resultEvents.add(resultEvent);
             }
         }
@@ -179,4 +184,14 @@ public abstract class AbstractMessageSequenceSplitter extends AbstractIntercepti
     {
         this.counterVariableName = counterVariableName;
     }
+
+    /**
+     * Whether the results of processing every part are kept to be aggregated once the
+     * whole sequence is processed. When false, only the result of the last part is
+     * kept, so splitting a streamed sequence does not hold all its results in memory.
+     */
+    public void setCollectResults(boolean collectResults)
+    {
+        this.collectResults = collectResults;
+    }
 }
\ No newline at end of file
@@ -16,7 +16,8 @@ import java.util.NoSuchElementException;
 
 /**
  * A {@link MessageSequence} wrapper that partitions the wrapped sequence in
- * collections of the specified size.
+ * collections of the specified size. Only one partition is taken from the wrapped
+ * sequence at a time, so lazy sequences are not read ahead.
  */
 public class PartitionedMessageSequence<Q> implements MessageSequence<Collection<Q>>
 {
@@ -36,7 +37,12 @@ public class PartitionedMessageSequence<Q> implements MessageSequence<Collection
     @Override
     public int size()
     {
-        return (delegate.size() / groupSize) + ((delegate.size() % groupSize) > 0 ? 1 : 0);
+        int size = delegate.size();
+        if (size == UNKNOWN_SIZE)
+        {
+            return UNKNOWN_SIZE;
+        }
+        return (size / groupSize) + ((size % groupSize) > 0 ? 1 : 0);
     }
 
     @Override
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.serialization;
+
+import org.mule.api.MuleContext;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.serialization.ObjectSerializer;
+import org.mule.util.store.DeserializationPostInitialisable;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.apache.commons.lang.SerializationException;
+
+/**
+ * Base class for {@link ObjectSerializer} implementations. Takes care of closing the streams,
+ * resolving the class loader, initialising {@link DeserializationPostInitialisable} objects and
+ * wrapping failures in a {@link SerializationException}, so subclasses only need to read and
+ * write the objects.
+ */
+public abstract class AbstractObjectSerializer implements ObjectSerializer, MuleContextAware
+{
+
+    protected MuleContext muleContext;
+
+    @Override
+    public byte[] serialize(Object object) throws SerializationException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        serialize(object, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public void serialize(Object object, OutputStream out) throws SerializationException
+    {
+        if (out == null)
+        {
+            throw new IllegalArgumentException("The OutputStream must not be null");
+        }
+        try
+        {
+            doSerialize(object, out);
+        }
+        catch (SerializationException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new SerializationException(e);
+        }
+        finally
+        {
+            closeQuietly(out);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes) throws SerializationException
+    {
+        return deserialize(bytes, getClassLoader());
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, ClassLoader classLoader) throws SerializationException
+    {
+        if (bytes == null)
+        {
+            throw new IllegalArgumentException("The byte[] must not be null");
+        }
+        return deserialize(new ByteArrayInputStream(bytes), classLoader);
+    }
+
+    @Override
+    public <T> T deserialize(InputStream inputStream) throws SerializationException
+    {
+        return deserialize(inputStream, getClassLoader());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(InputStream inputStream, ClassLoader classLoader) throws SerializationException
+    {
+        if (inputStream == null)
+        {
+            throw new IllegalArgumentException("The InputStream must not be null");
+        }
+        if (classLoader == null)
+        {
+            throw new IllegalArgumentException("The ClassLoader must not be null");
+        }
+        try
+        {
+            Object object = doDeserialize(inputStream, classLoader);
+            if (object instanceof DeserializationPostInitialisable && muleContext != null)
+            {
+                DeserializationPostInitialisable.Implementation.init(object, muleContext);
+            }
+            return (T) object;
+        }
+        catch (SerializationException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new SerializationException(e);
+        }
+        finally
+        {
+            closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * Writes the serialized form of the object. The stream is closed by the caller.
+     */
+    protected abstract void doSerialize(Object object, OutputStream out) throws Exception;
+
+    /**
+     * Reads an object written by {@link #doSerialize(Object, OutputStream)}. The stream is closed
+     * by the caller.
+     */
+    protected abstract Object doDeserialize(InputStream inputStream, ClassLoader classLoader) throws Exception;
+
+    protected ClassLoader getClassLoader()
+    {
+        if (muleContext != null && muleContext.getExecutionClassLoader() != null)
+        {
+            return muleContext.getExecutionClassLoader();
+        }
+        return getClass().getClassLoader();
+    }
+
+    private void closeQuietly(Closeable closeable)
+    {
+        try
+        {
+            closeable.close();
+        }
+        catch (IOException e)
+        {
+            // ignore close exception
+        }
+    }
+
+    @Override
+    public void setMuleContext(MuleContext muleContext)
+    {
+        this.muleContext = muleContext;
+    }
+}
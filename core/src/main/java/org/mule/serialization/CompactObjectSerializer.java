@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.serialization;
+
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.MessageExchangePattern;
+import org.mule.management.stats.ProcessingTime;
+import org.mule.session.DefaultMuleSession;
+import org.mule.transport.NullPayload;
+import org.mule.util.CaseInsensitiveHashMap;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.StreamCorruptedException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.input.ClassLoaderObjectInputStream;
+
+/**
+ * {@link org.mule.api.serialization.ObjectSerializer} that writes a compact binary format, aimed
+ * at the persistent object and queue stores.
+ * <p/>
+ * Strings, byte arrays, numbers and booleans are written directly, without going through Java
+ * serialization at all. Other objects are written with Java serialization, but instead of the
+ * full description of each class (its name, serial version and the name and type of every field)
+ * only an id is written for the classes registered in the serializer, or the class name for the
+ * rest. When reading, the description of the class loaded by the application is used. This
+ * makes the output smaller and faster to read and write, but it means data can only be read by
+ * the same version of the classes that wrote it: use it for data written and read by the same
+ * application rather than for data exchanged with other systems.
+ * <p/>
+ * The Mule event, message and session classes are registered by default. Other classes can be
+ * registered with {@link #setRegisteredClasses(List)}, keeping in mind that the ids depend on the
+ * order of registration and must not change while there is data written with them. Data written
+ * with plain Java serialization is still read, so the serializer can be replaced without losing
+ * what was already stored.
+ */
+public class CompactObjectSerializer extends AbstractObjectSerializer
+{
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * First byte of the compact format, which can not be confused with the first byte of a
+     * Java serialization stream (0xAC)
+     */
+    private static final int FORMAT_MARKER = 0xC0;
+    private static final int JAVA_STREAM_MAGIC_FIRST_BYTE = 0xAC;
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int BYTES = 2;
+    private static final int INTEGER = 3;
+    private static final int LONG = 4;
+    private static final int BOOLEAN = 5;
+    private static final int DOUBLE = 6;
+    private static final int OBJECT = 7;
+
+    private static final int UNREGISTERED_CLASS = -1;
+
+    private static final List<Class<?>> DEFAULT_CLASSES = Collections.<Class<?>>unmodifiableList(Arrays.<Class<?>>asList(
+            Object.class, String.class, Integer.class, Long.class, Boolean.class, Double.class, Number.class,
+            byte[].class, Object[].class, String[].class, HashMap.class, LinkedHashMap.class, TreeMap.class,
+            ArrayList.class, URI.class, Enum.class, CaseInsensitiveHashMap.class, NullPayload.class,
+            MessageExchangePattern.class, ProcessingTime.class, DefaultMuleSession.class, DefaultMuleMessage.class,
+            DefaultMuleEvent.class));
+
+    private volatile List<Class<?>> registeredClasses = DEFAULT_CLASSES;
+    private volatile Map<Class<?>, Integer> classIds = createClassIds(DEFAULT_CLASSES);
+
+    @Override
+    protected void doSerialize(Object object, OutputStream out) throws Exception
+    {
+        DataOutputStream dataOutputStream = new DataOutputStream(out);
+        dataOutputStream.write(FORMAT_MARKER);
+        if (object == null)
+        {
+            dataOutputStream.write(NULL);
+        }
+        else if (object instanceof String)
+        {
+            dataOutputStream.write(STRING);
+            writeBytes(dataOutputStream, ((String) object).getBytes(UTF_8));
+        }
+        else if (object instanceof byte[])
+        {
+            dataOutputStream.write(BYTES);
+            writeBytes(dataOutputStream, (byte[]) object);
+        }
+        else if (object instanceof Integer)
+        {
+            dataOutputStream.write(INTEGER);
+            dataOutputStream.writeInt((Integer) object);
+        }
+        else if (object instanceof Long)
+        {
+            dataOutputStream.write(LONG);
+            dataOutputStream.writeLong((Long) object);
+        }
+        else if (object instanceof Boolean)
+        {
+            dataOutputStream.write(BOOLEAN);
+            dataOutputStream.writeBoolean((Boolean) object);
+        }
+        else if (object instanceof Double)
+        {
+            dataOutputStream.write(DOUBLE);
+            dataOutputStream.writeDouble((Double) object);
+        }
+        else
+        {
+            dataOutputStream.write(OBJECT);
+            ObjectOutputStream objectOutputStream = new CompactObjectOutputStream(dataOutputStream, classIds);
+            objectOutputStream.writeObject(object);
+            objectOutputStream.flush();
+        }
+        dataOutputStream.flush();
+    }
+
+    @Override
+    protected Object doDeserialize(InputStream inputStream, ClassLoader classLoader) throws Exception
+    {
+        PushbackInputStream pushbackInputStream = new PushbackInputStream(inputStream, 1);
+        int marker = pushbackInputStream.read();
+        if (marker == JAVA_STREAM_MAGIC_FIRST_BYTE)
+        {
+            pushbackInputStream.unread(marker);
+            return new ClassLoaderObjectInputStream(classLoader, pushbackInputStream).readObject();
+        }
+        if (marker != FORMAT_MARKER)
+        {
+            throw new StreamCorruptedException("Unexpected format marker: " + marker);
+        }
+
+        DataInputStream dataInputStream = new DataInputStream(pushbackInputStream);
+        int type = dataInputStream.read();
+        switch (type)
+        {
+            case NULL:
+                return null;
+            case STRING:
+                return new String(readBytes(dataInputStream), UTF_8);
+            case BYTES:
+                return readBytes(dataInputStream);
+            case INTEGER:
+                return dataInputStream.readInt();
+            case LONG:
+                return dataInputStream.readLong();
+            case BOOLEAN:
+                return dataInputStream.readBoolean();
+            case DOUBLE:
+                return dataInputStream.readDouble();
+            case OBJECT:
+                return new CompactObjectInputStream(dataInputStream, classLoader, registeredClasses).readObject();
+            default:
+                throw new StreamCorruptedException("Unexpected type: " + type);
+        }
+    }
+
+    private void writeBytes(DataOutputStream out, byte[] bytes) throws IOException
+    {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private byte[] readBytes(DataInputStream in) throws IOException
+    {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return the classes written as an id rather than by name, in id order
+     */
+    public List<Class<?>> getRegisteredClasses()
+    {
+        return registeredClasses;
+    }
+
+    /**
+     * Registers classes besides the default ones, so they are written as an id. Ids are assigned
+     * in the order of the list, after the default classes.
+     */
+    public void setRegisteredClasses(List<Class<?>> classes)
+    {
+        List<Class<?>> newRegisteredClasses = new ArrayList<Class<?>>(DEFAULT_CLASSES);
+        for (Class<?> clazz : classes)
+        {
+            if (!newRegisteredClasses.contains(clazz))
+            {
+                newRegisteredClasses.add(clazz);
+            }
+        }
+        classIds = createClassIds(newRegisteredClasses);
+        registeredClasses = Collections.unmodifiableList(newRegisteredClasses);
+    }
+
+    private static Map<Class<?>, Integer> createClassIds(List<Class<?>> classes)
+    {
+        Map<Class<?>, Integer> classIds = new HashMap<Class<?>, Integer>();
+        for (int i = 0; i < classes.size(); i++)
+        {
+            classIds.put(classes.get(i), i);
+        }
+        return classIds;
+    }
+
+    /**
+     * Writes the id or the name of each class instead of its full description.
+     */
+    private static class CompactObjectOutputStream extends ObjectOutputStream
+    {
+
+        private final Map<Class<?>, Integer> classIds;
+
+        CompactObjectOutputStream(OutputStream out, Map<Class<?>, Integer> classIds) throws IOException
+        {
+            super(out);
+            this.classIds = classIds;
+        }
+
+        @Override
+        protected void writeStreamHeader() throws IOException
+        {
+            // the format marker is written instead
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException
+        {
+            Integer id = classIds.get(desc.forClass());
+            if (id != null)
+            {
+                writeInt(id);
+            }
+            else
+            {
+                writeInt(UNREGISTERED_CLASS);
+                writeUTF(desc.getName());
+            }
+        }
+    }
+
+    /**
+     * Reads class ids and names written by {@link CompactObjectOutputStream}, using the
+     * description of the classes loaded by the given class loader.
+     */
+    private static class CompactObjectInputStream extends ObjectInputStream
+    {
+
+        // classes of the bootstrap class loader are the same for every application
+        private static final Map<String, Class<?>> BOOTSTRAP_CLASSES = new ConcurrentHashMap<String, Class<?>>();
+
+        private final ClassLoader classLoader;
+        private final List<Class<?>> registeredClasses;
+
+        CompactObjectInputStream(InputStream in, ClassLoader classLoader, List<Class<?>> registeredClasses) throws IOException
+        {
+            super(in);
+            this.classLoader = classLoader;
+            this.registeredClasses = registeredClasses;
+        }
+
+        @Override
+        protected void readStreamHeader() throws IOException
+        {
+            // the format marker was read instead
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException
+        {
+            int id = readInt();
+            Class<?> clazz;
+            if (id == UNREGISTERED_CLASS)
+            {
+                clazz = loadClass(readUTF());
+            }
+            else if (id >= 0 && id < registeredClasses.size())
+            {
+                clazz = registeredClasses.get(id);
+            }
+            else
+            {
+                throw new StreamCorruptedException("Unknown class id: " + id);
+            }
+
+            ObjectStreamClass desc = ObjectStreamClass.lookupAny(clazz);
+            if (desc == null)
+            {
+                throw new StreamCorruptedException("No serialization descriptor for class: " + clazz.getName());
+            }
+            return desc;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException
+        {
+            return desc.forClass() != null ? desc.forClass() : loadClass(desc.getName());
+        }
+
+        private Class<?> loadClass(String name) throws ClassNotFoundException
+        {
+            Class<?> clazz = BOOTSTRAP_CLASSES.get(name);
+            if (clazz == null)
+            {
+                clazz = Class.forName(name, false, classLoader);
+                if (clazz.getClassLoader() == null)
+                {
+                    BOOTSTRAP_CLASSES.put(name, clazz);
+                }
+            }
+            return clazz;
+        }
+    }
+}
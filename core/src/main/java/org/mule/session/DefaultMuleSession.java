@@ -11,7 +11,7 @@ import org.mule.api.MuleSession;
 import org.mule.api.construct.FlowConstruct;
 import org.mule.api.security.SecurityContext;
 import org.mule.config.i18n.CoreMessages;
-import org.mule.util.CaseInsensitiveHashMap;
+import org.mule.util.CopyOnWriteCaseInsensitiveMap;
 import org.mule.util.UUID;
 
 import java.io.IOException;
@@ -21,7 +21,6 @@ import java.io.Serializable;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
@@ -58,13 +57,18 @@ public final class DefaultMuleSession implements MuleSession
 
     private Map<String, Object> properties;
 
+    /**
+     * The map wrapped by {@link #properties}, which copies of this session take a snapshot of
+     */
+    private transient CopyOnWriteCaseInsensitiveMap<String, Object> propertiesSnapshot;
+
     @Deprecated
     private FlowConstruct flowConstruct;
 
     public DefaultMuleSession()
     {
         id = UUID.getUUID();
-        properties = Collections.synchronizedMap(new CaseInsensitiveHashMap/* <String, Object> */());
+        setProperties(new CopyOnWriteCaseInsensitiveMap<String, Object>());
     }
 
     public DefaultMuleSession(MuleSession session)
@@ -73,10 +77,33 @@ public final class DefaultMuleSession implements MuleSession
         this.securityContext = session.getSecurityContext();
         this.valid = session.isValid();
 
-        this.properties = Collections.synchronizedMap(new CaseInsensitiveHashMap/* <String, Object> */());
-        for (String key : session.getPropertyNamesAsSet())
+        if (session instanceof DefaultMuleSession)
+        {
+            // shares the properties until either session changes them
+            setProperties(((DefaultMuleSession) session).snapshotProperties());
+        }
+        else
+        {
+            setProperties(new CopyOnWriteCaseInsensitiveMap<String, Object>());
+            for (String key : session.getPropertyNamesAsSet())
+            {
+                this.properties.put(key, session.getProperty(key));
+            }
+        }
+    }
+
+    private void setProperties(CopyOnWriteCaseInsensitiveMap<String, Object> properties)
+    {
+        this.propertiesSnapshot = properties;
+        this.properties = Collections.synchronizedMap(properties);
+    }
+
+    private CopyOnWriteCaseInsensitiveMap<String, Object> snapshotProperties()
+    {
+        // the synchronized map uses itself as the lock
+        synchronized (properties)
         {
-            this.properties.put(key, session.getProperty(key));
+            return propertiesSnapshot.clone();
         }
     }
 
@@ -218,7 +245,7 @@ public final class DefaultMuleSession implements MuleSession
             return;
         }
         Map<String, Object> oldProperties = this.properties;
-        this.properties = Collections.synchronizedMap(new CaseInsensitiveHashMap/* <String, Object> */());
+        setProperties(new CopyOnWriteCaseInsensitiveMap<String, Object>());
         for (String propertyKey : updatedSession.getPropertyNamesAsSet())
         {
             this.properties.put(propertyKey, updatedSession.<Object> getProperty(propertyKey));
@@ -240,14 +267,15 @@ public final class DefaultMuleSession implements MuleSession
 
     void removeNonSerializableProperties()
     {
-        Iterator<Entry<String, Object>> propertyIterator = properties.entrySet().iterator();
-        while (propertyIterator.hasNext())
+        // the entry set of the properties does not support removal
+        Iterator<String> keyIterator = properties.keySet().iterator();
+        while (keyIterator.hasNext())
         {
-            final Entry<String, Object> entry = propertyIterator.next();
-            if (!(entry.getValue() instanceof Serializable))
+            final String key = keyIterator.next();
+            if (!(properties.get(key) instanceof Serializable))
             {
-                logger.warn(CoreMessages.propertyNotSerializableWasDropped(entry.getKey()));
-                propertyIterator.remove();
+                logger.warn(CoreMessages.propertyNotSerializableWasDropped(key));
+                keyIterator.remove();
             }
         }
     }
@@ -295,6 +323,10 @@ public final class DefaultMuleSession implements MuleSession
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
     {
         in.defaultReadObject();
+        // sessions serialized by previous versions hold the properties in a different map
+        CopyOnWriteCaseInsensitiveMap<String, Object> deserializedProperties = new CopyOnWriteCaseInsensitiveMap<String, Object>();
+        deserializedProperties.putAll(properties);
+        setProperties(deserializedProperties);
     }
 
     @Override
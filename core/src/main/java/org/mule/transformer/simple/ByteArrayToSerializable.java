@@ -11,7 +11,6 @@ import org.mule.api.transformer.TransformerException;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.transformer.AbstractTransformer;
 import org.mule.transformer.types.DataTypeFactory;
-import org.mule.util.SerializationUtils;
 
 import java.io.InputStream;
 
@@ -41,11 +40,11 @@ public class ByteArrayToSerializable extends AbstractTransformer implements Disc
             final Object result;
             if (src instanceof byte[])
             {
-                result = SerializationUtils.deserialize((byte[]) src, muleContext);
+                result = muleContext.getObjectSerializer().deserialize((byte[]) src);
             }
             else
             {
-                result = SerializationUtils.deserialize((InputStream) src, muleContext);
+                result = muleContext.getObjectSerializer().deserialize((InputStream) src);
             }
             return result;
         }
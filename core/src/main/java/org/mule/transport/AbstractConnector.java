@@ -178,7 +178,12 @@ public abstract class AbstractConnector implements Connector, WorkListener
     /**
      * A pool of requesters for this connector, keyed by endpoint
      */
-    protected final GenericKeyedObjectPool requesters = new GenericKeyedObjectPool();
+    protected volatile ConfigurableKeyedObjectPool requesters = new DefaultConfigurableKeyedObjectPool();
+
+    /**
+     * A factory for creating the pool of requesters for this connector.
+     */
+    protected volatile ConfigurableKeyedObjectPoolFactory requesterPoolFactory;
 
     /**
      * The collection of listeners on this connector. Keyed by entrypoint
@@ -299,14 +304,6 @@ public abstract class AbstractConnector implements Connector, WorkListener
         // always add at least the default protocol
         supportedProtocols = new ArrayList<String>();
         supportedProtocols.add(getProtocol().toLowerCase());
-
-        // TODO dispatcher pool configuration should be extracted, maybe even
-        // moved into the factory?
-        // NOTE: testOnBorrow MUST be FALSE. this is a bit of a design bug in
-        // commons-pool since validate is used for both activation and passivation,
-        // but has no way of knowing which way it is going.
-        requesters.setTestOnBorrow(false);
-        requesters.setTestOnReturn(true);
     }
 
     @Override
@@ -371,6 +368,18 @@ public abstract class AbstractConnector implements Connector, WorkListener
                         dispatchers.setFactory(getWrappedDispatcherFactory(dispatcherFactory));
                     }
 
+                    if (requesterPoolFactory != null)
+                    {
+                        ConfigurableKeyedObjectPool previousRequesters = requesters;
+                        requesters = requesterPoolFactory.createObjectPool();
+                        requesters.setWhenExhaustedAction(previousRequesters.getWhenExhaustedAction());
+                        requesters.setMaxWait(previousRequesters.getMaxWait());
+                        if (requesterFactory != null)
+                        {
+                            setRequesterFactory(requesterFactory);
+                        }
+                    }
+
                     // Initialise the structure of this connector
                     initFromServiceDescriptor();
 
@@ -576,6 +585,8 @@ public abstract class AbstractConnector implements Connector, WorkListener
                 {
                     doDispose();
                     disposeReceivers();
+                    closeDispatchers();
+                    closeRequesters();
                 }
             });
         }
@@ -828,6 +839,42 @@ public abstract class AbstractConnector implements Connector, WorkListener
         }
     }
 
+    protected void closeDispatchers()
+    {
+        if (dispatchers != null)
+        {
+            logger.debug("Closing Dispatcher pool");
+            try
+            {
+                dispatchers.close();
+            }
+            catch (Exception e)
+            {
+                // Just log when disposing
+                logger.error("Failed to close dispatcher pool", e);
+            }
+            logger.debug("Dispatcher pool closed");
+        }
+    }
+
+    protected void closeRequesters()
+    {
+        if (requesters != null)
+        {
+            logger.debug("Closing Requester pool");
+            try
+            {
+                requesters.close();
+            }
+            catch (Exception e)
+            {
+                // Just log when disposing
+                logger.error("Failed to close requester pool", e);
+            }
+            logger.debug("Requester pool closed");
+        }
+    }
+
     @Override
     public boolean isDisposed()
     {
@@ -2524,6 +2571,19 @@ public abstract class AbstractConnector implements Connector, WorkListener
         return dispatcherPoolFactory;
     }
 
+    /**
+     * Allows to define a factory to create the requesters pool that will be used in the connector
+     */
+    public void setRequesterPoolFactory(ConfigurableKeyedObjectPoolFactory requesterPoolFactory)
+    {
+        this.requesterPoolFactory = requesterPoolFactory;
+    }
+
+    public ConfigurableKeyedObjectPoolFactory getRequesterPoolFactory()
+    {
+        return requesterPoolFactory;
+    }
+
     /**
      * Allows an ExhaustedAction to be configured on the requester object pool See:
      * {@link GenericKeyedObjectPool#setWhenExhaustedAction(byte)}
@@ -0,0 +1,762 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport;
+
+import org.mule.util.concurrent.DaemonThreadFactory;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.pool.KeyedPoolableObjectFactory;
+
+/**
+ * Implements {@link ConfigurableKeyedObjectPool} without a pool wide lock, so that
+ * threads borrowing and returning objects for the same or different keys do not
+ * contend on a single monitor as they do with
+ * {@link org.apache.commons.pool.impl.GenericKeyedObjectPool}.
+ * <p/>
+ * The idle objects of each key are kept in a lock-free stack, and the number of active
+ * and total objects are tracked with atomic counters. A monitor is only used by the
+ * threads that have to wait for an object because the pool is exhausted. The idle
+ * stack and counters of a key are removed once it has neither active nor idle
+ * objects.
+ * <p/>
+ * Idle objects can be evicted by a background thread, see
+ * {@link #setTimeBetweenEvictionRunsMillis(long)}, and the time threads spend waiting
+ * for an object is recorded, see {@link #getBorrowWaitCount()}.
+ */
+public class ConcurrentConfigurableKeyedObjectPool implements ConfigurableKeyedObjectPool
+{
+
+    public static final int DEFAULT_MAX_ACTIVE = 8;
+    public static final int DEFAULT_MAX_IDLE = 8;
+    public static final int DEFAULT_MAX_TOTAL = -1;
+    public static final long DEFAULT_MAX_WAIT = -1;
+    public static final long DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS = 1000L * 60L * 30L;
+
+    /**
+     * Active count of a {@link KeyedPool} removed from {@link #pools}, so that no
+     * object can be borrowed from it anymore
+     */
+    private static final int REMOVED = Integer.MIN_VALUE;
+
+    protected transient Log logger = LogFactory.getLog(getClass());
+
+    private final ConcurrentMap<Object, KeyedPool> pools = new ConcurrentHashMap<Object, KeyedPool>();
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final Object exhaustedLock = new Object();
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong borrowWaitCount = new AtomicLong();
+    private final AtomicLong totalBorrowWaitTime = new AtomicLong();
+    private final AtomicLong maxBorrowWaitTime = new AtomicLong();
+
+    private volatile KeyedPoolableObjectFactory factory;
+    private volatile int maxActive = DEFAULT_MAX_ACTIVE;
+    private volatile int maxIdle = DEFAULT_MAX_IDLE;
+    private volatile int maxTotal = DEFAULT_MAX_TOTAL;
+    private volatile long maxWait = DEFAULT_MAX_WAIT;
+    private volatile byte whenExhaustedAction = WHEN_EXHAUSTED_BLOCK;
+
+    // NOTE: as with the default pool, testOnBorrow should be FALSE for dispatchers as
+    // validate is used for both activation and passivation
+    private volatile boolean testOnBorrow = false;
+    private volatile boolean testOnReturn = true;
+
+    private volatile long minEvictableIdleTimeMillis = DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS;
+    private long timeBetweenEvictionRunsMillis = -1;
+    private ScheduledExecutorService evictor;
+
+    private volatile boolean closed = false;
+
+    public Object borrowObject(Object key) throws Exception, NoSuchElementException, IllegalStateException
+    {
+        assertOpen();
+        borrowCount.incrementAndGet();
+
+        Object obj = tryBorrow(key, whenExhaustedAction == WHEN_EXHAUSTED_GROW);
+        if (obj != null)
+        {
+            return obj;
+        }
+        if (whenExhaustedAction != WHEN_EXHAUSTED_BLOCK)
+        {
+            throw new NoSuchElementException("Pool exhausted");
+        }
+        return awaitObject(key);
+    }
+
+    private Object awaitObject(Object key) throws Exception
+    {
+        long start = System.nanoTime();
+        long timeout = maxWait;
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+        waitingThreads.incrementAndGet();
+        try
+        {
+            synchronized (exhaustedLock)
+            {
+                while (true)
+                {
+                    assertOpen();
+                    Object obj = tryBorrow(key, false);
+                    if (obj != null)
+                    {
+                        return obj;
+                    }
+                    if (timeout <= 0)
+                    {
+                        exhaustedLock.wait();
+                    }
+                    else
+                    {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0)
+                        {
+                            throw new NoSuchElementException("Timeout waiting for idle object");
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(exhaustedLock, remaining);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            waitingThreads.decrementAndGet();
+            recordBorrowWait(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * @return an activated object, or null if the pool is exhausted for the key
+     */
+    private Object tryBorrow(Object key, boolean grow) throws Exception
+    {
+        KeyedPool pool = reserveActive(key, grow);
+        if (pool == null)
+        {
+            return null;
+        }
+        try
+        {
+            IdleObject idle;
+            while ((idle = pool.idle.pollFirst()) != null)
+            {
+                pool.idleCount.decrementAndGet();
+                if (activate(key, idle.obj, testOnBorrow))
+                {
+                    return idle.obj;
+                }
+                totalCount.decrementAndGet();
+            }
+
+            if (!reserveTotal(key, grow))
+            {
+                release(key, pool);
+                return null;
+            }
+            Object obj;
+            try
+            {
+                obj = factory.makeObject(key);
+            }
+            catch (Exception e)
+            {
+                totalCount.decrementAndGet();
+                throw e;
+            }
+            if (!activate(key, obj, false))
+            {
+                totalCount.decrementAndGet();
+                throw new NoSuchElementException("Could not activate new object");
+            }
+            return obj;
+        }
+        catch (Exception e)
+        {
+            release(key, pool);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the pool of the key with one more active object, or null if the pool is
+     *         exhausted for the key
+     */
+    private KeyedPool reserveActive(Object key, boolean grow)
+    {
+        KeyedPool pool = getPool(key);
+        while (true)
+        {
+            int active = pool.activeCount.get();
+            if (active == REMOVED)
+            {
+                // the pool of the key was found unused and removed meanwhile
+                pools.remove(key, pool);
+                pool = getPool(key);
+            }
+            else if (!grow && maxActive >= 0 && active >= maxActive)
+            {
+                return null;
+            }
+            else if (pool.activeCount.compareAndSet(active, active + 1))
+            {
+                return pool;
+            }
+        }
+    }
+
+    private boolean reserveTotal(Object key, boolean grow) throws Exception
+    {
+        while (true)
+        {
+            int total = totalCount.get();
+            if (!grow && maxTotal >= 0 && total >= maxTotal)
+            {
+                // make room by destroying an idle object of another key, if there is one
+                if (!destroyIdleObject(key))
+                {
+                    return false;
+                }
+            }
+            else if (totalCount.compareAndSet(total, total + 1))
+            {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Activates and optionally validates an object taken from the pool, destroying it
+     * if that fails.
+     *
+     * @return whether the object can be handed out
+     */
+    private boolean activate(Object key, Object obj, boolean validate)
+    {
+        try
+        {
+            factory.activateObject(key, obj);
+            if (!validate || factory.validateObject(key, obj))
+            {
+                return true;
+            }
+        }
+        catch (Exception e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Failed to activate pooled object for key " + key, e);
+            }
+        }
+        destroy(key, obj);
+        return false;
+    }
+
+    public void returnObject(Object key, Object obj) throws Exception
+    {
+        KeyedPool pool = getPool(key);
+        try
+        {
+            boolean keep = !closed && (!testOnReturn || factory.validateObject(key, obj));
+            if (keep)
+            {
+                try
+                {
+                    factory.passivateObject(key, obj);
+                }
+                catch (Exception e)
+                {
+                    keep = false;
+                }
+            }
+            if (keep && (maxIdle < 0 || pool.idleCount.incrementAndGet() <= maxIdle))
+            {
+                pool.idle.offerFirst(new IdleObject(obj));
+            }
+            else
+            {
+                if (keep)
+                {
+                    pool.idleCount.decrementAndGet();
+                }
+                totalCount.decrementAndGet();
+                destroy(key, obj);
+            }
+        }
+        finally
+        {
+            release(key, pool);
+        }
+    }
+
+    public void invalidateObject(Object key, Object obj) throws Exception
+    {
+        KeyedPool pool = getPool(key);
+        try
+        {
+            totalCount.decrementAndGet();
+            factory.destroyObject(key, obj);
+        }
+        finally
+        {
+            release(key, pool);
+        }
+    }
+
+    public void addObject(Object key) throws Exception, IllegalStateException, UnsupportedOperationException
+    {
+        assertOpen();
+        // counts as active while it is added so the pool of the key is not removed
+        KeyedPool pool = reserveActive(key, true);
+        try
+        {
+            totalCount.incrementAndGet();
+            Object obj;
+            try
+            {
+                obj = factory.makeObject(key);
+                factory.passivateObject(key, obj);
+            }
+            catch (Exception e)
+            {
+                totalCount.decrementAndGet();
+                throw e;
+            }
+            pool.idleCount.incrementAndGet();
+            pool.idle.offerLast(new IdleObject(obj));
+        }
+        finally
+        {
+            release(key, pool);
+        }
+    }
+
+    /**
+     * Releases an active object of a pool, removing the pool when it is left with
+     * no objects.
+     */
+    private void release(Object key, KeyedPool pool)
+    {
+        if (pool.activeCount.decrementAndGet() == 0)
+        {
+            removeIfUnused(key, pool);
+        }
+        signalWaiters();
+    }
+
+    /**
+     * Removes the pool of a key if it has neither active nor idle objects.
+     */
+    private void removeIfUnused(Object key, KeyedPool pool)
+    {
+        if (pool.idle.isEmpty() && pool.activeCount.compareAndSet(0, REMOVED))
+        {
+            pools.remove(key, pool);
+            // destroys an object returned after the pool was found without idle objects
+            clear(key, pool);
+        }
+    }
+
+    private void signalWaiters()
+    {
+        if (waitingThreads.get() > 0)
+        {
+            synchronized (exhaustedLock)
+            {
+                exhaustedLock.notifyAll();
+            }
+        }
+    }
+
+    private void recordBorrowWait(long waitTime)
+    {
+        borrowWaitCount.incrementAndGet();
+        totalBorrowWaitTime.addAndGet(waitTime);
+        long max;
+        while (waitTime > (max = maxBorrowWaitTime.get()))
+        {
+            if (maxBorrowWaitTime.compareAndSet(max, waitTime))
+            {
+                break;
+            }
+        }
+    }
+
+    private KeyedPool getPool(Object key)
+    {
+        KeyedPool pool = pools.get(key);
+        if (pool == null)
+        {
+            pool = new KeyedPool();
+            KeyedPool previous = pools.putIfAbsent(key, pool);
+            if (previous != null)
+            {
+                pool = previous;
+            }
+        }
+        return pool;
+    }
+
+    private void destroy(Object key, Object obj)
+    {
+        try
+        {
+            factory.destroyObject(key, obj);
+        }
+        catch (Exception e)
+        {
+            logger.warn("Failed to destroy pooled object for key " + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Destroys the least recently used idle object of a key other than the given one.
+     *
+     * @return whether an object was destroyed
+     */
+    private boolean destroyIdleObject(Object excludedKey)
+    {
+        for (ConcurrentMap.Entry<Object, KeyedPool> entry : pools.entrySet())
+        {
+            if (!entry.getKey().equals(excludedKey))
+            {
+                KeyedPool pool = entry.getValue();
+                IdleObject idle = pool.idle.pollLast();
+                if (idle != null)
+                {
+                    pool.idleCount.decrementAndGet();
+                    totalCount.decrementAndGet();
+                    destroy(entry.getKey(), idle.obj);
+                    removeIfUnused(entry.getKey(), pool);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void clear(Object key, KeyedPool pool)
+    {
+        IdleObject idle;
+        while ((idle = pool.idle.pollFirst()) != null)
+        {
+            pool.idleCount.decrementAndGet();
+            totalCount.decrementAndGet();
+            destroy(key, idle.obj);
+        }
+    }
+
+    /**
+     * Destroys the idle objects that have not been used for at least
+     * {@link #getMinEvictableIdleTimeMillis()}.
+     */
+    public void evict()
+    {
+        long evictableIdleTime = minEvictableIdleTimeMillis;
+        if (evictableIdleTime <= 0)
+        {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (ConcurrentMap.Entry<Object, KeyedPool> entry : pools.entrySet())
+        {
+            KeyedPool pool = entry.getValue();
+            // the least recently used objects are at the bottom of the stack
+            Iterator<IdleObject> iterator = pool.idle.descendingIterator();
+            while (iterator.hasNext())
+            {
+                IdleObject idle = iterator.next();
+                if (now - idle.idleSince < evictableIdleTime)
+                {
+                    break;
+                }
+                if (pool.idle.removeLastOccurrence(idle))
+                {
+                    pool.idleCount.decrementAndGet();
+                    totalCount.decrementAndGet();
+                    destroy(entry.getKey(), idle.obj);
+                }
+            }
+            removeIfUnused(entry.getKey(), pool);
+        }
+    }
+
+    private void assertOpen()
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Pool not open");
+        }
+    }
+
+    public int getNumIdle(Object key) throws UnsupportedOperationException
+    {
+        KeyedPool pool = pools.get(key);
+        return pool == null ? 0 : Math.max(pool.idleCount.get(), 0);
+    }
+
+    public int getNumActive(Object key) throws UnsupportedOperationException
+    {
+        KeyedPool pool = pools.get(key);
+        return pool == null ? 0 : Math.max(pool.activeCount.get(), 0);
+    }
+
+    public int getNumIdle() throws UnsupportedOperationException
+    {
+        int idle = 0;
+        for (KeyedPool pool : pools.values())
+        {
+            idle += Math.max(pool.idleCount.get(), 0);
+        }
+        return idle;
+    }
+
+    public int getNumActive() throws UnsupportedOperationException
+    {
+        int active = 0;
+        for (KeyedPool pool : pools.values())
+        {
+            active += Math.max(pool.activeCount.get(), 0);
+        }
+        return active;
+    }
+
+    public void clear()
+    {
+        for (ConcurrentMap.Entry<Object, KeyedPool> entry : pools.entrySet())
+        {
+            clear(entry.getKey(), entry.getValue());
+            removeIfUnused(entry.getKey(), entry.getValue());
+        }
+        signalWaiters();
+    }
+
+    public void clear(Object key) throws Exception, UnsupportedOperationException
+    {
+        KeyedPool pool = pools.get(key);
+        if (pool != null)
+        {
+            clear(key, pool);
+            removeIfUnused(key, pool);
+            signalWaiters();
+        }
+    }
+
+    public void close() throws Exception
+    {
+        closed = true;
+        synchronized (this)
+        {
+            if (evictor != null)
+            {
+                evictor.shutdownNow();
+                evictor = null;
+            }
+        }
+        clear();
+    }
+
+    public void setFactory(KeyedPoolableObjectFactory factory) throws IllegalStateException, UnsupportedOperationException
+    {
+        this.factory = factory;
+    }
+
+    public int getMaxActive()
+    {
+        return maxActive;
+    }
+
+    public void setMaxActive(int maxActive)
+    {
+        this.maxActive = maxActive;
+        signalWaiters();
+    }
+
+    public int getMaxTotal()
+    {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal)
+    {
+        this.maxTotal = maxTotal;
+        signalWaiters();
+    }
+
+    public int getMaxIdle()
+    {
+        return maxIdle;
+    }
+
+    public void setMaxIdle(int maxIdle)
+    {
+        this.maxIdle = maxIdle;
+    }
+
+    public long getMaxWait()
+    {
+        return maxWait;
+    }
+
+    public void setMaxWait(long maxWait)
+    {
+        this.maxWait = maxWait;
+    }
+
+    public byte getWhenExhaustedAction()
+    {
+        return whenExhaustedAction;
+    }
+
+    public void setWhenExhaustedAction(byte whenExhaustedAction)
+    {
+        switch (whenExhaustedAction)
+        {
+            case WHEN_EXHAUSTED_BLOCK:
+            case WHEN_EXHAUSTED_FAIL:
+            case WHEN_EXHAUSTED_GROW:
+                this.whenExhaustedAction = whenExhaustedAction;
+                signalWaiters();
+                break;
+            default:
+                throw new IllegalArgumentException("whenExhaustedAction " + whenExhaustedAction + " not recognized.");
+        }
+    }
+
+    public boolean isTestOnBorrow()
+    {
+        return testOnBorrow;
+    }
+
+    public void setTestOnBorrow(boolean testOnBorrow)
+    {
+        this.testOnBorrow = testOnBorrow;
+    }
+
+    public boolean isTestOnReturn()
+    {
+        return testOnReturn;
+    }
+
+    public void setTestOnReturn(boolean testOnReturn)
+    {
+        this.testOnReturn = testOnReturn;
+    }
+
+    public long getMinEvictableIdleTimeMillis()
+    {
+        return minEvictableIdleTimeMillis;
+    }
+
+    /**
+     * Sets the minimum time an object must have been idle before it can be evicted.
+     */
+    public void setMinEvictableIdleTimeMillis(long minEvictableIdleTimeMillis)
+    {
+        this.minEvictableIdleTimeMillis = minEvictableIdleTimeMillis;
+    }
+
+    public synchronized long getTimeBetweenEvictionRunsMillis()
+    {
+        return timeBetweenEvictionRunsMillis;
+    }
+
+    /**
+     * Sets the time between runs of the idle object evictor thread. When not positive,
+     * no evictor thread is run.
+     */
+    public synchronized void setTimeBetweenEvictionRunsMillis(long timeBetweenEvictionRunsMillis)
+    {
+        this.timeBetweenEvictionRunsMillis = timeBetweenEvictionRunsMillis;
+        if (evictor != null)
+        {
+            evictor.shutdownNow();
+            evictor = null;
+        }
+        if (timeBetweenEvictionRunsMillis > 0 && !closed)
+        {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+            scheduler.setThreadFactory(new DaemonThreadFactory("pool.evictor"));
+            scheduler.scheduleWithFixedDelay(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    evict();
+                }
+            }, timeBetweenEvictionRunsMillis, timeBetweenEvictionRunsMillis, TimeUnit.MILLISECONDS);
+            evictor = scheduler;
+        }
+    }
+
+    /**
+     * @return the number of objects borrowed from the pool
+     */
+    public long getBorrowCount()
+    {
+        return borrowCount.get();
+    }
+
+    /**
+     * @return the number of borrows that had to wait because the pool was exhausted
+     */
+    public long getBorrowWaitCount()
+    {
+        return borrowWaitCount.get();
+    }
+
+    /**
+     * @return the total time in milliseconds that borrows have waited because the pool
+     *         was exhausted
+     */
+    public long getTotalBorrowWaitTime()
+    {
+        return totalBorrowWaitTime.get();
+    }
+
+    /**
+     * @return the longest time in milliseconds that a borrow has waited because the pool
+     *         was exhausted
+     */
+    public long getMaxBorrowWaitTime()
+    {
+        return maxBorrowWaitTime.get();
+    }
+
+    private static class KeyedPool
+    {
+
+        // most recently returned objects first
+        private final ConcurrentLinkedDeque<IdleObject> idle = new ConcurrentLinkedDeque<IdleObject>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+        private final AtomicInteger activeCount = new AtomicInteger();
+    }
+
+    private static class IdleObject
+    {
+
+        private final Object obj;
+        private final long idleSince = System.currentTimeMillis();
+
+        IdleObject(Object obj)
+        {
+            this.obj = obj;
+        }
+    }
+}
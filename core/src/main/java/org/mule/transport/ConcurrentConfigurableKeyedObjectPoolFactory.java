@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport;
+
+/**
+ * Implements {@link org.mule.transport.ConfigurableKeyedObjectPoolFactory} creating instances
+ * of {@link ConcurrentConfigurableKeyedObjectPool}.
+ */
+public class ConcurrentConfigurableKeyedObjectPoolFactory implements ConfigurableKeyedObjectPoolFactory
+{
+
+    private boolean testOnBorrow = false;
+    private boolean testOnReturn = true;
+    private long minEvictableIdleTimeMillis = ConcurrentConfigurableKeyedObjectPool.DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS;
+    private long timeBetweenEvictionRunsMillis = -1;
+
+    public ConfigurableKeyedObjectPool createObjectPool()
+    {
+        ConcurrentConfigurableKeyedObjectPool pool = new ConcurrentConfigurableKeyedObjectPool();
+        pool.setTestOnBorrow(testOnBorrow);
+        pool.setTestOnReturn(testOnReturn);
+        pool.setMinEvictableIdleTimeMillis(minEvictableIdleTimeMillis);
+        pool.setTimeBetweenEvictionRunsMillis(timeBetweenEvictionRunsMillis);
+        return pool;
+    }
+
+    public boolean isTestOnBorrow()
+    {
+        return testOnBorrow;
+    }
+
+    public void setTestOnBorrow(boolean testOnBorrow)
+    {
+        this.testOnBorrow = testOnBorrow;
+    }
+
+    public boolean isTestOnReturn()
+    {
+        return testOnReturn;
+    }
+
+    public void setTestOnReturn(boolean testOnReturn)
+    {
+        this.testOnReturn = testOnReturn;
+    }
+
+    public long getMinEvictableIdleTimeMillis()
+    {
+        return minEvictableIdleTimeMillis;
+    }
+
+    public void setMinEvictableIdleTimeMillis(long minEvictableIdleTimeMillis)
+    {
+        this.minEvictableIdleTimeMillis = minEvictableIdleTimeMillis;
+    }
+
+    public long getTimeBetweenEvictionRunsMillis()
+    {
+        return timeBetweenEvictionRunsMillis;
+    }
+
+    public void setTimeBetweenEvictionRunsMillis(long timeBetweenEvictionRunsMillis)
+    {
+        this.timeBetweenEvictionRunsMillis = timeBetweenEvictionRunsMillis;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport;
+
+import org.mule.api.MuleRuntimeException;
+import org.mule.config.i18n.MessageFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces items dispatched concurrently to the same destination into batches, so that
+ * a transport can deliver them with a single operation, such as one JDBC batch or one
+ * JMS transaction.
+ * <p/>
+ * No thread is used besides the callers. The first caller that finds no open batch becomes
+ * the leader of a new batch: it waits until the batch is full or the linger time elapses,
+ * then executes the batch with its own executor. The other callers add their item to the
+ * open batch and wait until it has been executed. Every caller gets the outcome of its own
+ * item, either returning normally or throwing the failure of that item.
+ *
+ * @param <T> the type of the items
+ */
+public class DispatchBatcher<T>
+{
+
+    /**
+     * Delivers a batch of items.
+     */
+    public interface BatchExecutor<T>
+    {
+
+        /**
+         * @param items the items of the batch, in the order they were dispatched
+         * @return the failures of the items, in the same order and with null for the items
+         *         that were delivered, or null if all of them were delivered
+         * @throws Exception if none of the items could be delivered
+         */
+        Exception[] execute(List<T> items) throws Exception;
+    }
+
+    private final int maxBatchSize;
+    private final long lingerTime;
+    private final Object lock = new Object();
+    private Batch<T> openBatch;
+
+    /**
+     * @param maxBatchSize the maximum number of items of a batch
+     * @param lingerTime the maximum time in milliseconds that the first item of a batch waits
+     *            for more items
+     */
+    public DispatchBatcher(int maxBatchSize, long lingerTime)
+    {
+        if (maxBatchSize < 1)
+        {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.lingerTime = Math.max(lingerTime, 0);
+    }
+
+    /**
+     * Adds the item to a batch, and returns once the batch has been executed.
+     *
+     * @param item the item to dispatch
+     * @param executor used to execute the batch if the calling thread is the leader of the batch
+     * @throws Exception the failure of the item, if it was not delivered
+     */
+    public void dispatch(T item, BatchExecutor<T> executor) throws Exception
+    {
+        Batch<T> batch;
+        int index;
+        boolean leader = false;
+        synchronized (lock)
+        {
+            if (openBatch == null)
+            {
+                openBatch = new Batch<T>(Math.min(maxBatchSize, 16));
+                leader = true;
+            }
+            batch = openBatch;
+            index = batch.items.size();
+            batch.items.add(item);
+            if (batch.items.size() >= maxBatchSize)
+            {
+                // full, so the leader does not need to wait any longer
+                openBatch = null;
+                lock.notifyAll();
+            }
+        }
+
+        if (leader)
+        {
+            awaitBatchClosed(batch);
+            batch.execute(executor);
+        }
+        else
+        {
+            batch.awaitExecuted();
+        }
+
+        Exception failure = batch.getFailure(index);
+        if (failure != null)
+        {
+            throw failure;
+        }
+    }
+
+    private void awaitBatchClosed(Batch<T> batch)
+    {
+        synchronized (lock)
+        {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerTime);
+            try
+            {
+                long remaining;
+                while (openBatch == batch && (remaining = deadline - System.nanoTime()) > 0)
+                {
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                // execute what was collected so far
+                Thread.currentThread().interrupt();
+            }
+            if (openBatch == batch)
+            {
+                openBatch = null;
+            }
+        }
+    }
+
+    private static class Batch<T>
+    {
+
+        private final List<T> items;
+        private final CountDownLatch executed = new CountDownLatch(1);
+        private volatile Exception[] failures;
+        private volatile Exception batchFailure;
+
+        Batch(int initialCapacity)
+        {
+            items = new ArrayList<T>(initialCapacity);
+        }
+
+        void execute(BatchExecutor<T> executor)
+        {
+            try
+            {
+                failures = executor.execute(Collections.unmodifiableList(items));
+            }
+            catch (Exception e)
+            {
+                batchFailure = e;
+            }
+            catch (Error e)
+            {
+                batchFailure = new MuleRuntimeException(MessageFactory.createStaticMessage("Batch execution failed"), e);
+                throw e;
+            }
+            finally
+            {
+                executed.countDown();
+            }
+        }
+
+        void awaitExecuted()
+        {
+            boolean interrupted = false;
+            while (true)
+            {
+                try
+                {
+                    // the item is part of the batch already, so its outcome must be awaited
+                    executed.await();
+                    break;
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        Exception getFailure(int index)
+        {
+            if (batchFailure != null)
+            {
+                return batchFailure;
+            }
+            Exception[] itemFailures = failures;
+            return itemFailures == null ? null : itemFailures[index];
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.endpoint.OutboundEndpoint;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the dispatch batching configuration of a connector and the
+ * {@link DispatchBatcher} of each of its outbound endpoints.
+ */
+public class DispatchBatchers
+{
+
+    public static final long DEFAULT_LINGER_TIME = 10;
+
+    private final ConcurrentMap<OutboundEndpoint, DispatchBatcher<MuleEvent>> batchers = new ConcurrentHashMap<OutboundEndpoint, DispatchBatcher<MuleEvent>>();
+
+    /**
+     * Maximum number of concurrent one-way dispatches to the same endpoint that are
+     * executed as a single batch. Batching is disabled when this is not greater than
+     * one.
+     */
+    private volatile int batchSize = 1;
+
+    /**
+     * Time in milliseconds a batch waits for more events before being executed when it
+     * is not full.
+     */
+    private volatile long lingerTime = DEFAULT_LINGER_TIME;
+
+    /**
+     * @return the batcher coalescing the one-way dispatches to the given endpoint, or
+     *         null if dispatch batching is disabled
+     */
+    public DispatchBatcher<MuleEvent> getBatcher(OutboundEndpoint endpoint)
+    {
+        if (batchSize <= 1)
+        {
+            return null;
+        }
+        DispatchBatcher<MuleEvent> batcher = batchers.get(endpoint);
+        if (batcher == null)
+        {
+            batcher = new DispatchBatcher<MuleEvent>(batchSize, lingerTime);
+            DispatchBatcher<MuleEvent> previous = batchers.putIfAbsent(endpoint, batcher);
+            if (previous != null)
+            {
+                batcher = previous;
+            }
+        }
+        return batcher;
+    }
+
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    public long getLingerTime()
+    {
+        return lingerTime;
+    }
+
+    public void setLingerTime(long lingerTime)
+    {
+        this.lingerTime = lingerTime;
+    }
+}
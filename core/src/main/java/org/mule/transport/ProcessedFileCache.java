@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the name, size and modification time of the files that a polling receiver
+ * has already handed to its flow, so that files left in place are not processed again
+ * while they are unchanged.
+ * <p/>
+ * Only the files that are still listed need to be remembered, so receivers call
+ * {@link #retainAll(Set)} after every complete listing.
+ */
+public class ProcessedFileCache
+{
+
+    private final ConcurrentMap<String, FileState> files = new ConcurrentHashMap<String, FileState>();
+
+    /**
+     * @return whether the file was processed when it had the given size and modification
+     *         time
+     */
+    public boolean isProcessed(String name, long size, long timestamp)
+    {
+        FileState state = files.get(name);
+        return state != null && state.size == size && state.timestamp == timestamp;
+    }
+
+    public void processed(String name, long size, long timestamp)
+    {
+        files.put(name, new FileState(size, timestamp));
+    }
+
+    public void remove(String name)
+    {
+        files.remove(name);
+    }
+
+    /**
+     * Forgets the files that are not in the given listing, because they were removed
+     * from the remote directory.
+     */
+    public void retainAll(Set<String> listedNames)
+    {
+        files.keySet().retainAll(listedNames);
+    }
+
+    public int size()
+    {
+        return files.size();
+    }
+
+    private static class FileState
+    {
+
+        private final long size;
+        private final long timestamp;
+
+        FileState(long size, long timestamp)
+        {
+            this.size = size;
+            this.timestamp = timestamp;
+        }
+    }
+}
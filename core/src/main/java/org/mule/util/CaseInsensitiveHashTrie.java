@@ -0,0 +1,558 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable hash array mapped trie with the key semantics of {@link CaseInsensitiveHashMap}: string keys
+ * are compared ignoring their case and the original case of the keys is preserved.
+ * <p/>
+ * Adding or removing a key returns a new trie that shares all the nodes not in the path to the key with
+ * this one, so it only copies a few small arrays instead of the whole map. Lookups do not allocate.
+ */
+final class CaseInsensitiveHashTrie<K, V> implements Iterable<Map.Entry<K, V>>
+{
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final CaseInsensitiveHashTrie EMPTY = new CaseInsensitiveHashTrie(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private CaseInsensitiveHashTrie(Node root, int size)
+    {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> CaseInsensitiveHashTrie<K, V> empty()
+    {
+        return EMPTY;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    boolean containsKey(Object key)
+    {
+        return root.find(hash(key), key, 0) != null;
+    }
+
+    boolean containsValue(Object value)
+    {
+        for (Map.Entry<K, V> entry : this)
+        {
+            if (value == null ? entry.getValue() == null : value.equals(entry.getValue()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Object key)
+    {
+        Leaf leaf = root.find(hash(key), key, 0);
+        return leaf == null ? null : (V) leaf.value;
+    }
+
+    /**
+     * @param previous if not null, its first element is set to the entry that was replaced, if any
+     * @return a trie with the given mapping added
+     */
+    CaseInsensitiveHashTrie<K, V> plus(K key, V value, Map.Entry<K, V>[] previous)
+    {
+        Leaf[] replaced = new Leaf[1];
+        Node newRoot = root.put(new Leaf(key, value, hash(key)), 0, replaced);
+        if (previous != null)
+        {
+            previous[0] = asEntry(replaced[0]);
+        }
+        if (newRoot == root)
+        {
+            return this;
+        }
+        return new CaseInsensitiveHashTrie<K, V>(newRoot, replaced[0] == null ? size + 1 : size);
+    }
+
+    /**
+     * @param previous if not null, its first element is set to the entry that was removed, if any
+     * @return a trie without the given key
+     */
+    CaseInsensitiveHashTrie<K, V> minus(Object key, Map.Entry<K, V>[] previous)
+    {
+        Leaf[] removed = new Leaf[1];
+        Node newRoot = root.remove(hash(key), key, 0, removed);
+        if (previous != null)
+        {
+            previous[0] = asEntry(removed[0]);
+        }
+        if (removed[0] == null)
+        {
+            return this;
+        }
+        return newRoot == null ? CaseInsensitiveHashTrie.<K, V> empty() : new CaseInsensitiveHashTrie<K, V>(
+            newRoot, size - 1);
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator()
+    {
+        return new EntryIterator<K, V>(root);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder("{");
+        for (Map.Entry<K, V> entry : this)
+        {
+            if (builder.length() > 1)
+            {
+                builder.append(", ");
+            }
+            builder.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return builder.append('}').toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map.Entry<K, V> asEntry(Leaf leaf)
+    {
+        return leaf;
+    }
+
+    /**
+     * Same hash for keys that only differ in their case, computed without creating a lower case copy of
+     * string keys.
+     */
+    private static int hash(Object key)
+    {
+        if (key == null)
+        {
+            return 0;
+        }
+        String string = key instanceof String ? (String) key : key.toString();
+        int hash = 0;
+        for (int i = 0; i < string.length(); i++)
+        {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(string.charAt(i)));
+        }
+        // spreads the low bits used by the first levels of the trie
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean isEqualKey(Object key1, Object key2)
+    {
+        if (key1 instanceof String && key2 instanceof String)
+        {
+            return ((String) key1).equalsIgnoreCase((String) key2);
+        }
+        return key1 == key2 || (key1 != null && key1.equals(key2));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final class Leaf implements Map.Entry
+    {
+
+        private final Object key;
+        private final Object value;
+        private final int hash;
+
+        Leaf(Object key, Object value, int hash)
+        {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+        }
+
+        boolean matches(int hash, Object key)
+        {
+            return this.hash == hash && isEqualKey(this.key, key);
+        }
+
+        @Override
+        public Object getKey()
+        {
+            return key;
+        }
+
+        @Override
+        public Object getValue()
+        {
+            return value;
+        }
+
+        @Override
+        public Object setValue(Object value)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString()
+        {
+            return key + "=" + value;
+        }
+    }
+
+    private abstract static class Node
+    {
+
+        abstract Leaf find(int hash, Object key, int shift);
+
+        abstract Node put(Leaf leaf, int shift, Leaf[] replaced);
+
+        /**
+         * @return the node without the key, which is null when the node becomes empty
+         */
+        abstract Node remove(int hash, Object key, int shift, Leaf[] removed);
+
+        /**
+         * @return the only entry of the node, or null if it has more than one
+         */
+        abstract Leaf singleLeaf();
+
+        abstract Object[] slots();
+    }
+
+    /**
+     * Node holding either entries or sub nodes, indexed by 5 bits of the hash of their keys.
+     */
+    private static final class BitmapNode extends Node
+    {
+
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots)
+        {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        @Override
+        Leaf find(int hash, Object key, int shift)
+        {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0)
+            {
+                return null;
+            }
+            Object slot = slots[index(bit)];
+            if (slot instanceof Node)
+            {
+                return ((Node) slot).find(hash, key, shift + BITS);
+            }
+            Leaf leaf = (Leaf) slot;
+            return leaf.matches(hash, key) ? leaf : null;
+        }
+
+        @Override
+        Node put(Leaf leaf, int shift, Leaf[] replaced)
+        {
+            int bit = bit(leaf.hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0)
+            {
+                Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                newSlots[index] = leaf;
+                System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+                return new BitmapNode(bitmap | bit, newSlots);
+            }
+
+            Object slot = slots[index];
+            if (slot instanceof Node)
+            {
+                Node node = ((Node) slot).put(leaf, shift + BITS, replaced);
+                return node == slot ? this : withSlot(index, node);
+            }
+            Leaf existing = (Leaf) slot;
+            if (existing.matches(leaf.hash, leaf.key))
+            {
+                replaced[0] = existing;
+                if (existing.value == leaf.value)
+                {
+                    return this;
+                }
+                // like CaseInsensitiveHashMap, keeps the case of the key that was added first
+                return withSlot(index, new Leaf(existing.key, leaf.value, existing.hash));
+            }
+            return withSlot(index, merge(existing, leaf, shift + BITS));
+        }
+
+        @Override
+        Node remove(int hash, Object key, int shift, Leaf[] removed)
+        {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0)
+            {
+                return this;
+            }
+            int index = index(bit);
+            Object slot = slots[index];
+            if (slot instanceof Node)
+            {
+                Node node = ((Node) slot).remove(hash, key, shift + BITS, removed);
+                if (node == slot)
+                {
+                    return this;
+                }
+                if (node == null)
+                {
+                    return withoutSlot(bit, index);
+                }
+                Leaf single = node.singleLeaf();
+                return withSlot(index, single != null ? single : node);
+            }
+            Leaf leaf = (Leaf) slot;
+            if (!leaf.matches(hash, key))
+            {
+                return this;
+            }
+            removed[0] = leaf;
+            return withoutSlot(bit, index);
+        }
+
+        @Override
+        Leaf singleLeaf()
+        {
+            return slots.length == 1 && slots[0] instanceof Leaf ? (Leaf) slots[0] : null;
+        }
+
+        @Override
+        Object[] slots()
+        {
+            return slots;
+        }
+
+        private Node withSlot(int index, Object slot)
+        {
+            Object[] newSlots = slots.clone();
+            newSlots[index] = slot;
+            return new BitmapNode(bitmap, newSlots);
+        }
+
+        private Node withoutSlot(int bit, int index)
+        {
+            if (slots.length == 1)
+            {
+                return null;
+            }
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+            return new BitmapNode(bitmap & ~bit, newSlots);
+        }
+
+        private int index(int bit)
+        {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private static int bit(int hash, int shift)
+        {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        /**
+         * Creates the node holding two entries whose hashes are equal up to the given shift.
+         */
+        static Node merge(Object existing, Leaf leaf, int shift)
+        {
+            int existingHash = existing instanceof Leaf ? ((Leaf) existing).hash : ((CollisionNode) existing).hash;
+            if (existingHash == leaf.hash)
+            {
+                return new CollisionNode(leaf.hash, new Leaf[] {(Leaf) existing, leaf});
+            }
+            int existingBit = bit(existingHash, shift);
+            int leafBit = bit(leaf.hash, shift);
+            if (existingBit == leafBit)
+            {
+                return new BitmapNode(existingBit, new Object[] {merge(existing, leaf, shift + BITS)});
+            }
+            // compares the unsigned bits, the highest one is negative
+            boolean existingFirst = Integer.bitCount(existingBit - 1) < Integer.bitCount(leafBit - 1);
+            Object[] slots = existingFirst ? new Object[] {existing, leaf} : new Object[] {leaf, existing};
+            return new BitmapNode(existingBit | leafBit, slots);
+        }
+    }
+
+    /**
+     * Node holding the entries whose keys have the same hash.
+     */
+    private static final class CollisionNode extends Node
+    {
+
+        private final int hash;
+        private final Leaf[] leaves;
+
+        CollisionNode(int hash, Leaf[] leaves)
+        {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        @Override
+        Leaf find(int hash, Object key, int shift)
+        {
+            for (Leaf leaf : leaves)
+            {
+                if (leaf.matches(hash, key))
+                {
+                    return leaf;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        Node put(Leaf leaf, int shift, Leaf[] replaced)
+        {
+            if (leaf.hash != hash)
+            {
+                return BitmapNode.merge(this, leaf, shift);
+            }
+            for (int i = 0; i < leaves.length; i++)
+            {
+                if (leaves[i].matches(leaf.hash, leaf.key))
+                {
+                    replaced[0] = leaves[i];
+                    if (leaves[i].value == leaf.value)
+                    {
+                        return this;
+                    }
+                    Leaf[] newLeaves = leaves.clone();
+                    newLeaves[i] = new Leaf(leaves[i].key, leaf.value, hash);
+                    return new CollisionNode(hash, newLeaves);
+                }
+            }
+            Leaf[] newLeaves = new Leaf[leaves.length + 1];
+            System.arraycopy(leaves, 0, newLeaves, 0, leaves.length);
+            newLeaves[leaves.length] = leaf;
+            return new CollisionNode(hash, newLeaves);
+        }
+
+        @Override
+        Node remove(int hash, Object key, int shift, Leaf[] removed)
+        {
+            for (int i = 0; i < leaves.length; i++)
+            {
+                if (leaves[i].matches(hash, key))
+                {
+                    removed[0] = leaves[i];
+                    if (leaves.length == 1)
+                    {
+                        return null;
+                    }
+                    Leaf[] newLeaves = new Leaf[leaves.length - 1];
+                    System.arraycopy(leaves, 0, newLeaves, 0, i);
+                    System.arraycopy(leaves, i + 1, newLeaves, i, leaves.length - i - 1);
+                    return new CollisionNode(hash, newLeaves);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        Leaf singleLeaf()
+        {
+            return leaves.length == 1 ? leaves[0] : null;
+        }
+
+        @Override
+        Object[] slots()
+        {
+            return leaves;
+        }
+    }
+
+    /**
+     * Depth first iterator over the entries of the trie.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>>
+    {
+
+        // enough for the 7 levels of 5 bits of a 32 bits hash plus a collision node
+        private final Object[][] slotsStack = new Object[8][];
+        private final int[] indexStack = new int[8];
+        private int depth;
+        private Leaf next;
+
+        EntryIterator(Node root)
+        {
+            slotsStack[0] = root.slots();
+            advance();
+        }
+
+        private void advance()
+        {
+            next = null;
+            while (depth >= 0)
+            {
+                Object[] slots = slotsStack[depth];
+                if (indexStack[depth] == slots.length)
+                {
+                    depth--;
+                    continue;
+                }
+                Object slot = slots[indexStack[depth]++];
+                if (slot instanceof Leaf)
+                {
+                    next = (Leaf) slot;
+                    return;
+                }
+                depth++;
+                slotsStack[depth] = ((Node) slot).slots();
+                indexStack[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next()
+        {
+            if (next == null)
+            {
+                throw new NoSuchElementException();
+            }
+            Leaf current = next;
+            advance();
+            return current;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
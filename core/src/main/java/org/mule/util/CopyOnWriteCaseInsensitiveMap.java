@@ -8,18 +8,22 @@ package org.mule.util;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.AbstractCollection;
 import java.util.AbstractSet;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
  * Implementation of {@link Map} that provides copy on write semantics while providing the case-insensitivity
  * of {@link CaseInsensitiveHashMap}. <br>
+ * The entries are held in an immutable {@link CaseInsensitiveHashTrie}, so a {@link #clone()} shares them
+ * with the original map and a write to either of them only copies the path to the written key instead of
+ * the whole map.<br>
  * <b>Note:</b> In this {@link Map} implementation {@link #values()} and {@link #entrySet()} return
  * unmodifiable {@link Collection}'s.<br>
  * This implementation is not thread-safe.
@@ -29,45 +33,30 @@ public class CopyOnWriteCaseInsensitiveMap<K, V> implements Map<K, V>, Serializa
 
     private static final long serialVersionUID = -2753436627413265538L;
 
-    private Map<K, V> core;
-    private transient Map<K, V> view;
-    private transient boolean requiresCopy;
+    /**
+     * Keeps the serialized form of the versions that held the entries in a {@link CaseInsensitiveHashMap}
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {new ObjectStreamField("core", Map.class)};
+
+    private transient CaseInsensitiveHashTrie<K, V> core;
     private transient Set<K> keyset = new KeySet();
+    private transient Set<Entry<K, V>> entrySet = new EntrySet();
+    private transient Collection<V> values = new Values();
 
-    @SuppressWarnings("unchecked")
     public CopyOnWriteCaseInsensitiveMap()
     {
-        updateCore(new CaseInsensitiveHashMap());
+        core = CaseInsensitiveHashTrie.empty();
     }
 
     private CopyOnWriteCaseInsensitiveMap(CopyOnWriteCaseInsensitiveMap<K, V> that)
     {
-        updateCore(that.core);
-        this.requiresCopy = true;
+        core = that.core;
     }
 
-    @SuppressWarnings({"rawtypes", "unchecked"})
     @Override
     public CopyOnWriteCaseInsensitiveMap<K, V> clone()
     {
-        try
-        {
-            return new CopyOnWriteCaseInsensitiveMap(this);
-        }
-        finally
-        {
-            requiresCopy = true;
-        }
-    }
-
-    @SuppressWarnings("unchecked")
-    private void copy()
-    {
-        if (requiresCopy)
-        {
-            updateCore(new CaseInsensitiveHashMap(core));
-            requiresCopy = false;
-        }
+        return new CopyOnWriteCaseInsensitiveMap<K, V>(this);
     }
 
     @Override
@@ -101,31 +90,36 @@ public class CopyOnWriteCaseInsensitiveMap<K, V> implements Map<K, V>, Serializa
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public V put(K key, V value)
     {
-        copy();
-        return core.put(key, value);
+        Entry<K, V>[] previous = new Entry[1];
+        core = core.plus(key, value, previous);
+        return previous[0] == null ? null : previous[0].getValue();
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public V remove(Object key)
     {
-        copy();
-        return core.remove(key);
+        Entry<K, V>[] previous = new Entry[1];
+        core = core.minus(key, previous);
+        return previous[0] == null ? null : previous[0].getValue();
     }
 
     @Override
     public void putAll(Map<? extends K, ? extends V> t)
     {
-        copy();
-        core.putAll(t);
+        for (Entry<? extends K, ? extends V> entry : t.entrySet())
+        {
+            core = core.plus(entry.getKey(), entry.getValue(), null);
+        }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void clear()
     {
-        updateCore(new CaseInsensitiveHashMap());
+        core = CaseInsensitiveHashTrie.empty();
     }
 
     public Set<K> keySet()
@@ -161,62 +155,98 @@ public class CopyOnWriteCaseInsensitiveMap<K, V> implements Map<K, V>, Serializa
         }
     }
 
+    /**
+     * Iterates the keys of the entries at the moment the iterator was created, so it is not affected by the
+     * changes done to the map while iterating.
+     */
     private final class KeyIterator implements Iterator<K>
     {
-        private int current = -1;
-        private int lastRemovalIndex = current;
-        private K[] keyArray;
-
-        @SuppressWarnings("unchecked")
-        public KeyIterator()
-        {
-            keyArray = (K[]) core.keySet().toArray();
-        }
+        private final Iterator<Entry<K, V>> entries = core.iterator();
+        private K current;
+        private boolean removed = true;
 
         public boolean hasNext()
         {
-            return current < keyArray.length -1;
+            return entries.hasNext();
         }
 
         public K next()
         {
-            try
-            {
-                return keyArray[++current];
-            }
-            catch (ArrayIndexOutOfBoundsException e)
-            {
-                throw new NoSuchElementException();
-            }
+            current = entries.next().getKey();
+            removed = false;
+            return current;
         }
 
         public void remove()
         {
-            if (current == -1)
+            if (current == null)
             {
                 throw new IllegalStateException("Cannot remove element before first invoking next()");
             }
 
-            if (current == lastRemovalIndex)
+            if (removed)
             {
                 throw new IllegalStateException("Remove can only be called once per call to next()");
             }
 
-            CopyOnWriteCaseInsensitiveMap.this.remove(keyArray[current]);
-            lastRemovalIndex = current;
+            CopyOnWriteCaseInsensitiveMap.this.remove(current);
+            removed = true;
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>>
+    {
+        public Iterator<Entry<K, V>> iterator()
+        {
+            return core.iterator();
+        }
+
+        public int size()
+        {
+            return CopyOnWriteCaseInsensitiveMap.this.size();
+        }
+    }
+
+    private final class Values extends AbstractCollection<V>
+    {
+        public Iterator<V> iterator()
+        {
+            final Iterator<Entry<K, V>> entries = core.iterator();
+            return new Iterator<V>()
+            {
+                public boolean hasNext()
+                {
+                    return entries.hasNext();
+                }
+
+                public V next()
+                {
+                    return entries.next().getValue();
+                }
+
+                public void remove()
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        public int size()
+        {
+            return CopyOnWriteCaseInsensitiveMap.this.size();
         }
     }
 
     @Override
     public Collection<V> values()
     {
-        return view.values();
+        return values;
     }
 
     @Override
     public Set<Entry<K, V>> entrySet()
     {
-        return view.entrySet();
+        return entrySet;
     }
 
     @Override
@@ -225,20 +255,34 @@ public class CopyOnWriteCaseInsensitiveMap<K, V> implements Map<K, V>, Serializa
         return core.toString();
     }
 
-    private void updateCore(Map<K, V> core)
+    /**
+     * Writes the entries as a {@link CaseInsensitiveHashMap}, as previous versions did.
+     */
+    @SuppressWarnings("unchecked")
+    private void writeObject(ObjectOutputStream out) throws IOException
     {
-        this.core = core;
-        this.view = Collections.unmodifiableMap(core);
+        CaseInsensitiveHashMap map = new CaseInsensitiveHashMap();
+        for (Entry<K, V> entry : core)
+        {
+            map.put(entry.getKey(), entry.getValue());
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("core", map);
+        out.writeFields();
     }
 
-    /**
-     * After deserialization we can just use unserialized original map directly.
-     */
+    @SuppressWarnings("unchecked")
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
     {
-        in.defaultReadObject();
-        this.view = Collections.unmodifiableMap(core);
+        Map<K, V> map = (Map<K, V>) in.readFields().get("core", null);
+        this.core = CaseInsensitiveHashTrie.empty();
         this.keyset = new KeySet();
+        this.entrySet = new EntrySet();
+        this.values = new Values();
+        if (map != null)
+        {
+            putAll(map);
+        }
     }
 
 }
@@ -14,6 +14,10 @@ import org.mule.routing.MessageSequence;
 import org.mule.routing.outbound.ArrayMessageSequence;
 import org.mule.routing.outbound.CollectionMessageSequence;
 import org.mule.routing.outbound.IteratorMessageSequence;
+import org.mule.streaming.Consumer;
+import org.mule.streaming.ConsumerIterator;
+import org.mule.streaming.Producer;
+import org.mule.streaming.SimpleConsumer;
 
 import java.util.Collection;
 import java.util.Iterator;
@@ -40,6 +44,16 @@ public class EventToMessageSequenceSplittingStrategy
         {
             return new IteratorMessageSequence<Object>(((Iterator<Object>) payload));
         }
+        // streamed payloads are consumed one item at a time as the sequence is iterated
+        if (payload instanceof Consumer<?>)
+        {
+            return new IteratorMessageSequence<Object>(new ConsumerIterator<Object>((Consumer<Object>) payload));
+        }
+        if (payload instanceof Producer<?>)
+        {
+            return new IteratorMessageSequence<Object>(new ConsumerIterator<Object>(
+                new SimpleConsumer<Object>((Producer<Object>) payload)));
+        }
         if (payload instanceof Collection)
         {
             return new CollectionMessageSequence(new LinkedList((Collection) payload));
@@ -55,7 +69,8 @@ public class EventToMessageSequenceSplittingStrategy
         else
         {
             throw new IllegalArgumentException(CoreMessages.objectNotOfCorrectType(payload.getClass(),
-                new Class[]{Iterable.class, Iterator.class, MessageSequence.class, Collection.class})
+                new Class[]{Iterable.class, Iterator.class, MessageSequence.class, Collection.class, Consumer.class,
+                    Producer.class})
                 .getMessage());
         }
     };
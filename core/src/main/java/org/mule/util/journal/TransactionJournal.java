@@ -6,6 +6,7 @@
  */
 package org.mule.util.journal;
 
+import org.mule.api.config.MuleProperties;
 import org.mule.util.Preconditions;
 
 import com.google.common.collect.LinkedHashMultimap;
@@ -24,13 +25,26 @@ import org.apache.commons.logging.LogFactory;
  * Uses two files for keeping track of the transactions and empties a file once all the
  * entries in such file are resolved.
  *
- * Keeps a memory cache of the log entries for performance reasons.
+ * Keeps the log entries of the open transactions in memory. Entries logged concurrently
+ * are written to the file together, see {@link #FLUSH_WINDOW_PROPERTY} and {@link #SYNC_PROPERTY}.
  * Once a transaction finishes the client of this class must manually remove the
- * entries related to such transaction to clear the cache.
+ * entries related to such transaction.
  */
 public class TransactionJournal<T, K extends JournalEntry<T>>
 {
 
+    /**
+     * Milliseconds a thread writing to the journal waits for entries logged by other threads,
+     * so they are all written together. Defaults to <em>0</em>, in which case only the entries
+     * logged while another write was in progress are written together.
+     */
+    public static final String FLUSH_WINDOW_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX + "journal.flushWindow";
+
+    /**
+     * Whether each write to the journal is synced to the storage device. Defaults to <em>false</em>.
+     */
+    public static final String SYNC_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX + "journal.sync";
+
     private static final int MAXIMUM_LOG_FILE_ENTRIES = 50000;
 
     private transient Log logger = LogFactory.getLog(getClass());
@@ -60,8 +74,10 @@ public class TransactionJournal<T, K extends JournalEntry<T>>
         File logFile2 = new File(logFileDirectory, "tx2.log");
         logger.info(String.format("Using files for tx logs %s and %s", logFile1.getAbsolutePath(), logFile2.getAbsolutePath()));
 
-        this.currentLogFile = new TransactionJournalFile(logFile1, journalEntrySerializer);
-        this.notCurrentLogFile = new TransactionJournalFile(logFile2, journalEntrySerializer);
+        long flushWindow = Long.getLong(FLUSH_WINDOW_PROPERTY, 0);
+        boolean sync = Boolean.getBoolean(SYNC_PROPERTY);
+        this.currentLogFile = new TransactionJournalFile(logFile1, journalEntrySerializer, flushWindow, sync);
+        this.notCurrentLogFile = new TransactionJournalFile(logFile2, journalEntrySerializer, flushWindow, sync);
         this.transactionCompletePredicate = transactionCompletePredicate;
     }
 
@@ -70,7 +86,7 @@ public class TransactionJournal<T, K extends JournalEntry<T>>
      *
      * @param journalEntry journal entry with the update operation details
      */
-    public synchronized void logUpdateOperation(JournalEntry<T> journalEntry)
+    public void logUpdateOperation(JournalEntry<T> journalEntry)
     {
         TransactionJournalFile logFile = determineLogFile(journalEntry.getTxId());
         logFile.logOperation(journalEntry);
@@ -83,7 +99,7 @@ public class TransactionJournal<T, K extends JournalEntry<T>>
      *
      * @param journalEntry journal entry with the checkpoint operation details
      */
-    public synchronized void logCheckpointOperation(JournalEntry<T> journalEntry)
+    public void logCheckpointOperation(JournalEntry<T> journalEntry)
     {
         TransactionJournalFile logFile = determineLogFile(journalEntry.getTxId());
         logFile.logOperation(journalEntry);
@@ -99,7 +115,11 @@ public class TransactionJournal<T, K extends JournalEntry<T>>
      */
     public Collection<K> getLogEntriesForTx(T txId)
     {
-        TransactionJournalFile logFile = determineLogFileWithoutModifyingCurrent(txId);
+        TransactionJournalFile logFile;
+        synchronized (this)
+        {
+            logFile = determineLogFileWithoutModifyingCurrent(txId);
+        }
         if (logFile == null || !logFile.containsTx(txId))
         {
             return Collections.emptyList();
@@ -136,7 +156,7 @@ public class TransactionJournal<T, K extends JournalEntry<T>>
         notCurrentLogFile.clear();
     }
 
-    private TransactionJournalFile determineLogFile(T txId)
+    private synchronized TransactionJournalFile determineLogFile(T txId)
     {
         final TransactionJournalFile logFile = determineLogFileWithoutModifyingCurrent(txId);
         if (logFile != null)
@@ -7,29 +7,53 @@
 package org.mule.util.journal;
 
 import org.mule.api.MuleRuntimeException;
+import org.mule.config.i18n.CoreMessages;
 
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 /**
  * Manages a transaction journal file.
+ * <p/>
+ * Entries are serialized by the logging thread and queued under a short lock. The first
+ * thread that finds no write in progress becomes the leader: it releases the lock, waits for
+ * the flush window, and then writes and syncs, if configured to do so, all the queued entries
+ * with a single write. The other logging threads wait until the group holding their entries
+ * has been written, so concurrent transactions share the cost of writing to the file.
+ * <p/>
+ * Only the position in the file of the entries of each open transaction is kept in memory.
+ * The entries themselves are read back from the file when they are requested.
+ * <p/>
+ * Truncating or closing the file requires the same leadership as writing to it, so it never
+ * happens while a group of entries is being written.
  *
  * @param <T> type of the transaction identifier
  * @param <K> type of the journal entry
@@ -47,10 +71,25 @@ class TransactionJournalFile<T, K extends JournalEntry<T>>
 
     private final File journalFile;
     private final JournalEntrySerializer<T, K> journalEntrySerializer;
+    private final long flushWindow;
+    private final boolean sync;
 
-    private Multimap<T, K> entries = LinkedHashMultimap.create();
+    /**
+     * Guards all the fields below. Never held while waiting for the flush window or
+     * writing to the file.
+     */
+    private final Lock lock = new ReentrantLock();
+    private final Condition groupWritten = lock.newCondition();
+
+    private final Map<T, EntryPositions> openTransactions = new LinkedHashMap<T, EntryPositions>();
+    private int entryCount;
+    private List<PendingEntry> pendingEntries = new ArrayList<PendingEntry>();
+    private boolean writing;
+    private boolean closed;
 
-    private DataOutputStream logFileOutputStream;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel fileChannel;
+    private long fileLength;
     private int journalOperations = 0;
 
     /**
@@ -58,25 +97,68 @@ class TransactionJournalFile<T, K extends JournalEntry<T>>
      * @param journalEntrySerializer serializer for {@link org.mule.util.journal.JournalEntry}
      */
     public TransactionJournalFile(File journalFile, JournalEntrySerializer journalEntrySerializer)
+    {
+        this(journalFile, journalEntrySerializer, 0, false);
+    }
+
+    /**
+     * @param journalFile journal file to use. Will be created if it doesn't exists. If exists then transaction entries will get loaded from it.
+     * @param journalEntrySerializer serializer for {@link org.mule.util.journal.JournalEntry}
+     * @param flushWindow milliseconds to wait for more entries before writing the queued ones
+     * @param sync whether to sync the file to the storage device after each write
+     */
+    public TransactionJournalFile(File journalFile, JournalEntrySerializer journalEntrySerializer, long flushWindow, boolean sync)
     {
         this.journalFile = journalFile;
         this.journalEntrySerializer = journalEntrySerializer;
+        this.flushWindow = flushWindow;
+        this.sync = sync;
         if (journalFile.exists())
         {
             loadAllEntries();
         }
-        createLogOutputStream();
+        openFile();
     }
 
     /**
-     * Adds a journal entry for an operation done over a transactional resource
+     * Adds a journal entry for an operation done over a transactional resource.
+     * <p/>
+     * Returns once the entry has been written to the journal file.
+     *
      * @param journalEntry operation details
      */
-    public synchronized void logOperation(K journalEntry)
+    public void logOperation(K journalEntry)
     {
-        entries.put(journalEntry.getTxId(), journalEntry);
-        journalEntrySerializer.serialize(journalEntry, logFileOutputStream);
-        journalOperations++;
+        PendingEntry pendingEntry = new PendingEntry(journalEntry, serialize(journalEntry));
+        boolean leader = false;
+        lock.lock();
+        try
+        {
+            pendingEntries.add(pendingEntry);
+            while (!pendingEntry.written && !pendingEntry.failed)
+            {
+                if (!writing)
+                {
+                    writing = true;
+                    leader = true;
+                    break;
+                }
+                groupWritten.awaitUninterruptibly();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        if (leader)
+        {
+            waitForFlushWindow();
+            writePendingEntries();
+        }
+        if (pendingEntry.failed)
+        {
+            throw new MuleRuntimeException(CoreMessages.createStaticMessage("Could not write entry to tx log file " + journalFile.getAbsolutePath()));
+        }
     }
 
     /**
@@ -86,20 +168,38 @@ class TransactionJournalFile<T, K extends JournalEntry<T>>
      *
      * @param txId transaction identifier
      */
-    public synchronized void clearEntriesForTransaction(T txId)
+    public void clearEntriesForTransaction(T txId)
     {
-        Collection<K> entries = this.entries.removeAll(txId);
-        if (logger.isDebugEnabled())
-        {
-            logger.debug("Evicted from tx log file " + entries.size() + " entries from txid " + txId);
-        }
-        if (this.entries.isEmpty())
+        lock.lock();
+        try
         {
-            if (journalOperations > MINIMUM_ENTRIES_TO_CLEAR_FILE)
+            EntryPositions positions = openTransactions.remove(txId);
+            int evicted = positions == null ? 0 : positions.count;
+            entryCount -= evicted;
+            if (logger.isDebugEnabled())
             {
-                clear();
-                journalOperations = 0;
+                logger.debug("Evicted from tx log file " + evicted + " entries from txid " + txId);
             }
+            if (openTransactions.isEmpty() && journalOperations > MINIMUM_ENTRIES_TO_CLEAR_FILE)
+            {
+                acquireWriteLeadership();
+                try
+                {
+                    if (openTransactions.isEmpty() && !closed)
+                    {
+                        truncate();
+                        journalOperations = 0;
+                    }
+                }
+                finally
+                {
+                    releaseWriteLeadership();
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
         }
     }
 
@@ -108,11 +208,21 @@ class TransactionJournalFile<T, K extends JournalEntry<T>>
      *
      * Will not remove the transaction context.
      */
-    public synchronized void close()
+    public void close()
     {
+        lock.lock();
         try
         {
-            logFileOutputStream.close();
+            acquireWriteLeadership();
+            try
+            {
+                closed = true;
+                randomAccessFile.close();
+            }
+            finally
+            {
+                releaseWriteLeadership();
+            }
         }
         catch (IOException e)
         {
@@ -122,6 +232,10 @@ class TransactionJournalFile<T, K extends JournalEntry<T>>
                 logger.debug(e);
             }
         }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
     /**
@@ -130,100 +244,382 @@ class TransactionJournalFile<T, K extends JournalEntry<T>>
      */
     public Collection<K> getLogEntries(T txId)
     {
-        final Collection<K> entries = this.entries.asMap().get(txId);
-        if (entries == null)
+        lock.lock();
+        try
         {
-            return Collections.emptyList();
+            EntryPositions positions = openTransactions.get(txId);
+            if (positions == null)
+            {
+                return Collections.emptyList();
+            }
+            List<K> entries = new ArrayList<K>(positions.count);
+            for (int i = 0; i < positions.count; i++)
+            {
+                entries.add(readEntry(positions.positions[i], positions.lengths[i]));
+            }
+            return Collections.unmodifiableCollection(entries);
         }
-        synchronized (entries)
+        finally
         {
-            return Collections.unmodifiableCollection(new ArrayList<K>(entries));
+            lock.unlock();
         }
     }
 
     /**
-     * @return all journal entries exactly as stored in the journal.
-     * No modifications should be done to such collections and the journal file should not
-     * be access concurrently for other purposes while working with the collection.
+     * Reads the entries of all the open transactions from the journal file, which is
+     * scanned sequentially.
+     *
+     * @return a copy of all journal entries.
      */
-    public synchronized Multimap<T, K> getAllLogEntries()
+    public Multimap<T, K> getAllLogEntries()
     {
-        return entries;
+        lock.lock();
+        try
+        {
+            final Multimap<T, K> entries = LinkedHashMultimap.create();
+            if (openTransactions.isEmpty())
+            {
+                return entries;
+            }
+            scanFile(fileLength, new EntryCallback<T, K>()
+            {
+                @Override
+                public void onEntry(K journalEntry, long position, int length)
+                {
+                    EntryPositions positions = openTransactions.get(journalEntry.getTxId());
+                    if (positions != null && positions.contains(position))
+                    {
+                        entries.put(journalEntry.getTxId(), journalEntry);
+                    }
+                }
+            });
+            return entries;
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
     /**
      * Remove all the entries from the transaction journal and cleans the transaction journal fle.
      */
-    public synchronized void clear()
+    public void clear()
     {
-        close();
-        entries.clear();
-        FileUtils.deleteQuietly(journalFile);
-        createLogOutputStream();
+        lock.lock();
+        try
+        {
+            acquireWriteLeadership();
+            try
+            {
+                openTransactions.clear();
+                entryCount = 0;
+                if (!closed)
+                {
+                    truncate();
+                }
+            }
+            finally
+            {
+                releaseWriteLeadership();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-    private void createLogOutputStream()
+    /**
+     * Waits for the write in progress, if any, to finish and keeps any other thread from
+     * writing until {@link #releaseWriteLeadership()} is called. Entries logged meanwhile
+     * stay queued. Must be called holding {@link #lock}.
+     */
+    private void acquireWriteLeadership()
+    {
+        while (writing)
+        {
+            groupWritten.awaitUninterruptibly();
+        }
+        writing = true;
+    }
+
+    /**
+     * Lets a queued logging thread become the leader. Must be called holding {@link #lock}.
+     */
+    private void releaseWriteLeadership()
+    {
+        writing = false;
+        groupWritten.signalAll();
+    }
+
+    /**
+     * Empties the journal file. Must be called holding {@link #lock} and the write leadership.
+     */
+    private void truncate()
     {
-        if (!journalFile.exists())
+        try
+        {
+            fileChannel.truncate(0);
+            fileLength = 0;
+        }
+        catch (IOException e)
+        {
+            throw new MuleRuntimeException(e);
+        }
+    }
+
+    private byte[] serialize(K journalEntry)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream dataOutputStream = new DataOutputStream(bytes);
+        journalEntrySerializer.serialize(journalEntry, dataOutputStream);
+        try
+        {
+            dataOutputStream.flush();
+        }
+        catch (IOException e)
+        {
+            throw new MuleRuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Gives other threads the chance to queue their entries so they are written together.
+     */
+    private void waitForFlushWindow()
+    {
+        if (flushWindow <= 0)
+        {
+            return;
+        }
+        try
+        {
+            TimeUnit.MILLISECONDS.sleep(flushWindow);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes all the queued entries to the journal file. Must only be called by the leader,
+     * without holding {@link #lock}.
+     */
+    private void writePendingEntries()
+    {
+        List<PendingEntry> batch;
+        long position;
+        boolean failed;
+        lock.lock();
+        try
+        {
+            batch = pendingEntries;
+            pendingEntries = new ArrayList<PendingEntry>();
+            position = fileLength;
+            failed = closed;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        int batchLength = 0;
+        for (PendingEntry entry : batch)
+        {
+            batchLength += entry.data.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(batchLength);
+        for (PendingEntry entry : batch)
+        {
+            buffer.put(entry.data);
+        }
+        buffer.flip();
+        if (failed)
+        {
+            logger.error("Could not write " + batch.size() + " entries to closed tx log file " + journalFile.getAbsolutePath());
+        }
+        else
         {
             try
             {
-                journalFile.createNewFile();
+                while (buffer.hasRemaining())
+                {
+                    fileChannel.write(buffer, position + buffer.position());
+                }
+                if (sync)
+                {
+                    fileChannel.force(false);
+                }
             }
             catch (IOException e)
             {
-                throw new MuleRuntimeException(e);
+                logger.error("Could not write " + batch.size() + " entries to tx log file " + journalFile.getAbsolutePath(), e);
+                failed = true;
             }
         }
+
+        lock.lock();
         try
         {
-            this.logFileOutputStream = new DataOutputStream(new FileOutputStream(journalFile, true));
+            long entryPosition = position;
+            for (PendingEntry entry : batch)
+            {
+                if (failed)
+                {
+                    entry.failed = true;
+                }
+                else
+                {
+                    addPosition(entry.journalEntry.getTxId(), entryPosition, entry.data.length);
+                    entryPosition += entry.data.length;
+                    entry.written = true;
+                }
+            }
+            if (failed)
+            {
+                if (!closed)
+                {
+                    // discards a partial write so that later entries stay readable
+                    truncateTo(position);
+                }
+            }
+            else
+            {
+                fileLength = position + batchLength;
+                journalOperations += batch.size();
+            }
+            releaseWriteLeadership();
         }
-        catch (FileNotFoundException e)
+        finally
+        {
+            lock.unlock();
+        }
+        if (logger.isDebugEnabled() && !failed)
+        {
+            logger.debug("Wrote " + batch.size() + " entries to tx log file " + journalFile.getName());
+        }
+    }
+
+    private void truncateTo(long length)
+    {
+        try
+        {
+            fileChannel.truncate(length);
+        }
+        catch (IOException e)
+        {
+            logger.warn("Could not discard partial write to tx log file " + journalFile.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    private void openFile()
+    {
+        try
+        {
+            randomAccessFile = new RandomAccessFile(journalFile, "rw");
+            fileChannel = randomAccessFile.getChannel();
+            if (fileChannel.size() > fileLength)
+            {
+                // discards an entry that was not completely written
+                fileChannel.truncate(fileLength);
+            }
+        }
+        catch (IOException e)
         {
             throw new MuleRuntimeException(e);
         }
     }
 
-    private void loadAllEntries()
+    private void addPosition(T txId, long position, int length)
     {
-        if (!journalFile.exists())
+        EntryPositions positions = openTransactions.get(txId);
+        if (positions == null)
         {
-            return;
+            positions = new EntryPositions();
+            openTransactions.put(txId, positions);
         }
+        positions.add(position, length);
+        entryCount++;
+    }
+
+    /**
+     * Reads the entry at the given position of the journal file. Must be called holding
+     * {@link #lock}, so that the file is not truncated meanwhile.
+     */
+    private K readEntry(long position, int length)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try
+        {
+            while (buffer.hasRemaining())
+            {
+                if (fileChannel.read(buffer, position + buffer.position()) < 0)
+                {
+                    throw new EOFException("Journal entry at " + position + " is not complete in tx log file " + journalFile.getAbsolutePath());
+                }
+            }
+            return journalEntrySerializer.deserialize(new DataInputStream(new ByteArrayInputStream(buffer.array())));
+        }
+        catch (IOException e)
+        {
+            throw new MuleRuntimeException(e);
+        }
+    }
+
+    private void loadAllEntries()
+    {
+        fileLength = scanFile(Long.MAX_VALUE, new EntryCallback<T, K>()
+        {
+            @Override
+            public void onEntry(K journalEntry, long position, int length)
+            {
+                addPosition(journalEntry.getTxId(), position, length);
+            }
+        });
+    }
+
+    /**
+     * Reads the journal file sequentially, stopping at the given length or at the first
+     * entry that was not completely written.
+     *
+     * @return the length of the complete entries read
+     */
+    private long scanFile(long length, EntryCallback<T, K> callback)
+    {
+        long position = 0;
         DataInputStream dataInputStream = null;
         try
         {
-            dataInputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
-            boolean logEntryCreationFailed = false;
-            while (!logEntryCreationFailed)
+            CountingInputStream countingInputStream = new CountingInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+            dataInputStream = new DataInputStream(countingInputStream);
+            while (position < length)
             {
+                K journalEntry;
                 try
                 {
-                    K journalEntry = journalEntrySerializer.deserialize(dataInputStream);
-                    if (journalEntry != null)
-                    {
-                        this.entries.put(journalEntry.getTxId(), journalEntry);
-                    }
-                    else
-                    {
-                        logEntryCreationFailed = true;
-                    }
+                    journalEntry = journalEntrySerializer.deserialize(dataInputStream);
                 }
                 catch (EOFException e)
                 {
-                    logger.debug("Expected exception since there are no more log entries",e);
-                    logEntryCreationFailed = true;
+                    logger.debug("Expected exception since there are no more log entries", e);
+                    break;
                 }
-                catch(Exception e)
+                if (journalEntry == null)
                 {
-                    throw new MuleRuntimeException(e);
+                    break;
                 }
+                long next = countingInputStream.getByteCount();
+                callback.onEntry(journalEntry, position, (int) (next - position));
+                position = next;
             }
+            return position;
         }
-        catch (FileNotFoundException e)
+        catch (IOException e)
         {
-            throw new RuntimeException(e);
+            throw new MuleRuntimeException(e);
         }
         finally
         {
@@ -242,11 +638,19 @@ class TransactionJournalFile<T, K extends JournalEntry<T>>
     }
 
     /**
-     * @return the number different transaction identifier held by the journal.
+     * @return the number of journal entries held by the journal.
      */
     public int size()
     {
-        return entries.size();
+        lock.lock();
+        try
+        {
+            return entryCount;
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
     /**
@@ -255,8 +659,65 @@ class TransactionJournalFile<T, K extends JournalEntry<T>>
      */
     public boolean containsTx(T txId)
     {
-        return this.entries.containsKey(txId);
+        lock.lock();
+        try
+        {
+            return openTransactions.containsKey(txId);
+        }
+        finally
+        {
+            lock.unlock();
+        }
     }
 
-}
+    private interface EntryCallback<T, K>
+    {
+
+        void onEntry(K journalEntry, long position, int length);
+    }
+
+    /**
+     * Position and length in the journal file of the entries of a transaction, in the
+     * order they were written.
+     */
+    private static class EntryPositions
+    {
+
+        private long[] positions = new long[4];
+        private int[] lengths = new int[4];
+        private int count;
+
+        private void add(long position, int length)
+        {
+            if (count == positions.length)
+            {
+                positions = Arrays.copyOf(positions, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            positions[count] = position;
+            lengths[count] = length;
+            count++;
+        }
+
+        private boolean contains(long position)
+        {
+            return Arrays.binarySearch(positions, 0, count, position) >= 0;
+        }
+    }
 
+    private class PendingEntry
+    {
+
+        private final K journalEntry;
+        private final byte[] data;
+        private boolean written;
+        private boolean failed;
+
+        private PendingEntry(K journalEntry, byte[] data)
+        {
+            this.journalEntry = journalEntry;
+            this.data = data;
+        }
+    }
+
+}
@@ -83,10 +83,10 @@ public abstract class AbstractQueueTxJournalEntry<T> implements JournalEntry<T>
         }
         byte queueNameSize = inputStream.readByte();
         byte[] queueNameAsBytes = new byte[queueNameSize];
-        inputStream.read(queueNameAsBytes, 0, queueNameSize);
+        inputStream.readFully(queueNameAsBytes);
         int valueSize = inputStream.readInt();
         byte[] valueAsBytes = new byte[valueSize];
-        inputStream.read(valueAsBytes, 0, valueSize);
+        inputStream.readFully(valueAsBytes);
         queueName = new String(queueNameAsBytes);
         value =  (Serializable) SerializationUtils.deserialize(valueAsBytes, muleContext);
     }
@@ -42,10 +42,10 @@ public class XaQueueTxJournalEntry extends AbstractQueueTxJournalEntry<Xid>
     {
         byte globalTransactionIdSize = inputStream.readByte();
         final byte[] globalTransactionId = new byte[globalTransactionIdSize];
-        inputStream.read(globalTransactionId, 0, globalTransactionIdSize);
+        inputStream.readFully(globalTransactionId);
         byte branchQualifierIdSize = inputStream.readByte();
         final byte[] branchQualifierId = new byte[branchQualifierIdSize];
-        inputStream.read(branchQualifierId, 0, branchQualifierIdSize);
+        inputStream.readFully(branchQualifierId);
         final int formadId = inputStream.readInt();
         return new MuleXid(formadId, globalTransactionId, branchQualifierId);
     }
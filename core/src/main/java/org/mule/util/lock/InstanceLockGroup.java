@@ -6,8 +6,10 @@
  */
 package org.mule.util.lock;
 
-import java.util.HashMap;
-import java.util.Map;
+import org.mule.management.stats.StripedCounter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
@@ -15,85 +17,63 @@ import java.util.concurrent.locks.Lock;
 /**
  * {@link LockGroup} implementation for holding references
  * to created locks inside a mule instance.
+ * <p/>
+ * Locks are kept in a concurrent map so operations over different lock ids do not
+ * contend with each other. Each entry counts the threads holding or waiting for its lock
+ * and is removed from the map by the last one to release it. An entry whose count
+ * reached zero is marked as reclaimed and is never used again, so a thread that finds
+ * it in the map just creates a new one.
  */
 public class InstanceLockGroup implements LockGroup
 {
-    private Map<String, LockEntry> locks;
-    private Object lockAccessMonitor = new Object();
-    private LockProvider lockProvider;
+    private final ConcurrentMap<String, LockEntry> locks = new ConcurrentHashMap<String, LockEntry>();
+    private final LockProvider lockProvider;
+
+    private final StripedCounter lockAcquisitions = new StripedCounter();
+    private final StripedCounter contendedLockAcquisitions = new StripedCounter();
+    private final StripedCounter failedLockAcquisitions = new StripedCounter();
 
     public InstanceLockGroup(LockProvider lockProvider)
     {
         this.lockProvider = lockProvider;
-        this.locks = new HashMap<String,LockEntry>();
     }
 
     public void lock(String lockId)
     {
-        LockEntry lockEntry;
-        synchronized (lockAccessMonitor)
+        LockEntry lockEntry = acquireEntry(lockId);
+        try
         {
-            if (locks.containsKey(lockId))
-            {
-                lockEntry = locks.get(lockId);
-            }
-            else
-            {
-                lockEntry = new LockEntry(lockProvider.createLock(lockId));
-                locks.put(lockId,lockEntry);
-            }
-            lockEntry.incrementLockCount();
-            lockAccessMonitor.notifyAll();
+            lockEntry.getLock().lock();
+        }
+        catch (RuntimeException e)
+        {
+            releaseEntry(lockId, lockEntry);
+            throw e;
         }
-        lockEntry.getLock().lock();
+        lockAcquisitions.increment();
     }
 
     public void unlock(String key)
     {
-        synchronized (lockAccessMonitor)
+        LockEntry lockEntry = locks.get(key);
+        if (lockEntry != null)
         {
-            LockEntry lockEntry = locks.get(key);
-            if (lockEntry != null)
-            {
-                lockEntry.decrementLockCount();
-                if (!lockEntry.hasPendingLocks())
-                {
-                    locks.remove(key);
-                }
-                lockEntry.getLock().unlock();
-            }
-            lockAccessMonitor.notifyAll();
+            lockEntry.getLock().unlock();
+            releaseEntry(key, lockEntry);
         }
     }
 
     public boolean tryLock(String lockId, long timeout, TimeUnit timeUnit) throws InterruptedException
     {
-        LockEntry lockEntry;
-        synchronized (lockAccessMonitor)
+        LockEntry lockEntry = acquireEntry(lockId);
+        boolean lockAcquired = false;
+        try
         {
-            if (locks.containsKey(lockId))
-            {
-                lockEntry = locks.get(lockId);
-            }
-            else
-            {
-                lockEntry = new LockEntry(lockProvider.createLock(lockId));
-                locks.put(lockId,lockEntry);
-            }
-            lockEntry.incrementLockCount();
-            lockAccessMonitor.notifyAll();
+            lockAcquired = lockEntry.getLock().tryLock(timeout, timeUnit);
         }
-        boolean lockAcquired = lockEntry.getLock().tryLock(timeout, timeUnit);
-        if (!lockAcquired)
+        finally
         {
-            synchronized (lockAccessMonitor)
-            {
-                lockEntry.decrementLockCount();
-                if (!lockEntry.hasPendingLocks())
-                {
-                    locks.remove(lockId);
-                }
-            }
+            lockAcquired(lockId, lockEntry, lockAcquired);
         }
         return lockAcquired;
     }
@@ -101,32 +81,15 @@ public class InstanceLockGroup implements LockGroup
     @Override
     public boolean tryLock(String lockId)
     {
-        LockEntry lockEntry;
-        synchronized (lockAccessMonitor)
+        LockEntry lockEntry = acquireEntry(lockId);
+        boolean lockAcquired = false;
+        try
         {
-            if (locks.containsKey(lockId))
-            {
-                lockEntry = locks.get(lockId);
-            }
-            else
-            {
-                lockEntry = new LockEntry(lockProvider.createLock(lockId));
-                locks.put(lockId,lockEntry);
-            }
-            lockEntry.incrementLockCount();
-            lockAccessMonitor.notifyAll();
+            lockAcquired = lockEntry.getLock().tryLock();
         }
-        boolean lockAcquired = lockEntry.getLock().tryLock();
-        if (!lockAcquired)
+        finally
         {
-            synchronized (lockAccessMonitor)
-            {
-                lockEntry.decrementLockCount();
-                if (!lockEntry.hasPendingLocks())
-                {
-                    locks.remove(lockId);
-                }
-            }
+            lockAcquired(lockId, lockEntry, lockAcquired);
         }
         return lockAcquired;
     }
@@ -134,26 +97,109 @@ public class InstanceLockGroup implements LockGroup
     @Override
     public void lockInterruptibly(String lockId) throws InterruptedException
     {
-        LockEntry lockEntry;
-        synchronized (lockAccessMonitor)
+        LockEntry lockEntry = acquireEntry(lockId);
+        boolean lockAcquired = false;
+        try
+        {
+            lockEntry.getLock().lockInterruptibly();
+            lockAcquired = true;
+        }
+        finally
+        {
+            lockAcquired(lockId, lockEntry, lockAcquired);
+        }
+    }
+
+    /**
+     * Gets the entry of the lock and registers the calling thread on it, creating a new
+     * entry if there is none or if the one in the map is being reclaimed.
+     */
+    private LockEntry acquireEntry(String lockId)
+    {
+        while (true)
         {
-            if (locks.containsKey(lockId))
+            LockEntry lockEntry = locks.get(lockId);
+            if (lockEntry == null)
             {
-                lockEntry = locks.get(lockId);
+                LockEntry newLockEntry = new LockEntry(lockProvider.createLock(lockId));
+                lockEntry = locks.putIfAbsent(lockId, newLockEntry);
+                if (lockEntry == null)
+                {
+                    lockEntry = newLockEntry;
+                }
             }
-            else
+
+            int previousLockCount = lockEntry.retain();
+            if (previousLockCount >= 0)
             {
-                lockEntry = new LockEntry(lockProvider.createLock(lockId));
-                locks.put(lockId,lockEntry);
+                if (previousLockCount > 0)
+                {
+                    contendedLockAcquisitions.increment();
+                }
+                return lockEntry;
             }
-            lockEntry.incrementLockCount();
-            lockAccessMonitor.notifyAll();
+            locks.remove(lockId, lockEntry);
         }
-        lockEntry.getLock().lockInterruptibly();
+    }
+
+    private void releaseEntry(String lockId, LockEntry lockEntry)
+    {
+        if (lockEntry.release())
+        {
+            locks.remove(lockId, lockEntry);
+        }
+    }
+
+    private void lockAcquired(String lockId, LockEntry lockEntry, boolean lockAcquired)
+    {
+        if (lockAcquired)
+        {
+            lockAcquisitions.increment();
+        }
+        else
+        {
+            failedLockAcquisitions.increment();
+            releaseEntry(lockId, lockEntry);
+        }
+    }
+
+    /**
+     * @return the number of lock ids currently locked or being waited for
+     */
+    public int getActiveLockCount()
+    {
+        return locks.size();
+    }
+
+    /**
+     * @return the number of times a lock was acquired
+     */
+    public long getLockAcquisitions()
+    {
+        return lockAcquisitions.sum();
+    }
+
+    /**
+     * @return the number of lock requests that found the lock held or requested by another
+     *         thread, whether they acquired it or not
+     */
+    public long getContendedLockAcquisitions()
+    {
+        return contendedLockAcquisitions.sum();
+    }
+
+    /**
+     * @return the number of lock requests that timed out or were interrupted
+     */
+    public long getFailedLockAcquisitions()
+    {
+        return failedLockAcquisitions.sum();
     }
 
     public static class LockEntry
     {
+        private static final int RECLAIMED = -1;
+
         private AtomicInteger lockCount  = new AtomicInteger(0);
         private Lock lock;
         
@@ -169,26 +215,55 @@ public class InstanceLockGroup implements LockGroup
 
         public void incrementLockCount()
         {
-            lockCount.incrementAndGet();
+            retain();
         }
 
         public void decrementLockCount()
         {
-            lockCount.decrementAndGet();
+            release();
         }
 
         public boolean hasPendingLocks()
         {
             return lockCount.get() > 0;
         }
+
+        /**
+         * Increments the lock count unless the entry was already reclaimed.
+         *
+         * @return the lock count before incrementing it, or a negative value if the entry
+         *         was reclaimed and must not be used
+         */
+        int retain()
+        {
+            while (true)
+            {
+                int count = lockCount.get();
+                if (count == RECLAIMED)
+                {
+                    return RECLAIMED;
+                }
+                if (lockCount.compareAndSet(count, count + 1))
+                {
+                    return count;
+                }
+            }
+        }
+
+        /**
+         * Decrements the lock count, marking the entry as reclaimed when it reaches zero.
+         *
+         * @return true if the entry was reclaimed, so it has to be removed from the group
+         */
+        boolean release()
+        {
+            return lockCount.decrementAndGet() == 0 && lockCount.compareAndSet(0, RECLAIMED);
+        }
     }
 
     @Override
     public void dispose()
     {
-        synchronized (lockAccessMonitor)
-        {
-            locks.clear();
-        }
+        locks.clear();
     }
 }
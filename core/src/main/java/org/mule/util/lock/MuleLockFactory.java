@@ -17,11 +17,11 @@ import java.util.concurrent.locks.Lock;
 
 public class MuleLockFactory implements LockFactory, MuleContextAware, Initialisable, Disposable
 {
-    private LockGroup lockGroup;
+    private volatile LockGroup lockGroup;
     private LockProvider lockProvider;
     private MuleContext muleContext;
 
-    public synchronized Lock createLock(String lockId)
+    public Lock createLock(String lockId)
     {
         return new LockAdapter(lockId,lockGroup);
     }
@@ -42,6 +42,15 @@ public class MuleLockFactory implements LockFactory, MuleContextAware, Initialis
         lockGroup = new InstanceLockGroup(lockProvider);
     }
 
+    /**
+     * @return the group holding the locks created by this factory. The default
+     *         {@link InstanceLockGroup} also provides contention statistics.
+     */
+    public LockGroup getLockGroup()
+    {
+        return lockGroup;
+    }
+
     public void setLockProvider(LockProvider lockProvider)
     {
         this.lockProvider = lockProvider;
@@ -7,6 +7,7 @@
 package org.mule.util.queue;
 
 import org.mule.api.MuleContext;
+import org.mule.api.config.MuleProperties;
 
 import java.io.Serializable;
 
@@ -18,6 +19,14 @@ import org.apache.commons.lang.NotImplementedException;
  */
 public class DefaultQueueStore implements RecoverableQueueStore
 {
+    /**
+     * System property that selects the storage of persistent queues. Set it to
+     * {@link #SEGMENTED_QUEUE_STORE} to use {@link SegmentedMappedFileQueueStoreDelegate},
+     * otherwise {@link DualRandomAccessFileQueueStoreDelegate} is used.
+     */
+    public static final String PERSISTENT_QUEUE_STORE_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX + "queue.store";
+    public static final String SEGMENTED_QUEUE_STORE = "segmented";
+
     private QueueConfiguration config;
     private String name;
     private QueueStoreDelegate delegate;
@@ -48,7 +57,14 @@ public class DefaultQueueStore implements RecoverableQueueStore
         }
         if (this.config.isPersistent())
         {
-            delegate = new DualRandomAccessFileQueueStoreDelegate(this.name, muleContext.getConfiguration().getWorkingDirectory(), muleContext, this.config.getCapacity());
+            if (SEGMENTED_QUEUE_STORE.equals(System.getProperty(PERSISTENT_QUEUE_STORE_PROPERTY)))
+            {
+                delegate = new SegmentedMappedFileQueueStoreDelegate(this.name, muleContext.getConfiguration().getWorkingDirectory(), muleContext, this.config.getCapacity());
+            }
+            else
+            {
+                delegate = new DualRandomAccessFileQueueStoreDelegate(this.name, muleContext.getConfiguration().getWorkingDirectory(), muleContext, this.config.getCapacity());
+            }
         }
         else
         {
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.queue;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Double ended queue of primitive longs stored in a direct buffer, so that large queue
+ * indexes neither use heap nor box their values. It grows as needed and shrinks back to its
+ * initial capacity when cleared.
+ * <p/>
+ * This class is not thread safe.
+ */
+class DirectLongDeque
+{
+
+    private static final int BYTES_PER_LONG = 8;
+
+    private final int initialCapacity;
+    private LongBuffer elements;
+    private int head;
+    private int size;
+
+    DirectLongDeque(int initialCapacity)
+    {
+        this.initialCapacity = initialCapacity;
+        this.elements = allocate(initialCapacity);
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    void addLast(long value)
+    {
+        ensureCapacity();
+        elements.put(index(size), value);
+        size++;
+    }
+
+    void addFirst(long value)
+    {
+        ensureCapacity();
+        head = (head - 1 + elements.capacity()) % elements.capacity();
+        elements.put(head, value);
+        size++;
+    }
+
+    long getFirst()
+    {
+        checkNotEmpty();
+        return elements.get(head);
+    }
+
+    long removeFirst()
+    {
+        checkNotEmpty();
+        long value = elements.get(head);
+        head = (head + 1) % elements.capacity();
+        size--;
+        return value;
+    }
+
+    long get(int i)
+    {
+        if (i < 0 || i >= size)
+        {
+            throw new IndexOutOfBoundsException(String.valueOf(i));
+        }
+        return elements.get(index(i));
+    }
+
+    /**
+     * Removes the element at the given position, shifting the ones after it.
+     */
+    void remove(int i)
+    {
+        if (i < 0 || i >= size)
+        {
+            throw new IndexOutOfBoundsException(String.valueOf(i));
+        }
+        for (int j = i; j < size - 1; j++)
+        {
+            elements.put(index(j), elements.get(index(j + 1)));
+        }
+        size--;
+    }
+
+    void clear()
+    {
+        head = 0;
+        size = 0;
+        if (elements.capacity() > initialCapacity)
+        {
+            elements = allocate(initialCapacity);
+        }
+    }
+
+    private int index(int i)
+    {
+        return (head + i) % elements.capacity();
+    }
+
+    private void checkNotEmpty()
+    {
+        if (size == 0)
+        {
+            throw new IllegalStateException("Deque is empty");
+        }
+    }
+
+    private void ensureCapacity()
+    {
+        if (size < elements.capacity())
+        {
+            return;
+        }
+        LongBuffer grown = allocate(elements.capacity() * 2);
+        for (int i = 0; i < size; i++)
+        {
+            grown.put(i, elements.get(index(i)));
+        }
+        elements = grown;
+        head = 0;
+    }
+
+    private static LongBuffer allocate(int capacity)
+    {
+        return ByteBuffer.allocateDirect(Math.max(capacity, 1) * BYTES_PER_LONG).asLongBuffer();
+    }
+}
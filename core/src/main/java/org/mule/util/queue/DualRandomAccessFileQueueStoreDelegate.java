@@ -8,7 +8,6 @@ package org.mule.util.queue;
 
 import org.mule.api.MuleContext;
 import org.mule.util.Preconditions;
-import org.mule.util.SerializationUtils;
 
 import java.io.File;
 import java.io.Serializable;
@@ -83,7 +82,7 @@ public class DualRandomAccessFileQueueStoreDelegate extends AbstractQueueStoreDe
     protected void addFirst(Serializable item) throws InterruptedException
     {
         switchWriteFileIfFull();
-        byte[] serialiazedObject = SerializationUtils.serialize(item);
+        byte[] serialiazedObject = muleContext.getObjectSerializer().serialize(item);
         readFile.addFirst(serialiazedObject);
     }
 
@@ -91,7 +90,7 @@ public class DualRandomAccessFileQueueStoreDelegate extends AbstractQueueStoreDe
     protected void add(Serializable item)
     {
         switchWriteFileIfFull();
-        byte[] serialiazedObject = SerializationUtils.serialize(item);
+        byte[] serialiazedObject = muleContext.getObjectSerializer().serialize(item);
         writeFile.addLast(serialiazedObject);
     }
 
@@ -228,7 +227,7 @@ public class DualRandomAccessFileQueueStoreDelegate extends AbstractQueueStoreDe
 
     private Serializable deserialize(byte[] valuesAsBytes)
     {
-        return (Serializable) SerializationUtils.deserialize(valuesAsBytes, muleContext);
+        return muleContext.getObjectSerializer().deserialize(valuesAsBytes);
     }
 
     public void remove(Serializable value)
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A memory mapped, fixed size file that queue entries are appended to.
+ * <p/>
+ * Each entry has a one byte status followed by the length of the data and the data itself.
+ * The status is written last, so an entry that was only partially written when the process
+ * died is read as the end of the segment. Removing an entry only updates its status.
+ * <p/>
+ * This class is not thread safe.
+ */
+class QueueFileSegment
+{
+
+    static final int HEADER_SIZE = 5;
+    static final byte END = 0;
+    static final byte LIVE = 1;
+    static final byte LIVE_FIRST = 2;
+    static final byte REMOVED = 3;
+
+    private static final Log logger = LogFactory.getLog(QueueFileSegment.class);
+
+    private final long id;
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+    private int liveEntries;
+
+    /**
+     * Receives the entries found when a segment is recovered.
+     */
+    interface EntryCallback
+    {
+
+        void onEntry(QueueFileSegment segment, int offset, byte status);
+    }
+
+    private QueueFileSegment(long id, File file, int size) throws IOException
+    {
+        this.id = id;
+        this.file = file;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        try
+        {
+            if (size > 0)
+            {
+                // discard any content left by a previous segment with the same name
+                randomAccessFile.setLength(0);
+                randomAccessFile.setLength(size);
+            }
+            this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, randomAccessFile.length());
+        }
+        catch (IOException e)
+        {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a new, empty segment file of the given size.
+     */
+    static QueueFileSegment create(File file, long id, int size) throws IOException
+    {
+        return new QueueFileSegment(id, file, size);
+    }
+
+    /**
+     * Opens an existing segment file and reports its entries to the given callback.
+     */
+    static QueueFileSegment open(File file, long id, EntryCallback callback) throws IOException
+    {
+        QueueFileSegment segment = new QueueFileSegment(id, file, 0);
+        segment.recover(callback);
+        return segment;
+    }
+
+    long getId()
+    {
+        return id;
+    }
+
+    int getLiveEntries()
+    {
+        return liveEntries;
+    }
+
+    /**
+     * @return whether an entry with the given data length fits in an empty segment of the
+     *         given size
+     */
+    static boolean fits(int dataLength, int segmentSize)
+    {
+        return HEADER_SIZE + (long) dataLength <= segmentSize;
+    }
+
+    /**
+     * Appends an entry to the segment.
+     *
+     * @return the offset of the entry, or <em>-1</em> if the segment has no room for it
+     */
+    int append(byte[] data, byte status)
+    {
+        if (writePosition + HEADER_SIZE + (long) data.length > buffer.capacity())
+        {
+            return -1;
+        }
+        int offset = writePosition;
+        buffer.putInt(offset + 1, data.length);
+        ByteBuffer target = buffer.duplicate();
+        target.position(offset + HEADER_SIZE);
+        target.put(data);
+        buffer.put(offset, status);
+        writePosition += HEADER_SIZE + data.length;
+        liveEntries++;
+        return offset;
+    }
+
+    byte[] read(int offset)
+    {
+        int length = buffer.getInt(offset + 1);
+        byte[] data = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset + HEADER_SIZE);
+        source.get(data);
+        return data;
+    }
+
+    void markRemoved(int offset)
+    {
+        buffer.put(offset, REMOVED);
+        liveEntries--;
+    }
+
+    /**
+     * Writes the modified content of the segment to the storage device.
+     */
+    void force()
+    {
+        buffer.force();
+    }
+
+    void close()
+    {
+        try
+        {
+            randomAccessFile.close();
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to close queue segment " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the segment and deletes its file. Depending on the platform the file may only
+     * be deleted once the mapping has been garbage collected.
+     */
+    void delete()
+    {
+        close();
+        if (!file.delete() && logger.isDebugEnabled())
+        {
+            logger.debug("Could not delete queue segment " + file.getAbsolutePath());
+        }
+    }
+
+    private void recover(EntryCallback callback)
+    {
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity())
+        {
+            byte status = buffer.get(position);
+            if (status == END)
+            {
+                break;
+            }
+            int length = buffer.getInt(position + 1);
+            if (status > REMOVED || length < 0 || position + HEADER_SIZE + (long) length > buffer.capacity())
+            {
+                logger.warn(String.format("Queue segment %s is corrupted at offset %d, ignoring the rest of it", file.getName(), position));
+                break;
+            }
+            if (status != REMOVED)
+            {
+                liveEntries++;
+                callback.onEntry(this, position, status);
+            }
+            position += HEADER_SIZE + length;
+        }
+        writePosition = position;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "QueueFileSegment{file=" + file.getName() + ", liveEntries=" + liveEntries + "}";
+    }
+}
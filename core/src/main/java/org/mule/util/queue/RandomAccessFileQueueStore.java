@@ -61,7 +61,7 @@ class RandomAccessFileQueueStore
         initialise();
     }
 
-    private static String toHex(String filename)
+    static String toHex(String filename)
     {
         try
         {
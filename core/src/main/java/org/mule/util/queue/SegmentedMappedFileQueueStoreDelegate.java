@@ -0,0 +1,459 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.queue;
+
+import org.mule.api.MuleContext;
+import org.mule.api.MuleRuntimeException;
+import org.mule.api.config.MuleProperties;
+import org.mule.util.FileUtils;
+import org.mule.util.Preconditions;
+import org.mule.util.concurrent.DaemonThreadFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * {@link TransactionalQueueStoreDelegate} implementation that appends the queue entries to a
+ * sequence of fixed size, memory mapped segment files.
+ * <p/>
+ * The position of every pending entry is kept in an off heap index, so the heap used by a
+ * queue does not depend on the number of pending entries. Consuming an entry only flags it
+ * as removed in its segment, and a segment file is deleted as soon as all of its entries
+ * were consumed.
+ * <p/>
+ * Written entries survive a crash of the process as soon as they are written. How often they
+ * are also synced to the storage device is controlled with the {@link #SYNC_INTERVAL_PROPERTY}
+ * system property: a negative value never syncs explicitly, <em>0</em> syncs after every
+ * write and a positive number of milliseconds syncs all the writes done during that interval
+ * together, from a timer, so a write is synced at most that long after it was done even if
+ * no other write follows it.
+ */
+public class SegmentedMappedFileQueueStoreDelegate extends AbstractQueueStoreDelegate implements TransactionalQueueStoreDelegate
+{
+
+    public static final String SEGMENT_SIZE_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX + "queue.segmentSize";
+    public static final String SYNC_INTERVAL_PROPERTY = MuleProperties.SYSTEM_PROPERTY_PREFIX + "queue.syncInterval";
+
+    private static final String QUEUE_STORE_DIRECTORY = "queuestore";
+    private static final String SEGMENTS_DIRECTORY_SUFFIX = "-segments";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+    private static final long DEFAULT_SYNC_INTERVAL = -1;
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+    private static final int SEGMENT_ID_SHIFT = 32;
+    private static final long OFFSET_MASK = 0xFFFFFFFFL;
+
+    protected final Log logger = LogFactory.getLog(this.getClass());
+    private final MuleContext muleContext;
+    private final File directory;
+    private final int segmentSize;
+    private final long syncInterval;
+    private final TreeMap<Long, QueueFileSegment> segments = new TreeMap<Long, QueueFileSegment>();
+    private final DirectLongDeque index = new DirectLongDeque(INITIAL_INDEX_CAPACITY);
+    private final Set<QueueFileSegment> unsyncedSegments = new HashSet<QueueFileSegment>();
+    private QueueFileSegment writeSegment;
+    private ScheduledThreadPoolExecutor syncScheduler;
+
+    public SegmentedMappedFileQueueStoreDelegate(String queueName, String workingDirectory, MuleContext muleContext, int capacity)
+    {
+        this(queueName, workingDirectory, muleContext, capacity,
+             Integer.getInteger(SEGMENT_SIZE_PROPERTY, DEFAULT_SEGMENT_SIZE),
+             Long.getLong(SYNC_INTERVAL_PROPERTY, DEFAULT_SYNC_INTERVAL));
+    }
+
+    /**
+     * @param segmentSize size in bytes of each segment file. Entries bigger than this are
+     *            stored in a segment of their own.
+     * @param syncInterval milliseconds between the syncs to the storage device done by a
+     *            timer, <em>0</em> to sync every write or a negative value to never sync
+     *            explicitly
+     */
+    public SegmentedMappedFileQueueStoreDelegate(String queueName, String workingDirectory, MuleContext muleContext, int capacity, int segmentSize, long syncInterval)
+    {
+        super(capacity);
+        Preconditions.checkArgument(segmentSize > QueueFileSegment.HEADER_SIZE, "Segment size must be greater than " + QueueFileSegment.HEADER_SIZE);
+        this.muleContext = muleContext;
+        this.segmentSize = segmentSize;
+        this.syncInterval = syncInterval;
+        this.directory = getQueueDirectory(workingDirectory, queueName);
+        if (!directory.exists())
+        {
+            Preconditions.checkState(directory.mkdirs(), "Could not create queue store directory " + directory.getAbsolutePath());
+        }
+        recover();
+        if (logger.isDebugEnabled())
+        {
+            logger.debug(String.format("Queue %s has %s messages in %s segments", queueName, index.size(), segments.size()));
+        }
+        if (syncInterval > 0)
+        {
+            startSyncScheduler(queueName);
+        }
+    }
+
+    private void startSyncScheduler(String queueName)
+    {
+        syncScheduler = new ScheduledThreadPoolExecutor(1);
+        syncScheduler.setThreadFactory(new DaemonThreadFactory(queueName + "-Sync", this.getClass().getClassLoader()));
+        syncScheduler.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                synchronized (SegmentedMappedFileQueueStoreDelegate.this)
+                {
+                    sync();
+                }
+            }
+        }, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopSyncScheduler()
+    {
+        if (syncScheduler != null)
+        {
+            syncScheduler.shutdown();
+        }
+    }
+
+    private static File getQueueDirectory(String workingDirectory, String queueName)
+    {
+        File queuesDirectory = new File(workingDirectory + File.separator + QUEUE_STORE_DIRECTORY);
+        String directoryName = queueName.matches("[\\w.\\-]+") ? queueName : RandomAccessFileQueueStore.toHex(queueName);
+        return new File(queuesDirectory, directoryName + SEGMENTS_DIRECTORY_SUFFIX);
+    }
+
+    @Override
+    protected void add(Serializable item)
+    {
+        append(muleContext.getObjectSerializer().serialize(item), QueueFileSegment.LIVE, false);
+    }
+
+    @Override
+    protected void addFirst(Serializable item) throws InterruptedException
+    {
+        append(muleContext.getObjectSerializer().serialize(item), QueueFileSegment.LIVE_FIRST, true);
+    }
+
+    @Override
+    protected Serializable getFirst() throws InterruptedException
+    {
+        if (index.isEmpty())
+        {
+            return null;
+        }
+        return deserialize(read(index.getFirst()));
+    }
+
+    @Override
+    protected Serializable removeFirst() throws InterruptedException
+    {
+        if (index.isEmpty())
+        {
+            return null;
+        }
+        long position = index.getFirst();
+        Serializable value = deserialize(read(position));
+        index.removeFirst();
+        markRemoved(position);
+        return value;
+    }
+
+    @Override
+    protected int size()
+    {
+        return index.size();
+    }
+
+    @Override
+    protected boolean isEmpty()
+    {
+        return index.isEmpty();
+    }
+
+    @Override
+    protected boolean doAddAll(Collection<? extends Serializable> items)
+    {
+        for (Serializable item : items)
+        {
+            add(item);
+        }
+        return true;
+    }
+
+    @Override
+    protected void doClear()
+    {
+        for (QueueFileSegment segment : segments.values())
+        {
+            segment.delete();
+        }
+        segments.clear();
+        unsyncedSegments.clear();
+        index.clear();
+        writeSegment = null;
+    }
+
+    @Override
+    public synchronized void remove(Serializable value)
+    {
+        for (int i = 0; i < index.size(); i++)
+        {
+            long position = index.get(i);
+            if (deserialize(read(position)).equals(value))
+            {
+                index.remove(i);
+                markRemoved(position);
+                sync();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean contains(Serializable value)
+    {
+        for (int i = 0; i < index.size(); i++)
+        {
+            if (deserialize(read(index.get(i))).equals(value))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        stopSyncScheduler();
+        sync();
+        for (QueueFileSegment segment : segments.values())
+        {
+            segment.close();
+        }
+        segments.clear();
+        index.clear();
+        writeSegment = null;
+    }
+
+    @Override
+    public void dispose()
+    {
+        stopSyncScheduler();
+        synchronized (this)
+        {
+            doClear();
+        }
+        FileUtils.deleteQuietly(directory);
+    }
+
+    private void append(byte[] data, byte status, boolean first)
+    {
+        if (writeSegment == null)
+        {
+            rollSegment(data.length);
+        }
+        int offset = writeSegment.append(data, status);
+        if (offset < 0)
+        {
+            rollSegment(data.length);
+            offset = writeSegment.append(data, status);
+        }
+
+        long position = (writeSegment.getId() << SEGMENT_ID_SHIFT) | offset;
+        if (first)
+        {
+            index.addFirst(position);
+        }
+        else
+        {
+            index.addLast(position);
+        }
+        written(writeSegment);
+    }
+
+    private byte[] read(long position)
+    {
+        return segmentFor(position).read((int) (position & OFFSET_MASK));
+    }
+
+    private void markRemoved(long position)
+    {
+        QueueFileSegment segment = segmentFor(position);
+        segment.markRemoved((int) (position & OFFSET_MASK));
+        if (segment.getLiveEntries() == 0 && segment != writeSegment)
+        {
+            deleteSegment(segment);
+        }
+        else
+        {
+            written(segment);
+        }
+    }
+
+    private QueueFileSegment segmentFor(long position)
+    {
+        QueueFileSegment segment = segments.get(position >>> SEGMENT_ID_SHIFT);
+        if (segment == null)
+        {
+            throw new IllegalStateException("No queue segment for entry at " + Long.toHexString(position));
+        }
+        return segment;
+    }
+
+    /**
+     * Starts a new segment big enough for an entry of the given length, deleting the current
+     * one if none of its entries is pending.
+     */
+    private void rollSegment(int dataLength)
+    {
+        QueueFileSegment previous = writeSegment;
+        long id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        int size = QueueFileSegment.fits(dataLength, segmentSize) ? segmentSize : QueueFileSegment.HEADER_SIZE + dataLength;
+        try
+        {
+            writeSegment = QueueFileSegment.create(segmentFile(id), id, size);
+        }
+        catch (IOException e)
+        {
+            throw new MuleRuntimeException(e);
+        }
+        segments.put(id, writeSegment);
+        if (previous != null && previous.getLiveEntries() == 0)
+        {
+            deleteSegment(previous);
+        }
+    }
+
+    private void deleteSegment(QueueFileSegment segment)
+    {
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Deleting consumed queue segment " + segment);
+        }
+        segments.remove(segment.getId());
+        unsyncedSegments.remove(segment);
+        segment.delete();
+    }
+
+    private void written(QueueFileSegment segment)
+    {
+        if (syncInterval < 0)
+        {
+            return;
+        }
+        unsyncedSegments.add(segment);
+        if (syncInterval == 0)
+        {
+            sync();
+        }
+    }
+
+    private void sync()
+    {
+        for (QueueFileSegment segment : unsyncedSegments)
+        {
+            segment.force();
+        }
+        unsyncedSegments.clear();
+    }
+
+    private File segmentFile(long id)
+    {
+        return new File(directory, String.format("%010d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private void recover()
+    {
+        File[] files = directory.listFiles(new FileFilter()
+        {
+            @Override
+            public boolean accept(File file)
+            {
+                return file.isFile() && file.getName().endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        Arrays.sort(files, new Comparator<File>()
+        {
+            @Override
+            public int compare(File file1, File file2)
+            {
+                return Long.valueOf(segmentId(file1)).compareTo(segmentId(file2));
+            }
+        });
+
+        // entries that were put back in front of the queue are recovered in reverse order,
+        // so the last one put back is the first one again
+        QueueFileSegment.EntryCallback callback = new QueueFileSegment.EntryCallback()
+        {
+            @Override
+            public void onEntry(QueueFileSegment segment, int offset, byte status)
+            {
+                long position = (segment.getId() << SEGMENT_ID_SHIFT) | offset;
+                if (status == QueueFileSegment.LIVE_FIRST)
+                {
+                    index.addFirst(position);
+                }
+                else
+                {
+                    index.addLast(position);
+                }
+            }
+        };
+
+        for (File file : files)
+        {
+            long id = segmentId(file);
+            try
+            {
+                segments.put(id, QueueFileSegment.open(file, id, callback));
+            }
+            catch (IOException e)
+            {
+                throw new MuleRuntimeException(e);
+            }
+        }
+
+        if (!segments.isEmpty())
+        {
+            writeSegment = segments.lastEntry().getValue();
+        }
+        for (Map.Entry<Long, QueueFileSegment> entry : new TreeMap<Long, QueueFileSegment>(segments).entrySet())
+        {
+            if (entry.getValue().getLiveEntries() == 0 && entry.getValue() != writeSegment)
+            {
+                deleteSegment(entry.getValue());
+            }
+        }
+    }
+
+    private static long segmentId(File file)
+    {
+        String name = file.getName();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private Serializable deserialize(byte[] valueAsBytes)
+    {
+        return muleContext.getObjectSerializer().deserialize(valueAsBytes);
+    }
+}
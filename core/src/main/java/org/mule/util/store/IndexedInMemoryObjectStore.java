@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import org.mule.api.store.ListableObjectStore;
+import org.mule.api.store.ObjectAlreadyExistsException;
+import org.mule.api.store.ObjectDoesNotExistException;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.config.i18n.CoreMessages;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <code>IndexedInMemoryObjectStore</code> is an optionally bounded in-memory store with
+ * periodic expiry of old entries, just like {@link InMemoryObjectStore}, that keeps a
+ * hash index of its keys next to the insertion ordered structure used for expiry. Lookups
+ * by key are therefore constant time instead of a scan over all entries.
+ * <p/>
+ * Instead of a single store wide monitor, mutations are guarded by a fixed set of lock
+ * stripes selected by the key's hash code, so operations on different keys rarely contend.
+ * As with {@link InMemoryObjectStore} the bounded size is a <i>soft</i> limit that is only
+ * enforced by the periodic expiry process.
+ */
+public class IndexedInMemoryObjectStore<T extends Serializable> extends AbstractMonitoredObjectStore<T>
+    implements ListableObjectStore<T>
+{
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private final ConcurrentMap<Serializable, IndexedEntry<T>> index = new ConcurrentHashMap<Serializable, IndexedEntry<T>>();
+    private final ConcurrentSkipListMap<Long, IndexedEntry<T>> entriesByAge = new ConcurrentSkipListMap<Long, IndexedEntry<T>>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Object[] locks;
+    private final int lockMask;
+
+    public IndexedInMemoryObjectStore()
+    {
+        this(DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * @param concurrencyLevel the expected number of concurrently modifying threads. It is
+     *            rounded up to the next power of two and used as the number of lock stripes.
+     */
+    public IndexedInMemoryObjectStore(int concurrencyLevel)
+    {
+        if (concurrencyLevel <= 0)
+        {
+            throw new IllegalArgumentException(CoreMessages.propertyHasInvalidValue("concurrencyLevel",
+                concurrencyLevel).toString());
+        }
+
+        int stripes = 1;
+        while (stripes < concurrencyLevel)
+        {
+            stripes <<= 1;
+        }
+
+        locks = new Object[stripes];
+        for (int i = 0; i < stripes; i++)
+        {
+            locks[i] = new Object();
+        }
+        lockMask = stripes - 1;
+    }
+
+    @Override
+    public boolean isPersistent()
+    {
+        return false;
+    }
+
+    @Override
+    public boolean contains(Serializable key) throws ObjectStoreException
+    {
+        if (key == null)
+        {
+            throw new ObjectStoreException(CoreMessages.objectIsNull("id"));
+        }
+
+        return index.containsKey(key);
+    }
+
+    @Override
+    public void store(Serializable id, T value) throws ObjectStoreException
+    {
+        if (id == null)
+        {
+            throw new ObjectStoreException(CoreMessages.objectIsNull("id"));
+        }
+
+        synchronized (lockFor(id))
+        {
+            if (index.containsKey(id))
+            {
+                throw new ObjectAlreadyExistsException();
+            }
+
+            IndexedEntry<T> entry = new IndexedEntry<T>(id, value, sequence.incrementAndGet(), System.nanoTime());
+            index.put(id, entry);
+            entriesByAge.put(entry.getSequence(), entry);
+        }
+    }
+
+    @Override
+    public T retrieve(Serializable key) throws ObjectStoreException
+    {
+        if (key == null)
+        {
+            throw new ObjectStoreException(CoreMessages.objectIsNull("id"));
+        }
+
+        IndexedEntry<T> entry = index.get(key);
+        if (entry == null)
+        {
+            throw new ObjectDoesNotExistException(CoreMessages.objectNotFound(key));
+        }
+        return entry.getItem();
+    }
+
+    @Override
+    public T remove(Serializable key) throws ObjectStoreException
+    {
+        if (key == null)
+        {
+            throw new ObjectStoreException(CoreMessages.objectIsNull("id"));
+        }
+
+        synchronized (lockFor(key))
+        {
+            IndexedEntry<T> entry = index.remove(key);
+            if (entry != null)
+            {
+                entriesByAge.remove(entry.getSequence());
+                return entry.getItem();
+            }
+        }
+
+        throw new ObjectDoesNotExistException(CoreMessages.objectNotFound(key));
+    }
+
+    @Override
+    public void clear() throws ObjectStoreException
+    {
+        for (IndexedEntry<T> entry : index.values())
+        {
+            evict(entry);
+        }
+    }
+
+    @Override
+    public void open() throws ObjectStoreException
+    {
+        // this is a no-op
+    }
+
+    @Override
+    public void close() throws ObjectStoreException
+    {
+        // this is a no-op
+    }
+
+    @Override
+    public List<Serializable> allKeys() throws ObjectStoreException
+    {
+        return new ArrayList<Serializable>(index.keySet());
+    }
+
+    @Override
+    public void expire()
+    {
+        // this is not guaranteed to be precise, but we don't mind
+        int currentSize = index.size();
+
+        // first trim to maxSize if necessary
+        currentSize = trimToMaxSize(currentSize);
+
+        // expire further if entry TTLs are enabled
+        if ((entryTTL > 0) && (currentSize != 0))
+        {
+            final long now = System.nanoTime();
+            int expiredEntries = 0;
+            Map.Entry<Long, IndexedEntry<T>> oldestEntry;
+
+            while ((oldestEntry = entriesByAge.firstEntry()) != null)
+            {
+                IndexedEntry<T> entry = oldestEntry.getValue();
+                if (TimeUnit.NANOSECONDS.toMillis(now - entry.getTimestamp()) < entryTTL)
+                {
+                    break;
+                }
+
+                if (evict(entry))
+                {
+                    expiredEntries++;
+                }
+            }
+
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Expired " + expiredEntries + " old entries");
+            }
+        }
+    }
+
+    private int trimToMaxSize(int currentSize)
+    {
+        if (maxEntries < 0)
+        {
+            return currentSize;
+        }
+
+        int excess = (currentSize - maxEntries);
+        if (excess > 0)
+        {
+            Map.Entry<Long, IndexedEntry<T>> oldestEntry;
+            while (currentSize > maxEntries && (oldestEntry = entriesByAge.firstEntry()) != null)
+            {
+                if (evict(oldestEntry.getValue()))
+                {
+                    currentSize--;
+                }
+            }
+
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Expired " + excess + " excess entries");
+            }
+        }
+        return currentSize;
+    }
+
+    /**
+     * Removes the given entry from both the index and the age ordered structure, unless it
+     * has been replaced or removed concurrently.
+     *
+     * @return <code>true</code> if the entry was still indexed and has been evicted
+     */
+    private boolean evict(IndexedEntry<T> entry)
+    {
+        synchronized (lockFor(entry.getId()))
+        {
+            entriesByAge.remove(entry.getSequence(), entry);
+            return index.remove(entry.getId(), entry);
+        }
+    }
+
+    private Object lockFor(Serializable key)
+    {
+        int hash = key.hashCode();
+        // spread the hash so that keys differing only in the upper bits use different stripes
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return locks[hash & lockMask];
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + " " + entriesByAge.values();
+    }
+
+    /**
+     * Represents the object stored in the store together with the information needed to
+     * expire it in insertion order.
+     */
+    private static class IndexedEntry<T>
+    {
+        private final Serializable id;
+        private final T item;
+        private final long sequence;
+        private final long timestamp;
+
+        public IndexedEntry(Serializable id, T item, long sequence, long timestamp)
+        {
+            this.id = id;
+            this.item = item;
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+        }
+
+        public Serializable getId()
+        {
+            return id;
+        }
+
+        public T getItem()
+        {
+            return item;
+        }
+
+        public long getSequence()
+        {
+            return sequence;
+        }
+
+        public long getTimestamp()
+        {
+            return timestamp;
+        }
+
+        @Override
+        public String toString()
+        {
+            final StringBuilder sb = new StringBuilder();
+            sb.append("IndexedEntry");
+            sb.append("{id='").append(id).append('\'');
+            sb.append(", item=").append(item);
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+}
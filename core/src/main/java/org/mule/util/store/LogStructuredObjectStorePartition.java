@@ -0,0 +1,1032 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import static org.mule.api.store.ObjectStoreManager.UNBOUNDED;
+
+import org.mule.api.MuleContext;
+import org.mule.api.MuleRuntimeException;
+import org.mule.api.serialization.ObjectSerializer;
+import org.mule.api.store.ObjectAlreadyExistsException;
+import org.mule.api.store.ObjectDoesNotExistException;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.api.store.ObjectStoreNotAvaliableException;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.config.i18n.Message;
+import org.mule.util.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Persistent partition that appends every change to a log split in segment files, instead of
+ * writing a file for each key like {@link PersistentObjectStorePartition}.
+ * <p/>
+ * An in memory index points to the last record of each key, so only the keys are read when the
+ * partition is loaded, and a value is read with a single positional read when retrieved. Removing
+ * an entry, explicitly or when it expires, appends a tombstone record. Entries are expired in the
+ * order they were stored, without looking at the files.
+ * <p/>
+ * A new segment is started once the current one grows over the maximum segment size. Sealed
+ * segments whose obsolete records take more than the compaction threshold of their size are
+ * compacted by the compaction executor: their live records are copied to the current segment and
+ * the file is deleted. Records keep their sequence number when copied, so replaying the log
+ * always ends up with the last change of each key. A record left incomplete at the end of the log
+ * by a crash is discarded when the partition is loaded.
+ */
+public class LogStructuredObjectStorePartition<T extends Serializable> implements PersistentPartition<T>
+{
+
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+
+    static final String SEGMENT_FILE_EXTENSION = ".log";
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    // body length and checksum
+    private static final int RECORD_HEADER_SIZE = 8;
+    // type, sequence, timestamp and key length
+    private static final int RECORD_BODY_HEADER_SIZE = 21;
+
+    protected final Log logger = LogFactory.getLog(this.getClass());
+
+    private final MuleContext muleContext;
+    private final File partitionDirectory;
+    private final Executor compactionExecutor;
+    private String partitionName;
+    private long maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+    private double compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+    private volatile boolean loaded = false;
+
+    // guarded by lock, in sequence order so the oldest entries expire first
+    private final LinkedHashMap<Serializable, RecordLocation> index = new LinkedHashMap<Serializable, RecordLocation>();
+    private final TreeMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+    private Segment activeSegment;
+    private long nextSequence;
+
+    /**
+     * @param compactionExecutor executor that compacts the segments in background, or null to
+     *            compact them in the thread that changes the partition
+     */
+    LogStructuredObjectStorePartition(MuleContext muleContext,
+                                      String partitionName,
+                                      File partitionDirectory,
+                                      Executor compactionExecutor)
+    {
+        this.muleContext = muleContext;
+        this.partitionName = partitionName;
+        this.partitionDirectory = partitionDirectory;
+        this.compactionExecutor = compactionExecutor;
+    }
+
+    LogStructuredObjectStorePartition(MuleContext muleContext, File partitionDirectory, Executor compactionExecutor)
+        throws ObjectStoreNotAvaliableException
+    {
+        this(muleContext, PersistentObjectStorePartition.readPartitionFileName(partitionDirectory),
+            partitionDirectory, compactionExecutor);
+    }
+
+    @Override
+    public void open() throws ObjectStoreException
+    {
+        createDirectory();
+        createOrRetrievePartitionDescriptorFile();
+    }
+
+    /**
+     * Releases the files of the partition. They are opened again the next time the partition is
+     * used.
+     */
+    @Override
+    public void close() throws ObjectStoreException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            unload();
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isPersistent()
+    {
+        return true;
+    }
+
+    @Override
+    public List<Serializable> allKeys() throws ObjectStoreException
+    {
+        assureLoaded();
+        lock.readLock().lock();
+        try
+        {
+            return Collections.unmodifiableList(new ArrayList<Serializable>(index.keySet()));
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Serializable key) throws ObjectStoreException
+    {
+        assureLoaded();
+        lock.readLock().lock();
+        try
+        {
+            return index.containsKey(key);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void store(Serializable key, T value) throws ObjectStoreException
+    {
+        assureLoaded();
+        byte[] keyBytes = serialize(key);
+        byte[] valueBytes = serialize(value);
+
+        boolean rolled;
+        lock.writeLock().lock();
+        try
+        {
+            if (index.containsKey(key))
+            {
+                throw new ObjectAlreadyExistsException();
+            }
+            long sequence = nextSequence++;
+            long timestamp = System.currentTimeMillis();
+            ByteBuffer record = encodeRecord(PUT, sequence, timestamp, keyBytes, valueBytes);
+            rolled = rollIfFull();
+            long offset = append(record);
+            index.put(key, new RecordLocation(activeSegment, offset, record.limit(), sequence, timestamp));
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+        if (rolled)
+        {
+            scheduleCompactionIfNeeded();
+        }
+    }
+
+    @Override
+    public T retrieve(Serializable key) throws ObjectStoreException
+    {
+        assureLoaded();
+        byte[] valueBytes;
+        lock.readLock().lock();
+        try
+        {
+            valueBytes = readValue(getLocation(key));
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        return deserializeValue(valueBytes);
+    }
+
+    @Override
+    public T remove(Serializable key) throws ObjectStoreException
+    {
+        assureLoaded();
+        byte[] keyBytes = serialize(key);
+        byte[] valueBytes;
+        lock.writeLock().lock();
+        try
+        {
+            RecordLocation location = getLocation(key);
+            valueBytes = readValue(location);
+            appendTombstones(Collections.singletonList(keyBytes));
+            location.segment.obsoleteBytes += location.length;
+            index.remove(key);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+        scheduleCompactionIfNeeded();
+        return deserializeValue(valueBytes);
+    }
+
+    @Override
+    public void clear() throws ObjectStoreException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            unload();
+            for (File file : listSegmentFiles())
+            {
+                if (!file.delete())
+                {
+                    Message message = CoreMessages.createStaticMessage("Deleting " + file.getAbsolutePath()
+                                                                       + " failed");
+                    throw new ObjectStoreException(message);
+                }
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void expire(int entryTTL, int maxEntries) throws ObjectStoreException
+    {
+        assureLoaded();
+        List<Serializable> expiredKeys = new ArrayList<Serializable>();
+        List<RecordLocation> expiredLocations = new ArrayList<RecordLocation>();
+        lock.readLock().lock();
+        try
+        {
+            int excess = maxEntries == UNBOUNDED ? 0 : index.size() - maxEntries;
+            long now = System.currentTimeMillis();
+            for (Map.Entry<Serializable, RecordLocation> entry : index.entrySet())
+            {
+                if (expiredKeys.size() < excess
+                    || (entryTTL != UNBOUNDED && now - entry.getValue().timestamp >= entryTTL))
+                {
+                    expiredKeys.add(entry.getKey());
+                    expiredLocations.add(entry.getValue());
+                }
+                else
+                {
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        if (expiredKeys.isEmpty())
+        {
+            return;
+        }
+
+        List<byte[]> expiredKeysBytes = new ArrayList<byte[]>(expiredKeys.size());
+        for (Serializable key : expiredKeys)
+        {
+            expiredKeysBytes.add(serialize(key));
+        }
+        lock.writeLock().lock();
+        try
+        {
+            List<byte[]> tombstoneKeys = new ArrayList<byte[]>(expiredKeys.size());
+            for (int i = 0; i < expiredKeys.size(); i++)
+            {
+                // skips the entries removed or replaced since they were selected
+                RecordLocation location = expiredLocations.get(i);
+                if (index.get(expiredKeys.get(i)) == location)
+                {
+                    index.remove(expiredKeys.get(i));
+                    location.segment.obsoleteBytes += location.length;
+                    tombstoneKeys.add(expiredKeysBytes.get(i));
+                }
+            }
+            appendTombstones(tombstoneKeys);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+        scheduleCompactionIfNeeded();
+    }
+
+    @Override
+    public String getPartitionName()
+    {
+        return partitionName;
+    }
+
+    /**
+     * @param maxSegmentSize size in bytes over which a new segment file is started
+     */
+    public void setMaxSegmentSize(long maxSegmentSize)
+    {
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    /**
+     * @param compactionThreshold fraction of a sealed segment taken by obsolete records over which
+     *            it is compacted
+     */
+    public void setCompactionThreshold(double compactionThreshold)
+    {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    int getSegmentCount()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return segments.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    private RecordLocation getLocation(Serializable key) throws ObjectDoesNotExistException
+    {
+        RecordLocation location = index.get(key);
+        if (location == null)
+        {
+            String message = "Key does not exist: " + key;
+            throw new ObjectDoesNotExistException(CoreMessages.createStaticMessage(message));
+        }
+        return location;
+    }
+
+    private void assureLoaded() throws ObjectStoreException
+    {
+        if (!loaded)
+        {
+            load();
+        }
+    }
+
+    private void load() throws ObjectStoreException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            // checked again as another thread may have loaded the partition while waiting
+            if (loaded)
+            {
+                return;
+            }
+            createDirectory();
+            Map<Serializable, RecordLocation> lastRecords = new HashMap<Serializable, RecordLocation>();
+            List<File> files = listSegmentFiles();
+            for (int i = 0; i < files.size(); i++)
+            {
+                Segment segment = openSegment(files.get(i));
+                segments.put(segment.id, segment);
+                replay(segment, lastRecords, i == files.size() - 1);
+            }
+
+            List<RecordLocation> liveRecords = new ArrayList<RecordLocation>(lastRecords.size());
+            for (RecordLocation location : lastRecords.values())
+            {
+                nextSequence = Math.max(nextSequence, location.sequence + 1);
+                if (location.type == PUT)
+                {
+                    liveRecords.add(location);
+                }
+            }
+            Collections.sort(liveRecords, new Comparator<RecordLocation>()
+            {
+                @Override
+                public int compare(RecordLocation location1, RecordLocation location2)
+                {
+                    return location1.sequence < location2.sequence ? -1 : (location1.sequence == location2.sequence ? 0 : 1);
+                }
+            });
+            for (RecordLocation location : liveRecords)
+            {
+                index.put(location.key, location);
+            }
+
+            if (segments.isEmpty())
+            {
+                Segment segment = openSegment(getSegmentFile(0));
+                segments.put(segment.id, segment);
+            }
+            activeSegment = segments.lastEntry().getValue();
+            loaded = true;
+        }
+        catch (Exception e)
+        {
+            unload();
+            String message = String.format("Could not restore object store data from %1s",
+                partitionDirectory.getAbsolutePath());
+            throw new ObjectStoreException(CoreMessages.createStaticMessage(message), e);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+        scheduleCompactionIfNeeded();
+    }
+
+    /**
+     * Reads the records of a segment, keeping the location of the last one of each key.
+     */
+    private void replay(final Segment segment, final Map<Serializable, RecordLocation> lastRecords, boolean lastSegment)
+        throws IOException
+    {
+        long validSize = readRecords(segment, new RecordHandler()
+        {
+            @Override
+            public void handle(RecordLocation location, Serializable key, byte[] record)
+            {
+                if (location.type == REMOVE)
+                {
+                    segment.tombstoneBytes += location.length;
+                }
+                RecordLocation previous = lastRecords.get(key);
+                if (previous == null || previous.sequence < location.sequence)
+                {
+                    if (previous != null && previous.type == PUT)
+                    {
+                        previous.segment.obsoleteBytes += previous.length;
+                    }
+                    lastRecords.put(key, location);
+                }
+                else if (location.type == PUT)
+                {
+                    segment.obsoleteBytes += location.length;
+                }
+            }
+        });
+
+        if (validSize < segment.size)
+        {
+            if (lastSegment)
+            {
+                logger.warn(String.format("Discarding %d bytes of incomplete records at the end of %s",
+                    segment.size - validSize, segment.file.getAbsolutePath()));
+                segment.channel.truncate(validSize);
+                segment.size = validSize;
+            }
+            else
+            {
+                logger.warn(String.format("Ignoring %d bytes of corrupted records at the end of %s",
+                    segment.size - validSize, segment.file.getAbsolutePath()));
+                segment.obsoleteBytes += segment.size - validSize;
+            }
+        }
+    }
+
+    /**
+     * Reads the valid records of a segment in order.
+     *
+     * @return the size of the segment up to the first invalid record
+     */
+    private long readRecords(Segment segment, RecordHandler handler) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file), 64 * 1024));
+        long offset = 0;
+        try
+        {
+            while (offset < segment.size)
+            {
+                int bodyLength;
+                int checksum;
+                byte[] record;
+                try
+                {
+                    bodyLength = in.readInt();
+                    checksum = in.readInt();
+                    if (bodyLength < RECORD_BODY_HEADER_SIZE || offset + RECORD_HEADER_SIZE + bodyLength > segment.size)
+                    {
+                        break;
+                    }
+                    record = new byte[RECORD_HEADER_SIZE + bodyLength];
+                    in.readFully(record, RECORD_HEADER_SIZE, bodyLength);
+                }
+                catch (EOFException e)
+                {
+                    break;
+                }
+                if (checksum(record) != checksum)
+                {
+                    break;
+                }
+
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                buffer.putInt(bodyLength).putInt(checksum);
+                byte type = buffer.get();
+                long sequence = buffer.getLong();
+                long timestamp = buffer.getLong();
+                int keyLength = buffer.getInt();
+                if (keyLength < 0 || keyLength > bodyLength - RECORD_BODY_HEADER_SIZE)
+                {
+                    break;
+                }
+                byte[] keyBytes = new byte[keyLength];
+                buffer.get(keyBytes);
+                Serializable key = getSerializer().deserialize(keyBytes);
+
+                RecordLocation location = new RecordLocation(segment, offset, record.length, sequence, timestamp);
+                location.type = type;
+                location.key = key;
+                handler.handle(location, key, record);
+                offset += record.length;
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return offset;
+    }
+
+    private void unload()
+    {
+        for (Segment segment : segments.values())
+        {
+            closeSegment(segment);
+        }
+        segments.clear();
+        index.clear();
+        activeSegment = null;
+        nextSequence = 0;
+        loaded = false;
+    }
+
+    private void scheduleCompactionIfNeeded()
+    {
+        if (!needsCompaction() || !compactionScheduled.compareAndSet(false, true))
+        {
+            return;
+        }
+        Runnable compaction = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                compactionScheduled.set(false);
+                try
+                {
+                    compact();
+                }
+                catch (Exception e)
+                {
+                    logger.warn("Could not compact object store partition " + partitionName, e);
+                }
+            }
+        };
+        if (compactionExecutor == null)
+        {
+            compaction.run();
+            return;
+        }
+        try
+        {
+            compactionExecutor.execute(compaction);
+        }
+        catch (RejectedExecutionException e)
+        {
+            compactionScheduled.set(false);
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Compaction of object store partition " + partitionName + " rejected", e);
+            }
+        }
+    }
+
+    private boolean needsCompaction()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return loaded && nextSegmentToCompact() != null;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Segment nextSegmentToCompact()
+    {
+        boolean oldestSegment = true;
+        for (Segment segment : segments.values())
+        {
+            // tombstones are copied when compacting any segment but the oldest one, so they
+            // only count as obsolete there
+            long obsoleteBytes = segment.obsoleteBytes + (oldestSegment ? segment.tombstoneBytes : 0);
+            if (segment != activeSegment && obsoleteBytes >= segment.size * compactionThreshold)
+            {
+                return segment;
+            }
+            oldestSegment = false;
+        }
+        return null;
+    }
+
+    /**
+     * Copies the live records of the segments with too many obsolete records to the active
+     * segment and deletes them.
+     */
+    void compact() throws ObjectStoreException
+    {
+        while (true)
+        {
+            lock.writeLock().lock();
+            try
+            {
+                Segment segment = loaded ? nextSegmentToCompact() : null;
+                if (segment == null)
+                {
+                    return;
+                }
+                compact(segment);
+            }
+            catch (IOException e)
+            {
+                throw new ObjectStoreException(e);
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void compact(final Segment segment) throws IOException
+    {
+        final boolean oldestSegment = segment == segments.firstEntry().getValue();
+        final List<RecordLocation> copied = new ArrayList<RecordLocation>();
+        final List<byte[]> records = new ArrayList<byte[]>();
+        readRecords(segment, new RecordHandler()
+        {
+            @Override
+            public void handle(RecordLocation location, Serializable key, byte[] record)
+            {
+                RecordLocation current = index.get(key);
+                boolean live = location.type == PUT && current != null && current.segment == segment
+                               && current.offset == location.offset;
+                // a tombstone is only needed while an older segment may hold a value for its key
+                boolean neededTombstone = location.type == REMOVE && current == null && !oldestSegment;
+                if (live || neededTombstone)
+                {
+                    copied.add(location);
+                    records.add(record);
+                }
+            }
+        });
+
+        for (int i = 0; i < copied.size(); i++)
+        {
+            RecordLocation location = copied.get(i);
+            rollIfFull();
+            long offset = append(ByteBuffer.wrap(records.get(i)));
+            if (location.type == PUT)
+            {
+                RecordLocation moved = new RecordLocation(activeSegment, offset, location.length,
+                    location.sequence, location.timestamp);
+                // replacing the value keeps the position of the key in the index
+                index.put(location.key, moved);
+            }
+            else
+            {
+                activeSegment.tombstoneBytes += location.length;
+            }
+        }
+        // the copies must be on disk before the only other copy is deleted
+        activeSegment.channel.force(false);
+
+        segments.remove(segment.id);
+        closeSegment(segment);
+        if (!segment.file.delete())
+        {
+            logger.warn("Could not delete compacted segment " + segment.file.getAbsolutePath());
+        }
+        if (logger.isDebugEnabled())
+        {
+            logger.debug(String.format("Compacted %s, %d records copied", segment.file.getName(), copied.size()));
+        }
+    }
+
+    private void appendTombstones(List<byte[]> keys) throws ObjectStoreException
+    {
+        if (keys.isEmpty())
+        {
+            return;
+        }
+        int size = 0;
+        List<ByteBuffer> records = new ArrayList<ByteBuffer>(keys.size());
+        long timestamp = System.currentTimeMillis();
+        for (byte[] key : keys)
+        {
+            ByteBuffer record = encodeRecord(REMOVE, nextSequence++, timestamp, key, null);
+            records.add(record);
+            size += record.limit();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (ByteBuffer record : records)
+        {
+            buffer.put(record);
+        }
+        buffer.flip();
+        try
+        {
+            rollIfFull();
+            append(buffer);
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+        activeSegment.tombstoneBytes += size;
+    }
+
+    private boolean rollIfFull() throws IOException
+    {
+        if (activeSegment.size < maxSegmentSize)
+        {
+            return false;
+        }
+        Segment segment = openSegment(getSegmentFile(activeSegment.id + 1));
+        segments.put(segment.id, segment);
+        activeSegment = segment;
+        return true;
+    }
+
+    /**
+     * @return the offset of the record in the active segment
+     */
+    private long append(ByteBuffer record) throws IOException
+    {
+        long offset = activeSegment.size;
+        long position = offset;
+        while (record.hasRemaining())
+        {
+            position += activeSegment.channel.write(record, position);
+        }
+        activeSegment.size = position;
+        return offset;
+    }
+
+    private byte[] readValue(RecordLocation location) throws ObjectStoreException
+    {
+        ByteBuffer record = ByteBuffer.allocate(location.length);
+        try
+        {
+            long position = location.offset;
+            while (record.hasRemaining())
+            {
+                int read = location.segment.channel.read(record, position);
+                if (read < 0)
+                {
+                    throw new EOFException(location.segment.file.getAbsolutePath());
+                }
+                position += read;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new ObjectStoreException(e);
+        }
+        int keyLength = record.getInt(RECORD_HEADER_SIZE + RECORD_BODY_HEADER_SIZE - 4);
+        int valueOffset = RECORD_HEADER_SIZE + RECORD_BODY_HEADER_SIZE + keyLength;
+        byte[] value = new byte[location.length - valueOffset];
+        System.arraycopy(record.array(), valueOffset, value, 0, value.length);
+        return value;
+    }
+
+    private ByteBuffer encodeRecord(byte type, long sequence, long timestamp, byte[] key, byte[] value)
+    {
+        int bodyLength = RECORD_BODY_HEADER_SIZE + key.length + (value == null ? 0 : value.length);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bodyLength);
+        record.putInt(bodyLength).putInt(0);
+        record.put(type).putLong(sequence).putLong(timestamp).putInt(key.length).put(key);
+        if (value != null)
+        {
+            record.put(value);
+        }
+        record.putInt(4, checksum(record.array()));
+        record.flip();
+        return record;
+    }
+
+    private static int checksum(byte[] record)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(record, RECORD_HEADER_SIZE, record.length - RECORD_HEADER_SIZE);
+        return (int) crc.getValue();
+    }
+
+    private byte[] serialize(Object object) throws ObjectStoreException
+    {
+        try
+        {
+            return getSerializer().serialize(object);
+        }
+        catch (Exception e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    private T deserializeValue(byte[] bytes) throws ObjectStoreException
+    {
+        try
+        {
+            T value = getSerializer().deserialize(bytes);
+            if (value instanceof DeserializationPostInitialisable)
+            {
+                DeserializationPostInitialisable.Implementation.init(value, muleContext);
+            }
+            return value;
+        }
+        catch (Exception e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    private ObjectSerializer getSerializer()
+    {
+        return muleContext.getObjectSerializer();
+    }
+
+    private void closeSegment(Segment segment)
+    {
+        try
+        {
+            segment.close();
+        }
+        catch (IOException e)
+        {
+            logger.warn("error closing file " + segment.file.getAbsolutePath());
+        }
+    }
+
+    private Segment openSegment(File file) throws IOException
+    {
+        String name = file.getName();
+        long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_FILE_EXTENSION.length()));
+        return new Segment(id, file);
+    }
+
+    private File getSegmentFile(long id)
+    {
+        return new File(partitionDirectory, String.format("%020d%s", id, SEGMENT_FILE_EXTENSION));
+    }
+
+    private List<File> listSegmentFiles()
+    {
+        File[] files = partitionDirectory.listFiles(new FileFilter()
+        {
+            @Override
+            public boolean accept(File file)
+            {
+                return !file.isDirectory() && file.getName().endsWith(SEGMENT_FILE_EXTENSION);
+            }
+        });
+        List<File> segmentFiles = new ArrayList<File>();
+        if (files != null)
+        {
+            Collections.addAll(segmentFiles, files);
+            // segment file names are zero padded, so they sort by id
+            Collections.sort(segmentFiles);
+        }
+        return segmentFiles;
+    }
+
+    private void createDirectory() throws ObjectStoreException
+    {
+        try
+        {
+            if (!partitionDirectory.exists() && !partitionDirectory.mkdirs() && !partitionDirectory.exists())
+            {
+                Message message = CoreMessages.failedToCreate("object store directory "
+                                                              + partitionDirectory.getAbsolutePath());
+                throw new MuleRuntimeException(message);
+            }
+        }
+        catch (Exception e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    private void createOrRetrievePartitionDescriptorFile() throws ObjectStoreException
+    {
+        try
+        {
+            File partitionDescriptorFile = new File(partitionDirectory,
+                PersistentObjectStorePartition.PARTITION_DESCRIPTOR_FILE);
+            if (partitionDescriptorFile.exists())
+            {
+                this.partitionName = FileUtils.readFileToString(partitionDescriptorFile);
+                return;
+            }
+            FileWriter fileWriter = new FileWriter(partitionDescriptorFile.getAbsolutePath(), false);
+            try
+            {
+                fileWriter.write(partitionName);
+                fileWriter.flush();
+            }
+            finally
+            {
+                fileWriter.close();
+            }
+        }
+        catch (Exception e)
+        {
+            throw new ObjectStoreException(e);
+        }
+    }
+
+    private interface RecordHandler
+    {
+
+        void handle(RecordLocation location, Serializable key, byte[] record);
+    }
+
+    private static class Segment
+    {
+
+        private final long id;
+        private final File file;
+        private final RandomAccessFile randomAccessFile;
+        private final FileChannel channel;
+        private long size;
+        private long obsoleteBytes;
+        private long tombstoneBytes;
+
+        Segment(long id, File file) throws IOException
+        {
+            this.id = id;
+            this.file = file;
+            this.randomAccessFile = new RandomAccessFile(file, "rw");
+            this.channel = randomAccessFile.getChannel();
+            this.size = channel.size();
+        }
+
+        void close() throws IOException
+        {
+            randomAccessFile.close();
+        }
+    }
+
+    private static class RecordLocation
+    {
+
+        private final Segment segment;
+        private final long offset;
+        private final int length;
+        private final long sequence;
+        private final long timestamp;
+        // only set while reading a segment
+        private byte type = PUT;
+        private Serializable key;
+
+        RecordLocation(Segment segment, long offset, int length, long sequence, long timestamp)
+        {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -9,32 +9,48 @@ package org.mule.util.store;
 import org.mule.api.MuleContext;
 import org.mule.api.MuleRuntimeException;
 import org.mule.api.context.MuleContextAware;
+import org.mule.api.lifecycle.Disposable;
 import org.mule.api.store.ObjectStoreException;
 import org.mule.api.store.PartitionableExpirableObjectStore;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.config.i18n.Message;
 import org.mule.util.FileUtils;
 import org.mule.util.UUID;
+import org.mule.util.concurrent.DaemonThreadFactory;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FilenameFilter;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Persistent store that keeps each partition in its own directory under the
+ * {@value #OBJECT_STORE_DIR} directory of the working directory.
+ * <p/>
+ * New partitions are {@link LogStructuredObjectStorePartition}s unless log structured partitions
+ * are disabled. Partitions written with one file per key by previous versions are still read as
+ * {@link PersistentObjectStorePartition}s.
+ */
 public class PartitionedPersistentObjectStore<T extends Serializable> extends
-        AbstractPartitionedObjectStore<T> implements MuleContextAware, PartitionableExpirableObjectStore<T>
+        AbstractPartitionedObjectStore<T> implements MuleContextAware, PartitionableExpirableObjectStore<T>, Disposable
 {
 
     public static final String OBJECT_STORE_DIR = "objectstore";
 
     private MuleContext muleContext;
     private File storeDirectory;
-    private Map<String, PersistentObjectStorePartition> partitionsByName = new HashMap<String, PersistentObjectStorePartition>();
+    private Map<String, PersistentPartition<T>> partitionsByName = new ConcurrentHashMap<String, PersistentPartition<T>>();
     private boolean initialized = false;
+    private boolean logStructuredPartitions = true;
+    private long maxSegmentSize = LogStructuredObjectStorePartition.DEFAULT_MAX_SEGMENT_SIZE;
+    private ExecutorService compactionExecutor;
 
     public PartitionedPersistentObjectStore()
     {
@@ -83,9 +99,54 @@ public class PartitionedPersistentObjectStore<T extends Serializable> extends
 
     private void createPartition(String partitionName) throws ObjectStoreException
     {
-        PersistentObjectStorePartition persistentObjectStorePartition = new PersistentObjectStorePartition(muleContext, partitionName, getNewPartitionDirectory());
-        persistentObjectStorePartition.open();
-        partitionsByName.put(partitionName, persistentObjectStorePartition);
+        PersistentPartition<T> partition;
+        if (logStructuredPartitions)
+        {
+            LogStructuredObjectStorePartition<T> logStructuredPartition = new LogStructuredObjectStorePartition<T>(muleContext, partitionName, getNewPartitionDirectory(), getCompactionExecutor());
+            logStructuredPartition.setMaxSegmentSize(maxSegmentSize);
+            partition = logStructuredPartition;
+        }
+        else
+        {
+            partition = new PersistentObjectStorePartition<T>(muleContext, partitionName, getNewPartitionDirectory());
+        }
+        partition.open();
+        partitionsByName.put(partitionName, partition);
+    }
+
+    private PersistentPartition<T> restorePartition(File partitionDirectory) throws ObjectStoreException
+    {
+        // partitions written by previous versions have one file per key
+        if (!logStructuredPartitions || containsFiles(partitionDirectory, PersistentObjectStorePartition.OBJECT_FILE_EXTENSION))
+        {
+            return new PersistentObjectStorePartition<T>(muleContext, partitionDirectory);
+        }
+        LogStructuredObjectStorePartition<T> partition = new LogStructuredObjectStorePartition<T>(muleContext, partitionDirectory, getCompactionExecutor());
+        partition.setMaxSegmentSize(maxSegmentSize);
+        return partition;
+    }
+
+    private boolean containsFiles(File directory, final String extension)
+    {
+        String[] files = directory.list(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(File dir, String name)
+            {
+                return name.endsWith(extension);
+            }
+        });
+        return files != null && files.length > 0;
+    }
+
+    private synchronized ExecutorService getCompactionExecutor()
+    {
+        if (compactionExecutor == null)
+        {
+            compactionExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory(
+                "ObjectStore-Compaction", getClass().getClassLoader()));
+        }
+        return compactionExecutor;
     }
 
     private File getNewPartitionDirectory()
@@ -135,13 +196,14 @@ public class PartitionedPersistentObjectStore<T extends Serializable> extends
         this.getPartitionObjectStore(partitionName).clear();
     }
 
-    private PersistentObjectStorePartition<T> getPartitionObjectStore(String partitionName) throws ObjectStoreException
+    private PersistentPartition<T> getPartitionObjectStore(String partitionName) throws ObjectStoreException
     {
-        if (!partitionsByName.containsKey(partitionName))
+        PersistentPartition<T> partition = partitionsByName.get(partitionName);
+        if (partition == null)
         {
             throw new ObjectStoreException(CoreMessages.createStaticMessage("No partition named: " + partitionName));
         }
-        return partitionsByName.get(partitionName);
+        return partition;
     }
 
     @Override
@@ -213,9 +275,9 @@ public class PartitionedPersistentObjectStore<T extends Serializable> extends
         {
             try
             {
-                PersistentObjectStorePartition persistentObjectStorePartition = new PersistentObjectStorePartition(muleContext, partitionDirectory);
-                persistentObjectStorePartition.open();
-                partitionsByName.put(persistentObjectStorePartition.getPartitionName(), persistentObjectStorePartition);
+                PersistentPartition<T> partition = restorePartition(partitionDirectory);
+                partition.open();
+                partitionsByName.put(partition.getPartitionName(), partition);
             }
             catch (Exception e)
             {
@@ -230,6 +292,44 @@ public class PartitionedPersistentObjectStore<T extends Serializable> extends
         muleContext = context;
     }
 
+    /**
+     * @param logStructuredPartitions whether new partitions are stored as an append only log
+     *            instead of one file per key. True by default.
+     */
+    public void setLogStructuredPartitions(boolean logStructuredPartitions)
+    {
+        this.logStructuredPartitions = logStructuredPartitions;
+    }
+
+    /**
+     * @param maxSegmentSize size in bytes of the segment files of log structured partitions
+     */
+    public void setMaxSegmentSize(long maxSegmentSize)
+    {
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    @Override
+    public synchronized void dispose()
+    {
+        for (PersistentPartition<T> partition : partitionsByName.values())
+        {
+            try
+            {
+                partition.close();
+            }
+            catch (ObjectStoreException e)
+            {
+                logger.warn("Could not close partition " + partition.getPartitionName(), e);
+            }
+        }
+        if (compactionExecutor != null)
+        {
+            compactionExecutor.shutdown();
+            compactionExecutor = null;
+        }
+    }
+
     @Override
     public void expire(int entryTTL, int maxEntries) throws ObjectStoreException
     {
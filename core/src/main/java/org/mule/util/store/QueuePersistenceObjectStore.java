@@ -16,7 +16,6 @@ import org.mule.config.i18n.CoreMessages;
 import org.mule.config.i18n.Message;
 import org.mule.config.i18n.MessageFactory;
 import org.mule.util.FileUtils;
-import org.mule.util.SerializationUtils;
 import org.mule.util.queue.objectstore.QueueKey;
 
 import java.io.File;
@@ -261,7 +260,7 @@ public class QueuePersistenceObjectStore<T extends Serializable> extends Abstrac
         try
         {
             FileOutputStream out = new FileOutputStream(outputFile);
-            SerializationUtils.serialize(value, out);
+            muleContext.getObjectSerializer().serialize(value, out);
         }
         catch (SerializationException se)
         {
@@ -308,7 +307,7 @@ public class QueuePersistenceObjectStore<T extends Serializable> extends Abstrac
         try
         {
             FileInputStream in = new FileInputStream(file);
-            return (T) SerializationUtils.deserialize(in, muleContext);
+            return muleContext.getObjectSerializer().deserialize(in);
         }
         catch (SerializationException se)
         {
@@ -7,7 +7,9 @@
 package org.mule;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -25,6 +27,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -411,6 +414,80 @@ public class DefaultMuleMessageTestCase extends AbstractMuleContextTestCase
         message.getPropertyNames(PropertyScope.OUTBOUND).add("other");
     }
 
+    @Test
+    public void testCopiedAttachmentsAreIndependent() throws Exception
+    {
+        Map<String, DataHandler> attachments = new HashMap<String, DataHandler>();
+        DataHandler inbound = new DataHandler("inbound", "text/plain");
+        attachments.put("inbound", inbound);
+        MuleMessage original = new DefaultMuleMessage(TEST_MESSAGE, null, attachments, muleContext);
+        DataHandler outbound = new DataHandler("outbound", "text/plain");
+        original.addOutboundAttachment("outbound", outbound);
+
+        MuleMessage copy = new DefaultMuleMessage(TEST_MESSAGE, original, muleContext);
+        assertEquals(inbound, copy.getInboundAttachment("inbound"));
+        assertEquals(outbound, copy.getOutboundAttachment("outbound"));
+
+        copy.addOutboundAttachment("other", new DataHandler("other", "text/plain"));
+        copy.removeOutboundAttachment("outbound");
+        original.addOutboundAttachment("original", new DataHandler("original", "text/plain"));
+
+        assertEquals(2, original.getOutboundAttachmentNames().size());
+        assertEquals(outbound, original.getOutboundAttachment("outbound"));
+        assertEquals(1, copy.getOutboundAttachmentNames().size());
+        assertTrue(copy.getOutboundAttachmentNames().contains("other"));
+
+        copy.clearAttachments();
+        assertEquals(2, original.getOutboundAttachmentNames().size());
+        assertEquals(0, copy.getOutboundAttachmentNames().size());
+    }
+
+    @Test
+    public void testCopiedAttachmentsAreNotCopiedUntilWritten() throws Exception
+    {
+        Map<String, DataHandler> attachments = new HashMap<String, DataHandler>();
+        attachments.put("inbound", new DataHandler("inbound", "text/plain"));
+        MuleMessage original = new DefaultMuleMessage(TEST_MESSAGE, null, attachments, muleContext);
+        original.addOutboundAttachment("outbound", new DataHandler("outbound", "text/plain"));
+        Object originalInbound = attachmentMap(original, "inboundAttachments");
+        Object originalOutbound = attachmentMap(original, "outboundAttachments");
+
+        MuleMessage copy = new DefaultMuleMessage(TEST_MESSAGE, original, muleContext);
+        assertSame(originalInbound, attachmentMap(copy, "inboundAttachments"));
+        assertSame(originalOutbound, attachmentMap(copy, "outboundAttachments"));
+        assertSame(originalInbound, attachmentMap(original, "inboundAttachments"));
+        assertSame(originalOutbound, attachmentMap(original, "outboundAttachments"));
+
+        copy.addOutboundAttachment("other", new DataHandler("other", "text/plain"));
+        assertNotSame(originalOutbound, attachmentMap(copy, "outboundAttachments"));
+        assertSame(originalInbound, attachmentMap(copy, "inboundAttachments"));
+        assertSame(originalOutbound, attachmentMap(original, "outboundAttachments"));
+    }
+
+    private Object attachmentMap(MuleMessage message, String fieldName) throws Exception
+    {
+        Field field = DefaultMuleMessage.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        return field.get(message);
+    }
+
+    @Test
+    public void testPropertiesCopiedFromPayloadMessageAreIndependent() throws Exception
+    {
+        MuleMessage previous = createMuleMessage();
+        MuleMessage payloadMessage = new DefaultMuleMessage(TEST_MESSAGE, muleContext);
+        payloadMessage.setOutboundProperty("foo", "bar");
+
+        MuleMessage copy = new DefaultMuleMessage(payloadMessage, previous, muleContext);
+        assertEquals("bar", copy.getOutboundProperty("foo"));
+
+        copy.setOutboundProperty("foo", "baz");
+        payloadMessage.setOutboundProperty("other", "value");
+
+        assertEquals("bar", payloadMessage.getOutboundProperty("foo"));
+        assertNull(copy.getOutboundProperty("other"));
+    }
+
     public void testOutboundPropertyNamesRemoveMmutable() throws Exception
     {
         MuleMessage message = createMuleMessage();
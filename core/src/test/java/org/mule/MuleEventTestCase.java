@@ -266,6 +266,22 @@ public class MuleEventTestCase extends AbstractMuleContextTestCase
         assertThat((String) messageCopy.getInvocationProperty(FLOW_KEY), is(equalTo(FLOW_DIFFERENT_VALUE)));
     }
 
+    @Test
+    public void testVarsNotSharedAfterCopy() throws Exception
+    {
+        MuleEvent event = getTestEvent(TEST_PAYLOAD);
+        event.setFlowVariable(FLOW_KEY, FLOW_VALUE);
+
+        MuleEvent copy = new DefaultMuleEvent(
+            (MuleMessage) ((ThreadSafeAccess) event.getMessage()).newThreadCopy(), event, false, false);
+        event.setFlowVariable(FLOW_KEY, FLOW_DIFFERENT_VALUE);
+        event.setFlowVariable("other", FLOW_VALUE);
+
+        assertThat((String) copy.getFlowVariable(FLOW_KEY), is(equalTo(FLOW_VALUE)));
+        assertThat((String) copy.getMessage().getInvocationProperty(FLOW_KEY), is(equalTo(FLOW_VALUE)));
+        assertNull(copy.getFlowVariable("other"));
+    }
+
     @Test
     public void testVarsShared() throws Exception
     {
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertThat;
+
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.message.DefaultExceptionPayload;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.util.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemoryCachingStrategyTestCase extends AbstractMuleContextTestCase
+{
+
+    private static final String REQUEST = "request";
+    private static final String RESPONSE = "response";
+
+    private InMemoryCachingStrategy cachingStrategy;
+    private CountingMessageProcessor messageProcessor;
+
+    @Before
+    public void setUpCachingStrategy()
+    {
+        cachingStrategy = new InMemoryCachingStrategy();
+        messageProcessor = new CountingMessageProcessor(RESPONSE);
+    }
+
+    @Test
+    public void returnsCachedResponse() throws Exception
+    {
+        MuleEvent first = cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        MuleEvent second = cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+
+        assertThat(messageProcessor.invocations, is(1));
+        assertThat(first.getMessageAsString(), is(RESPONSE));
+        assertThat(second.getMessageAsString(), is(RESPONSE));
+        assertThat(cachingStrategy.getSize(), is(1));
+    }
+
+    @Test
+    public void processesDifferentRequests() throws Exception
+    {
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        cachingStrategy.process(getTestEvent("otherRequest"), messageProcessor);
+
+        assertThat(messageProcessor.invocations, is(2));
+        assertThat(cachingStrategy.getSize(), is(2));
+    }
+
+    @Test
+    public void replaysStreamingRequest() throws Exception
+    {
+        cachingStrategy.process(getTestEvent(new ByteArrayInputStream(REQUEST.getBytes())), messageProcessor);
+        cachingStrategy.process(getTestEvent(new ByteArrayInputStream(REQUEST.getBytes())), messageProcessor);
+
+        assertThat(messageProcessor.invocations, is(1));
+        assertThat(messageProcessor.requestPayloads.get(0), instanceOf(InputStream.class));
+        assertThat(messageProcessor.requestContents.get(0), is(REQUEST));
+    }
+
+    @Test
+    public void replaysStreamingResponse() throws Exception
+    {
+        messageProcessor = new CountingMessageProcessor(null)
+        {
+            @Override
+            protected Object createResponsePayload()
+            {
+                return new ByteArrayInputStream(RESPONSE.getBytes());
+            }
+        };
+
+        MuleEvent first = cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        MuleEvent second = cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        MuleEvent third = cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+
+        assertThat(messageProcessor.invocations, is(1));
+        for (MuleEvent response : new MuleEvent[] {first, second, third})
+        {
+            assertThat(response.getMessage().getPayload(), instanceOf(InputStream.class));
+            assertThat(IOUtils.toString((InputStream) response.getMessage().getPayload()), is(RESPONSE));
+        }
+        assertThat(cachingStrategy.getSizeInBytes(), is((long) RESPONSE.length() + CachedResponse.ENTRY_OVERHEAD));
+    }
+
+    @Test
+    public void cachedByteArrayIsNotModifiedByResponses() throws Exception
+    {
+        messageProcessor = new CountingMessageProcessor(null)
+        {
+            @Override
+            protected Object createResponsePayload()
+            {
+                return RESPONSE.getBytes();
+            }
+        };
+
+        MuleEvent first = cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        ((byte[]) first.getMessage().getPayload())[0] = 'X';
+        MuleEvent second = cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        ((byte[]) second.getMessage().getPayload())[0] = 'X';
+        MuleEvent third = cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+
+        assertThat(new String((byte[]) third.getMessage().getPayload()), is(RESPONSE));
+    }
+
+    @Test
+    public void copiesSerializablePayload() throws Exception
+    {
+        final ArrayList<String> payload = new ArrayList<String>();
+        payload.add(RESPONSE);
+        messageProcessor = new CountingMessageProcessor(payload);
+
+        MuleEvent first = cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        MuleEvent second = cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        ((List) second.getMessage().getPayload()).clear();
+        MuleEvent third = cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+
+        assertThat(messageProcessor.invocations, is(1));
+        assertThat(first.getMessage().getPayload(), is((Object) payload));
+        assertThat(third.getMessage().getPayload(), is((Object) payload));
+    }
+
+    @Test
+    public void copiesResponseProperties() throws Exception
+    {
+        messageProcessor = new CountingMessageProcessor(RESPONSE)
+        {
+            @Override
+            public MuleEvent process(MuleEvent event) throws MuleException
+            {
+                MuleEvent response = super.process(event);
+                response.getMessage().setOutboundProperty("status", "200");
+                return response;
+            }
+        };
+
+        MuleEvent request = getTestEvent(REQUEST);
+        request.setFlowVariable("requestVariable", "value");
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        MuleEvent response = cachingStrategy.process(request, messageProcessor);
+
+        assertThat(response.getMessage().<String>getOutboundProperty("status"), is("200"));
+        assertThat(response.<String>getFlowVariable("requestVariable"), is("value"));
+    }
+
+    @Test
+    public void doesNotCacheExceptionResponses() throws Exception
+    {
+        messageProcessor = new CountingMessageProcessor(RESPONSE)
+        {
+            @Override
+            public MuleEvent process(MuleEvent event) throws MuleException
+            {
+                MuleEvent response = super.process(event);
+                response.getMessage().setExceptionPayload(new DefaultExceptionPayload(new Exception()));
+                return response;
+            }
+        };
+
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+
+        assertThat(messageProcessor.invocations, is(2));
+        assertThat(cachingStrategy.getSize(), is(0));
+    }
+
+    @Test
+    public void doesNotCacheNotSerializablePayload() throws Exception
+    {
+        messageProcessor = new CountingMessageProcessor(new Object());
+
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+
+        assertThat(messageProcessor.invocations, is(2));
+    }
+
+    @Test
+    public void expiresEntries() throws Exception
+    {
+        cachingStrategy.setEntryTtl(1);
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        Thread.sleep(10);
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+
+        assertThat(messageProcessor.invocations, is(2));
+    }
+
+    @Test
+    public void boundsCacheSize() throws Exception
+    {
+        cachingStrategy.setMaxSizeInBytes(2 * (2 * RESPONSE.length() + CachedResponse.ENTRY_OVERHEAD));
+        for (int i = 0; i < 10; i++)
+        {
+            cachingStrategy.process(getTestEvent(REQUEST + i), messageProcessor);
+        }
+
+        assertThat(cachingStrategy.getSize(), is(2));
+        cachingStrategy.process(getTestEvent(REQUEST + 9), messageProcessor);
+        assertThat(messageProcessor.invocations, is(10));
+        cachingStrategy.process(getTestEvent(REQUEST + 0), messageProcessor);
+        assertThat(messageProcessor.invocations, is(11));
+    }
+
+    @Test
+    public void invalidatesEntries() throws Exception
+    {
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        cachingStrategy.process(getTestEvent("otherRequest"), messageProcessor);
+
+        cachingStrategy.invalidate(cachingStrategy.getKeyGenerator().generateKey(getTestEvent(REQUEST)));
+        assertThat(cachingStrategy.getSize(), is(1));
+
+        cachingStrategy.invalidate();
+        assertThat(cachingStrategy.getSize(), is(0));
+        assertThat(cachingStrategy.getSizeInBytes(), is(0L));
+    }
+
+    private class CountingMessageProcessor implements MessageProcessor
+    {
+
+        private final Object responsePayload;
+        private final List<Object> requestPayloads = new ArrayList<Object>();
+        private final List<String> requestContents = new ArrayList<String>();
+        private int invocations;
+
+        CountingMessageProcessor(Object responsePayload)
+        {
+            this.responsePayload = responsePayload;
+        }
+
+        @Override
+        public MuleEvent process(MuleEvent event) throws MuleException
+        {
+            invocations++;
+            Object payload = event.getMessage().getPayload();
+            requestPayloads.add(payload);
+            if (payload instanceof InputStream)
+            {
+                requestContents.add(IOUtils.toString((InputStream) payload));
+            }
+            return new DefaultMuleEvent(new DefaultMuleMessage(createResponsePayload(), muleContext), event);
+        }
+
+        protected Object createResponsePayload()
+        {
+            if (responsePayload instanceof List)
+            {
+                return new ArrayList<Object>((List<?>) responsePayload);
+            }
+            return responsePayload;
+        }
+    }
+}
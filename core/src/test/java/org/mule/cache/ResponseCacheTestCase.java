@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.mule.DefaultMuleMessage;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+
+import org.junit.Test;
+
+public class ResponseCacheTestCase extends AbstractMuleContextTestCase
+{
+
+    private static final int PAYLOAD_SIZE = 100;
+    private static final long ENTRY_SIZE = PAYLOAD_SIZE + CachedResponse.ENTRY_OVERHEAD;
+
+    @Test
+    public void tracksSizeInBytes() throws Exception
+    {
+        ResponseCache cache = new ResponseCache(10 * ENTRY_SIZE, CacheEvictionPolicy.LRU);
+        cache.put("a", createEntry(Long.MAX_VALUE));
+        cache.put("b", createEntry(Long.MAX_VALUE));
+        assertThat(cache.getSizeInBytes(), is(2 * ENTRY_SIZE));
+
+        cache.put("a", createEntry(Long.MAX_VALUE));
+        assertThat(cache.getSizeInBytes(), is(2 * ENTRY_SIZE));
+
+        cache.remove("a");
+        assertThat(cache.getSizeInBytes(), is(ENTRY_SIZE));
+
+        cache.clear();
+        assertThat(cache.getSizeInBytes(), is(0L));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception
+    {
+        ResponseCache cache = new ResponseCache(3 * ENTRY_SIZE, CacheEvictionPolicy.LRU);
+        cache.put("a", createEntry(Long.MAX_VALUE));
+        cache.put("b", createEntry(Long.MAX_VALUE));
+        cache.put("c", createEntry(Long.MAX_VALUE));
+        cache.get("a", 0);
+
+        cache.put("d", createEntry(Long.MAX_VALUE));
+
+        assertThat(cache.size(), is(3));
+        assertThat(cache.get("b", 0), nullValue());
+        assertThat(cache.get("a", 0), notNullValue());
+        assertThat(cache.get("c", 0), notNullValue());
+        assertThat(cache.get("d", 0), notNullValue());
+    }
+
+    @Test
+    public void evictsLeastFrequentlyUsed() throws Exception
+    {
+        ResponseCache cache = new ResponseCache(3 * ENTRY_SIZE, CacheEvictionPolicy.LFU);
+        cache.put("a", createEntry(Long.MAX_VALUE));
+        cache.put("b", createEntry(Long.MAX_VALUE));
+        cache.put("c", createEntry(Long.MAX_VALUE));
+        cache.get("a", 0);
+        cache.get("a", 0);
+        cache.get("c", 0);
+        cache.get("b", 0);
+        cache.get("b", 0);
+
+        cache.put("d", createEntry(Long.MAX_VALUE));
+
+        assertThat(cache.size(), is(3));
+        assertThat(cache.get("c", 0), nullValue());
+        assertThat(cache.get("d", 0), notNullValue());
+    }
+
+    @Test
+    public void evictsAsManyEntriesAsNeeded() throws Exception
+    {
+        ResponseCache cache = new ResponseCache(3 * ENTRY_SIZE, CacheEvictionPolicy.LRU);
+        cache.put("a", createEntry(Long.MAX_VALUE));
+        cache.put("b", createEntry(Long.MAX_VALUE));
+        cache.put("c", createEntry(Long.MAX_VALUE));
+
+        cache.put("d", createEntry(new byte[2 * PAYLOAD_SIZE + CachedResponse.ENTRY_OVERHEAD], Long.MAX_VALUE));
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.get("c", 0), notNullValue());
+        assertThat(cache.get("d", 0), notNullValue());
+    }
+
+    @Test
+    public void doesNotAddEntryBiggerThanCache() throws Exception
+    {
+        ResponseCache cache = new ResponseCache(ENTRY_SIZE, CacheEvictionPolicy.LRU);
+        cache.put("a", createEntry(Long.MAX_VALUE));
+
+        assertThat(cache.put("b", createEntry(new byte[PAYLOAD_SIZE + 1], Long.MAX_VALUE)), is(false));
+        assertThat(cache.get("a", 0), notNullValue());
+        assertThat(cache.getSizeInBytes(), is(ENTRY_SIZE));
+    }
+
+    @Test
+    public void discardsExpiredEntries() throws Exception
+    {
+        ResponseCache cache = new ResponseCache(10 * ENTRY_SIZE, CacheEvictionPolicy.LRU);
+        cache.put("a", createEntry(100));
+
+        assertThat(cache.get("a", 100), notNullValue());
+        assertThat(cache.get("a", 101), nullValue());
+        assertThat(cache.size(), is(0));
+        assertThat(cache.getSizeInBytes(), is(0L));
+    }
+
+    private CachedResponse createEntry(long expirationTime) throws Exception
+    {
+        return createEntry(new byte[PAYLOAD_SIZE], expirationTime);
+    }
+
+    private CachedResponse createEntry(byte[] payload, long expirationTime) throws Exception
+    {
+        return CachedResponse.create(new DefaultMuleMessage(payload, muleContext), expirationTime);
+    }
+}
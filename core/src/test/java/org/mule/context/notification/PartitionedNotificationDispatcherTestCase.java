@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.context.notification;
+
+import org.mule.api.context.WorkManager;
+import org.mule.api.context.notification.ServerNotification;
+import org.mule.api.context.notification.ServerNotificationListener;
+import org.mule.management.stats.NotificationStatistics;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.resource.spi.work.ExecutionContext;
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@SmallTest
+public class PartitionedNotificationDispatcherTestCase extends AbstractMuleTestCase
+{
+
+    private static final int NOTIFICATIONS = 200;
+    private static final int RECEIVE_TIMEOUT = 5000;
+
+    private NotificationStatistics statistics;
+    private PartitionedNotificationDispatcher dispatcher;
+
+    @Before
+    public void setUpStatistics()
+    {
+        statistics = new NotificationStatistics();
+        statistics.setEnabled(true);
+    }
+
+    @After
+    public void stopDispatcher()
+    {
+        if (dispatcher != null)
+        {
+            dispatcher.stop(false);
+        }
+    }
+
+    @Test
+    public void preservesOrderPerListener() throws Exception
+    {
+        dispatcher = new PartitionedNotificationDispatcher(4, 16, NotificationOverflowPolicy.BLOCK, 1, 100, statistics);
+        dispatcher.start(threadPerWorkManager(), null);
+
+        RecordingListener listener1 = new RecordingListener(NOTIFICATIONS);
+        RecordingListener listener2 = new RecordingListener(NOTIFICATIONS);
+        List<Sender> senders = Arrays.asList(sender(listener1), sender(listener2));
+
+        List<ServerNotification> fired = new ArrayList<ServerNotification>();
+        for (int i = 0; i < NOTIFICATIONS; i++)
+        {
+            ServerNotification notification = new Event1();
+            fired.add(notification);
+            dispatcher.dispatch(notification, senders);
+        }
+
+        assertTrue(listener1.latch.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertTrue(listener2.latch.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(fired, listener1.received);
+        assertEquals(fired, listener2.received);
+    }
+
+    @Test
+    public void dropsWhenFull() throws Exception
+    {
+        // workers are not started so nothing is consumed from the queue
+        dispatcher = new PartitionedNotificationDispatcher(1, 2, NotificationOverflowPolicy.DROP, 1, 100, statistics);
+        List<Sender> senders = Collections.singletonList(sender(new RecordingListener(0)));
+
+        for (int i = 0; i < 5; i++)
+        {
+            dispatcher.dispatch(new Event1(), senders);
+        }
+
+        assertEquals(2, dispatcher.getQueueDepth());
+        assertEquals(3, statistics.getDroppedNotifications());
+    }
+
+    @Test
+    public void samplesWhenFull() throws Exception
+    {
+        dispatcher = new PartitionedNotificationDispatcher(1, 2, NotificationOverflowPolicy.SAMPLE, 2, 100, statistics);
+        dispatcher.start(threadPerWorkManager(), null);
+        RecordingListener listener = new RecordingListener(NOTIFICATIONS);
+        List<Sender> senders = Collections.singletonList(sender(listener));
+
+        for (int i = 0; i < NOTIFICATIONS; i++)
+        {
+            dispatcher.dispatch(new Event1(), senders);
+        }
+
+        dispatcher.stop(true);
+        int delivered = NOTIFICATIONS - (int) statistics.getDroppedNotifications();
+        long deadline = System.currentTimeMillis() + RECEIVE_TIMEOUT;
+        while (listener.received.size() < delivered && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(delivered, listener.received.size());
+    }
+
+    @Test
+    public void accountsNotificationOnceForAllPartitions() throws Exception
+    {
+        dispatcher = new PartitionedNotificationDispatcher(4, 0, NotificationOverflowPolicy.BLOCK, 1, 100, statistics);
+        dispatcher.start(threadPerWorkManager(), null);
+        List<RecordingListener> listeners = new ArrayList<RecordingListener>();
+        List<Sender> senders = new ArrayList<Sender>();
+        for (int i = 0; i < 8; i++)
+        {
+            RecordingListener listener = new RecordingListener(NOTIFICATIONS);
+            listeners.add(listener);
+            senders.add(sender(listener));
+        }
+
+        for (int i = 0; i < NOTIFICATIONS; i++)
+        {
+            dispatcher.dispatch(new Event1(), senders);
+        }
+
+        for (RecordingListener listener : listeners)
+        {
+            assertTrue(listener.latch.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+        dispatcher.stop(true);
+        // the last partition accounts the notification right after notifying its listeners
+        Thread.sleep(200);
+        assertEquals(NOTIFICATIONS, statistics.getDispatchedNotifications());
+        assertEquals(0, statistics.getDroppedNotifications());
+    }
+
+    @Test
+    public void releasingOneWorkerKeepsOtherPartitionsRunning() throws Exception
+    {
+        List<Work> workers = new ArrayList<Work>();
+        dispatcher = new PartitionedNotificationDispatcher(2, 0, NotificationOverflowPolicy.BLOCK, 1, 100, statistics);
+        dispatcher.start(threadPerWorkManager(workers), null);
+        workers.get(0).release();
+
+        List<RecordingListener> listeners = new ArrayList<RecordingListener>();
+        List<Sender> senders = new ArrayList<Sender>();
+        for (int i = 0; i < 16; i++)
+        {
+            RecordingListener listener = new RecordingListener(1);
+            listeners.add(listener);
+            senders.add(sender(listener));
+        }
+        dispatcher.dispatch(new Event1(), senders);
+
+        boolean received = false;
+        for (RecordingListener listener : listeners)
+        {
+            received |= listener.latch.await(RECEIVE_TIMEOUT / listeners.size(), TimeUnit.MILLISECONDS);
+        }
+        assertTrue(received);
+    }
+
+    private Sender sender(ServerNotificationListener<?> listener)
+    {
+        return new Sender(new ListenerSubscriptionPair(listener));
+    }
+
+    private WorkManager threadPerWorkManager() throws Exception
+    {
+        return threadPerWorkManager(new ArrayList<Work>());
+    }
+
+    private WorkManager threadPerWorkManager(final List<Work> scheduled) throws Exception
+    {
+        WorkManager workManager = mock(WorkManager.class);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+                Work work = (Work) invocation.getArguments()[0];
+                scheduled.add(work);
+                Thread thread = new Thread(work);
+                thread.setDaemon(true);
+                thread.start();
+                return null;
+            }
+        }).when(workManager).scheduleWork(any(Work.class), anyLong(), any(ExecutionContext.class), any(WorkListener.class));
+        return workManager;
+    }
+
+    private static class RecordingListener implements ServerNotificationListener<ServerNotification>
+    {
+        private final List<ServerNotification> received = Collections.synchronizedList(new ArrayList<ServerNotification>());
+        private final CountDownLatch latch;
+
+        RecordingListener(int expected)
+        {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onNotification(ServerNotification notification)
+        {
+            received.add(notification);
+            latch.countDown();
+        }
+    }
+}
@@ -9,12 +9,17 @@ package org.mule.el.mvel;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.el.context.AbstractELTestCase;
 import org.mule.mvel2.CompileException;
 import org.mule.mvel2.ParserConfiguration;
+import org.mule.mvel2.optimizers.OptimizerFactory;
+import org.mule.mvel2.optimizers.dynamic.DynamicOptimizer;
+import org.mule.mvel2.optimizers.impl.refl.ReflectiveAccessorOptimizer;
 import org.mule.tck.size.SmallTest;
 
 import org.junit.Before;
@@ -147,6 +152,35 @@ public class MVELExpressionExecutorTestCase extends AbstractELTestCase
         assertNull(mvel.execute("new Object().doesntExist()", context));
     }
 
+    @Test
+    public void cachesCompiledExpressions()
+    {
+        assertSame(mvel.getCompiledExpression("2*2"), mvel.getCompiledExpression("2*2"));
+    }
+
+    @Test
+    public void usesReflectiveOptimizerByDefault()
+    {
+        assertTrue(OptimizerFactory.getDefaultAccessorCompiler() instanceof ReflectiveAccessorOptimizer);
+    }
+
+    @Test
+    public void usesConfiguredOptimizer()
+    {
+        System.setProperty(MVELExpressionExecutor.OPTIMIZER_PROPERTY, OptimizerFactory.DYNAMIC);
+        try
+        {
+            mvel = new MVELExpressionExecutor(new ParserConfiguration());
+            assertTrue(OptimizerFactory.getDefaultAccessorCompiler() instanceof DynamicOptimizer);
+            assertEquals(4, mvel.execute("2*2", null));
+        }
+        finally
+        {
+            System.clearProperty(MVELExpressionExecutor.OPTIMIZER_PROPERTY);
+            OptimizerFactory.setDefaultOptimizer(OptimizerFactory.SAFE_REFLECTIVE);
+        }
+    }
+
     static class MyClassClassLoader extends ClassLoader
     {
         @Override
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.execution;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+import org.mule.api.MessagingException;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.construct.Pipeline;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.management.stats.FlowConstructStatistics;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@SmallTest
+@RunWith(MockitoJUnitRunner.class)
+public class MessageProcessorStatisticsExecutionInterceptorTestCase extends AbstractMuleTestCase
+{
+
+    private static final String PROCESSOR_PATH = "/flow/processors/0";
+
+    @Mock
+    private MessageProcessorExecutionInterceptor mockNextInterceptor;
+    @Mock
+    private MessageProcessor mockMessageProcessor;
+    @Mock
+    private Pipeline mockPipeline;
+    @Mock
+    private MuleEvent mockMuleEvent;
+    @Mock
+    private MuleEvent mockResultMuleEvent;
+    @Mock
+    private MessagingException mockMessagingException;
+    private FlowConstructStatistics statistics = new FlowConstructStatistics("Flow", "flow");
+    private MessageProcessorStatisticsExecutionInterceptor interceptor;
+
+    @Before
+    public void setUpTest() throws MuleException
+    {
+        interceptor = new MessageProcessorStatisticsExecutionInterceptor(mockNextInterceptor);
+        statistics.setEnabled(true);
+        when(mockMuleEvent.getFlowConstruct()).thenReturn(mockPipeline);
+        when(mockPipeline.getStatistics()).thenReturn(statistics);
+        when(mockPipeline.getProcessorPath(mockMessageProcessor)).thenReturn(PROCESSOR_PATH);
+        when(mockNextInterceptor.execute(mockMessageProcessor, mockMuleEvent)).thenReturn(mockResultMuleEvent);
+    }
+
+    @Test
+    public void recordsLatency() throws MuleException
+    {
+        assertThat(interceptor.execute(mockMessageProcessor, mockMuleEvent), is(mockResultMuleEvent));
+        assertThat(statistics.getMessageProcessorPaths(), contains(PROCESSOR_PATH));
+    }
+
+    @Test
+    public void recordsLatencyWhenProcessorFails() throws MuleException
+    {
+        when(mockNextInterceptor.execute(mockMessageProcessor, mockMuleEvent)).thenThrow(mockMessagingException);
+        try
+        {
+            interceptor.execute(mockMessageProcessor, mockMuleEvent);
+            fail("Exception expected");
+        }
+        catch (MessagingException e)
+        {
+            assertThat(e, is(mockMessagingException));
+        }
+        assertThat(statistics.getMessageProcessorPaths(), contains(PROCESSOR_PATH));
+    }
+
+    @Test
+    public void ignoresLatencyIfStatisticsDisabled() throws MuleException
+    {
+        statistics.setEnabled(false);
+        assertThat(interceptor.execute(mockMessageProcessor, mockMuleEvent), is(mockResultMuleEvent));
+        assertThat(statistics.getMessageProcessorPaths(), empty());
+    }
+
+    @Test
+    public void ignoresProcessorWithoutPath() throws MuleException
+    {
+        when(mockPipeline.getProcessorPath(mockMessageProcessor)).thenReturn(null);
+        assertThat(interceptor.execute(mockMessageProcessor, mockMuleEvent), is(mockResultMuleEvent));
+        assertThat(statistics.getMessageProcessorPaths(), empty());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+@SmallTest
+public class LatencyHistogramTestCase extends AbstractMuleTestCase
+{
+
+    private static final long HIGHEST_TRACKABLE_VALUE = 3600000;
+
+    private final LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE_VALUE);
+
+    @Test
+    public void emptyHistogram()
+    {
+        assertThat(histogram.getTotalCount(), is(0L));
+        assertThat(histogram.getValueAtPercentile(50), is(0L));
+    }
+
+    @Test
+    public void smallValuesAreExact()
+    {
+        for (int i = 1; i <= 50; i++)
+        {
+            histogram.recordValue(i);
+        }
+        assertThat(histogram.getValueAtPercentile(50), is(25L));
+        assertThat(histogram.getValueAtPercentile(100), is(50L));
+        assertThat(histogram.getMaxValue(), is(50L));
+    }
+
+    @Test
+    public void percentilesWithinPrecision()
+    {
+        for (int i = 1; i <= 100000; i++)
+        {
+            histogram.recordValue(i);
+        }
+        assertThat(histogram.getTotalCount(), is(100000L));
+        assertWithinPrecision(histogram.getValueAtPercentile(50), 50000);
+        assertWithinPrecision(histogram.getValueAtPercentile(99), 99000);
+        assertWithinPrecision(histogram.getValueAtPercentile(99.9), 99900);
+        assertThat(histogram.getValueAtPercentile(100), is(100000L));
+    }
+
+    @Test
+    public void outOfRangeValuesAreBounded()
+    {
+        histogram.recordValue(-1);
+        histogram.recordValue(Long.MAX_VALUE);
+        assertThat(histogram.getValueAtPercentile(50), is(0L));
+        assertThat(histogram.getValueAtPercentile(100), is(HIGHEST_TRACKABLE_VALUE));
+    }
+
+    @Test
+    public void reset()
+    {
+        histogram.recordValue(10);
+        histogram.reset();
+        assertThat(histogram.getTotalCount(), is(0L));
+        assertThat(histogram.getMaxValue(), is(0L));
+    }
+
+    @Test
+    public void concurrentRecording() throws Exception
+    {
+        final int threads = 8;
+        final int valuesPerThread = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < threads; i++)
+            {
+                results.add(executor.submit(new Callable<Object>()
+                {
+                    @Override
+                    public Object call()
+                    {
+                        for (int j = 0; j < valuesPerThread; j++)
+                        {
+                            histogram.recordValue(j);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> result : results)
+            {
+                result.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertThat(histogram.getTotalCount(), is((long) threads * valuesPerThread));
+        assertThat(histogram.getMaxValue(), is((long) valuesPerThread - 1));
+    }
+
+    private void assertWithinPrecision(long actual, long expected)
+    {
+        long error = expected / 32;
+        assertThat(actual, greaterThanOrEqualTo(expected - error));
+        assertThat(actual, lessThanOrEqualTo(expected + error));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import org.junit.Test;
+
+@SmallTest
+public class ReceiverStatisticsTestCase extends AbstractMuleTestCase
+{
+
+    private final ReceiverStatistics statistics = new ReceiverStatistics();
+
+    @Test
+    public void countsEachSuspensionOnce() throws Exception
+    {
+        statistics.suspended();
+        statistics.suspended();
+        Thread.sleep(20);
+        assertThat(statistics.isSuspended(), is(true));
+        assertThat(statistics.getSuspendedTime(), greaterThanOrEqualTo(20L));
+
+        statistics.resumed();
+        statistics.resumed();
+        long suspendedTime = statistics.getSuspendedTime();
+        Thread.sleep(20);
+
+        assertThat(statistics.isSuspended(), is(false));
+        assertThat(statistics.getSuspendCount(), is(1L));
+        assertThat(statistics.getSuspendedTime(), is(suspendedTime));
+    }
+
+    @Test
+    public void clearKeepsCurrentSuspension() throws Exception
+    {
+        statistics.addReceived(5);
+        statistics.addDropped(2);
+        statistics.incDroppedResponses();
+        statistics.suspended();
+
+        statistics.clear();
+
+        assertThat(statistics.getReceivedCount(), is(0L));
+        assertThat(statistics.getDroppedCount(), is(0L));
+        assertThat(statistics.getDroppedResponseCount(), is(0L));
+        assertThat(statistics.getSuspendCount(), is(0L));
+        assertThat(statistics.isSuspended(), is(true));
+    }
+}
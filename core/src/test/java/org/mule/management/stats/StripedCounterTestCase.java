@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.management.stats;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+@SmallTest
+public class StripedCounterTestCase extends AbstractMuleTestCase
+{
+
+    @Test
+    public void addAndReset()
+    {
+        StripedCounter counter = new StripedCounter(4);
+        counter.increment();
+        counter.add(10);
+        counter.decrement();
+        assertThat(counter.sum(), is(10L));
+        counter.reset();
+        assertThat(counter.sum(), is(0L));
+    }
+
+    @Test
+    public void concurrentIncrements() throws Exception
+    {
+        final StripedCounter counter = new StripedCounter();
+        final int threads = 8;
+        final int incrementsPerThread = 100000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < threads; i++)
+            {
+                results.add(executor.submit(new Callable<Object>()
+                {
+                    @Override
+                    public Object call()
+                    {
+                        for (int j = 0; j < incrementsPerThread; j++)
+                        {
+                            counter.increment();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> result : results)
+            {
+                result.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertThat(counter.sum(), is((long) threads * incrementsPerThread));
+    }
+}
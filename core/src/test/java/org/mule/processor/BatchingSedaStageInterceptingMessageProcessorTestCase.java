@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.processor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.mule.MessageExchangePattern;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.config.ThreadingProfile;
+import org.mule.api.exception.MessagingExceptionHandler;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.config.ChainedThreadingProfile;
+import org.mule.construct.Flow;
+import org.mule.processor.strategy.AsynchronousProcessingStrategy;
+import org.mule.processor.strategy.BatchingQueuedAsynchronousProcessingStrategy;
+import org.mule.tck.probe.PollingProber;
+import org.mule.tck.probe.Probe;
+import org.mule.util.concurrent.Latch;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class BatchingSedaStageInterceptingMessageProcessorTestCase extends
+    SedaStageInterceptingMessageProcessorTestCase
+{
+
+    @Test
+    public void processesQueuedEventsInBatches() throws Exception
+    {
+        final Latch firstEventReceived = new Latch();
+        final Latch release = new Latch();
+        final AtomicInteger processed = new AtomicInteger();
+        BatchingSedaStageInterceptingMessageProcessor stage = createStage("processesQueuedEventsInBatches", 10, null,
+            new MessageProcessor()
+            {
+                @Override
+                public MuleEvent process(MuleEvent event) throws MuleException
+                {
+                    firstEventReceived.countDown();
+                    awaitQuietly(release);
+                    processed.incrementAndGet();
+                    return event;
+                }
+            });
+
+        try
+        {
+            MuleEvent event = createOneWayEvent();
+            stage.process(event);
+            assertTrue(firstEventReceived.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+            for (int i = 0; i < 5; i++)
+            {
+                stage.process(event);
+            }
+            release.countDown();
+
+            new PollingProber(RECEIVE_TIMEOUT, 50).check(new Probe()
+            {
+                @Override
+                public boolean isSatisfied()
+                {
+                    return processed.get() == 6;
+                }
+
+                @Override
+                public String describeFailure()
+                {
+                    return "Not all the events were processed";
+                }
+            });
+        }
+        finally
+        {
+            stage.stop();
+        }
+
+        TestQueueStatistics statistics = (TestQueueStatistics) queueStatistics;
+        assertThat(statistics.batchEventCount, is(6));
+        assertThat(statistics.batchCount, is(2));
+        assertThat(statistics.decCount, is(6));
+    }
+
+    @Test
+    public void idleStagesTakeEventsFromOtherStagesOfTheGroup() throws Exception
+    {
+        List<BatchingSedaStageInterceptingMessageProcessor> stageGroup = new CopyOnWriteArrayList<BatchingSedaStageInterceptingMessageProcessor>();
+        final CountDownLatch concurrentEvents = new CountDownLatch(2);
+        final Latch release = new Latch();
+        BatchingSedaStageInterceptingMessageProcessor busyStage = createStage("busyStage", 1, stageGroup,
+            new MessageProcessor()
+            {
+                @Override
+                public MuleEvent process(MuleEvent event) throws MuleException
+                {
+                    concurrentEvents.countDown();
+                    awaitQuietly(release);
+                    return event;
+                }
+            });
+        BatchingSedaStageInterceptingMessageProcessor idleStage = createStage("idleStage", 1, stageGroup,
+            mock(MessageProcessor.class));
+
+        try
+        {
+            assertThat(stageGroup.size(), is(2));
+            MuleEvent event = createOneWayEvent();
+            busyStage.process(event);
+            busyStage.process(event);
+
+            // the busy stage has a single thread, so the second event can only be processed
+            // concurrently by the thread of the idle stage
+            assertTrue(concurrentEvents.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+        finally
+        {
+            release.countDown();
+            busyStage.stop();
+            idleStage.stop();
+        }
+        assertThat(stageGroup.size(), is(0));
+    }
+
+    private BatchingSedaStageInterceptingMessageProcessor createStage(String name,
+                                                                       int maxBatchSize,
+                                                                       List<BatchingSedaStageInterceptingMessageProcessor> stageGroup,
+                                                                       MessageProcessor listener) throws Exception
+    {
+        ThreadingProfile threadingProfile = new ChainedThreadingProfile(muleContext.getDefaultThreadingProfile());
+        threadingProfile.setMaxThreadsActive(1);
+        threadingProfile.setMuleContext(muleContext);
+
+        BatchingSedaStageInterceptingMessageProcessor stage = new BatchingSedaStageInterceptingMessageProcessor(
+            name, name, queueProfile, queueTimeout, threadingProfile, queueStatistics, muleContext, maxBatchSize,
+            stageGroup);
+        stage.setListener(listener);
+        stage.initialise();
+        stage.start();
+        return stage;
+    }
+
+    private MuleEvent createOneWayEvent() throws Exception
+    {
+        Flow flow = mock(Flow.class);
+        when(flow.getExceptionListener()).thenReturn(mock(MessagingExceptionHandler.class));
+        when(flow.getProcessingStrategy()).thenReturn(new AsynchronousProcessingStrategy());
+        return getTestEvent(TEST_MESSAGE, flow, MessageExchangePattern.ONE_WAY);
+    }
+
+    private static void awaitQuietly(Latch latch)
+    {
+        try
+        {
+            latch.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected AsyncInterceptingMessageProcessor createAsyncInterceptingMessageProcessor(MessageProcessor listener)
+        throws Exception
+    {
+        BatchingSedaStageInterceptingMessageProcessor mp = new BatchingSedaStageInterceptingMessageProcessor(
+            "name", "name", queueProfile, queueTimeout, muleContext.getDefaultThreadingProfile(),
+            queueStatistics, muleContext, BatchingQueuedAsynchronousProcessingStrategy.DEFAULT_MAX_BATCH_SIZE, null);
+        mp.setMuleContext(muleContext);
+        mp.setListener(listener);
+        return mp;
+    }
+}
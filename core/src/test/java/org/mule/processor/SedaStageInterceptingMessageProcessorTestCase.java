@@ -313,6 +313,8 @@ public class SedaStageInterceptingMessageProcessorTestCase extends AsyncIntercep
     {
         int incCount;
         int decCount;
+        int batchCount;
+        int batchEventCount;
 
         @Override
         public void decQueuedEvent()
@@ -326,6 +328,13 @@ public class SedaStageInterceptingMessageProcessorTestCase extends AsyncIntercep
             incCount++;
         }
 
+        @Override
+        public void addDequeuedBatch(int batchSize, long queueWaitTime)
+        {
+            batchCount++;
+            batchEventCount += batchSize;
+        }
+
         @Override
         public boolean isEnabled()
         {
@@ -6,17 +6,26 @@
  */
 package org.mule.routing;
 
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.longThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mule.routing.UntilSuccessful.DEFAULT_PROCESS_ATTEMPT_COUNT_PROPERTY_VALUE;
+import static org.mule.routing.UntilSuccessful.NEXT_PROCESS_ATTEMPT_TIME_PROPERTY_NAME;
 import static org.mule.routing.UntilSuccessful.PROCESS_ATTEMPT_COUNT_PROPERTY_NAME;
 import org.mule.api.MuleEvent;
 import org.mule.api.MuleException;
@@ -25,6 +34,8 @@ import org.mule.api.lifecycle.InitialisationException;
 import org.mule.api.processor.MessageProcessor;
 import org.mule.routing.filters.ExpressionFilter;
 import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.probe.PollingProber;
+import org.mule.tck.probe.Probe;
 import org.mule.tck.size.SmallTest;
 import org.mule.util.concurrent.Latch;
 import org.mule.util.store.SimpleMemoryObjectStore;
@@ -33,6 +44,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -128,6 +140,142 @@ public class AsynchronousUntilSuccessfulProcessingStrategyTestCase extends Abstr
         verify(mockEvent.getMessage(), times(1)).setPayload(expressionEvalutaionResult);
     }
 
+    @Test
+    public void processesPendingEventsWithoutExceedingMaxThreadsActive() throws Exception
+    {
+        final int pendingEvents = 10;
+        final int maxThreadsActive = 2;
+        final AtomicInteger attemptsInProgress = new AtomicInteger();
+        final AtomicInteger maxAttemptsInProgress = new AtomicInteger();
+        for (int i = 0; i < pendingEvents; i++)
+        {
+            objectStore.store("pending" + i, mockEvent);
+        }
+        when(mockUntilSuccessfulConfiguration.getThreadingProfile().getMaxThreadsActive()).thenReturn(maxThreadsActive);
+        routeCountDownLatch = new CountDownLatch(pendingEvents);
+        when(mockRoute.process(any(MuleEvent.class))).thenAnswer(new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocationOnMock) throws Throwable
+            {
+                int inProgress = attemptsInProgress.incrementAndGet();
+                synchronized (maxAttemptsInProgress)
+                {
+                    maxAttemptsInProgress.set(Math.max(maxAttemptsInProgress.get(), inProgress));
+                }
+                Thread.sleep(10);
+                attemptsInProgress.decrementAndGet();
+                routeCountDownLatch.countDown();
+                return invocationOnMock.getArguments()[0];
+            }
+        });
+
+        // stubbing the route ran the previous answer, which counted down the latch
+        routeCountDownLatch = new CountDownLatch(pendingEvents);
+        final AsynchronousUntilSuccessfulProcessingStrategy processingStrategy = createProcessingStrategy();
+
+        waitUntilRouteIsExecuted();
+        assertThat(maxAttemptsInProgress.get() <= maxThreadsActive, is(true));
+        new PollingProber(2000, 50).check(new Probe()
+        {
+            @Override
+            public boolean isSatisfied()
+            {
+                return processingStrategy.getRetryBacklog() == 0;
+            }
+
+            @Override
+            public String describeFailure()
+            {
+                return "Retry backlog should be empty";
+            }
+        });
+        assertThat(processingStrategy.getAttemptCount(), is((long) pendingEvents));
+        assertThat(objectStore.allKeys().isEmpty(), is(true));
+    }
+
+    @Test
+    public void restartDoesNotAttemptEventInProgressAgain() throws Exception
+    {
+        final Latch firstAttemptBlocked = new Latch();
+        final Latch releaseFirstAttempt = new Latch();
+        final AtomicInteger attemptsInProgress = new AtomicInteger();
+        final AtomicInteger maxAttemptsInProgress = new AtomicInteger();
+        final AtomicInteger attempts = new AtomicInteger();
+        routeCountDownLatch = new CountDownLatch(2);
+        objectStore.store("pending", mockEvent);
+        when(mockUntilSuccessfulConfiguration.getThreadingProfile().getMaxThreadsActive()).thenReturn(2);
+        doAnswer(new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocationOnMock) throws Throwable
+            {
+                int inProgress = attemptsInProgress.incrementAndGet();
+                synchronized (maxAttemptsInProgress)
+                {
+                    maxAttemptsInProgress.set(Math.max(maxAttemptsInProgress.get(), inProgress));
+                }
+                try
+                {
+                    if (attempts.incrementAndGet() == 1)
+                    {
+                        firstAttemptBlocked.release();
+                        releaseFirstAttempt.await();
+                        throw new RuntimeException("expected failure");
+                    }
+                    return invocationOnMock.getArguments()[0];
+                }
+                finally
+                {
+                    attemptsInProgress.decrementAndGet();
+                    routeCountDownLatch.countDown();
+                }
+            }
+        }).when(mockRoute).process(any(MuleEvent.class));
+
+        AsynchronousUntilSuccessfulProcessingStrategy processingStrategy = createProcessingStrategy();
+        assertThat(firstAttemptBlocked.await(2000, TimeUnit.MILLISECONDS), is(true));
+        processingStrategy.stop();
+        processingStrategy.start();
+        Thread.sleep(100);
+        releaseFirstAttempt.release();
+
+        waitUntilRouteIsExecuted();
+        assertThat(maxAttemptsInProgress.get(), is(1));
+        Thread.sleep(100);
+        assertThat(attempts.get(), is(2));
+    }
+
+    @Test
+    public void storesNextAttemptTimeWithFailedEvent() throws Exception
+    {
+        long before = System.currentTimeMillis();
+        executeUntilSuccessfulFailingRoute();
+        waitUntilRouteIsExecuted();
+        verify(mockEvent.getMessage(), atLeastOnce()).setInvocationProperty(eq(NEXT_PROCESS_ATTEMPT_TIME_PROPERTY_NAME),
+                                                                           (Object) longThat(greaterThanOrEqualTo(before)));
+    }
+
+    @Test
+    public void keepsStoredNextAttemptTimeOnStart() throws Exception
+    {
+        long nextAttemptTime = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+        when(mockEvent.getMessage().<Object>getInvocationProperty(NEXT_PROCESS_ATTEMPT_TIME_PROPERTY_NAME)).thenReturn(nextAttemptTime);
+        objectStore.store("pending", mockEvent);
+        doReturn(null).when(mockScheduledPool).schedule(any(Callable.class), anyLong(), any(TimeUnit.class));
+
+        AsynchronousUntilSuccessfulProcessingStrategy processingStrategy = createProcessingStrategy();
+
+        // only the wake up for the stored attempt time is scheduled
+        verify(mockScheduledPool).schedule(any(Callable.class), longThat(greaterThan(TimeUnit.MINUTES.toMillis(59))),
+                                           eq(TimeUnit.MILLISECONDS));
+        verify(mockRoute, never()).process(any(MuleEvent.class));
+        assertThat(processingStrategy.getRetryBacklog(), is(1));
+        assertThat(processingStrategy.getStatistics().getRetryBacklog(), is(1));
+        verify(mockUntilSuccessfulConfiguration.getFlowConstruct().getStatistics()).addRouterStatistics("until-successful",
+                                                                                                        processingStrategy.getStatistics());
+    }
+
     private void executeUntilSuccessfulFailingRoute() throws Exception
     {
         failRoute = true;
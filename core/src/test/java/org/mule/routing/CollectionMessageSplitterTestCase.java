@@ -26,6 +26,8 @@ import org.mule.api.config.MuleProperties;
 import org.mule.api.processor.MessageProcessor;
 import org.mule.api.service.Service;
 import org.mule.routing.outbound.IteratorMessageSequence;
+import org.mule.streaming.Producer;
+import org.mule.streaming.SimpleConsumer;
 import org.mule.tck.junit4.AbstractMuleContextTestCase;
 
 import java.util.ArrayList;
@@ -33,6 +35,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -143,6 +146,42 @@ public class CollectionMessageSplitterTestCase extends AbstractMuleContextTestCa
         assertRouted(new IteratorMessageSequence<String>(TEST_LIST_SINGLE.iterator()), 1, false);
     }
 
+    @Test
+    public void testRouterConsumer() throws Exception
+    {
+        assertRouted(new SimpleConsumer<String>(new IteratorProducer(TEST_LIST_MULTIPLE.iterator())), 3, false);
+    }
+
+    @Test
+    public void testRouterProducer() throws Exception
+    {
+        assertRouted(new IteratorProducer(TEST_LIST_MULTIPLE.iterator()), 3, false);
+    }
+
+    @Test
+    public void testKeepsLastResultWhenNotCollectingResults() throws Exception
+    {
+        Service fc = getTestService();
+        MuleSession session = getTestSession(fc, muleContext);
+        MuleMessage toSplit = new DefaultMuleMessage(TEST_LIST_MULTIPLE, muleContext);
+        CollectionSplitter splitter = new CollectionSplitter();
+        splitter.setMuleContext(muleContext);
+        splitter.setCollectResults(false);
+        splitter.setListener(new MessageProcessor()
+        {
+            @Override
+            public MuleEvent process(MuleEvent event) throws MuleException
+            {
+                return event;
+            }
+        });
+        DefaultMuleEvent event = new DefaultMuleEvent(toSplit, getTestInboundEndpoint("ep"), fc, session);
+
+        MuleEvent result = splitter.process(event);
+
+        assertEquals("ghi", result.getMessage().getPayload());
+    }
+
     private void assertRouted(Object payload, int count, boolean counted) throws Exception, MuleException
     {
         Service fc = getTestService();
@@ -220,6 +259,33 @@ public class CollectionMessageSplitterTestCase extends AbstractMuleContextTestCa
         }
     }
 
+    private static class IteratorProducer implements Producer<String>
+    {
+        private final Iterator<String> iterator;
+
+        public IteratorProducer(Iterator<String> iterator)
+        {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public String produce()
+        {
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+
+        @Override
+        public int size()
+        {
+            return -1;
+        }
+
+        @Override
+        public void close() throws MuleException
+        {
+        }
+    }
+
     private static class Grabber implements MessageProcessor
     {
         private List<MuleMessage> messages = new ArrayList<MuleMessage>();
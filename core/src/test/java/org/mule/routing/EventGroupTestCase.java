@@ -9,15 +9,20 @@ package org.mule.routing;
 import org.mule.DefaultMuleEvent;
 import org.mule.DefaultMuleMessage;
 import org.mule.api.MuleEvent;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.store.ListableObjectStore;
+import org.mule.api.store.ObjectStoreManager;
 import org.mule.tck.junit4.AbstractMuleContextTestCase;
 import org.mule.util.UUID;
 
+import java.io.Serializable;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
 import org.apache.commons.collections.IteratorUtils;
+import org.apache.commons.lang.SerializationUtils;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -215,6 +220,73 @@ public class EventGroupTestCase extends AbstractMuleContextTestCase
         assertEquals("value3", result.getSession().getProperty("key3"));
         assertEquals("value4", result.getSession().getProperty("key4"));
     }
+
+    @Test
+    public void keepsArrivalOrder() throws Exception
+    {
+        EventGroup eg = new EventGroup(UUID.getUUID(), muleContext);
+        MuleEvent[] events = new MuleEvent[100];
+        for (int i = 0; i < events.length; i++)
+        {
+            events[i] = getTestEvent("foo" + i);
+            eg.addEvent(events[i]);
+            assertEquals(i + 1, eg.size());
+        }
+
+        assertTrue(Arrays.equals(events, eg.toArray(false)));
+        assertTrue(Arrays.equals(events, IteratorUtils.toArray(eg.iterator(false))));
+        assertEquals("foo0", eg.toMessageCollection().getMessage(0).getPayload());
+
+        eg.clear();
+        assertEquals(0, eg.size());
+        assertFalse(eg.iterator().hasNext());
+    }
+
+    @Test
+    public void rebuildsArrivalOrderAfterDeserialization() throws Exception
+    {
+        EventGroup eg = new EventGroup(UUID.getUUID(), muleContext, 3, true, "EventGroupTestCase");
+        eg.addEvent(getTestEvent("foo1"));
+        eg.addEvent(getTestEvent("foo2"));
+        eg.addEvent(getTestEvent("foo3"));
+
+        EventGroup deserialized = (EventGroup) SerializationUtils.deserialize(SerializationUtils.serialize(eg));
+        deserialized.initAfterDeserialisation(muleContext);
+
+        assertEquals(3, deserialized.size());
+        MuleEvent[] events = deserialized.toArray(false);
+        assertEquals("foo1", events[0].getMessage().getPayload());
+        assertEquals("foo2", events[1].getMessage().getPayload());
+        assertEquals("foo3", events[2].getMessage().getPayload());
+        eg.clear();
+    }
+
+    @Test
+    public void keepsArrivalOrderOfGroupRetrievedFromPersistentStore() throws Exception
+    {
+        ObjectStoreManager objectStoreManager = muleContext.getRegistry().lookupObject(MuleProperties.OBJECT_STORE_MANAGER);
+        ListableObjectStore<EventGroup> groups = objectStoreManager.getObjectStore("EventGroupTestCase.groups", true);
+        EventGroup eg = new EventGroup(UUID.getUUID(), muleContext, 4, true, "EventGroupTestCase");
+        // groups are stored when they are created, before any event is added
+        groups.store((Serializable) eg.getGroupId(), eg);
+        eg.addEvent(getTestEvent("foo1"));
+        eg.addEvent(getTestEvent("foo2"));
+        eg.addEvent(getTestEvent("foo3"));
+
+        EventGroup retrieved = groups.retrieve((Serializable) eg.getGroupId());
+        retrieved.initAfterDeserialisation(muleContext);
+        retrieved.addEvent(getTestEvent("foo4"));
+
+        assertEquals(4, retrieved.size());
+        MuleEvent[] events = retrieved.toArray();
+        for (int i = 0; i < events.length; i++)
+        {
+            assertEquals("foo" + (i + 1), events[i].getMessage().getPayload());
+        }
+        groups.remove((Serializable) eg.getGroupId());
+        retrieved.clear();
+    }
+
     private static class MyEventGroup extends EventGroup
     {
         private static final long serialVersionUID = 1L;
@@ -16,6 +16,8 @@ import org.mule.api.MuleMessage;
 import org.mule.api.MuleMessageCollection;
 import org.mule.api.processor.MessageProcessor;
 import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.streaming.Producer;
+import org.mule.streaming.SimpleConsumer;
 import org.mule.tck.testmodels.mule.TestMessageProcessor;
 
 import java.util.ArrayList;
@@ -203,6 +205,75 @@ public class ForeachTestCase extends AbstractMuleContextTestCase
         assertNestedProcessedMessages();
     }
 
+    @Test
+    public void testConsumerPayloadIsConsumedLazily() throws Exception
+    {
+        final int[] produced = new int[1];
+        Producer<String> producer = new Producer<String>()
+        {
+            @Override
+            public String produce()
+            {
+                return produced[0] < 100 ? "item" + produced[0]++ : null;
+            }
+
+            @Override
+            public int size()
+            {
+                return -1;
+            }
+
+            @Override
+            public void close() throws MuleException
+            {
+            }
+        };
+        List<MessageProcessor> mps = new ArrayList<MessageProcessor>();
+        mps.add(new MessageProcessor()
+        {
+            public MuleEvent process(MuleEvent event)
+            {
+                // the consumer looks one item ahead to know whether it is consumed
+                assertTrue(produced[0] <= processedEvents.size() + 2);
+                processedEvents.add(event);
+                return event;
+            }
+        });
+        Foreach foreach = createForeach(mps);
+
+        foreach.process(getTestEvent(new SimpleConsumer<String>(producer)));
+
+        assertEquals(ERR_NUMBER_MESSAGES, 100, processedEvents.size());
+        assertEquals(ERR_OUTPUT, "item99", processedEvents.get(99).getMessage().getPayload());
+    }
+
+    @Test
+    public void testBatchedIteratorPayload() throws Exception
+    {
+        List<MessageProcessor> mps = new ArrayList<MessageProcessor>();
+        mps.add(new MessageProcessor()
+        {
+            public MuleEvent process(MuleEvent event)
+            {
+                processedEvents.add(event);
+                return event;
+            }
+        });
+        Foreach foreach = new Foreach();
+        foreach.setMessageProcessors(mps);
+        foreach.setBatchSize(2);
+        foreach.setMuleContext(muleContext);
+        foreach.initialise();
+
+        Iterable<String> iterable = new DummySimpleIterableClass();
+        ((DummySimpleIterableClass) iterable).strings.add("zas");
+        foreach.process(getTestEvent(iterable.iterator()));
+
+        assertEquals(ERR_NUMBER_MESSAGES, 2, processedEvents.size());
+        assertEquals(ERR_OUTPUT, 2, ((List<?>) processedEvents.get(0).getMessage().getPayload()).size());
+        assertEquals(ERR_OUTPUT, 1, ((List<?>) processedEvents.get(1).getMessage().getPayload()).size());
+    }
+
     @Test
     public void testNestedIteratorPayload() throws Exception
     {
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.routing;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.MuleMessageCollection;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.api.routing.ResponseTimeoutException;
+import org.mule.construct.Flow;
+import org.mule.management.stats.RouterStatistics;
+import org.mule.processor.chain.DefaultMessageProcessorChainBuilder;
+import org.mule.tck.MuleTestUtils;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.tck.size.SmallTest;
+import org.mule.util.concurrent.Latch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+@SmallTest
+public class ScatterGatherRouterTestCase extends AbstractMuleContextTestCase
+{
+
+    private ScatterGatherRouter router = new ScatterGatherRouter();
+
+    @After
+    public void disposeRouter()
+    {
+        router.dispose();
+    }
+
+    @Test
+    public void completesOnceMinSuccessfulRoutesSucceed() throws Exception
+    {
+        Latch releaseBlockedRoute = new Latch();
+        final BlockingRoute blockedRoute = new BlockingRoute(releaseBlockedRoute);
+        router.addRoute(new EchoMessageProcessor());
+        router.addRoute(blockedRoute);
+        router.addRoute(new MessageProcessor()
+        {
+            @Override
+            public MuleEvent process(MuleEvent event) throws MuleException
+            {
+                // so the blocked route is executing when the router completes
+                try
+                {
+                    blockedRoute.started.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return event;
+            }
+        });
+        router.setMinSuccessfulRoutes(2);
+        startRouter();
+
+        MuleEvent result = router.process(getTestEvent(TEST_MESSAGE));
+
+        assertThat(((MuleMessageCollection) result.getMessage()).size(), is(2));
+        releaseBlockedRoute.countDown();
+        assertTrue(blockedRoute.completed.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertFalse(blockedRoute.interrupted);
+    }
+
+    @Test
+    public void cancelledRouteStopsBeforeNextProcessor() throws Exception
+    {
+        Latch releaseBlockedRoute = new Latch();
+        final BlockingRoute blockedRoute = new BlockingRoute(releaseBlockedRoute);
+        final AtomicInteger nextProcessorExecutions = new AtomicInteger();
+        router.addRoute(new EchoMessageProcessor());
+        router.addRoute(new DefaultMessageProcessorChainBuilder().chain(blockedRoute, new MessageProcessor()
+        {
+            @Override
+            public MuleEvent process(MuleEvent event) throws MuleException
+            {
+                nextProcessorExecutions.incrementAndGet();
+                return event;
+            }
+        }).build());
+        router.addRoute(new MessageProcessor()
+        {
+            @Override
+            public MuleEvent process(MuleEvent event) throws MuleException
+            {
+                // so the blocked route is executing when the router completes
+                try
+                {
+                    blockedRoute.started.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return event;
+            }
+        });
+        router.setMinSuccessfulRoutes(2);
+        startRouter();
+
+        router.process(getTestEvent(TEST_MESSAGE));
+
+        releaseBlockedRoute.countDown();
+        assertTrue(blockedRoute.completed.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+        Thread.sleep(100);
+        assertThat(nextProcessorExecutions.get(), is(0));
+        assertFalse(blockedRoute.interrupted);
+    }
+
+    @Test
+    public void timedOutRouteIsNotInterrupted() throws Exception
+    {
+        Latch releaseBlockedRoute = new Latch();
+        BlockingRoute blockedRoute = new BlockingRoute(releaseBlockedRoute);
+        router.addRoute(new EchoMessageProcessor());
+        router.addRoute(blockedRoute);
+        router.setTimeout(500);
+        startRouter();
+
+        try
+        {
+            router.process(getTestEvent(TEST_MESSAGE));
+            fail("Expected the timed out route to fail the router");
+        }
+        catch (CompositeRoutingException e)
+        {
+            assertThat(e.getExceptionForRouteIndex(1), instanceOf(ResponseTimeoutException.class));
+        }
+
+        releaseBlockedRoute.countDown();
+        assertTrue(blockedRoute.completed.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertFalse(blockedRoute.interrupted);
+    }
+
+    @Test
+    public void limitsConcurrentRoutes() throws Exception
+    {
+        final AtomicInteger executingRoutes = new AtomicInteger();
+        final AtomicInteger maxExecutingRoutes = new AtomicInteger();
+        for (int i = 0; i < 4; i++)
+        {
+            router.addRoute(new MessageProcessor()
+            {
+                @Override
+                public MuleEvent process(MuleEvent event) throws MuleException
+                {
+                    int executing = executingRoutes.incrementAndGet();
+                    maxExecutingRoutes.set(Math.max(maxExecutingRoutes.get(), executing));
+                    try
+                    {
+                        Thread.sleep(20);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    executingRoutes.decrementAndGet();
+                    return event;
+                }
+            });
+        }
+        router.setMaxConcurrentRoutes(1);
+        startRouter();
+
+        MuleEvent result = router.process(getTestEvent(TEST_MESSAGE));
+
+        assertThat(((MuleMessageCollection) result.getMessage()).size(), is(4));
+        assertThat(maxExecutingRoutes.get(), is(1));
+    }
+
+    @Test
+    public void recordsRouteProcessingTime() throws Exception
+    {
+        MessageProcessor slowRoute = new EchoMessageProcessor()
+        {
+            @Override
+            public MuleEvent process(MuleEvent event) throws MuleException
+            {
+                try
+                {
+                    Thread.sleep(50);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return event;
+            }
+        };
+        MessageProcessor fastRoute = new EchoMessageProcessor();
+        router.addRoute(slowRoute);
+        router.addRoute(fastRoute);
+        Flow flow = MuleTestUtils.getTestFlow(muleContext);
+        flow.getStatistics().setEnabled(true);
+        router.setFlowConstruct(flow);
+        startRouter();
+
+        router.process(getTestEvent(TEST_MESSAGE));
+
+        RouterStatistics statistics = flow.getStatistics().getRouterStatistics().get("scatter-gather");
+        assertThat(statistics, sameInstance(router.getRouterStatistics()));
+        assertThat(statistics.getRouted(slowRoute.toString()), is(1L));
+        assertTrue(statistics.getMaxRouteProcessingTime(slowRoute.toString()) >= 50);
+        assertTrue(statistics.getMaxRouteProcessingTime(fastRoute.toString()) < 50);
+
+        router.dispose();
+        assertTrue(flow.getStatistics().getRouterStatistics().isEmpty());
+    }
+
+    private void startRouter() throws MuleException
+    {
+        router.setMuleContext(muleContext);
+        router.initialise();
+        router.start();
+    }
+
+    private static class BlockingRoute implements MessageProcessor
+    {
+
+        private final Latch release;
+        private final Latch started = new Latch();
+        private final Latch completed = new Latch();
+        private volatile boolean interrupted;
+
+        BlockingRoute(Latch release)
+        {
+            this.release = release;
+        }
+
+        @Override
+        public MuleEvent process(MuleEvent event) throws MuleException
+        {
+            started.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+            completed.countDown();
+            return event;
+        }
+    }
+
+    private static class EchoMessageProcessor implements MessageProcessor
+    {
+
+        @Override
+        public MuleEvent process(MuleEvent event) throws MuleException
+        {
+            return event;
+        }
+    }
+}
@@ -183,6 +183,92 @@ public class EventCorrelatorTestCase extends AbstractMuleTestCase
         }
     }
 
+    @Test
+    public void processesExpiredGroupStoredByOtherNode() throws Exception
+    {
+        when(mockMuleContext.isPrimaryPollingInstance()).thenReturn(true);
+        EventCorrelator eventCorrelator = createEventCorrelator();
+        eventCorrelator.setExpiryIndexesReconcileInterval(100);
+        memoryObjectStore.remove(TEST_GROUP_ID);
+
+        eventCorrelator.start();
+        try
+        {
+            // let the expiry indexes be built before the group is stored without the correlator
+            Thread.sleep(200);
+            memoryObjectStore.store(TEST_GROUP_ID, mockEventGroup);
+
+            new PollingProber(1000, 50).check(new Probe()
+            {
+                public boolean isSatisfied()
+                {
+                    try
+                    {
+                        return !memoryObjectStore.contains(TEST_GROUP_ID);
+                    }
+                    catch (ObjectStoreException e)
+                    {
+                        logger.debug("Could not access object store.");
+                        return false;
+                    }
+                }
+
+                public String describeFailure()
+                {
+                    return "Event group not expired.";
+                }
+            });
+        }
+        finally
+        {
+            eventCorrelator.stop();
+            eventCorrelator.dispose();
+        }
+    }
+
+    @Test
+    public void processesGroupStoredByOtherNodeWhenBecomingPrimary() throws Exception
+    {
+        when(mockMuleContext.isPrimaryPollingInstance()).thenReturn(false);
+        EventCorrelator eventCorrelator = createEventCorrelator();
+        memoryObjectStore.remove(TEST_GROUP_ID);
+
+        eventCorrelator.start();
+        try
+        {
+            // the group is stored by the primary node, which then goes down
+            memoryObjectStore.store(TEST_GROUP_ID, mockEventGroup);
+            Thread.sleep(200);
+            when(mockMuleContext.isPrimaryPollingInstance()).thenReturn(true);
+
+            new PollingProber(1000, 50).check(new Probe()
+            {
+                public boolean isSatisfied()
+                {
+                    try
+                    {
+                        return !memoryObjectStore.contains(TEST_GROUP_ID);
+                    }
+                    catch (ObjectStoreException e)
+                    {
+                        logger.debug("Could not access object store.");
+                        return false;
+                    }
+                }
+
+                public String describeFailure()
+                {
+                    return "Event group not expired.";
+                }
+            });
+        }
+        finally
+        {
+            eventCorrelator.stop();
+            eventCorrelator.dispose();
+        }
+    }
+
     @Test
     public void avoidCreateMessageEventToGetExceptionListener() throws Exception
     {
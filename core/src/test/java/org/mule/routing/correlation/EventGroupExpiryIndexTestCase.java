@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.routing.correlation;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+@SmallTest
+public class EventGroupExpiryIndexTestCase extends AbstractMuleTestCase
+{
+
+    private final EventGroupExpiryIndex index = new EventGroupExpiryIndex();
+
+    @Test
+    public void returnsGroupsCreatedBeforeTimeOldestFirst() throws Exception
+    {
+        index.add("c", 30);
+        index.add("a", 10);
+        index.add("d", 40);
+        index.add("b", 20);
+
+        assertThat(getGroupIds(index.getCreatedBefore(30)), is(Arrays.<Serializable>asList("a", "b")));
+        assertThat(getGroupIds(index.getCreatedBefore(0)).size(), is(0));
+    }
+
+    @Test
+    public void keepsGroupsCreatedAtTheSameTime() throws Exception
+    {
+        index.add("a", 10);
+        index.add("b", 10);
+
+        assertThat(getGroupIds(index.getCreatedBefore(11)), is(Arrays.<Serializable>asList("a", "b")));
+    }
+
+    @Test
+    public void removesGroups() throws Exception
+    {
+        index.add("a", 10);
+        index.add("b", 20);
+        index.remove("a");
+        index.remove("unknown");
+
+        assertThat(getGroupIds(index.getCreatedBefore(30)), is(Arrays.<Serializable>asList("b")));
+        assertThat(index.size(), is(1));
+
+        index.remove(index.getCreatedBefore(30).get(0));
+        assertThat(index.size(), is(0));
+        assertThat(index.getCreatedBefore(30).size(), is(0));
+    }
+
+    @Test
+    public void updatesCreationTimeOfExistingGroup() throws Exception
+    {
+        index.add("a", 10);
+        index.add("a", 20);
+
+        assertThat(index.getCreatedBefore(20).size(), is(0));
+        assertThat(getGroupIds(index.getCreatedBefore(21)), is(Arrays.<Serializable>asList("a")));
+        assertThat(index.size(), is(1));
+    }
+
+    @Test
+    public void retainsOnlyGivenGroups() throws Exception
+    {
+        index.add("a", 10);
+        index.add("b", 20);
+        index.add("c", 30);
+        index.retainAll(new HashSet<Serializable>(Arrays.<Serializable>asList("b", "unknown")));
+
+        assertThat(getGroupIds(index.getCreatedBefore(40)), is(Arrays.<Serializable>asList("b")));
+        assertThat(index.contains("b"), is(true));
+        assertThat(index.contains("a"), is(false));
+    }
+
+    private List<Serializable> getGroupIds(List<EventGroupExpiryIndex.Entry> entries)
+    {
+        List<Serializable> groupIds = new ArrayList<Serializable>();
+        for (EventGroupExpiryIndex.Entry entry : entries)
+        {
+            groupIds.add(entry.getGroupId());
+        }
+        return groupIds;
+    }
+}
@@ -9,6 +9,7 @@ package org.mule.routing.outbound;
 import org.mule.tck.size.SmallTest;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 
 import org.junit.Test;
@@ -53,6 +54,19 @@ public class PartitionedMessageSequenceTestCase
 
         assertFalse(pms.hasNext());
     }
+
+    @Test
+    public void wrapSequenceOfUnknownSize()
+    {
+        IteratorMessageSequence<String> ims = new IteratorMessageSequence<String>(
+            Arrays.asList("one", "two", "three").iterator());
+        PartitionedMessageSequence<String> pms = new PartitionedMessageSequence<String>(ims, 2);
+        assertEquals(IteratorMessageSequence.UNKNOWN_SIZE, pms.size());
+
+        assertEquals(2, pms.next().size());
+        assertEquals(1, pms.next().size());
+        assertFalse(pms.hasNext());
+    }
 }
 
 
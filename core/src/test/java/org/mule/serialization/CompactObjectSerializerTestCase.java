@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.serialization;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.api.MuleEvent;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.SerializationException;
+import org.apache.commons.lang.SerializationUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompactObjectSerializerTestCase extends AbstractMuleContextTestCase
+{
+
+    private CompactObjectSerializer serializer;
+
+    @Before
+    public void setUpSerializer()
+    {
+        serializer = new CompactObjectSerializer();
+        serializer.setMuleContext(muleContext);
+    }
+
+    @Test
+    public void serializesSimpleValues() throws Exception
+    {
+        assertThat(serializer.deserialize(serializer.serialize(null)), nullValue());
+        assertThat(serializer.<String>deserialize(serializer.serialize("héllo")), is("héllo"));
+        assertThat(serializer.<Integer>deserialize(serializer.serialize(42)), is(42));
+        assertThat(serializer.<Long>deserialize(serializer.serialize(42L)), is(42L));
+        assertThat(serializer.<Boolean>deserialize(serializer.serialize(true)), is(true));
+        assertThat(serializer.<Double>deserialize(serializer.serialize(4.2)), is(4.2));
+        assertTrue(Arrays.equals(new byte[] {1, 2, 3}, serializer.<byte[]>deserialize(serializer.serialize(new byte[] {1, 2, 3}))));
+    }
+
+    @Test
+    public void serializesObjectGraphs() throws Exception
+    {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("list", new ArrayList<Object>(Arrays.asList("a", 1, new int[] {1, 2})));
+        map.put("value", new TestValue("value", 3));
+
+        Map<String, Object> result = serializer.deserialize(serializer.serialize(map));
+
+        assertThat(result.get("value"), is((Object) new TestValue("value", 3)));
+        List<?> list = (List<?>) result.get("list");
+        assertThat(list.get(0), is((Object) "a"));
+        assertThat(list.get(1), is((Object) 1));
+        assertTrue(Arrays.equals(new int[] {1, 2}, (int[]) list.get(2)));
+    }
+
+    @Test
+    public void serializesEvents() throws Exception
+    {
+        MuleEvent event = getTestEvent("payload");
+        event.getMessage().setOutboundProperty("outbound", "value");
+        event.setFlowVariable("variable", 3);
+
+        MuleEvent result = serializer.deserialize(serializer.serialize(event));
+
+        assertThat(result.getId(), is(event.getId()));
+        assertThat(result.getMessage().getPayload(), is((Object) "payload"));
+        assertThat(result.getMessage().<String>getOutboundProperty("outbound"), is("value"));
+        assertThat(result.<Integer>getFlowVariable("variable"), is(3));
+        assertThat(result.getMuleContext(), is(muleContext));
+    }
+
+    @Test
+    public void writesLessThanJavaSerialization() throws Exception
+    {
+        MuleEvent event = getTestEvent("payload");
+
+        assertTrue(serializer.serialize(event).length < SerializationUtils.serialize(event).length);
+    }
+
+    @Test
+    public void readsJavaSerialization() throws Exception
+    {
+        TestValue value = new TestValue("value", 3);
+
+        assertThat(serializer.<TestValue>deserialize(SerializationUtils.serialize(value)), is(value));
+    }
+
+    @Test
+    public void usesRegisteredClasses() throws Exception
+    {
+        TestValue value = new TestValue("value", 3);
+        int unregisteredLength = serializer.serialize(value).length;
+
+        serializer.setRegisteredClasses(Arrays.<Class<?>>asList(TestValue.class));
+
+        byte[] bytes = serializer.serialize(value);
+        assertTrue(bytes.length < unregisteredLength);
+        assertThat(serializer.<TestValue>deserialize(bytes), is(value));
+    }
+
+    @Test(expected = SerializationException.class)
+    public void failsOnUnknownFormat() throws Exception
+    {
+        serializer.deserialize(new byte[] {1, 2, 3});
+    }
+
+    private static class TestValue implements Serializable
+    {
+
+        private final String name;
+        private final int count;
+
+        TestValue(String name, int count)
+        {
+            this.name = name;
+            this.count = count;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof TestValue && ((TestValue) obj).name.equals(name) && ((TestValue) obj).count == count;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * name.hashCode() + count;
+        }
+    }
+}
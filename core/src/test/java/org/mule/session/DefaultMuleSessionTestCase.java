@@ -67,6 +67,22 @@ public class DefaultMuleSessionTestCase
         assertNull(original.getProperty("new"));
     }
 
+    @Test
+    public void copyIsNotAffectedByChangesToTheOriginal() throws Exception
+    {
+        DefaultMuleSession original = new DefaultMuleSession();
+        original.setProperty("foo", "bar");
+
+        DefaultMuleSession copy = new DefaultMuleSession(original);
+        original.setProperty("FOO", "changed");
+        original.setProperty("new", "bar");
+        original.removeProperty("foo");
+
+        assertEquals("bar", copy.getProperty("Foo"));
+        assertNull(copy.getProperty("new"));
+        assertEquals(Collections.singleton("foo"), copy.getPropertyNamesAsSet());
+    }
+
     protected void assertCopy(DefaultMuleSession original, DefaultMuleSession copy)
     {
         assertSame(copy.getId(), original.getId());
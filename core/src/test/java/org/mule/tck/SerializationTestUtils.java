@@ -10,6 +10,9 @@ package org.mule.tck;
 import org.mule.api.MuleContext;
 import org.mule.api.store.ObjectStore;
 import org.mule.api.store.ObjectStoreException;
+import org.mule.serialization.JavaObjectSerializer;
+
+import static org.mockito.Mockito.when;
 
 public abstract class SerializationTestUtils
 {
@@ -41,6 +44,17 @@ public abstract class SerializationTestUtils
         }
     }
 
+    /**
+     * Makes the given mock {@link MuleContext} return a {@link JavaObjectSerializer}, as the
+     * default configuration does.
+     */
+    public static void addJavaSerializerToMockMuleContext(MuleContext muleContext)
+    {
+        JavaObjectSerializer serializer = new JavaObjectSerializer();
+        serializer.setMuleContext(muleContext);
+        when(muleContext.getObjectSerializer()).thenReturn(serializer);
+    }
+
     private static <T extends Exception> ObjectStore<T> getObjectStore(MuleContext muleContext)
     {
         return muleContext.getObjectStoreManager().getObjectStore("SerializationTestUtils", true);
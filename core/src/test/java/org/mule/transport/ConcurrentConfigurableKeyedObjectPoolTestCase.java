@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.tck.size.SmallTest;
+import org.mule.tck.testmodels.mule.TestConnector;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.pool.BaseKeyedPoolableObjectFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+@SmallTest
+public class ConcurrentConfigurableKeyedObjectPoolTestCase extends AbstractMuleContextTestCase
+{
+
+    private static final String KEY = "key";
+    private static final String OTHER_KEY = "otherKey";
+
+    private final TestObjectFactory objectFactory = new TestObjectFactory();
+    private ConcurrentConfigurableKeyedObjectPool pool;
+
+    @Before
+    public void setUpPool()
+    {
+        pool = new ConcurrentConfigurableKeyedObjectPool();
+        pool.setFactory(objectFactory);
+    }
+
+    @Test
+    public void reusesReturnedObjects() throws Exception
+    {
+        Object first = pool.borrowObject(KEY);
+        pool.returnObject(KEY, first);
+
+        assertThat(pool.getNumIdle(KEY), is(1));
+        assertThat(pool.borrowObject(KEY), sameInstance(first));
+        assertThat(pool.getNumActive(KEY), is(1));
+        assertThat(objectFactory.created.get(), is(1));
+    }
+
+    @Test
+    public void keysArePooledSeparately() throws Exception
+    {
+        Object first = pool.borrowObject(KEY);
+        pool.returnObject(KEY, first);
+
+        assertThat(pool.borrowObject(OTHER_KEY), not(sameInstance(first)));
+        assertThat(pool.getNumIdle(KEY), is(1));
+        assertThat(pool.getNumActive(), is(1));
+    }
+
+    @Test
+    public void failsWhenExhausted() throws Exception
+    {
+        pool.setMaxActive(1);
+        pool.setWhenExhaustedAction(ConfigurableKeyedObjectPool.WHEN_EXHAUSTED_FAIL);
+        pool.borrowObject(KEY);
+
+        try
+        {
+            pool.borrowObject(KEY);
+            fail("Pool should be exhausted");
+        }
+        catch (NoSuchElementException e)
+        {
+            // expected
+        }
+        pool.borrowObject(OTHER_KEY);
+    }
+
+    @Test
+    public void growsWhenExhausted() throws Exception
+    {
+        pool.setMaxActive(1);
+        pool.setWhenExhaustedAction(ConfigurableKeyedObjectPool.WHEN_EXHAUSTED_GROW);
+        pool.borrowObject(KEY);
+        pool.borrowObject(KEY);
+
+        assertThat(pool.getNumActive(KEY), is(2));
+    }
+
+    @Test
+    public void blockedBorrowTimesOut() throws Exception
+    {
+        pool.setMaxActive(1);
+        pool.setMaxWait(50);
+        pool.borrowObject(KEY);
+
+        try
+        {
+            pool.borrowObject(KEY);
+            fail("Borrow should have timed out");
+        }
+        catch (NoSuchElementException e)
+        {
+            // expected
+        }
+        assertThat(pool.getBorrowWaitCount(), is(1L));
+        assertThat(pool.getMaxBorrowWaitTime(), greaterThanOrEqualTo(40L));
+    }
+
+    @Test
+    public void blockedBorrowGetsReturnedObject() throws Exception
+    {
+        pool.setMaxActive(1);
+        final Object borrowed = pool.borrowObject(KEY);
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final AtomicReference<Exception> returnFailure = new AtomicReference<Exception>();
+
+        Thread returningThread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    waiting.await();
+                    Thread.sleep(50);
+                    pool.returnObject(KEY, borrowed);
+                }
+                catch (Exception e)
+                {
+                    returnFailure.set(e);
+                }
+            }
+        });
+        returningThread.start();
+
+        waiting.countDown();
+        assertThat(pool.borrowObject(KEY), sameInstance(borrowed));
+        returningThread.join(RECEIVE_TIMEOUT);
+        assertThat(returnFailure.get(), nullValue());
+        assertThat(pool.getBorrowWaitCount(), is(1L));
+        assertThat(pool.getBorrowCount(), is(2L));
+    }
+
+    @Test
+    public void countersStayConsistentWhenBorrowingConcurrently() throws Exception
+    {
+        final int threads = 8;
+        final int iterations = 500;
+        final String[] keys = {KEY, OTHER_KEY, "thirdKey"};
+        final int maxActive = 2;
+        final int maxTotal = 4;
+        pool.setMaxActive(maxActive);
+        pool.setMaxIdle(1);
+        pool.setMaxTotal(maxTotal);
+        pool.setMaxWait(RECEIVE_TIMEOUT);
+        final Map<String, AtomicInteger> borrowedByKey = new HashMap<String, AtomicInteger>();
+        for (String key : keys)
+        {
+            borrowedByKey.put(key, new AtomicInteger());
+        }
+        final AtomicInteger borrowed = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < threads; i++)
+            {
+                final int thread = i;
+                results.add(executor.submit(new Callable<Object>()
+                {
+                    @Override
+                    public Object call() throws Exception
+                    {
+                        for (int j = 0; j < iterations; j++)
+                        {
+                            String key = keys[(thread + j) % keys.length];
+                            Object obj = pool.borrowObject(key);
+                            try
+                            {
+                                assertThat(borrowedByKey.get(key).incrementAndGet(), lessThanOrEqualTo(maxActive));
+                                assertThat(borrowed.incrementAndGet(), lessThanOrEqualTo(maxTotal));
+                                Thread.yield();
+                            }
+                            finally
+                            {
+                                borrowed.decrementAndGet();
+                                borrowedByKey.get(key).decrementAndGet();
+                                pool.returnObject(key, obj);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> result : results)
+            {
+                result.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        assertThat(pool.getBorrowCount(), is((long) threads * iterations));
+        assertThat(pool.getNumActive(), is(0));
+        for (String key : keys)
+        {
+            assertThat(pool.getNumActive(key), is(0));
+            assertThat(pool.getNumIdle(key), lessThanOrEqualTo(1));
+        }
+        assertThat(pool.getNumIdle(), is(objectFactory.created.get() - objectFactory.destroyed.get()));
+        assertThat(pool.getNumIdle(), lessThanOrEqualTo(maxTotal));
+    }
+
+    @Test
+    public void maxTotalDestroysIdleObjectsOfOtherKeys() throws Exception
+    {
+        pool.setMaxTotal(1);
+        pool.setWhenExhaustedAction(ConfigurableKeyedObjectPool.WHEN_EXHAUSTED_FAIL);
+        pool.returnObject(KEY, pool.borrowObject(KEY));
+
+        pool.borrowObject(OTHER_KEY);
+
+        assertThat(pool.getNumIdle(KEY), is(0));
+        assertThat(objectFactory.destroyed.get(), is(1));
+    }
+
+    @Test
+    public void invalidObjectsAreNotReturnedToThePool() throws Exception
+    {
+        Object borrowed = pool.borrowObject(KEY);
+        objectFactory.valid = false;
+        pool.returnObject(KEY, borrowed);
+
+        assertThat(pool.getNumIdle(KEY), is(0));
+        assertThat(pool.getNumActive(KEY), is(0));
+        assertThat(objectFactory.destroyed.get(), is(1));
+    }
+
+    @Test
+    public void objectsOverMaxIdleAreDestroyed() throws Exception
+    {
+        pool.setMaxIdle(1);
+        Object first = pool.borrowObject(KEY);
+        Object second = pool.borrowObject(KEY);
+        pool.returnObject(KEY, first);
+        pool.returnObject(KEY, second);
+
+        assertThat(pool.getNumIdle(KEY), is(1));
+        assertThat(objectFactory.destroyed.get(), is(1));
+    }
+
+    @Test
+    public void evictsIdleObjects() throws Exception
+    {
+        pool.setMinEvictableIdleTimeMillis(1);
+        pool.returnObject(KEY, pool.borrowObject(KEY));
+        Thread.sleep(10);
+
+        pool.evict();
+
+        assertThat(pool.getNumIdle(KEY), is(0));
+        assertThat(objectFactory.destroyed.get(), is(1));
+        assertThat(getKeyedPools().isEmpty(), is(true));
+    }
+
+    @Test
+    public void removesPoolsOfKeysWithoutObjects() throws Exception
+    {
+        pool.invalidateObject(KEY, pool.borrowObject(KEY));
+        pool.setMaxIdle(0);
+        pool.returnObject(OTHER_KEY, pool.borrowObject(OTHER_KEY));
+
+        assertThat(getKeyedPools().isEmpty(), is(true));
+
+        Object obj = pool.borrowObject(KEY);
+        assertThat(pool.getNumActive(KEY), is(1));
+        pool.returnObject(KEY, obj);
+        assertThat(pool.getNumActive(), is(0));
+        assertThat(getKeyedPools().isEmpty(), is(true));
+    }
+
+    @Test
+    public void keepsPoolsOfKeysWithIdleObjects() throws Exception
+    {
+        pool.returnObject(KEY, pool.borrowObject(KEY));
+        pool.clear(OTHER_KEY);
+
+        assertThat(getKeyedPools().size(), is(1));
+
+        pool.clear();
+
+        assertThat(getKeyedPools().isEmpty(), is(true));
+    }
+
+    @Test
+    public void connectorDisposeClosesPools() throws Exception
+    {
+        TestConnector connector = new TestConnector(muleContext);
+        connector.setDispatcherPoolFactory(new ConcurrentConfigurableKeyedObjectPoolFactory());
+        connector.setRequesterPoolFactory(new ConcurrentConfigurableKeyedObjectPoolFactory());
+        muleContext.getRegistry().registerConnector(connector);
+        ConcurrentConfigurableKeyedObjectPool dispatchers = (ConcurrentConfigurableKeyedObjectPool) connector.dispatchers;
+        ConcurrentConfigurableKeyedObjectPool requesters = (ConcurrentConfigurableKeyedObjectPool) connector.requesters;
+        dispatchers.setTimeBetweenEvictionRunsMillis(60000);
+        requesters.setTimeBetweenEvictionRunsMillis(60000);
+
+        connector.dispose();
+
+        assertClosed(dispatchers);
+        assertClosed(requesters);
+    }
+
+    private void assertClosed(ConcurrentConfigurableKeyedObjectPool pool) throws Exception
+    {
+        Field evictor = ConcurrentConfigurableKeyedObjectPool.class.getDeclaredField("evictor");
+        evictor.setAccessible(true);
+        assertThat(evictor.get(pool), nullValue());
+        try
+        {
+            pool.borrowObject(KEY);
+            fail("Expected the pool to be closed");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+    }
+
+    private Map<?, ?> getKeyedPools() throws Exception
+    {
+        Field pools = ConcurrentConfigurableKeyedObjectPool.class.getDeclaredField("pools");
+        pools.setAccessible(true);
+        return (Map<?, ?>) pools.get(pool);
+    }
+
+    @Test
+    public void connectorUsesConfiguredPoolFactories() throws Exception
+    {
+        TestConnector connector = new TestConnector(muleContext);
+        connector.setDispatcherPoolFactory(new ConcurrentConfigurableKeyedObjectPoolFactory());
+        connector.setRequesterPoolFactory(new ConcurrentConfigurableKeyedObjectPoolFactory());
+        connector.setRequesterPoolMaxWait(100);
+        muleContext.getRegistry().registerConnector(connector);
+
+        assertThat(connector.dispatchers, instanceOf(ConcurrentConfigurableKeyedObjectPool.class));
+        assertThat(connector.requesters, instanceOf(ConcurrentConfigurableKeyedObjectPool.class));
+        assertThat(connector.requesters.getMaxActive(),
+            is(connector.getRequesterThreadingProfile().getMaxThreadsActive()));
+        assertThat(connector.requesters.getMaxWait(), is(100L));
+    }
+
+    private static class TestObjectFactory extends BaseKeyedPoolableObjectFactory
+    {
+
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger destroyed = new AtomicInteger();
+        private volatile boolean valid = true;
+
+        @Override
+        public Object makeObject(Object key) throws Exception
+        {
+            created.incrementAndGet();
+            return new Object();
+        }
+
+        @Override
+        public void destroyObject(Object key, Object obj) throws Exception
+        {
+            destroyed.incrementAndGet();
+        }
+
+        @Override
+        public boolean validateObject(Object key, Object obj)
+        {
+            return valid;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+@SmallTest
+public class DispatchBatcherTestCase extends AbstractMuleTestCase
+{
+
+    private static final long LONG_LINGER_TIME = 60000;
+    private static final long TIMEOUT = 10000;
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final List<List<String>> executedBatches = Collections.synchronizedList(new ArrayList<List<String>>());
+
+    @After
+    public void shutdownExecutor()
+    {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void coalescesConcurrentDispatchesUntilBatchIsFull() throws Exception
+    {
+        DispatchBatcher<String> batcher = new DispatchBatcher<String>(3, LONG_LINGER_TIME);
+        RecordingExecutor executor = new RecordingExecutor(null);
+
+        List<Future<Exception>> outcomes = new ArrayList<Future<Exception>>();
+        for (String item : new String[] {"a", "b", "c"})
+        {
+            outcomes.add(dispatchAsync(batcher, item, executor));
+        }
+
+        for (Future<Exception> outcome : outcomes)
+        {
+            assertThat(outcome.get(TIMEOUT, TimeUnit.MILLISECONDS), is(nullValue()));
+        }
+        assertThat(executedBatches.size(), is(1));
+        assertThat(executedBatches.get(0).size(), is(3));
+    }
+
+    @Test
+    public void executesPartialBatchOnceLingerTimeElapses() throws Exception
+    {
+        DispatchBatcher<String> batcher = new DispatchBatcher<String>(100, 10);
+
+        batcher.dispatch("a", new RecordingExecutor(null));
+        batcher.dispatch("b", new RecordingExecutor(null));
+
+        assertThat(executedBatches.size(), is(2));
+        assertThat(executedBatches.get(0).size(), is(1));
+    }
+
+    @Test
+    public void propagatesFailureOfEachItemToItsCaller() throws Exception
+    {
+        DispatchBatcher<String> batcher = new DispatchBatcher<String>(3, LONG_LINGER_TIME);
+        RecordingExecutor executor = new RecordingExecutor("b");
+
+        Future<Exception> a = dispatchAsync(batcher, "a", executor);
+        Future<Exception> b = dispatchAsync(batcher, "b", executor);
+        Future<Exception> c = dispatchAsync(batcher, "c", executor);
+
+        assertThat(a.get(TIMEOUT, TimeUnit.MILLISECONDS), is(nullValue()));
+        assertThat(b.get(TIMEOUT, TimeUnit.MILLISECONDS).getMessage(), is("b"));
+        assertThat(c.get(TIMEOUT, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void propagatesBatchFailureToAllCallers() throws Exception
+    {
+        DispatchBatcher<String> batcher = new DispatchBatcher<String>(1, 0);
+
+        try
+        {
+            batcher.dispatch("a", new DispatchBatcher.BatchExecutor<String>()
+            {
+                @Override
+                public Exception[] execute(List<String> items) throws Exception
+                {
+                    throw new IllegalStateException("batch");
+                }
+            });
+            fail("Batch failure was expected");
+        }
+        catch (IllegalStateException e)
+        {
+            assertThat(e.getMessage(), is("batch"));
+        }
+    }
+
+    private Future<Exception> dispatchAsync(final DispatchBatcher<String> batcher, final String item, final RecordingExecutor executor)
+    {
+        return executorService.submit(new Callable<Exception>()
+        {
+            @Override
+            public Exception call() throws Exception
+            {
+                try
+                {
+                    batcher.dispatch(item, executor);
+                    return null;
+                }
+                catch (Exception e)
+                {
+                    return e;
+                }
+            }
+        });
+    }
+
+    private class RecordingExecutor implements DispatchBatcher.BatchExecutor<String>
+    {
+
+        private final String failingItem;
+
+        RecordingExecutor(String failingItem)
+        {
+            this.failingItem = failingItem;
+        }
+
+        @Override
+        public Exception[] execute(List<String> items) throws Exception
+        {
+            executedBatches.add(new ArrayList<String>(items));
+            Exception[] failures = new Exception[items.size()];
+            for (int i = 0; i < items.size(); i++)
+            {
+                if (items.get(i).equals(failingItem))
+                {
+                    failures[i] = new Exception(failingItem);
+                }
+            }
+            return failures;
+        }
+    }
+}
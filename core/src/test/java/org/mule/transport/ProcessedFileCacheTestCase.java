@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+@SmallTest
+public class ProcessedFileCacheTestCase extends AbstractMuleTestCase
+{
+
+    private final ProcessedFileCache cache = new ProcessedFileCache();
+
+    @Test
+    public void unchangedFileIsProcessed()
+    {
+        cache.processed("file", 10, 1000);
+
+        assertThat(cache.isProcessed("file", 10, 1000), is(true));
+        assertThat(cache.isProcessed("other", 10, 1000), is(false));
+    }
+
+    @Test
+    public void changedFileIsNotProcessed()
+    {
+        cache.processed("file", 10, 1000);
+
+        assertThat(cache.isProcessed("file", 11, 1000), is(false));
+        assertThat(cache.isProcessed("file", 10, 2000), is(false));
+    }
+
+    @Test
+    public void forgetsFilesThatAreNoLongerListed()
+    {
+        cache.processed("file", 10, 1000);
+        cache.processed("removed", 10, 1000);
+
+        cache.retainAll(Collections.singleton("file"));
+
+        assertThat(cache.size(), is(1));
+        assertThat(cache.isProcessed("file", 10, 1000), is(true));
+        assertThat(cache.isProcessed("removed", 10, 1000), is(false));
+    }
+}
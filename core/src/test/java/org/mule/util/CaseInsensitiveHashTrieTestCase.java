@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+@SmallTest
+public class CaseInsensitiveHashTrieTestCase extends AbstractMuleTestCase
+{
+
+    @Test
+    public void keepsCaseOfFirstAddedKey() throws Exception
+    {
+        CaseInsensitiveHashTrie<String, Object> trie = CaseInsensitiveHashTrie.<String, Object> empty()
+            .plus("Foo", "bar", null)
+            .plus("FOO", "baz", null);
+
+        assertThat(trie.size(), is(1));
+        assertThat(trie.get("foo"), is((Object) "baz"));
+        assertThat(trie.iterator().next().getKey(), is("Foo"));
+    }
+
+    @Test
+    public void changesDoNotAffectPreviousVersions() throws Exception
+    {
+        CaseInsensitiveHashTrie<String, Object> first = CaseInsensitiveHashTrie.<String, Object> empty()
+            .plus("key", "value", null);
+        CaseInsensitiveHashTrie<String, Object> second = first.plus("other", "value", null).minus("KEY", null);
+
+        assertThat(first.size(), is(1));
+        assertThat(first.get("key"), is((Object) "value"));
+        assertThat(first.containsKey("other"), is(false));
+        assertThat(second.size(), is(1));
+        assertThat(second.get("key"), is(nullValue()));
+    }
+
+    @Test
+    public void acceptsNullKey() throws Exception
+    {
+        CaseInsensitiveHashTrie<String, Object> trie = CaseInsensitiveHashTrie.<String, Object> empty();
+        assertThat(trie.containsKey(null), is(false));
+
+        trie = trie.plus(null, "value", null).plus("key", "other", null);
+        assertThat(trie.size(), is(2));
+        assertThat(trie.get(null), is((Object) "value"));
+
+        trie = trie.minus(null, null);
+        assertThat(trie.containsKey(null), is(false));
+        assertThat(trie.get("key"), is((Object) "other"));
+    }
+
+    @Test
+    public void handlesKeysWithTheSameHash() throws Exception
+    {
+        // both keys have the same case insensitive hash
+        CaseInsensitiveHashTrie<String, Object> trie = CaseInsensitiveHashTrie.<String, Object> empty()
+            .plus("a_", 1, null)
+            .plus("b@", 2, null);
+
+        assertThat(trie.size(), is(2));
+        assertThat(trie.get("A_"), is((Object) 1));
+        assertThat(trie.get("B@"), is((Object) 2));
+
+        trie = trie.minus("a_", null);
+        assertThat(trie.size(), is(1));
+        assertThat(trie.get("b@"), is((Object) 2));
+    }
+
+    @Test
+    public void behavesLikeCaseInsensitiveHashMap() throws Exception
+    {
+        Random random = new Random(42);
+        String[] keys = new String[600];
+        for (int i = 0; i < keys.length; i += 3)
+        {
+            keys[i] = "key" + i;
+            keys[i + 1] = "KEY" + i;
+            keys[i + 2] = (char) ('a' + i % 26) + "_" + i;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> expected = new CaseInsensitiveHashMap();
+        CaseInsensitiveHashTrie<String, Object> trie = CaseInsensitiveHashTrie.empty();
+        for (int i = 0; i < 20000; i++)
+        {
+            String key = keys[random.nextInt(keys.length)];
+            if (random.nextInt(3) == 0)
+            {
+                expected.remove(key);
+                trie = trie.minus(key, null);
+            }
+            else
+            {
+                expected.put(key, i);
+                trie = trie.plus(key, i, null);
+            }
+            assertThat(trie.size(), is(expected.size()));
+        }
+
+        Map<String, Object> actual = new HashMap<String, Object>();
+        for (Map.Entry<String, Object> entry : trie)
+        {
+            actual.put(entry.getKey(), entry.getValue());
+        }
+        assertThat(actual, is((Map<String, Object>) new HashMap<String, Object>(expected)));
+        for (String key : keys)
+        {
+            assertThat(trie.get(key), is(expected.get(key)));
+        }
+    }
+}
@@ -15,12 +15,22 @@ import static org.mockito.Mockito.when;
 import org.mule.api.MuleEvent;
 import org.mule.tck.junit4.AbstractMuleContextTestCase;
 import org.mule.util.journal.JournalEntry;
+import org.mule.util.journal.TransactionJournal;
 import org.mule.util.queue.DefaultQueueStore;
 import org.mule.util.queue.QueueStore;
 
 import com.google.common.collect.Multimap;
 
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.hamcrest.core.IsNot;
 import org.junit.Before;
@@ -172,6 +182,217 @@ public class LocalTxQueueTransactionJournalTestCase extends AbstractMuleContextT
         assertThat(logEntriesForTx.size(), is(2));
     }
 
+    @Test
+    public void logConcurrentlyAndRetrieve() throws Exception
+    {
+        final LocalTxQueueTransactionJournal transactionJournal = new LocalTxQueueTransactionJournal(temporaryFolder.getRoot().getAbsolutePath(), muleContext);
+        final int numberOfTransactions = 10;
+        final int numberOfOffers = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfTransactions);
+        try
+        {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < numberOfTransactions; i++)
+            {
+                final int txId = i;
+                results.add(executor.submit(new Callable<Object>()
+                {
+                    @Override
+                    public Object call() throws Exception
+                    {
+                        for (int j = 0; j < numberOfOffers; j++)
+                        {
+                            transactionJournal.logAdd(txId, mockQueueInfo, SOME_VALUE + j);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> result : results)
+            {
+                result.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertThat(transactionJournal.getLogEntriesForTx(0).size(), is(numberOfOffers));
+        transactionJournal.close();
+
+        LocalTxQueueTransactionJournal recoveredJournal = new LocalTxQueueTransactionJournal(temporaryFolder.getRoot().getAbsolutePath(), muleContext);
+        Multimap<Integer, LocalQueueTxJournalEntry> allEntries = recoveredJournal.getAllLogEntries();
+        assertThat(allEntries.size(), is(numberOfTransactions * numberOfOffers));
+        for (int i = 0; i < numberOfTransactions; i++)
+        {
+            int j = 0;
+            for (LocalQueueTxJournalEntry journalEntry : allEntries.get(i))
+            {
+                assertThat((String) journalEntry.getValue(), is(SOME_VALUE + j++));
+            }
+        }
+    }
+
+    @Test
+    public void ignorePartiallyWrittenEntry() throws Exception
+    {
+        LocalTxQueueTransactionJournal transactionJournal = new LocalTxQueueTransactionJournal(temporaryFolder.getRoot().getAbsolutePath(), muleContext);
+        addTransactionJournalEntry(transactionJournal);
+        addTransactionJournalEntry(transactionJournal);
+        transactionJournal.close();
+
+        RandomAccessFile logFile = new RandomAccessFile(new File(temporaryFolder.getRoot(), "tx1.log"), "rw");
+        try
+        {
+            logFile.setLength(logFile.length() - 1);
+        }
+        finally
+        {
+            logFile.close();
+        }
+
+        transactionJournal = new LocalTxQueueTransactionJournal(temporaryFolder.getRoot().getAbsolutePath(), muleContext);
+        assertThat(transactionJournal.getLogEntriesForTx(1).size(), is(1));
+        addTransactionJournalEntry(transactionJournal);
+        transactionJournal.close();
+
+        transactionJournal = new LocalTxQueueTransactionJournal(temporaryFolder.getRoot().getAbsolutePath(), muleContext);
+        assertThat(transactionJournal.getLogEntriesForTx(1).size(), is(2));
+    }
+
+    @Test
+    public void concurrentEntriesShareFlushWindow() throws Exception
+    {
+        final int flushWindow = 500;
+        final int numberOfTransactions = 10;
+        System.setProperty(TransactionJournal.FLUSH_WINDOW_PROPERTY, String.valueOf(flushWindow));
+        final LocalTxQueueTransactionJournal transactionJournal;
+        try
+        {
+            transactionJournal = new LocalTxQueueTransactionJournal(temporaryFolder.getRoot().getAbsolutePath(), muleContext);
+        }
+        finally
+        {
+            System.clearProperty(TransactionJournal.FLUSH_WINDOW_PROPERTY);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfTransactions);
+        long start = System.currentTimeMillis();
+        try
+        {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < numberOfTransactions; i++)
+            {
+                final int txId = i;
+                results.add(executor.submit(new Callable<Object>()
+                {
+                    @Override
+                    public Object call() throws Exception
+                    {
+                        transactionJournal.logAdd(txId, mockQueueInfo, SOME_VALUE);
+                        // lookups must not wait for the write in progress
+                        transactionJournal.getLogEntriesForTx(txId);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> result : results)
+            {
+                result.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        transactionJournal.close();
+
+        // entries logged one after the other would wait for a flush window each
+        assertThat(elapsed < flushWindow * 4, is(true));
+        assertThat(transactionJournal.getAllLogEntries().size(), is(numberOfTransactions));
+    }
+
+    @Test
+    public void readsEntriesOfOpenTransactionsOnly() throws Exception
+    {
+        LocalTxQueueTransactionJournal transactionJournal = new LocalTxQueueTransactionJournal(temporaryFolder.getRoot().getAbsolutePath(), muleContext);
+        transactionJournal.logAdd(1, mockQueueInfo, SOME_VALUE + 1);
+        transactionJournal.logAdd(2, mockQueueInfo, SOME_VALUE + 2);
+        transactionJournal.logAdd(2, mockQueueInfo, SOME_VALUE + 3);
+        transactionJournal.logCommit(1);
+
+        Multimap<Integer, LocalQueueTxJournalEntry> allEntries = transactionJournal.getAllLogEntries();
+        assertThat(allEntries.size(), is(2));
+        assertThat(allEntries.containsKey(1), is(false));
+        List<String> values = new ArrayList<String>();
+        for (LocalQueueTxJournalEntry journalEntry : transactionJournal.getLogEntriesForTx(2))
+        {
+            values.add((String) journalEntry.getValue());
+        }
+        assertThat(values, is(Arrays.asList(SOME_VALUE + 2, SOME_VALUE + 3)));
+        transactionJournal.close();
+    }
+
+    @Test
+    public void clearWhileLoggingKeepsFileAndIndexConsistent() throws Exception
+    {
+        final int numberOfTransactions = 10;
+        final int numberOfOffers = 200;
+        System.setProperty(TransactionJournal.FLUSH_WINDOW_PROPERTY, "1");
+        final LocalTxQueueTransactionJournal transactionJournal;
+        try
+        {
+            transactionJournal = new LocalTxQueueTransactionJournal(temporaryFolder.getRoot().getAbsolutePath(), muleContext);
+        }
+        finally
+        {
+            System.clearProperty(TransactionJournal.FLUSH_WINDOW_PROPERTY);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfTransactions);
+        try
+        {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < numberOfTransactions; i++)
+            {
+                final int txId = i;
+                results.add(executor.submit(new Callable<Object>()
+                {
+                    @Override
+                    public Object call() throws Exception
+                    {
+                        for (int j = 0; j < numberOfOffers; j++)
+                        {
+                            transactionJournal.logAdd(txId, mockQueueInfo, SOME_VALUE + j);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            // stops clearing before the loggers finish, so entries written after a clear remain
+            while (!results.get(0).isDone())
+            {
+                transactionJournal.clear();
+            }
+            for (Future<Object> result : results)
+            {
+                result.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        int loggedEntries = transactionJournal.getAllLogEntries().size();
+        transactionJournal.close();
+
+        // an entry queued while the journal was cleared is either cleared or written after the clear
+        LocalTxQueueTransactionJournal recoveredJournal = new LocalTxQueueTransactionJournal(temporaryFolder.getRoot().getAbsolutePath(), muleContext);
+        assertThat(recoveredJournal.getAllLogEntries().size(), is(loggedEntries));
+        recoveredJournal.close();
+    }
+
     private void addTransactionJournalEntry(LocalTxQueueTransactionJournal transactionJournal)
     {
         transactionJournal.logAdd(1, mockQueueInfo, "data");
@@ -9,6 +9,8 @@ package org.mule.util.lock;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
 import org.mule.api.store.ObjectAlreadyExistsException;
 import org.mule.api.store.ObjectStore;
 import org.mule.api.store.ObjectStoreException;
@@ -69,6 +71,75 @@ public class InstanceLockGroupTestCase extends AbstractMuleTestCase
         lockUnlockThenDestroy(5);
     }
 
+    @Test
+    public void releasesEntryWhenUnlocked() throws Exception
+    {
+        instanceLockGroup.lock(sharedKeyA);
+        instanceLockGroup.lock(sharedKeyA);
+        assertThat(instanceLockGroup.getActiveLockCount(), is(1));
+        instanceLockGroup.unlock(sharedKeyA);
+        assertThat(instanceLockGroup.getActiveLockCount(), is(1));
+        instanceLockGroup.unlock(sharedKeyA);
+        assertThat(instanceLockGroup.getActiveLockCount(), is(0));
+        assertThat(instanceLockGroup.getLockAcquisitions(), is(2L));
+    }
+
+    @Test
+    public void releasesEntryWhenTryLockFails() throws Exception
+    {
+        final Latch locked = new Latch();
+        final Latch release = new Latch();
+        Thread owner = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                instanceLockGroup.lock(sharedKeyA);
+                locked.release();
+                try
+                {
+                    release.await(5000, TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    // unlock anyway
+                }
+                instanceLockGroup.unlock(sharedKeyA);
+            }
+        };
+        owner.start();
+        locked.await(5000, TimeUnit.MILLISECONDS);
+
+        assertThat(instanceLockGroup.tryLock(sharedKeyA), is(false));
+        assertThat(instanceLockGroup.tryLock(sharedKeyA, 10, TimeUnit.MILLISECONDS), is(false));
+        assertThat(instanceLockGroup.getContendedLockAcquisitions(), is(2L));
+        assertThat(instanceLockGroup.getFailedLockAcquisitions(), is(2L));
+
+        release.release();
+        owner.join();
+        assertThat(instanceLockGroup.getActiveLockCount(), is(0));
+    }
+
+    @Test
+    public void releasesEntryWhenLockInterrupted() throws Exception
+    {
+        instanceLockGroup.lock(sharedKeyA);
+        Thread.currentThread().interrupt();
+        try
+        {
+            // a reentrant lock checks the interrupted status before acquiring
+            instanceLockGroup.lockInterruptibly(sharedKeyB);
+            fail("Lock should not be acquired by an interrupted thread");
+        }
+        catch (InterruptedException e)
+        {
+            // expected
+        }
+        assertThat(instanceLockGroup.getActiveLockCount(), is(1));
+        instanceLockGroup.unlock(sharedKeyA);
+        assertThat(instanceLockGroup.getActiveLockCount(), is(0));
+    }
+
     private void lockUnlockThenDestroy(int lockTimes)
     {
         mockLockProvider = Mockito.mock(LockProvider.class, Answers.RETURNS_DEEP_STUBS.get());
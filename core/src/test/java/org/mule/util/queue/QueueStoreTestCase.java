@@ -15,6 +15,7 @@ import static org.mule.util.queue.QueueConfiguration.MAXIMUM_CAPACITY;
 import org.mule.api.MuleContext;
 import org.mule.api.MuleEvent;
 import org.mule.api.store.ObjectStoreException;
+import org.mule.tck.SerializationTestUtils;
 import org.mule.tck.junit4.AbstractMuleContextTestCase;
 
 import java.io.Serializable;
@@ -154,6 +155,7 @@ public abstract class QueueStoreTestCase extends AbstractMuleContextTestCase
         MuleContext mockMuleContext = mock(MuleContext.class, Answers.RETURNS_DEEP_STUBS.get());
         when(mockMuleContext.getConfiguration().getWorkingDirectory()).thenReturn(temporaryFolder.getRoot().getAbsolutePath());
         when(mockMuleContext.getExecutionClassLoader()).thenReturn(muleContext.getExecutionClassLoader());
+        SerializationTestUtils.addJavaSerializerToMockMuleContext(mockMuleContext);
         QueueStore queue = createQueueInfoDelegate(capacity, mockMuleContext);
         return queue;
     }
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.queue;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.tck.probe.JUnitProbe;
+import org.mule.tck.probe.PollingProber;
+import org.mule.util.StringUtils;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentedMappedFileQueueStoreDelegateTestCase extends AbstractMuleContextTestCase
+{
+
+    private static final String QUEUE_NAME = "testQueue";
+    private static final int SEGMENT_SIZE = 256;
+    private static final int TIMEOUT = 10;
+
+    @Rule
+    public TemporaryFolder workingDirectory = new TemporaryFolder();
+
+    @Test
+    public void recoversPendingEntriesInOrder() throws Exception
+    {
+        SegmentedMappedFileQueueStoreDelegate queue = createQueue();
+        for (int i = 0; i < 20; i++)
+        {
+            queue.putNow("value" + i);
+        }
+        assertThat((String) queue.poll(TIMEOUT), is("value0"));
+        assertThat((String) queue.poll(TIMEOUT), is("value1"));
+        queue.untake("value1");
+        queue.close();
+
+        queue = createQueue();
+        assertThat(queue.getSize(), is(19));
+        assertThat((String) queue.poll(TIMEOUT), is("value1"));
+        for (int i = 2; i < 20; i++)
+        {
+            assertThat((String) queue.poll(TIMEOUT), is("value" + i));
+        }
+        assertThat(queue.poll(TIMEOUT), nullValue());
+        queue.dispose();
+    }
+
+    @Test
+    public void recoversEntriesPutBackInFrontInOrder() throws Exception
+    {
+        SegmentedMappedFileQueueStoreDelegate queue = createQueue();
+        queue.putNow("value2");
+        queue.untake("value1");
+        queue.untake("value0");
+        queue.putNow("value3");
+        queue.close();
+
+        queue = createQueue();
+        for (int i = 0; i < 4; i++)
+        {
+            assertThat((String) queue.poll(TIMEOUT), is("value" + i));
+        }
+        queue.dispose();
+    }
+
+    @Test
+    public void deletesConsumedSegments() throws Exception
+    {
+        SegmentedMappedFileQueueStoreDelegate queue = createQueue();
+        for (int i = 0; i < 100; i++)
+        {
+            queue.putNow("value" + i);
+        }
+        assertThat(segmentFiles().length > 2, is(true));
+
+        for (int i = 0; i < 100; i++)
+        {
+            assertThat((String) queue.poll(TIMEOUT), is("value" + i));
+        }
+        assertThat(segmentFiles().length, is(1));
+        queue.dispose();
+    }
+
+    @Test
+    public void storesEntriesBiggerThanSegment() throws Exception
+    {
+        SegmentedMappedFileQueueStoreDelegate queue = createQueue();
+        String bigValue = StringUtils.repeat('x', SEGMENT_SIZE * 4);
+        queue.putNow("before");
+        queue.putNow(bigValue);
+        queue.putNow("after");
+        queue.close();
+
+        queue = createQueue();
+        assertThat((String) queue.poll(TIMEOUT), is("before"));
+        assertThat((String) queue.poll(TIMEOUT), is(bigValue));
+        assertThat((String) queue.poll(TIMEOUT), is("after"));
+        queue.dispose();
+    }
+
+    @Test
+    public void removeAndContains() throws Exception
+    {
+        SegmentedMappedFileQueueStoreDelegate queue = createQueue();
+        for (int i = 0; i < 10; i++)
+        {
+            queue.putNow("value" + i);
+        }
+        assertThat(queue.contains("value5"), is(true));
+        queue.remove("value5");
+        assertThat(queue.contains("value5"), is(false));
+        queue.close();
+
+        queue = createQueue();
+        assertThat(queue.getSize(), is(9));
+        assertThat(queue.contains("value5"), is(false));
+        queue.dispose();
+    }
+
+    @Test
+    public void syncsEveryWrite() throws Exception
+    {
+        SegmentedMappedFileQueueStoreDelegate queue = new SegmentedMappedFileQueueStoreDelegate(QUEUE_NAME, workingDirectory.getRoot().getAbsolutePath(), muleContext, 0, SEGMENT_SIZE, 0);
+        for (int i = 0; i < 10; i++)
+        {
+            queue.putNow("value" + i);
+        }
+        for (int i = 0; i < 10; i++)
+        {
+            assertThat((String) queue.poll(TIMEOUT), is("value" + i));
+        }
+        queue.dispose();
+    }
+
+    @Test
+    public void syncsWritesAfterIntervalWithoutFurtherWrites() throws Exception
+    {
+        final SegmentedMappedFileQueueStoreDelegate queue = new SegmentedMappedFileQueueStoreDelegate(QUEUE_NAME, workingDirectory.getRoot().getAbsolutePath(), muleContext, 0, SEGMENT_SIZE, 50);
+        queue.putNow("value");
+        assertThat(unsyncedSegments(queue).isEmpty(), is(false));
+
+        new PollingProber(RECEIVE_TIMEOUT, 10).check(new JUnitProbe()
+        {
+            @Override
+            protected boolean test() throws Exception
+            {
+                return unsyncedSegments(queue).isEmpty();
+            }
+
+            @Override
+            public String describeFailure()
+            {
+                return "Write was not synced";
+            }
+        });
+
+        queue.close();
+        assertThat(syncScheduler(queue).isShutdown(), is(true));
+    }
+
+    @Test
+    public void clearDeletesAllEntries() throws Exception
+    {
+        SegmentedMappedFileQueueStoreDelegate queue = createQueue();
+        for (int i = 0; i < 50; i++)
+        {
+            queue.putNow("value" + i);
+        }
+        queue.clear();
+        assertThat(queue.getSize(), is(0));
+        queue.putNow("value");
+        queue.close();
+
+        queue = createQueue();
+        assertThat(queue.getSize(), is(1));
+        assertThat((Serializable) queue.poll(TIMEOUT), is((Serializable) "value"));
+        queue.dispose();
+    }
+
+    @Test
+    public void nameWithInvalidCharacters() throws Exception
+    {
+        SegmentedMappedFileQueueStoreDelegate queue = new SegmentedMappedFileQueueStoreDelegate("seda.queue(post:\\Customer:ApiTest-config.1)", workingDirectory.getRoot().getAbsolutePath(), muleContext, 0);
+        queue.putNow("value");
+        assertThat((String) queue.poll(TIMEOUT), is("value"));
+        queue.dispose();
+    }
+
+    private Set<?> unsyncedSegments(SegmentedMappedFileQueueStoreDelegate queue) throws Exception
+    {
+        Field field = SegmentedMappedFileQueueStoreDelegate.class.getDeclaredField("unsyncedSegments");
+        field.setAccessible(true);
+        synchronized (queue)
+        {
+            return new HashSet<Object>((Set<?>) field.get(queue));
+        }
+    }
+
+    private ScheduledThreadPoolExecutor syncScheduler(SegmentedMappedFileQueueStoreDelegate queue) throws Exception
+    {
+        Field field = SegmentedMappedFileQueueStoreDelegate.class.getDeclaredField("syncScheduler");
+        field.setAccessible(true);
+        return (ScheduledThreadPoolExecutor) field.get(queue);
+    }
+
+    private SegmentedMappedFileQueueStoreDelegate createQueue()
+    {
+        return new SegmentedMappedFileQueueStoreDelegate(QUEUE_NAME, workingDirectory.getRoot().getAbsolutePath(), muleContext, 0, SEGMENT_SIZE, -1);
+    }
+
+    private File[] segmentFiles()
+    {
+        File directory = new File(workingDirectory.getRoot(), "queuestore" + File.separator + QUEUE_NAME + "-segments");
+        return directory.listFiles(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(File dir, String name)
+            {
+                return name.endsWith(".seg");
+            }
+        });
+    }
+}
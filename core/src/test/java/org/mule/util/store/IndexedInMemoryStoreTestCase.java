@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import org.mule.api.store.ObjectDoesNotExistException;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IndexedInMemoryStoreTestCase extends AbstractMuleTestCase
+{
+    private IndexedInMemoryObjectStore<String> store;
+
+    @Before
+    public void createStore()
+    {
+        // the store is not initialised so expiry only happens when the tests trigger it
+        store = new IndexedInMemoryObjectStore<String>(4);
+    }
+
+    @Test
+    public void storeRetrieveAndRemove() throws Exception
+    {
+        store.store("key", "hello");
+        assertTrue(store.contains("key"));
+        assertEquals("hello", store.retrieve("key"));
+
+        assertEquals("hello", store.remove("key"));
+        assertFalse(store.contains("key"));
+        assertTrue(store.allKeys().isEmpty());
+    }
+
+    @Test(expected = ObjectDoesNotExistException.class)
+    public void removeTwice() throws Exception
+    {
+        store.store("key", "hello");
+        store.remove("key");
+        store.remove("key");
+    }
+
+    @Test
+    public void maxSizeExpiresOldestEntries() throws Exception
+    {
+        store.setMaxEntries(3);
+        storeObjects("1", "2", "3", "4");
+
+        // the bound is only enforced by the expiry process
+        assertObjectsInStore("1", "2", "3", "4");
+
+        store.expire();
+        assertObjectsExpired("1");
+        assertObjectsInStore("2", "3", "4");
+
+        // removing an entry must not make a younger one expire early
+        store.remove("3");
+        storeObjects("5", "6");
+        store.expire();
+        assertObjectsExpired("2", "3");
+        assertObjectsInStore("4", "5", "6");
+    }
+
+    @Test
+    public void timedExpiry() throws Exception
+    {
+        int entryTTL = 500;
+        store.setMaxEntries(-1);
+        store.setEntryTTL(entryTTL);
+
+        storeObjects("1", "2");
+        store.expire();
+        assertObjectsInStore("1", "2");
+
+        Thread.sleep(entryTTL + 100);
+        storeObjects("3");
+        store.expire();
+        assertObjectsExpired("1", "2");
+        assertObjectsInStore("3");
+    }
+
+    @Test
+    public void storeAfterRemoveIsExpiredByNewAge() throws Exception
+    {
+        store.setMaxEntries(2);
+        storeObjects("1", "2");
+        store.remove("1");
+        storeObjects("1", "3");
+
+        store.expire();
+        assertObjectsExpired("2");
+        assertObjectsInStore("1", "3");
+    }
+
+    private void storeObjects(String... objects) throws Exception
+    {
+        for (String entry : objects)
+        {
+            store.store(entry, entry);
+        }
+    }
+
+    private void assertObjectsInStore(String... identifiers) throws Exception
+    {
+        for (String id : identifiers)
+        {
+            assertTrue("id " + id + " not in store " + store, store.contains(id));
+        }
+    }
+
+    private void assertObjectsExpired(String... identifiers) throws Exception
+    {
+        for (String id : identifiers)
+        {
+            assertFalse("id " + id + " still in store " + store, store.contains(id));
+        }
+    }
+}
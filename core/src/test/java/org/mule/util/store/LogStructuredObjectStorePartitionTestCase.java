@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.store;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+import org.mule.api.MuleContext;
+import org.mule.api.store.ObjectAlreadyExistsException;
+import org.mule.api.store.ObjectDoesNotExistException;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.api.store.ObjectStoreManager;
+import org.mule.tck.SerializationTestUtils;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@SmallTest
+@RunWith(MockitoJUnitRunner.class)
+public class LogStructuredObjectStorePartitionTestCase extends AbstractMuleTestCase
+{
+
+    private static final String KEY = "key";
+    private static final String VALUE = "value";
+
+    @Rule
+    public TemporaryFolder objectStoreFolder = new TemporaryFolder();
+
+    @Mock
+    private MuleContext muleContext;
+
+    private LogStructuredObjectStorePartition<String> partition;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        when(muleContext.getExecutionClassLoader()).thenReturn(getClass().getClassLoader());
+        SerializationTestUtils.addJavaSerializerToMockMuleContext(muleContext);
+        partition = createPartition(1024);
+    }
+
+    @Test
+    public void storesAndRetrievesValues() throws Exception
+    {
+        partition.store(KEY, VALUE);
+
+        assertThat(partition.contains(KEY), is(true));
+        assertThat(partition.retrieve(KEY), is(VALUE));
+        assertThat(partition.allKeys().size(), is(1));
+    }
+
+    @Test(expected = ObjectAlreadyExistsException.class)
+    public void failsToStoreExistingKey() throws Exception
+    {
+        partition.store(KEY, VALUE);
+        partition.store(KEY, VALUE);
+    }
+
+    @Test
+    public void indicatesUnexistentKeyOnRetrieveError() throws Exception
+    {
+        try
+        {
+            partition.retrieve(KEY);
+            fail("Supposed to thrown an exception as key is not valid");
+        }
+        catch (ObjectDoesNotExistException e)
+        {
+            assertTrue(e.getMessage().contains(KEY));
+        }
+    }
+
+    @Test
+    public void restoresEntriesWhenReopened() throws Exception
+    {
+        partition.store("removed", VALUE);
+        partition.store(KEY, VALUE);
+        assertThat(partition.remove("removed"), is(VALUE));
+        partition.close();
+
+        partition = createPartition(1024);
+
+        assertThat(partition.allKeys(), is(Arrays.<Serializable>asList(KEY)));
+        assertThat(partition.retrieve(KEY), is(VALUE));
+    }
+
+    @Test
+    public void storesRemovedKeyAgain() throws Exception
+    {
+        partition.store(KEY, "first");
+        partition.remove(KEY);
+        partition.store(KEY, "second");
+        partition.close();
+
+        partition = createPartition(1024);
+
+        assertThat(partition.retrieve(KEY), is("second"));
+    }
+
+    @Test
+    public void expiresOldestEntriesOverMaxEntries() throws Exception
+    {
+        for (int i = 0; i < 5; i++)
+        {
+            partition.store(KEY + i, VALUE);
+        }
+
+        partition.expire(ObjectStoreManager.UNBOUNDED, 2);
+
+        assertThat(partition.allKeys(), is(Arrays.<Serializable>asList(KEY + 3, KEY + 4)));
+        partition.close();
+        assertThat(createPartition(1024).allKeys(), is(Arrays.<Serializable>asList(KEY + 3, KEY + 4)));
+    }
+
+    @Test
+    public void expiresEntriesOverTtl() throws Exception
+    {
+        partition.store(KEY, VALUE);
+
+        partition.expire(60000, ObjectStoreManager.UNBOUNDED);
+        assertThat(partition.contains(KEY), is(true));
+
+        Thread.sleep(10);
+        partition.expire(1, ObjectStoreManager.UNBOUNDED);
+        assertThat(partition.contains(KEY), is(false));
+    }
+
+    @Test
+    public void compactsSegmentsWithObsoleteRecords() throws Exception
+    {
+        for (int i = 0; i < 100; i++)
+        {
+            partition.store(KEY + i, VALUE);
+        }
+        int segments = partition.getSegmentCount();
+        assertTrue(segments > 2);
+
+        for (int i = 0; i < 90; i++)
+        {
+            partition.remove(KEY + i);
+        }
+
+        assertTrue(partition.getSegmentCount() < segments);
+        assertThat(listSegmentFiles().length, is(partition.getSegmentCount()));
+        for (int i = 90; i < 100; i++)
+        {
+            assertThat(partition.retrieve(KEY + i), is(VALUE));
+        }
+        partition.close();
+
+        partition = createPartition(1024);
+        assertThat(partition.allKeys().size(), is(10));
+        assertThat(partition.retrieve(KEY + 95), is(VALUE));
+        assertThat(partition.contains(KEY + 5), is(false));
+    }
+
+    @Test
+    public void discardsIncompleteRecordAtTheEndOfTheLog() throws Exception
+    {
+        partition.store(KEY, VALUE);
+        partition.store("incomplete", VALUE);
+        partition.close();
+
+        File[] segmentFiles = listSegmentFiles();
+        RandomAccessFile segment = new RandomAccessFile(segmentFiles[segmentFiles.length - 1], "rw");
+        try
+        {
+            segment.setLength(segment.length() - 3);
+        }
+        finally
+        {
+            segment.close();
+        }
+
+        partition = createPartition(1024);
+        assertThat(partition.allKeys(), is(Arrays.<Serializable>asList(KEY)));
+        partition.store("incomplete", VALUE);
+        partition.close();
+        assertThat(createPartition(1024).retrieve("incomplete"), is(VALUE));
+    }
+
+    @Test
+    public void clear() throws Exception
+    {
+        partition.store(KEY, VALUE);
+
+        partition.clear();
+
+        assertThat(partition.contains(KEY), is(false));
+        partition.store(KEY, VALUE);
+        assertThat(partition.retrieve(KEY), is(VALUE));
+    }
+
+    private LogStructuredObjectStorePartition<String> createPartition(long maxSegmentSize) throws ObjectStoreException
+    {
+        LogStructuredObjectStorePartition<String> partition = new LogStructuredObjectStorePartition<String>(
+            muleContext, "test", objectStoreFolder.getRoot(), null);
+        partition.setMaxSegmentSize(maxSegmentSize);
+        partition.open();
+        return partition;
+    }
+
+    private File[] listSegmentFiles()
+    {
+        File[] files = objectStoreFolder.getRoot().listFiles(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(File dir, String name)
+            {
+                return name.endsWith(LogStructuredObjectStorePartition.SEGMENT_FILE_EXTENSION);
+            }
+        });
+        Arrays.sort(files);
+        return files;
+    }
+}
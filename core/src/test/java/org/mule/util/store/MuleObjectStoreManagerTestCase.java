@@ -28,6 +28,7 @@ import org.mule.api.store.ObjectStore;
 import org.mule.api.store.ObjectStoreException;
 import org.mule.api.store.ObjectStoreManager;
 import org.mule.api.store.PartitionableObjectStore;
+import org.mule.tck.SerializationTestUtils;
 import org.mule.tck.junit4.AbstractMuleTestCase;
 import org.mule.tck.probe.PollingProber;
 import org.mule.tck.probe.Probe;
@@ -224,6 +225,7 @@ public class MuleObjectStoreManagerTestCase extends AbstractMuleTestCase
         MuleConfiguration muleConfiguration = mock(MuleConfiguration.class);
         when(muleConfiguration.getWorkingDirectory()).thenReturn(tempWorkDir.getRoot().getAbsolutePath());
         when(muleContext.getConfiguration()).thenReturn(muleConfiguration);
+        SerializationTestUtils.addJavaSerializerToMockMuleContext(muleContext);
 
         return new PartitionedPersistentObjectStore<>(muleContext);
     }
@@ -14,6 +14,7 @@ import static org.mockito.Mockito.when;
 import org.mule.api.MuleContext;
 import org.mule.api.store.ObjectAlreadyExistsException;
 import org.mule.api.store.ObjectStoreException;
+import org.mule.tck.SerializationTestUtils;
 import org.mule.tck.junit4.AbstractMuleTestCase;
 
 import java.io.File;
@@ -45,6 +46,7 @@ public class PartitionedPersistentObjectStoreTestCase extends AbstractMuleTestCa
         numberOfPartitions = 3;
         when(mockMuleContext.getConfiguration().getWorkingDirectory()).thenReturn(".");
         when(mockMuleContext.getExecutionClassLoader()).thenReturn(Thread.currentThread().getContextClassLoader());
+        SerializationTestUtils.addJavaSerializerToMockMuleContext(mockMuleContext);
         os = new PartitionedPersistentObjectStore<Serializable>(mockMuleContext);
         File objectStorePersistDir = new File(PartitionedPersistentObjectStore.OBJECT_STORE_DIR);
         if (objectStorePersistDir.exists())
@@ -118,6 +120,20 @@ public class PartitionedPersistentObjectStoreTestCase extends AbstractMuleTestCa
         assertNotNull(value.getMuleContext());
     }
 
+    @Test
+    public void restoresPartitionsWithOneFilePerKey() throws Exception
+    {
+        os.setLogStructuredPartitions(false);
+        openPartitions();
+        storeInPartitions(OBJECT_KEY, OBJECT_BASE_VALUE);
+        os.dispose();
+
+        os = new PartitionedPersistentObjectStore<Serializable>(mockMuleContext);
+        openPartitions();
+        assertAllValuesExistsInPartitionAreUnique(OBJECT_KEY, OBJECT_BASE_VALUE);
+        os.dispose();
+    }
+
     private void closePartitions() throws ObjectStoreException
     {
         for (int i = 0; i < numberOfPartitions; i++)
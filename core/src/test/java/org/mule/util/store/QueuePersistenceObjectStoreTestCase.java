@@ -26,6 +26,7 @@ import org.mule.api.construct.FlowConstruct;
 import org.mule.api.store.ListableObjectStore;
 import org.mule.api.store.ObjectStoreException;
 import org.mule.config.i18n.CoreMessages;
+import org.mule.tck.SerializationTestUtils;
 import org.mule.util.FileUtils;
 import org.mule.util.SerializationUtils;
 import org.mule.util.UUID;
@@ -69,6 +70,7 @@ public class QueuePersistenceObjectStoreTestCase extends AbstractObjectStoreCont
         when(mockMuleContext.getConfiguration()).thenReturn(mockConfig);
         when(mockMuleContext.getExecutionClassLoader()).thenReturn(getClass().getClassLoader());
         when(mockMuleContext.getExecutionClassLoader()).thenReturn(getClass().getClassLoader());
+        SerializationTestUtils.addJavaSerializerToMockMuleContext(mockMuleContext);
     }
 
     @Override
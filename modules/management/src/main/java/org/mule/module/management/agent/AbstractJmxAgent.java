@@ -21,6 +21,7 @@ import org.mule.construct.AbstractFlowConstruct;
 import org.mule.context.notification.MuleContextNotification;
 import org.mule.context.notification.NotificationException;
 import org.mule.management.stats.FlowConstructStatistics;
+import org.mule.management.stats.ReceiverStatisticsProvider;
 import org.mule.module.management.i18n.ManagementMessages;
 import org.mule.module.management.mbean.ApplicationService;
 import org.mule.module.management.mbean.ConnectorService;
@@ -35,6 +36,10 @@ import org.mule.module.management.mbean.MuleConfigurationService;
 import org.mule.module.management.mbean.MuleConfigurationServiceMBean;
 import org.mule.module.management.mbean.MuleService;
 import org.mule.module.management.mbean.MuleServiceMBean;
+import org.mule.module.management.mbean.NotificationManagerService;
+import org.mule.module.management.mbean.NotificationManagerServiceMBean;
+import org.mule.module.management.mbean.ReceiverStats;
+import org.mule.module.management.mbean.ReceiverStatsMBean;
 import org.mule.module.management.mbean.ServiceService;
 import org.mule.module.management.mbean.ServiceServiceMBean;
 import org.mule.module.management.mbean.StatisticsService;
@@ -404,6 +409,17 @@ public abstract class AbstractJmxAgent extends AbstractAgent
         mBeanServer.registerMBean(mBean, on);
     }
 
+    protected void registerNotificationManagerService() throws NotCompliantMBeanException, MBeanRegistrationException,
+            InstanceAlreadyExistsException, MalformedObjectNameException
+    {
+        ObjectName on = jmxSupport.getObjectName(String.format("%s:%s", jmxSupport.getDomainName(muleContext, !containerMode), NotificationManagerServiceMBean.DEFAULT_JMX_NAME));
+        muleContext.getNotificationManager().getStatistics().setEnabled(isEnableStatistics());
+        NotificationManagerServiceMBean service = new NotificationManagerService(muleContext.getNotificationManager());
+        ClassloaderSwitchingMBeanWrapper mBean = new ClassloaderSwitchingMBeanWrapper(service, NotificationManagerServiceMBean.class, muleContext.getExecutionClassLoader());
+        logger.debug("Registering notification manager with name: " + on);
+        mBeanServer.registerMBean(mBean, on);
+    }
+
     protected void registerServiceServices() throws NotCompliantMBeanException, MBeanRegistrationException,
         InstanceAlreadyExistsException, MalformedObjectNameException
     {
@@ -483,6 +499,11 @@ public abstract class AbstractJmxAgent extends AbstractAgent
                         {
                             logger.info("Registered Endpoint Service with name: " + on);
                         }
+
+                        if (messageReceiver instanceof ReceiverStatisticsProvider)
+                        {
+                            registerReceiverStats((ReceiverStatisticsProvider) messageReceiver, service, connector);
+                        }
                     }
                 }
             }
@@ -494,6 +515,34 @@ public abstract class AbstractJmxAgent extends AbstractAgent
         }
     }
 
+    protected void registerReceiverStats(ReceiverStatisticsProvider receiver, EndpointServiceMBean service,
+                                         Connector connector)
+        throws NotCompliantMBeanException, MBeanRegistrationException, InstanceAlreadyExistsException,
+        MalformedObjectNameException
+    {
+        ReceiverStatsMBean stats = new ReceiverStats(receiver.getReceiverStatistics());
+        ObjectName on = jmxSupport.getObjectName(buildFullyQualifiedReceiverStatsName(service, connector));
+        ClassloaderSwitchingMBeanWrapper mBean = new ClassloaderSwitchingMBeanWrapper(stats, ReceiverStatsMBean.class, muleContext.getExecutionClassLoader());
+        mBeanServer.registerMBean(mBean, on);
+        if (logger.isInfoEnabled())
+        {
+            logger.info("Registered Receiver Statistics with name: " + on);
+        }
+    }
+
+    protected String buildFullyQualifiedReceiverStatsName(EndpointServiceMBean mBean, Connector connector)
+    {
+        StringBuilder fullName = new StringBuilder(128);
+        fullName.append(jmxSupport.getDomainName(muleContext, !containerMode));
+        fullName.append(":type=org.mule.Statistics,service=");
+        fullName.append(jmxSupport.escape(mBean.getComponentName()));
+        fullName.append(",connector=");
+        fullName.append(connector.getName());
+        fullName.append(",endpoint=");
+        fullName.append(jmxSupport.escape(mBean.getName()));
+        return fullName.toString();
+    }
+
     protected String buildFullyQualifiedEndpointName(EndpointServiceMBean mBean, Connector connector)
     {
         String rawName = jmxSupport.escape(mBean.getName());
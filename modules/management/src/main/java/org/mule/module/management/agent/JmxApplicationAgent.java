@@ -25,6 +25,7 @@ public class JmxApplicationAgent extends AbstractJmxAgent
         registerStatisticsService();
         registerMuleService();
         registerConfigurationService();
+        registerNotificationManagerService();
         registerModelServices();
         registerServiceServices();
         registerFlowConstructServices();
@@ -9,10 +9,16 @@ package org.mule.module.management.mbean;
 import org.mule.api.MuleContext;
 import org.mule.construct.AbstractFlowConstruct;
 import org.mule.management.stats.FlowConstructStatistics;
+import org.mule.management.stats.RouterStatistics;
+import org.mule.management.stats.UntilSuccessfulStatistics;
 import org.mule.module.management.support.AutoDiscoveryJmxSupportFactory;
 import org.mule.module.management.support.JmxSupport;
 import org.mule.module.management.support.JmxSupportFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import javax.management.MBeanRegistration;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
@@ -38,6 +44,8 @@ public class FlowConstructService implements FlowConstructServiceMBean, MBeanReg
 
     protected ObjectName statsName;
 
+    protected List<ObjectName> routerStatsNames = new ArrayList<ObjectName>();
+
     protected ObjectName objectName;
 
     protected MuleContext muleContext;
@@ -126,6 +134,31 @@ public class FlowConstructService implements FlowConstructServiceMBean, MBeanReg
         return statistics.getExecutionErrors();
     }
 
+    public long getProcessingTime50thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(50);
+    }
+
+    public long getProcessingTime99thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(99);
+    }
+
+    public long getProcessingTime999thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(99.9);
+    }
+
+    public String[] getMessageProcessorPaths()
+    {
+        return statistics.getMessageProcessorPaths().toArray(new String[0]);
+    }
+
+    public long getMessageProcessorLatencyPercentile(String processorPath, double percentile)
+    {
+        return statistics.getMessageProcessorLatencyPercentile(processorPath, percentile);
+    }
+
     public long getFatalErrors()
     {
         return statistics.getFatalErrors();
@@ -155,6 +188,26 @@ public class FlowConstructService implements FlowConstructServiceMBean, MBeanReg
                 }
 
                 this.server.registerMBean(new FlowConstructStats(flow.getStatistics()), this.statsName);
+
+                for (Map.Entry<String, RouterStatistics> entry : flow.getStatistics().getRouterStatistics().entrySet())
+                {
+                    ObjectName routerStatsName = jmxSupport.getObjectName(String.format("%s,router=%s",
+                        statsName.getCanonicalName(), jmxSupport.escape(entry.getKey())));
+                    if (this.server.isRegistered(routerStatsName))
+                    {
+                        this.server.unregisterMBean(routerStatsName);
+                    }
+                    RouterStatistics routerStatistics = entry.getValue();
+                    if (routerStatistics instanceof UntilSuccessfulStatistics)
+                    {
+                        this.server.registerMBean(new UntilSuccessfulStats((UntilSuccessfulStatistics) routerStatistics), routerStatsName);
+                    }
+                    else
+                    {
+                        this.server.registerMBean(new RouterStats(routerStatistics), routerStatsName);
+                    }
+                    routerStatsNames.add(routerStatsName);
+                }
             }
         }
         catch (Exception e)
@@ -171,6 +224,14 @@ public class FlowConstructService implements FlowConstructServiceMBean, MBeanReg
             {
                 this.server.unregisterMBean(statsName);
             }
+            for (ObjectName routerStatsName : routerStatsNames)
+            {
+                if (this.server.isRegistered(routerStatsName))
+                {
+                    this.server.unregisterMBean(routerStatsName);
+                }
+            }
+            routerStatsNames.clear();
         }
         catch (Exception ex)
         {
@@ -91,6 +91,31 @@ public class FlowConstructStats implements FlowConstructStatsMBean, MBeanRegistr
         return statistics.getFatalErrors();
     }
 
+    public long getProcessingTime50thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(50);
+    }
+
+    public long getProcessingTime99thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(99);
+    }
+
+    public long getProcessingTime999thPercentile()
+    {
+        return statistics.getProcessingTimePercentile(99.9);
+    }
+
+    public String[] getMessageProcessorPaths()
+    {
+        return statistics.getMessageProcessorPaths().toArray(new String[0]);
+    }
+
+    public long getMessageProcessorLatencyPercentile(String processorPath, double percentile)
+    {
+        return statistics.getMessageProcessorLatencyPercentile(processorPath, percentile);
+    }
+
     public ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception
     {
         this.server = server;
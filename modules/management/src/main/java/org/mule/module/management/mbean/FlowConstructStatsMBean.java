@@ -34,4 +34,22 @@ public interface FlowConstructStatsMBean
     long getFatalErrors();
 
     long getExecutionErrors();
+
+    long getProcessingTime50thPercentile();
+
+    long getProcessingTime99thPercentile();
+
+    long getProcessingTime999thPercentile();
+
+    /**
+     * @return the paths of the message processors with recorded latencies
+     */
+    String[] getMessageProcessorPaths();
+
+    /**
+     * @param processorPath path of a message processor, as returned by {@link #getMessageProcessorPaths()}
+     * @param percentile percentile to calculate, between 0 and 100
+     * @return the latency of the message processor at the given percentile, in microseconds
+     */
+    long getMessageProcessorLatencyPercentile(String processorPath, double percentile);
 }
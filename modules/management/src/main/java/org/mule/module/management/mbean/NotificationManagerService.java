@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+import org.mule.context.notification.ServerNotificationManager;
+
+/**
+ * <code>NotificationManagerService</code> exposes the dispatch settings and metrics of
+ * the {@link ServerNotificationManager} as a management service.
+ */
+public class NotificationManagerService implements NotificationManagerServiceMBean
+{
+    private ServerNotificationManager notificationManager;
+
+    public NotificationManagerService(ServerNotificationManager notificationManager)
+    {
+        this.notificationManager = notificationManager;
+    }
+
+    public int getDispatcherThreads()
+    {
+        return notificationManager.getDispatcherThreads();
+    }
+
+    public int getQueueCapacity()
+    {
+        return notificationManager.getQueueCapacity();
+    }
+
+    public String getOverflowPolicy()
+    {
+        return notificationManager.getOverflowPolicy().name();
+    }
+
+    public int getQueueDepth()
+    {
+        return notificationManager.getQueueDepth();
+    }
+
+    public long getDispatchedNotifications()
+    {
+        return notificationManager.getStatistics().getDispatchedNotifications();
+    }
+
+    public long getDroppedNotifications()
+    {
+        return notificationManager.getStatistics().getDroppedNotifications();
+    }
+
+    public long getAverageLatency()
+    {
+        return notificationManager.getStatistics().getAverageLatency();
+    }
+
+    public long getMaxLatency()
+    {
+        return notificationManager.getStatistics().getMaxLatency();
+    }
+
+    public boolean isStatisticsEnabled()
+    {
+        return notificationManager.getStatistics().isEnabled();
+    }
+
+    public void setStatisticsEnabled(boolean enabled)
+    {
+        notificationManager.getStatistics().setEnabled(enabled);
+    }
+
+    public void clearStatistics()
+    {
+        notificationManager.getStatistics().clear();
+    }
+}
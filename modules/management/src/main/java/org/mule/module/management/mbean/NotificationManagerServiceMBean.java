@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+/**
+ * <code>NotificationManagerServiceMBean</code> is a JMX service interface for the
+ * dispatch of asynchronous notifications by the server notification manager.
+ */
+public interface NotificationManagerServiceMBean
+{
+    String DEFAULT_JMX_NAME = "name=NotificationManager";
+
+    int getDispatcherThreads();
+
+    int getQueueCapacity();
+
+    String getOverflowPolicy();
+
+    /**
+     * @return the number of notifications currently waiting to be delivered
+     */
+    int getQueueDepth();
+
+    long getDispatchedNotifications();
+
+    long getDroppedNotifications();
+
+    /**
+     * @return average milliseconds between the creation and the delivery of a notification
+     */
+    long getAverageLatency();
+
+    /**
+     * @return maximum milliseconds between the creation and the delivery of a notification
+     */
+    long getMaxLatency();
+
+    boolean isStatisticsEnabled();
+
+    void setStatisticsEnabled(boolean enabled);
+
+    void clearStatistics();
+}
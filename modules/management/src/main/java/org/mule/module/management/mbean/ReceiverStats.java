@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+import org.mule.management.stats.ReceiverStatistics;
+
+/**
+ * <code>ReceiverStats</code> exposes the statistics of a message receiver.
+ */
+public class ReceiverStats implements ReceiverStatsMBean
+{
+
+    private final ReceiverStatistics statistics;
+
+    public ReceiverStats(ReceiverStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+
+    public long getReceivedCount()
+    {
+        return statistics.getReceivedCount();
+    }
+
+    public long getDroppedCount()
+    {
+        return statistics.getDroppedCount();
+    }
+
+    public long getDroppedResponseCount()
+    {
+        return statistics.getDroppedResponseCount();
+    }
+
+    public long getSuspendCount()
+    {
+        return statistics.getSuspendCount();
+    }
+
+    public long getSuspendedTime()
+    {
+        return statistics.getSuspendedTime();
+    }
+
+    public boolean isSuspended()
+    {
+        return statistics.isSuspended();
+    }
+
+    public void clear()
+    {
+        statistics.clear();
+    }
+}
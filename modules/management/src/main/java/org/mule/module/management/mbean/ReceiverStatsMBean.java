@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+/**
+ * <code>ReceiverStatsMBean</code> exposes the statistics of a message receiver.
+ */
+public interface ReceiverStatsMBean
+{
+
+    long getReceivedCount();
+
+    long getDroppedCount();
+
+    long getDroppedResponseCount();
+
+    long getSuspendCount();
+
+    long getSuspendedTime();
+
+    boolean isSuspended();
+
+    void clear();
+}
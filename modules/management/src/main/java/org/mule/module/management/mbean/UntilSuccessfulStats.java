@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+import org.mule.management.stats.UntilSuccessfulStatistics;
+
+/**
+ * <code>UntilSuccessfulStats</code> exposes the statistics of an asynchronous until
+ * successful router.
+ */
+public class UntilSuccessfulStats extends RouterStats implements UntilSuccessfulStatsMBean
+{
+
+    private final UntilSuccessfulStatistics statistics;
+
+    public UntilSuccessfulStats(UntilSuccessfulStatistics statistics)
+    {
+        super(statistics);
+        this.statistics = statistics;
+    }
+
+    public int getRetryBacklog()
+    {
+        return statistics.getRetryBacklog();
+    }
+
+    public long getAttemptCount()
+    {
+        return statistics.getAttemptCount();
+    }
+
+    public long getAverageDispatchDelay()
+    {
+        return statistics.getAverageDispatchDelay();
+    }
+}
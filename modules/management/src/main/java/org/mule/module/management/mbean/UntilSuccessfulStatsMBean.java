@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.management.mbean;
+
+/**
+ * <code>UntilSuccessfulStatsMBean</code> exposes the statistics of an asynchronous until
+ * successful router.
+ */
+public interface UntilSuccessfulStatsMBean extends RouterStatsMBean
+{
+
+    int getRetryBacklog();
+
+    long getAttemptCount();
+
+    long getAverageDispatchDelay();
+}
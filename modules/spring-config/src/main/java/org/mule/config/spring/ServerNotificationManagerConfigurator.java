@@ -10,6 +10,7 @@ import org.mule.api.MuleContext;
 import org.mule.api.context.MuleContextAware;
 import org.mule.api.context.notification.ServerNotificationListener;
 import org.mule.context.notification.ListenerSubscriptionPair;
+import org.mule.context.notification.NotificationOverflowPolicy;
 import org.mule.context.notification.ServerNotificationManager;
 
 import java.util.Collection;
@@ -33,6 +34,10 @@ public class ServerNotificationManagerConfigurator
     private Map interfaceToEvents;
     private Collection interfaces;
     private Collection<ListenerSubscriptionPair> pairs;
+    private Integer dispatcherThreads;
+    private Integer queueCapacity;
+    private NotificationOverflowPolicy overflowPolicy;
+    private Integer overflowSampleRate;
 
     public void setMuleContext(MuleContext context)
     {
@@ -54,6 +59,22 @@ public class ServerNotificationManagerConfigurator
         {
             notificationManager.setDisabledInterfaces(interfaces);
         }
+        if (dispatcherThreads != null)
+        {
+            notificationManager.setDispatcherThreads(dispatcherThreads);
+        }
+        if (queueCapacity != null)
+        {
+            notificationManager.setQueueCapacity(queueCapacity);
+        }
+        if (overflowPolicy != null)
+        {
+            notificationManager.setOverflowPolicy(overflowPolicy);
+        }
+        if (overflowSampleRate != null)
+        {
+            notificationManager.setOverflowSampleRate(overflowSampleRate);
+        }
 
         // Merge:
         // i) explicitly configured notification listeners,
@@ -144,6 +165,26 @@ public class ServerNotificationManagerConfigurator
         this.interfaces = interfaces;
     }
 
+    public void setDispatcherThreads(int dispatcherThreads)
+    {
+        this.dispatcherThreads = dispatcherThreads;
+    }
+
+    public void setQueueCapacity(int queueCapacity)
+    {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public void setOverflowPolicy(NotificationOverflowPolicy overflowPolicy)
+    {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public void setOverflowSampleRate(int overflowSampleRate)
+    {
+        this.overflowSampleRate = overflowSampleRate;
+    }
+
     public boolean isEagerInit()
     {
         return true;
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.config.spring.factories;
+
+import org.mule.api.cache.CachingStrategy;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.api.processor.MessageProcessorBuilder;
+import org.mule.processor.CachingInterceptingMessageProcessor;
+import org.mule.processor.chain.DefaultMessageProcessorChainBuilder;
+
+import java.util.List;
+
+import org.springframework.beans.factory.FactoryBean;
+
+/**
+ * Builds the chain of the &lt;cache&gt; scope, which processes its nested message processors
+ * through a {@link CachingStrategy}.
+ */
+public class CacheMessageProcessorsFactoryBean implements FactoryBean
+{
+
+    protected List messageProcessors;
+    protected CachingStrategy cachingStrategy;
+
+    public Class getObjectType()
+    {
+        return CachingInterceptingMessageProcessor.class;
+    }
+
+    public void setMessageProcessors(List messageProcessors)
+    {
+        this.messageProcessors = messageProcessors;
+    }
+
+    public Object getObject() throws Exception
+    {
+        DefaultMessageProcessorChainBuilder builder = new DefaultMessageProcessorChainBuilder();
+        builder.setName("'cache' child processor chain");
+        CachingInterceptingMessageProcessor cachingProcessor = new CachingInterceptingMessageProcessor();
+        if (cachingStrategy != null)
+        {
+            cachingProcessor.setCachingStrategy(cachingStrategy);
+        }
+        builder.chain(cachingProcessor);
+        for (Object processor : messageProcessors)
+        {
+            if (processor instanceof MessageProcessor)
+            {
+                builder.chain((MessageProcessor) processor);
+            }
+            else if (processor instanceof MessageProcessorBuilder)
+            {
+                builder.chain((MessageProcessorBuilder) processor);
+            }
+            else
+            {
+                throw new IllegalArgumentException(
+                    "MessageProcessorBuilder should only have MessageProcessor's or MessageProcessorBuilder's configured");
+            }
+        }
+        return builder.build();
+    }
+
+    public boolean isSingleton()
+    {
+        return false;
+    }
+
+    public void setCachingStrategy(CachingStrategy cachingStrategy)
+    {
+        this.cachingStrategy = cachingStrategy;
+    }
+}
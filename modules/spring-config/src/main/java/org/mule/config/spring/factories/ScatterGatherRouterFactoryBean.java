@@ -8,6 +8,7 @@
 package org.mule.config.spring.factories;
 
 import org.mule.api.config.ThreadingProfile;
+import org.mule.api.context.WorkManager;
 import org.mule.api.processor.MessageProcessor;
 import org.mule.routing.AggregationStrategy;
 import org.mule.routing.ScatterGatherRouter;
@@ -20,15 +21,20 @@ public class ScatterGatherRouterFactoryBean implements FactoryBean<ScatterGather
 {
 
     private long timeout = 0;
+    private int maxConcurrentRoutes = 0;
+    private int minSuccessfulRoutes = 0;
     private List<MessageProcessor> messageProcessors;
     private AggregationStrategy aggregationStrategy;
     private ThreadingProfile threadingProfile;
+    private WorkManager workManager;
 
     @Override
     public ScatterGatherRouter getObject() throws Exception
     {
         ScatterGatherRouter sg = new ScatterGatherRouter();
         sg.setTimeout(timeout);
+        sg.setMaxConcurrentRoutes(maxConcurrentRoutes);
+        sg.setMinSuccessfulRoutes(minSuccessfulRoutes);
 
         for (MessageProcessor mp : this.messageProcessors)
         {
@@ -45,6 +51,11 @@ public class ScatterGatherRouterFactoryBean implements FactoryBean<ScatterGather
             sg.setThreadingProfile(this.threadingProfile);
         }
 
+        if (this.workManager != null)
+        {
+            sg.setWorkManager(this.workManager);
+        }
+
         return sg;
     }
 
@@ -70,6 +81,16 @@ public class ScatterGatherRouterFactoryBean implements FactoryBean<ScatterGather
         this.timeout = timeout;
     }
 
+    public void setMaxConcurrentRoutes(int maxConcurrentRoutes)
+    {
+        this.maxConcurrentRoutes = maxConcurrentRoutes;
+    }
+
+    public void setMinSuccessfulRoutes(int minSuccessfulRoutes)
+    {
+        this.minSuccessfulRoutes = minSuccessfulRoutes;
+    }
+
     public void setAggregationStrategy(AggregationStrategy aggregationStrategy)
     {
         this.aggregationStrategy = aggregationStrategy;
@@ -84,4 +105,9 @@ public class ScatterGatherRouterFactoryBean implements FactoryBean<ScatterGather
     {
         this.threadingProfile = threadingProfile;
     }
+
+    public void setWorkManager(WorkManager workManager)
+    {
+        this.workManager = workManager;
+    }
 }
@@ -10,6 +10,7 @@ import org.mule.api.config.MuleProperties;
 import org.mule.api.config.ThreadingProfile;
 import org.mule.api.processor.LoggerMessageProcessor;
 import org.mule.api.source.MessageSource;
+import org.mule.cache.InMemoryCachingStrategy;
 import org.mule.component.DefaultInterfaceBinding;
 import org.mule.component.DefaultJavaComponent;
 import org.mule.component.PooledJavaComponent;
@@ -19,6 +20,7 @@ import org.mule.component.simple.LogComponent;
 import org.mule.component.simple.NullComponent;
 import org.mule.component.simple.PassThroughComponent;
 import org.mule.config.spring.factories.AggregationStrategyDefinitionParser;
+import org.mule.config.spring.factories.CacheMessageProcessorsFactoryBean;
 import org.mule.config.spring.factories.ChoiceRouterFactoryBean;
 import org.mule.config.spring.factories.CompositeMessageSourceFactoryBean;
 import org.mule.config.spring.factories.DefaultMemoryQueueStoreFactoryBean;
@@ -88,6 +90,7 @@ import org.mule.processor.IdempotentRedeliveryPolicy;
 import org.mule.processor.InvokerMessageProcessor;
 import org.mule.processor.NullMessageProcessor;
 import org.mule.processor.strategy.AsynchronousProcessingStrategy;
+import org.mule.processor.strategy.BatchingQueuedAsynchronousProcessingStrategy;
 import org.mule.processor.strategy.QueuedAsynchronousProcessingStrategy;
 import org.mule.processor.strategy.QueuedThreadPerProcessorProcessingStrategy;
 import org.mule.processor.strategy.ThreadPerProcessorProcessingStrategy;
@@ -364,6 +367,9 @@ public class MuleNamespaceHandler extends AbstractMuleNamespaceHandler
         registerBeanDefinitionParser("async", new AsyncMessageProcessorsDefinitionParser());
         registerBeanDefinitionParser("transactional", new ChildDefinitionParser("messageProcessor",
             TransactionalMessageProcessorsFactoryBean.class));
+        registerBeanDefinitionParser("cache", new ChildDefinitionParser("messageProcessor",
+            CacheMessageProcessorsFactoryBean.class));
+        registerBeanDefinitionParser("in-memory-caching-strategy", new MuleOrphanDefinitionParser(InMemoryCachingStrategy.class, true));
         registerMuleBeanDefinitionParser("logger", new ChildDefinitionParser("messageProcessor",
             LoggerMessageProcessor.class));
         registerMuleBeanDefinitionParser("expression-component",
@@ -420,6 +426,9 @@ public class MuleNamespaceHandler extends AbstractMuleNamespaceHandler
         registerMuleBeanDefinitionParser("queued-asynchronous-processing-strategy",
             new OrphanDefinitionParser(QueuedAsynchronousProcessingStrategy.class, false)).addMapping(
             "poolExhaustedAction", ThreadingProfile.POOL_EXHAUSTED_ACTIONS).addIgnored("name");
+        registerMuleBeanDefinitionParser("batching-queued-asynchronous-processing-strategy",
+            new OrphanDefinitionParser(BatchingQueuedAsynchronousProcessingStrategy.class, false)).addMapping(
+            "poolExhaustedAction", ThreadingProfile.POOL_EXHAUSTED_ACTIONS).addIgnored("name");
         registerMuleBeanDefinitionParser("thread-per-processor-processing-strategy",
             new OrphanDefinitionParser(ThreadPerProcessorProcessingStrategy.class, false)).addMapping(
             "poolExhaustedAction", ThreadingProfile.POOL_EXHAUSTED_ACTIONS).addIgnored("name");
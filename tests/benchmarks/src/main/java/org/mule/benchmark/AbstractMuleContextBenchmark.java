@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark;
+
+import org.mule.api.MuleContext;
+import org.mule.api.config.ConfigurationBuilder;
+import org.mule.config.DefaultMuleConfiguration;
+import org.mule.config.builders.DefaultsConfigurationBuilder;
+import org.mule.config.spring.SpringXmlConfigurationBuilder;
+import org.mule.context.DefaultMuleContextFactory;
+import org.mule.util.FileUtils;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Base class of the benchmarks that need a started {@link MuleContext}. The context is shared by
+ * all the threads of a benchmark and works on a temporary directory that is deleted once the
+ * benchmark ends.
+ * <p/>
+ * The defaults measure the average time of each operation, with enough warmup and forks for the
+ * results to be compared between releases. They can be overridden from the command line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(2)
+public abstract class AbstractMuleContextBenchmark
+{
+
+    protected MuleContext muleContext;
+    private File workingDirectory;
+
+    @Setup
+    public void setUpMuleContext() throws Exception
+    {
+        workingDirectory = File.createTempFile("mule-benchmark", "");
+        workingDirectory.delete();
+        DefaultMuleConfiguration configuration = new DefaultMuleConfiguration();
+        configuration.setWorkingDirectory(workingDirectory.getAbsolutePath());
+
+        muleContext = new DefaultMuleContextFactory().createMuleContext(getConfigurationBuilder(), null, configuration);
+        muleContext.start();
+    }
+
+    @TearDown
+    public void disposeMuleContext()
+    {
+        muleContext.dispose();
+        FileUtils.deleteTree(workingDirectory);
+    }
+
+    /**
+     * @return the configuration file of the benchmark, or null if it needs an empty context
+     */
+    protected String getConfigFile()
+    {
+        return null;
+    }
+
+    private ConfigurationBuilder getConfigurationBuilder() throws Exception
+    {
+        String configFile = getConfigFile();
+        return configFile == null ? new DefaultsConfigurationBuilder() : new SpringXmlConfigurationBuilder(configFile);
+    }
+}
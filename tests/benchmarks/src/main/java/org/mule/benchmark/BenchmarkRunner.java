@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected by the JMH command line options. The results are also written to
+ * a file, as JSON unless another format is requested, so they can be compared between releases.
+ */
+public class BenchmarkRunner
+{
+
+    public static final String DEFAULT_RESULT_FILE_NAME = "mule-benchmarks";
+
+    public static void main(String[] args) throws Exception
+    {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()
+            || commandLineOptions.shouldListResultFormats() || commandLineOptions.shouldListProfilers())
+        {
+            Main.main(args);
+            return;
+        }
+
+        ResultFormatType resultFormat = commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions).resultFormat(resultFormat);
+        if (!commandLineOptions.getResult().hasValue())
+        {
+            options.result(DEFAULT_RESULT_FILE_NAME + "." + resultFormat.toString().toLowerCase());
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark;
+
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.MessageExchangePattern;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+import org.mule.api.el.ExpressionLanguage;
+import org.mule.construct.Flow;
+import org.mule.el.mvel.MVELExpressionExecutor;
+import org.mule.el.mvel.MVELExpressionLanguage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Evaluation of MEL expressions. Evaluating the same expression repeatedly measures the warm
+ * path, while prefixing it with a different literal on each evaluation forces it to be compiled
+ * every time. The last expression is the script used by MVELPerformanceTestCase.
+ * <p/>
+ * Expressions are evaluated using the default MVEL optimizer. Other optimizers supported by
+ * {@link MVELExpressionExecutor} can be compared using, for example, {@code -p optimizer=reflective,dynamic,ASM}.
+ */
+public class ExpressionLanguageBenchmark extends AbstractMuleContextBenchmark
+{
+
+    private static final String CONTACT_SCRIPT = "StringBuilder sb = new StringBuilder(); fields = payload.split(',');"
+                                                + "if (fields.length > 4) {"
+                                                + "    sb.append('  <Contact>');"
+                                                + "    sb.append('    <FirstName>').append(fields[0]).append('</FirstName>');"
+                                                + "    sb.append('    <LastName>').append(fields[1]).append('</LastName>');"
+                                                + "    sb.append('    <Address>').append(fields[2]).append('</Address>');"
+                                                + "    sb.append('    <TelNum>').append(fields[3]).append('</TelNum>');"
+                                                + "    sb.append('    <SIN>').append(fields[4]).append('</SIN>');"
+                                                + "    sb.append('  </Contact>');" + "}" + "sb.toString();";
+
+    @Param({"payload", "message.outboundProperties['status']", "flowVars['count'] + 1", "payload.length() > 10 ? 'long' : 'short'", CONTACT_SCRIPT})
+    public String expression;
+
+    @Param({"reflective"})
+    public String optimizer;
+
+    private ExpressionLanguage expressionLanguage;
+    private MuleEvent event;
+    private int counter;
+
+    @Setup
+    public void setUpEvent() throws Exception
+    {
+        System.setProperty(MVELExpressionExecutor.OPTIMIZER_PROPERTY, optimizer);
+        try
+        {
+            MVELExpressionLanguage mvelExpressionLanguage = new MVELExpressionLanguage(muleContext);
+            mvelExpressionLanguage.initialise();
+            expressionLanguage = mvelExpressionLanguage;
+        }
+        finally
+        {
+            System.clearProperty(MVELExpressionExecutor.OPTIMIZER_PROPERTY);
+        }
+        MuleMessage message = new DefaultMuleMessage("Tom,Fennelly,Male,4,Ireland", muleContext);
+        message.setOutboundProperty("status", "200");
+        event = new DefaultMuleEvent(message, MessageExchangePattern.REQUEST_RESPONSE, new Flow("benchmark", muleContext));
+        event.setFlowVariable("count", 1);
+    }
+
+    @Benchmark
+    public Object evaluate()
+    {
+        return expressionLanguage.evaluate(expression, event);
+    }
+
+    @Benchmark
+    public Object evaluateNewExpression()
+    {
+        return expressionLanguage.evaluate(counter++ + "; " + expression, event);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark;
+
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.MessageExchangePattern;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.lifecycle.Lifecycle;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.api.processor.MessageProcessorChain;
+import org.mule.construct.Flow;
+import org.mule.processor.chain.DefaultMessageProcessorChainBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Execution of a {@link org.mule.processor.chain.DefaultMessageProcessorChain} of message
+ * processors that do nothing, so it measures the overhead added by the chain itself.
+ */
+public class MessageProcessorChainBenchmark extends AbstractMuleContextBenchmark
+{
+
+    @Param({"1", "10", "50"})
+    public int processorCount;
+
+    private Flow flow;
+    private MessageProcessorChain chain;
+
+    @Setup
+    public void setUpChain() throws Exception
+    {
+        flow = new Flow("benchmark", muleContext);
+        DefaultMessageProcessorChainBuilder builder = new DefaultMessageProcessorChainBuilder(flow);
+        for (int i = 0; i < processorCount; i++)
+        {
+            builder.chain(new PassThroughMessageProcessor());
+        }
+        chain = builder.build();
+        ((MuleContextAware) chain).setMuleContext(muleContext);
+        ((Lifecycle) chain).initialise();
+        ((Lifecycle) chain).start();
+    }
+
+    @Benchmark
+    public MuleEvent process() throws MuleException
+    {
+        MuleEvent event = new DefaultMuleEvent(new DefaultMuleMessage("payload", muleContext), MessageExchangePattern.REQUEST_RESPONSE, flow);
+        return chain.process(event);
+    }
+
+    private static class PassThroughMessageProcessor implements MessageProcessor
+    {
+
+        @Override
+        public MuleEvent process(MuleEvent event) throws MuleException
+        {
+            return event;
+        }
+    }
+}
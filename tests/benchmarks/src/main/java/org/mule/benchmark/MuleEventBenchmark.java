@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark;
+
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.MessageExchangePattern;
+import org.mule.api.MuleEvent;
+import org.mule.construct.Flow;
+import org.mule.session.DefaultMuleSession;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Copies of {@link DefaultMuleEvent} instances as done when crossing asynchronous boundaries, with
+ * different number of flow variables and session properties.
+ */
+public class MuleEventBenchmark extends AbstractMuleContextBenchmark
+{
+
+    @Param({"0", "10", "50"})
+    public int variables;
+
+    private DefaultMuleEvent event;
+
+    @Setup
+    public void setUpEvent() throws Exception
+    {
+        event = new DefaultMuleEvent(new DefaultMuleMessage("payload", muleContext),
+            MessageExchangePattern.ONE_WAY, new Flow("benchmark", muleContext));
+        for (int i = 0; i < variables; i++)
+        {
+            event.setFlowVariable("flowVariable" + i, "value");
+            event.setSessionVariable("sessionVariable" + i, "value");
+        }
+    }
+
+    @Benchmark
+    public Object newThreadCopy()
+    {
+        return event.newThreadCopy();
+    }
+
+    @Benchmark
+    public MuleEvent newThreadCopyAndSetFlowVariable()
+    {
+        MuleEvent copy = (MuleEvent) event.newThreadCopy();
+        copy.setFlowVariable("newFlowVariable", "value");
+        return copy;
+    }
+
+    @Benchmark
+    public MuleEvent copy()
+    {
+        return DefaultMuleEvent.copy(event);
+    }
+
+    @Benchmark
+    public MuleEvent copyWithNewSession()
+    {
+        return new DefaultMuleEvent(event.getMessage(), event, new DefaultMuleSession(event.getSession()));
+    }
+}
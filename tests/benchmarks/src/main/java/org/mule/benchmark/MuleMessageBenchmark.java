@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark;
+
+import org.mule.DefaultMuleMessage;
+import org.mule.api.MuleMessage;
+import org.mule.api.transport.PropertyScope;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Copy of {@link DefaultMuleMessage} instances and access to their properties, with different
+ * number of inbound and outbound properties.
+ */
+public class MuleMessageBenchmark extends AbstractMuleContextBenchmark
+{
+
+    private static final String PAYLOAD = "{\"name\": \"Mule\", \"version\": \"3.6.0\"}";
+
+    @Param({"0", "10", "50"})
+    public int propertiesPerScope;
+
+    private MuleMessage message;
+    private String existingPropertyName;
+
+    @Setup
+    public void setUpMessage()
+    {
+        message = new DefaultMuleMessage(PAYLOAD, muleContext);
+        for (int i = 0; i < propertiesPerScope; i++)
+        {
+            message.setProperty("inboundProperty" + i, "value", PropertyScope.INBOUND);
+            message.setProperty("outboundProperty" + i, "value", PropertyScope.OUTBOUND);
+        }
+        existingPropertyName = "outboundProperty" + propertiesPerScope / 2;
+    }
+
+    @Benchmark
+    public MuleMessage copy()
+    {
+        return new DefaultMuleMessage(message);
+    }
+
+    @Benchmark
+    public MuleMessage copyAndSetOutboundProperty()
+    {
+        MuleMessage copy = new DefaultMuleMessage(message);
+        copy.setOutboundProperty("newProperty", "value");
+        return copy;
+    }
+
+    @Benchmark
+    public MuleMessage copyPayload()
+    {
+        return new DefaultMuleMessage(PAYLOAD, message, muleContext);
+    }
+
+    @Benchmark
+    public Object getOutboundProperty()
+    {
+        return message.getOutboundProperty(existingPropertyName);
+    }
+
+    @Benchmark
+    public Object getMissingProperty()
+    {
+        return message.getInboundProperty("missingProperty");
+    }
+
+    @Benchmark
+    public Object getPropertyNames()
+    {
+        return message.getOutboundPropertyNames();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark;
+
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.lifecycle.Disposable;
+import org.mule.api.lifecycle.Initialisable;
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.util.store.AbstractMonitoredObjectStore;
+import org.mule.util.store.InMemoryObjectStore;
+import org.mule.util.store.IndexedInMemoryObjectStore;
+import org.mule.util.store.SimpleMemoryObjectStore;
+
+import java.io.Serializable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Operations on the in memory object stores, which back features such as the idempotent
+ * filters and the until successful router. The store is shared by all the threads of the
+ * benchmark, so running it with several threads measures its contention.
+ */
+public class ObjectStoreBenchmark extends AbstractMuleContextBenchmark
+{
+
+    private static final String VALUE = "value";
+
+    @Param({"simple", "inMemory", "indexed", "managed"})
+    public String store;
+
+    @Param({"10000"})
+    public int entries;
+
+    private ObjectStore<Serializable> objectStore;
+
+    /**
+     * Keeps the keys used by each thread apart
+     */
+    @State(Scope.Thread)
+    public static class Keys
+    {
+
+        private static int threads;
+
+        private String prefix;
+        private int counter;
+
+        @Setup
+        public void setUpPrefix()
+        {
+            synchronized (Keys.class)
+            {
+                prefix = "thread" + threads++ + "-";
+            }
+        }
+
+        String nextKey()
+        {
+            return prefix + counter++;
+        }
+
+        String existingKey(int entries)
+        {
+            return "key" + (counter++ & Integer.MAX_VALUE) % entries;
+        }
+    }
+
+    @Setup
+    public void setUpObjectStore() throws Exception
+    {
+        objectStore = createObjectStore();
+        if (objectStore instanceof MuleContextAware)
+        {
+            ((MuleContextAware) objectStore).setMuleContext(muleContext);
+        }
+        if (objectStore instanceof Initialisable)
+        {
+            ((Initialisable) objectStore).initialise();
+        }
+        for (int i = 0; i < entries; i++)
+        {
+            objectStore.store("key" + i, VALUE);
+        }
+    }
+
+    @TearDown
+    public void disposeObjectStore()
+    {
+        if (objectStore instanceof Disposable)
+        {
+            ((Disposable) objectStore).dispose();
+        }
+    }
+
+    @Benchmark
+    public Serializable storeAndRemove(Keys keys) throws ObjectStoreException
+    {
+        String key = keys.nextKey();
+        objectStore.store(key, VALUE);
+        return objectStore.remove(key);
+    }
+
+    @Benchmark
+    public Serializable retrieve(Keys keys) throws ObjectStoreException
+    {
+        return objectStore.retrieve(keys.existingKey(entries));
+    }
+
+    @Benchmark
+    public boolean containsMissing(Keys keys) throws ObjectStoreException
+    {
+        return objectStore.contains(keys.nextKey());
+    }
+
+    private ObjectStore<Serializable> createObjectStore()
+    {
+        if ("simple".equals(store))
+        {
+            return new SimpleMemoryObjectStore<Serializable>();
+        }
+        else if ("inMemory".equals(store))
+        {
+            return createMonitoredObjectStore(new InMemoryObjectStore<Serializable>());
+        }
+        else if ("indexed".equals(store))
+        {
+            return createMonitoredObjectStore(new IndexedInMemoryObjectStore<Serializable>());
+        }
+        else if ("managed".equals(store))
+        {
+            return muleContext.getObjectStoreManager().getObjectStore("benchmark");
+        }
+        throw new IllegalArgumentException("Unknown object store: " + store);
+    }
+
+    private ObjectStore<Serializable> createMonitoredObjectStore(AbstractMonitoredObjectStore<Serializable> objectStore)
+    {
+        objectStore.setMaxEntries(-1);
+        objectStore.setEntryTTL(-1);
+        return objectStore;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark;
+
+import org.mule.util.queue.DefaultQueueConfiguration;
+import org.mule.util.queue.DefaultQueueStore;
+import org.mule.util.queue.Queue;
+import org.mule.util.queue.QueueManager;
+
+import java.io.Serializable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Puts entries in a queue of the {@link QueueManager} and takes them back, using the transient
+ * store, the default persistent store and the segmented persistent store.
+ */
+public class QueueStoreBenchmark extends AbstractMuleContextBenchmark
+{
+
+    private static final String QUEUE_NAME = "benchmark";
+
+    @Param({"transient", "persistent", "segmented"})
+    public String store;
+
+    @Param({"1024"})
+    public int payloadSize;
+
+    private Queue queue;
+    private String payload;
+
+    @Setup
+    public void setUpQueue()
+    {
+        // the store implementation is chosen when the queue is configured
+        if ("segmented".equals(store))
+        {
+            System.setProperty(DefaultQueueStore.PERSISTENT_QUEUE_STORE_PROPERTY, DefaultQueueStore.SEGMENTED_QUEUE_STORE);
+        }
+        try
+        {
+            QueueManager queueManager = muleContext.getQueueManager();
+            queueManager.setQueueConfiguration(QUEUE_NAME, new DefaultQueueConfiguration(0, !"transient".equals(store)));
+            queue = queueManager.getQueueSession().getQueue(QUEUE_NAME);
+        }
+        finally
+        {
+            System.clearProperty(DefaultQueueStore.PERSISTENT_QUEUE_STORE_PROPERTY);
+        }
+        payload = new String(new char[payloadSize]).replace('\0', 'x');
+    }
+
+    @Benchmark
+    public Serializable putAndPoll() throws Exception
+    {
+        queue.put(payload);
+        return queue.poll(0);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark;
+
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.MessageExchangePattern;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+import org.mule.api.serialization.ObjectSerializer;
+import org.mule.construct.Flow;
+import org.mule.serialization.AbstractObjectSerializer;
+import org.mule.serialization.CompactObjectSerializer;
+import org.mule.serialization.JavaObjectSerializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Serialization of a {@link MuleEvent} as done by the persistent object and queue stores, with
+ * each of the available {@link ObjectSerializer} implementations.
+ */
+public class SerializationBenchmark extends AbstractMuleContextBenchmark
+{
+
+    private static final String PAYLOAD = "{\"name\": \"Mule\", \"version\": \"3.6.0\"}";
+
+    @Param({"java", "compact"})
+    public String serializer;
+
+    @Param({"10"})
+    public int propertiesPerScope;
+
+    private ObjectSerializer objectSerializer;
+    private MuleEvent event;
+    private byte[] serializedEvent;
+
+    @Setup
+    public void setUpEvent() throws Exception
+    {
+        objectSerializer = createSerializer();
+
+        Flow flow = new Flow("benchmark", muleContext);
+        muleContext.getRegistry().registerFlowConstruct(flow);
+        MuleMessage message = new DefaultMuleMessage(PAYLOAD, muleContext);
+        for (int i = 0; i < propertiesPerScope; i++)
+        {
+            message.setOutboundProperty("outboundProperty" + i, "value");
+        }
+        event = new DefaultMuleEvent(message, MessageExchangePattern.ONE_WAY, flow);
+        for (int i = 0; i < propertiesPerScope; i++)
+        {
+            event.setFlowVariable("variable" + i, i);
+        }
+        serializedEvent = objectSerializer.serialize(event);
+    }
+
+    @Benchmark
+    public byte[] serialize()
+    {
+        return objectSerializer.serialize(event);
+    }
+
+    @Benchmark
+    public MuleEvent deserialize()
+    {
+        return objectSerializer.deserialize(serializedEvent);
+    }
+
+    private ObjectSerializer createSerializer()
+    {
+        AbstractObjectSerializer objectSerializer;
+        if ("java".equals(serializer))
+        {
+            objectSerializer = new JavaObjectSerializer();
+        }
+        else if ("compact".equals(serializer))
+        {
+            objectSerializer = new CompactObjectSerializer();
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown serializer: " + serializer);
+        }
+        objectSerializer.setMuleContext(muleContext);
+        return objectSerializer;
+    }
+}
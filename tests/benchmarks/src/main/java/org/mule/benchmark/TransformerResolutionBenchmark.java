@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark;
+
+import org.mule.api.registry.ResolverException;
+import org.mule.api.registry.TransformerResolver.RegistryAction;
+import org.mule.api.transformer.Converter;
+import org.mule.api.transformer.DataType;
+import org.mule.api.transformer.Transformer;
+import org.mule.api.transformer.TransformerException;
+import org.mule.transformer.graph.GraphTransformerResolver;
+import org.mule.transformer.types.DataTypeFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Resolution of the transformer between two data types, through the registry and through a
+ * {@link GraphTransformerResolver} that knows all the registered converters.
+ */
+public class TransformerResolutionBenchmark extends AbstractMuleContextBenchmark
+{
+
+    private static final DataType<?> STRING = DataTypeFactory.STRING;
+    private static final DataType<?> BYTE_ARRAY = DataTypeFactory.BYTE_ARRAY;
+    private static final DataType<?> INPUT_STREAM = DataTypeFactory.INPUT_STREAM;
+
+    private GraphTransformerResolver resolver;
+
+    @Setup
+    public void setUpResolver()
+    {
+        resolver = new GraphTransformerResolver();
+        for (Converter converter : muleContext.getRegistry().lookupObjects(Converter.class))
+        {
+            resolver.transformerChange(converter, RegistryAction.ADDED);
+        }
+    }
+
+    @Benchmark
+    public Transformer lookupStringToByteArray() throws TransformerException
+    {
+        return muleContext.getRegistry().lookupTransformer(STRING, BYTE_ARRAY);
+    }
+
+    @Benchmark
+    public Transformer lookupInputStreamToString() throws TransformerException
+    {
+        return muleContext.getRegistry().lookupTransformer(INPUT_STREAM, STRING);
+    }
+
+    @Benchmark
+    public Transformer resolveStringToByteArray() throws ResolverException
+    {
+        return resolver.resolve(STRING, BYTE_ARRAY);
+    }
+
+    @Benchmark
+    public Transformer resolveInputStreamToString() throws ResolverException
+    {
+        return resolver.resolve(INPUT_STREAM, STRING);
+    }
+}
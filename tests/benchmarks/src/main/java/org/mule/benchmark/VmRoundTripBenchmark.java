@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.benchmark;
+
+import org.mule.api.MuleException;
+import org.mule.api.MuleMessage;
+import org.mule.api.client.MuleClient;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Messages sent through VM endpoints, both waiting for the response of a request-response flow
+ * and going through a one-way flow, so they cover the dispatch, the receiver and the flow
+ * processing.
+ */
+public class VmRoundTripBenchmark extends AbstractMuleContextBenchmark
+{
+
+    private static final long TIMEOUT = 10000;
+
+    @Param({"1024"})
+    public int payloadSize;
+
+    private MuleClient client;
+    private String payload;
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "vm-round-trip-benchmark-config.xml";
+    }
+
+    @Setup
+    public void setUpClient()
+    {
+        client = muleContext.getClient();
+        payload = new String(new char[payloadSize]).replace('\0', 'x');
+    }
+
+    @Benchmark
+    public MuleMessage requestResponse() throws MuleException
+    {
+        return client.send("vm://echo", payload, null, TIMEOUT);
+    }
+
+    @Benchmark
+    public MuleMessage oneWay() throws MuleException
+    {
+        client.dispatch("vm://in", payload, null);
+        return client.request("vm://out", TIMEOUT);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.config.spring.parsers.specific;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessageCollection;
+import org.mule.api.context.WorkManager;
+import org.mule.construct.Flow;
+import org.mule.routing.ScatterGatherRouter;
+import org.mule.tck.junit4.FunctionalTestCase;
+
+import java.lang.reflect.Field;
+
+import org.junit.Test;
+
+public class ScatterGatherDefinitionParserTestCase extends FunctionalTestCase
+{
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "org/mule/config/spring/parsers/specific/scatter-gather-config.xml";
+    }
+
+    @Test
+    public void routesWithSharedWorkManager() throws Exception
+    {
+        Flow flow = muleContext.getRegistry().lookupObject("sharedWorkManagerFlow");
+        ScatterGatherRouter router = (ScatterGatherRouter) flow.getMessageProcessors().get(0);
+        WorkManager sharedWorkManager = muleContext.getRegistry().lookupObject("sharedWorkManager");
+
+        Field workManager = ScatterGatherRouter.class.getDeclaredField("workManager");
+        workManager.setAccessible(true);
+        assertThat(workManager.get(router), sameInstance((Object) sharedWorkManager));
+
+        MuleEvent result = flow.process(getTestEvent("0"));
+
+        assertThat(((MuleMessageCollection) result.getMessage()).size(), is(2));
+        assertThat(flow.getStatistics().getRouterStatistics().get("scatter-gather"),
+            sameInstance(router.getRouterStatistics()));
+    }
+}
@@ -6,6 +6,7 @@
  */
 package org.mule.config.spring.parsers.specific;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -20,6 +21,7 @@ import org.mule.api.context.notification.ServerNotificationListener;
 import org.mule.api.security.UnauthorisedException;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.context.notification.ListenerSubscriptionPair;
+import org.mule.context.notification.NotificationOverflowPolicy;
 import org.mule.context.notification.SecurityNotification;
 import org.mule.context.notification.ServerNotificationManager;
 import org.mule.tck.junit4.FunctionalTestCase;
@@ -44,6 +46,16 @@ public class ServerNotificationManagerTestCase extends FunctionalTestCase
         assertTrue(manager.isNotificationDynamic());
     }
 
+    @Test
+    public void testDispatchAttributes()
+    {
+        ServerNotificationManager manager = muleContext.getNotificationManager();
+        assertEquals(4, manager.getDispatcherThreads());
+        assertEquals(1000, manager.getQueueCapacity());
+        assertEquals(NotificationOverflowPolicy.DROP, manager.getOverflowPolicy());
+        assertEquals(5, manager.getOverflowSampleRate());
+    }
+
     @Test
     public void testRoutingConfiguration()
     {
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.test.construct;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.cache.CacheEvictionPolicy;
+import org.mule.cache.InMemoryCachingStrategy;
+import org.mule.construct.Flow;
+import org.mule.tck.junit4.FunctionalTestCase;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CacheScopeTestCase extends FunctionalTestCase
+{
+
+    private static final AtomicInteger invocations = new AtomicInteger();
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "org/mule/test/construct/cache-scope-config.xml";
+    }
+
+    @Before
+    public void resetInvocations()
+    {
+        invocations.set(0);
+    }
+
+    @Test
+    public void configuresCachingStrategy() throws Exception
+    {
+        InMemoryCachingStrategy cachingStrategy = muleContext.getRegistry().lookupObject("lfuCache");
+
+        assertThat(cachingStrategy.getMaxSizeInBytes(), is(1048576L));
+        assertThat(cachingStrategy.getEntryTtl(), is(60000L));
+        assertThat(cachingStrategy.getEvictionPolicy(), is(CacheEvictionPolicy.LFU));
+    }
+
+    @Test
+    public void processesNestedProcessorsOnlyOnCacheMiss() throws Exception
+    {
+        assertThat(process("cachedFlow", "request"), is("request 1 processed"));
+        assertThat(process("cachedFlow", "request"), is("request 1 processed"));
+        assertThat(process("cachedFlow", "otherRequest"), is("otherRequest 2 processed"));
+        assertThat(invocations.get(), is(2));
+    }
+
+    @Test
+    public void cachesInMemoryByDefault() throws Exception
+    {
+        assertThat(process("defaultCacheFlow", "request"), is("request 1"));
+        assertThat(process("defaultCacheFlow", "request"), is("request 1"));
+        assertThat(invocations.get(), is(1));
+    }
+
+    private String process(String flowName, String payload) throws Exception
+    {
+        Flow flow = (Flow) getFlowConstruct(flowName);
+        return flow.process(getTestEvent(payload)).getMessageAsString();
+    }
+
+    public static class CountingMessageProcessor implements MessageProcessor
+    {
+
+        @Override
+        public MuleEvent process(MuleEvent event) throws MuleException
+        {
+            event.getMessage().setPayload(event.getMessageAsString() + " " + invocations.incrementAndGet());
+            return event;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import static org.junit.Assert.assertEquals;
+
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.junit4.rule.DynamicPort;
+import org.mule.tck.junit4.rule.SystemProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.commons.httpclient.ContentLengthInputStream;
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpParser;
+import org.apache.commons.httpclient.StatusLine;
+import org.apache.commons.io.IOUtils;
+import org.databene.contiperf.PerfTest;
+import org.databene.contiperf.junit.ContiPerfRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Compares the blocking and the non blocking HTTP listener while many keep-alive connections
+ * are open but only a few of them are active at any time. The blocking listener needs a thread
+ * per connection, so it is given as many receiver threads as there are connections.
+ * <p/>
+ * The number of connections can be changed with the <code>mule.test.http.connections</code>
+ * system property. Both client and server sockets are open during the test, so the open files
+ * limit must be at least twice that number.
+ */
+@RunWith(Parameterized.class)
+public class HttpListenerPerformanceTestCase extends FunctionalTestCase
+{
+
+    private static final int CONNECTIONS = Integer.getInteger("mule.test.http.connections", 10000);
+    private static final int NON_BLOCKING_RECEIVER_THREADS = 16;
+    private static final String ENCODING = "US-ASCII";
+    private static final String REQUEST = "GET /test HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+    @Rule
+    public ContiPerfRule rule = new ContiPerfRule();
+
+    @Rule
+    public DynamicPort dynamicPort = new DynamicPort("port");
+
+    @Rule
+    public SystemProperty nonBlockingListener;
+
+    @Rule
+    public SystemProperty maxThreadsActive;
+
+    private final BlockingQueue<Socket> connections = new LinkedBlockingQueue<Socket>();
+
+    public HttpListenerPerformanceTestCase(boolean nonBlocking)
+    {
+        nonBlockingListener = new SystemProperty("nonBlockingListener", Boolean.toString(nonBlocking));
+        // the blocking listener hands connections to a pool twice the size of the receiver pool
+        int receiverThreads = nonBlocking ? NON_BLOCKING_RECEIVER_THREADS : CONNECTIONS / 2 + 1;
+        maxThreadsActive = new SystemProperty("maxThreadsActive", Integer.toString(receiverThreads));
+    }
+
+    @Parameters
+    public static Collection<Object[]> parameters()
+    {
+        return Arrays.asList(new Object[][] {{false}, {true}});
+    }
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "http-listener-performance-config.xml";
+    }
+
+    @Override
+    public int getTestTimeoutSecs()
+    {
+        return 300;
+    }
+
+    @Before
+    public void openConnections() throws IOException
+    {
+        for (int i = 0; i < CONNECTIONS; i++)
+        {
+            connections.add(new Socket("localhost", dynamicPort.getNumber()));
+        }
+    }
+
+    @After
+    public void closeConnections() throws IOException
+    {
+        for (Socket socket : connections)
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    @PerfTest(duration = 30000, threads = 16, warmUp = 10000)
+    public void requestOnIdleConnection() throws Exception
+    {
+        // connections are used in turns, so all but a few are idle at any time
+        Socket socket = connections.take();
+        try
+        {
+            OutputStream out = socket.getOutputStream();
+            out.write(REQUEST.getBytes(ENCODING));
+            out.flush();
+            assertEquals("OK", readResponse(socket.getInputStream()));
+        }
+        finally
+        {
+            connections.put(socket);
+        }
+    }
+
+    private String readResponse(InputStream in) throws IOException
+    {
+        StatusLine statusLine = new StatusLine(HttpParser.readLine(in, ENCODING));
+        assertEquals(HttpConstants.SC_OK, statusLine.getStatusCode());
+
+        long contentLength = 0;
+        for (Header header : HttpParser.parseHeaders(in, ENCODING))
+        {
+            if (HttpConstants.HEADER_CONTENT_LENGTH.equalsIgnoreCase(header.getName()))
+            {
+                contentLength = Long.parseLong(header.getValue().trim());
+            }
+        }
+        return IOUtils.toString(new ContentLengthInputStream(in, contentLength), ENCODING);
+    }
+}
@@ -81,6 +81,12 @@ public class FtpConnector extends AbstractConnector
     /** Streaming is off by default until MULE-3192 gets fixed */
     private boolean streaming = false;
 
+    /**
+     * If set, receivers do not retrieve a file again while it is listed unchanged after
+     * it has been processed.
+     */
+    private boolean cacheProcessedFiles = false;
+
     private Map<String, ObjectPool> pools;
 
     private String connectionFactoryClass = DEFAULT_FTP_CONNECTION_FACTORY_CLASS;
@@ -697,4 +703,14 @@ public class FtpConnector extends AbstractConnector
         this.streaming = streaming;
     }
 
+    public boolean isCacheProcessedFiles()
+    {
+        return cacheProcessedFiles;
+    }
+
+    public void setCacheProcessedFiles(boolean cacheProcessedFiles)
+    {
+        this.cacheProcessedFiles = cacheProcessedFiles;
+    }
+
 }
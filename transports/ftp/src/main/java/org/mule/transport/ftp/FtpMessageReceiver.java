@@ -21,12 +21,15 @@ import org.mule.construct.Flow;
 import org.mule.processor.strategy.SynchronousProcessingStrategy;
 import org.mule.transport.AbstractConnector;
 import org.mule.transport.AbstractPollingMessageReceiver;
+import org.mule.transport.ProcessedFileCache;
 import org.mule.util.lock.LockFactory;
 
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -53,8 +56,15 @@ public class FtpMessageReceiver extends AbstractPollingMessageReceiver
     // something like commons-tx
     protected final Set<String> scheduledFiles = Collections.synchronizedSet(new HashSet<String>());
     protected final Set<String> currentFiles = Collections.synchronizedSet(new HashSet<String>());
+    protected final ProcessedFileCache processedFiles;
     private boolean poolOnPrimaryInstanceOnly;
 
+    /**
+     * Whether a subclass overrides the deprecated {@link #listFiles()}, which is then used
+     * to list the files instead of the paged listing
+     */
+    private final boolean listFilesOverridden;
+
     public FtpMessageReceiver(Connector connector,
                               FlowConstruct flowConstruct,
                               InboundEndpoint endpoint,
@@ -74,6 +84,26 @@ public class FtpMessageReceiver extends AbstractPollingMessageReceiver
         {
             this.filenameFilter = null;
         }
+
+        this.processedFiles = this.connector.isCacheProcessedFiles() ? new ProcessedFileCache() : null;
+        this.listFilesOverridden = isListFilesOverridden();
+    }
+
+    private boolean isListFilesOverridden()
+    {
+        for (Class<?> type = getClass(); type != FtpMessageReceiver.class; type = type.getSuperclass())
+        {
+            try
+            {
+                type.getDeclaredMethod("listFiles");
+                return true;
+            }
+            catch (NoSuchMethodException e)
+            {
+                // keep looking in the superclass
+            }
+        }
+        return false;
     }
 
     @Override
@@ -88,36 +118,75 @@ public class FtpMessageReceiver extends AbstractPollingMessageReceiver
     }
 
 
+    /**
+     * Schedules the retrieval of every new file as soon as its page of the listing has
+     * been parsed, so that files are fetched in parallel, over connections of the
+     * connector's pool, while the rest of the listing is still processed.
+     * <p/>
+     * If a subclass overrides the deprecated {@link #listFiles()}, the files it returns
+     * are scheduled instead.
+     */
     @Override
     public void poll() throws Exception
     {
-        FTPFile[] files = listFiles();
+        SchedulingCallback callback = new SchedulingCallback();
+        boolean completeListing;
+        if (listFilesOverridden)
+        {
+            FTPFile[] files = listFiles();
+            if (files != null)
+            {
+                callback.onPage(Arrays.asList(files));
+            }
+            completeListing = !getLifecycleState().isStopping();
+        }
+        else
+        {
+            completeListing = listFiles(callback);
+        }
+
+        if (processedFiles != null && completeListing)
+        {
+            processedFiles.retainAll(callback.listedNames);
+        }
         if (logger.isDebugEnabled())
         {
-            logger.debug("Poll encountered " + files.length + " new file(s)");
+            logger.debug("Poll encountered " + callback.scheduled + " new file(s)");
+        }
+    }
+
+    private boolean scheduleFile(FTPFile file) throws Exception
+    {
+        String fileName = file.getName();
+        if (processedFiles != null && processedFiles.isProcessed(fileName, file.getSize(), getTimestamp(file)))
+        {
+            return false;
         }
 
         synchronized (scheduledFiles)
         {
-            for (final FTPFile file : files)
+            if (scheduledFiles.contains(fileName) || currentFiles.contains(fileName))
             {
-                if (getLifecycleState().isStopping())
-                {
-                    break;
-                }
-
-                final String fileName = file.getName();
-
-                if (!scheduledFiles.contains(fileName) && !currentFiles.contains(fileName))
-                {
-                    if (!scheduledFiles.contains(fileName) && !currentFiles.contains(fileName))
-                    {
-                        scheduledFiles.add(fileName);
-                        getWorkManager().scheduleWork(new FtpWork(fileName, file));
-                    }
-                }
+                return false;
             }
+            scheduledFiles.add(fileName);
+        }
+        try
+        {
+            getWorkManager().scheduleWork(new FtpWork(fileName, file));
         }
+        catch (Exception e)
+        {
+            scheduledFiles.remove(fileName);
+            throw e;
+        }
+        return true;
+    }
+
+    private static long getTimestamp(FTPFile file)
+    {
+        Calendar timestamp = file.getTimestamp();
+        return timestamp == null ? -1 : timestamp.getTimeInMillis();
     }
 
     @Override
@@ -126,44 +195,72 @@ public class FtpMessageReceiver extends AbstractPollingMessageReceiver
         return poolOnPrimaryInstanceOnly;
     }
 
+    /**
+     * Lists the files of the remote directory that are accepted by the endpoint's
+     * filename filter.
+     *
+     * @deprecated the files are listed by {@link #listFiles(FilePageCallback)}, which
+     *             passes them on one page at a time. This method is only invoked by
+     *             {@link #poll()} when a subclass overrides it.
+     */
+    @Deprecated
     protected FTPFile[] listFiles() throws Exception
+    {
+        final List<FTPFile> files = new ArrayList<FTPFile>();
+        listFiles(new FilePageCallback()
+        {
+            public void onPage(List<FTPFile> page)
+            {
+                files.addAll(page);
+            }
+        });
+        return files.toArray(new FTPFile[files.size()]);
+    }
+
+    /**
+     * Pages through the listing of the remote directory, passing the files of each page
+     * that are accepted by the endpoint's filename filter to the callback as soon as the
+     * page has been parsed.
+     *
+     * @return false if the listing was cut short because the receiver is stopping
+     */
+    protected boolean listFiles(FilePageCallback callback) throws Exception
     {
         FTPClient client = null;
         try
         {
             client = connector.createFtpClient(endpoint);
             FTPListParseEngine engine = client.initiateListParsing();
-            FTPFile[] files = null;
-            List<FTPFile> v = new ArrayList<FTPFile>();
             while (engine.hasNext())
             {
                 if (getLifecycleState().isStopping())
                 {
-                    break;
+                    return false;
                 }
-                files = engine.getNext(FTP_LIST_PAGE_SIZE);
+                FTPFile[] files = engine.getNext(FTP_LIST_PAGE_SIZE);
                 if (files == null || files.length == 0)
                 {
-                    return files;
+                    break;
                 }
+                List<FTPFile> page = new ArrayList<FTPFile>(files.length);
                 for (FTPFile file : files)
                 {
                     if (file.isFile())
                     {
                         if (filenameFilter == null || filenameFilter.accept(null, file.getName()))
                         {
-                            v.add(file);
+                            page.add(file);
                         }
                     }
                 }
+                callback.onPage(page);
             }
 
             if (!FTPReply.isPositiveCompletion(client.getReplyCode()))
             {
                 throw new IOException("Failed to list files. Ftp error: " + client.getReplyCode());
             }
-
-            return v.toArray(new FTPFile[v.size()]);
+            return true;
         }
         finally
         {
@@ -269,6 +366,32 @@ public class FtpMessageReceiver extends AbstractPollingMessageReceiver
         // template method
     }
 
+    /**
+     * Receives the files of the remote directory one page of the listing at a time.
+     */
+    protected interface FilePageCallback
+    {
+        void onPage(List<FTPFile> files) throws Exception;
+    }
+
+    private final class SchedulingCallback implements FilePageCallback
+    {
+        private final Set<String> listedNames = new HashSet<String>();
+        private int scheduled;
+
+        public void onPage(List<FTPFile> files) throws Exception
+        {
+            for (FTPFile file : files)
+            {
+                listedNames.add(file.getName());
+                if (scheduleFile(file))
+                {
+                    scheduled++;
+                }
+            }
+        }
+    }
+
     private final class FtpWork implements Work
     {
         private final String name;
@@ -284,6 +407,7 @@ public class FtpMessageReceiver extends AbstractPollingMessageReceiver
         {
             FTPClient client = null;
             MuleMessage muleMessage = null;
+            boolean routed = false;
             Lock lock = getEndpoint().getMuleContext().getLockFactory().createLock(file.getName());
             if (lock.tryLock())
             {
@@ -309,6 +433,7 @@ public class FtpMessageReceiver extends AbstractPollingMessageReceiver
                             return null;
                         }
                     });
+                    routed = true;
                     postProcess(finalClient, file, finalMessage);
                 }
                 catch (MessagingException e)
@@ -316,6 +441,7 @@ public class FtpMessageReceiver extends AbstractPollingMessageReceiver
                     //Already handled by TransactionTemplate
                     if (!e.causedRollback())
                     {
+                        routed = true;
                         try
                         {
                             postProcess(client,file,muleMessage);
@@ -344,6 +470,11 @@ public class FtpMessageReceiver extends AbstractPollingMessageReceiver
                             logger.error(e);
                         }
                     }
+                    if (routed && processedFiles != null)
+                    {
+                        // the file is only listed again if it could not be deleted
+                        processedFiles.processed(name, file.getSize(), getTimestamp(file));
+                    }
                     currentFiles.remove(name);
                     scheduledFiles.remove(name);
                 }
@@ -41,6 +41,7 @@ public class FtpNamespaceHandlerTestCase extends FunctionalTestCase
         assertEquals(false, c.isBinary());
         assertEquals(false, c.isPassive());
         assertEquals(false, c.isValidateConnections());
+        assertEquals(true, c.isCacheProcessedFiles());
         assertEquals(FTPConnectorTestCase.TestFtpConnectionFactory.class.getName(), c.getConnectionFactoryClass());
 
         FilenameParser parser = c.getFilenameParser();
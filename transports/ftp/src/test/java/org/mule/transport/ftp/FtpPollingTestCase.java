@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.ftp;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.api.MuleEventContext;
+import org.mule.api.transport.PropertyScope;
+import org.mule.tck.functional.EventCallback;
+import org.mule.transport.file.FileConnector;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ftpserver.ftplet.DefaultFtpReply;
+import org.apache.ftpserver.ftplet.DefaultFtplet;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpReply;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.FtpSession;
+import org.apache.ftpserver.ftplet.FtpletResult;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+
+public class FtpPollingTestCase extends AbstractFtpServerTestCase
+{
+
+    // more than a page of the listing
+    private static final int FILES = 60;
+    private static final String KEPT_FILE = "kept.txt";
+
+    private final ConcurrentMap<String, AtomicInteger> received = new ConcurrentHashMap<String, AtomicInteger>();
+
+    public FtpPollingTestCase(ConfigVariant variant, String configResources)
+    {
+        super(variant, configResources);
+        ftplet = new DefaultFtplet()
+        {
+            @Override
+            public FtpletResult onDeleteStart(FtpSession session, FtpRequest request) throws FtpException, IOException
+            {
+                if (request.getArgument().endsWith(KEPT_FILE))
+                {
+                    session.write(new DefaultFtpReply(FtpReply.REPLY_550_REQUESTED_ACTION_NOT_TAKEN, "Not allowed"));
+                    return FtpletResult.SKIP;
+                }
+                return null;
+            }
+        };
+    }
+
+    @Parameters
+    public static Collection<Object[]> parameters()
+    {
+        return Arrays.asList(new Object[][]{
+            {ConfigVariant.FLOW, "ftp-polling-config.xml"}
+        });
+    }
+
+    @Test
+    public void receivesAllFilesOfPagedListing() throws Exception
+    {
+        CountDownLatch latch = countReceivedFiles(FILES);
+        for (int i = 0; i < FILES; i++)
+        {
+            createFileOnFtpServer("file" + i + ".txt");
+        }
+
+        assertTrue(latch.await(getTimeout(), TimeUnit.MILLISECONDS));
+        assertThat(received.size(), is(FILES));
+    }
+
+    @Test
+    public void doesNotReceiveUnchangedFileAgain() throws Exception
+    {
+        CountDownLatch latch = countReceivedFiles(1);
+        createFileOnFtpServer(KEPT_FILE);
+
+        assertTrue(latch.await(getTimeout(), TimeUnit.MILLISECONDS));
+        // several polls find the file that could not be deleted
+        Thread.sleep(1000);
+        assertTrue(fileExists(KEPT_FILE));
+        assertThat(received.get(KEPT_FILE).get(), is(1));
+    }
+
+    private CountDownLatch countReceivedFiles(int files) throws Exception
+    {
+        final CountDownLatch latch = new CountDownLatch(files);
+        getFunctionalTestComponent("testComponent").setEventCallback(new EventCallback()
+        {
+            @Override
+            public void eventReceived(MuleEventContext context, Object component) throws Exception
+            {
+                String fileName = context.getMessage().getProperty(FileConnector.PROPERTY_ORIGINAL_FILENAME,
+                    PropertyScope.INBOUND);
+                AtomicInteger count = new AtomicInteger();
+                AtomicInteger previous = received.putIfAbsent(fileName, count);
+                (previous == null ? count : previous).incrementAndGet();
+                latch.countDown();
+            }
+        });
+        return latch;
+    }
+}
@@ -35,6 +35,7 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.URI;
+import java.nio.channels.ServerSocketChannel;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -213,6 +214,8 @@ public class HttpConnector extends TcpConnector
     
     private boolean singleDispatcherPerEndpoint = false;
 
+    private boolean nonBlockingListener = false;
+
     public HttpConnector(MuleContext context)
     {
         super(context);
@@ -453,6 +456,20 @@ public class HttpConnector extends TcpConnector
     }
 
 
+    /**
+     * Whether inbound requests are read using a selector so that idle keep-alive connections
+     * do not hold a receiver thread.
+     */
+    public boolean isNonBlockingListener()
+    {
+        return nonBlockingListener;
+    }
+
+    public void setNonBlockingListener(boolean nonBlockingListener)
+    {
+        this.nonBlockingListener = nonBlockingListener;
+    }
+
     public HttpConnectionManager getClientConnectionManager()
     {
         return clientConnectionManager;
@@ -675,6 +692,12 @@ public class HttpConnector extends TcpConnector
         return super.getServerSocket(uri);
     }
 
+    @Override
+    protected ServerSocketChannel getServerSocketChannel(URI uri) throws IOException
+    {
+        return super.getServerSocketChannel(uri);
+    }
+
     /**
      * @deprecated Use keepAlive property in the outbound endpoint.
      */
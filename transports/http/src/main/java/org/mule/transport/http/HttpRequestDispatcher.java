@@ -38,11 +38,11 @@ class HttpRequestDispatcher implements Work
     private static Log logger = LogFactory.getLog(HttpRequestDispatcher.class);
 
     private ServerSocket serverSocket;
-    private HttpConnector httpConnector;
+    protected HttpConnector httpConnector;
     private RetryPolicyTemplate retryTemplate;
     protected ExecutorService requestHandOffExecutor;
     private WorkManager workManager;
-    private final AtomicBoolean disconnect = new AtomicBoolean(false);
+    protected final AtomicBoolean disconnect = new AtomicBoolean(false);
 
     public HttpRequestDispatcher(final HttpConnector httpConnector, final RetryPolicyTemplate retryPolicyTemplate, final ServerSocket serverSocket, final WorkManager workManager)
     {
@@ -61,6 +61,15 @@ public class HttpServerConnection implements HandshakeCompletedListener
     private RequestLine requestLine;
 
     public HttpServerConnection(final Socket socket, String encoding, HttpConnector connector) throws IOException
+    {
+        this(socket, null, encoding, connector);
+    }
+
+    /**
+     * @param in the stream requests are read from, or <code>null</code> to read them from the
+     *            socket's input stream through a buffer
+     */
+    HttpServerConnection(final Socket socket, InputStream in, String encoding, HttpConnector connector) throws IOException
     {
         super();
 
@@ -90,7 +99,7 @@ public class HttpServerConnection implements HandshakeCompletedListener
             socket.setSoTimeout(connector.getServerSoTimeout());
         }
 
-        this.in = new BufferedInputStream(socket.getInputStream());
+        this.in = in != null ? in : new BufferedInputStream(socket.getInputStream());
         this.out = new DataOutputStream(socket.getOutputStream());
         this.encoding = encoding;
     }
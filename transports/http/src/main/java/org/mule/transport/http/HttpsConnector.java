@@ -55,6 +55,15 @@ public class HttpsConnector extends HttpConnector implements TlsDirectKeyStore,
         setValidateConnections(false);
     }
 
+    /**
+     * TLS connections are always read using the blocking listener.
+     */
+    @Override
+    public boolean isNonBlockingListener()
+    {
+        return false;
+    }
+
     @Override
     protected ServerSocket getServerSocket(URI uri) throws IOException
     {
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A client connection accepted by a {@link NioHttpRequestDispatcher}.
+ * <p/>
+ * While the connection is idle the selector thread reads whatever the client sends into the
+ * connection buffer until a complete request head is available. The request is then processed
+ * in blocking mode by a worker thread, which reads the buffered bytes first and only then from
+ * the socket. Bytes of pipelined requests that are read ahead remain in the buffer for the next
+ * request.
+ */
+class NioHttpConnection
+{
+
+    private static final Log logger = LogFactory.getLog(NioHttpConnection.class);
+
+    static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    private final SocketChannel channel;
+    private final int bufferSize;
+    private final InputStream inputStream = new ConnectionInputStream();
+    private byte[] data;
+    private int start;
+    private int end;
+    private int scanFrom;
+    private volatile long lastActivity = System.currentTimeMillis();
+    private HttpServerConnection serverConnection;
+
+    NioHttpConnection(SocketChannel channel, int bufferSize)
+    {
+        this.channel = channel;
+        this.bufferSize = bufferSize;
+    }
+
+    SocketChannel getChannel()
+    {
+        return channel;
+    }
+
+    long getLastActivity()
+    {
+        return lastActivity;
+    }
+
+    /**
+     * Reads what is available from the channel without blocking.
+     *
+     * @return the number of bytes read, or <em>-1</em> if the client closed the connection
+     */
+    int readAvailable() throws IOException
+    {
+        lastActivity = System.currentTimeMillis();
+        if (data == null)
+        {
+            data = new byte[bufferSize];
+        }
+        else if (end == data.length)
+        {
+            compact();
+        }
+        if (end == data.length)
+        {
+            return 0;
+        }
+
+        int read = channel.read(ByteBuffer.wrap(data, end, data.length - end));
+        if (read > 0)
+        {
+            end += read;
+        }
+        return read;
+    }
+
+    /**
+     * Whether the buffer holds a complete request head, that is the request line and headers
+     * followed by an empty line. A full buffer is reported as available as well so that the
+     * parser can deal with oversized heads.
+     */
+    boolean isRequestHeadAvailable()
+    {
+        // empty lines before a request line are ignored
+        while (start < end && (data[start] == '\r' || data[start] == '\n'))
+        {
+            start++;
+        }
+        if (start == end)
+        {
+            return false;
+        }
+        if (start == 0 && end == data.length)
+        {
+            return true;
+        }
+
+        for (int i = Math.max(start, scanFrom); i < end; i++)
+        {
+            if (data[i] == '\n')
+            {
+                int next = i + 1;
+                if (next < end && data[next] == '\r')
+                {
+                    next++;
+                }
+                if (next < end && data[next] == '\n')
+                {
+                    return true;
+                }
+            }
+        }
+        // the terminator may be split across reads
+        scanFrom = Math.max(start, end - 2);
+        return false;
+    }
+
+    /**
+     * Prepares the connection for the next request, releasing the buffer if nothing was read
+     * ahead so that idle connections do not hold on to it.
+     */
+    void recycle()
+    {
+        lastActivity = System.currentTimeMillis();
+        scanFrom = 0;
+        if (start == end)
+        {
+            data = null;
+            start = 0;
+            end = 0;
+        }
+    }
+
+    /**
+     * Returns the connection used to process requests, creating it the first time. Must be
+     * called while the channel is in blocking mode.
+     */
+    HttpServerConnection getServerConnection(String encoding, HttpConnector connector) throws IOException
+    {
+        if (serverConnection == null)
+        {
+            serverConnection = new HttpServerConnection(channel.socket(), inputStream, encoding, connector);
+        }
+        return serverConnection;
+    }
+
+    void close()
+    {
+        if (serverConnection != null)
+        {
+            serverConnection.close();
+            return;
+        }
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("(Ignored) Error closing the channel: " + e.getMessage());
+            }
+        }
+    }
+
+    private void compact()
+    {
+        if (start > 0)
+        {
+            System.arraycopy(data, start, data, 0, end - start);
+            end -= start;
+            scanFrom = Math.max(0, scanFrom - start);
+            start = 0;
+        }
+    }
+
+    /**
+     * Reads the buffered bytes first and then from the socket. Reading from the socket stream
+     * honours the socket timeout, which a blocking channel read would not.
+     */
+    private class ConnectionInputStream extends InputStream
+    {
+
+        @Override
+        public int read() throws IOException
+        {
+            if (start == end && fill() < 0)
+            {
+                return -1;
+            }
+            return data[start++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (len == 0)
+            {
+                return 0;
+            }
+            if (start == end && fill() < 0)
+            {
+                return -1;
+            }
+            int count = Math.min(len, end - start);
+            System.arraycopy(data, start, b, off, count);
+            start += count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException
+        {
+            return end - start;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+
+        private int fill() throws IOException
+        {
+            if (data == null)
+            {
+                data = new byte[bufferSize];
+            }
+            start = 0;
+            end = 0;
+            int read;
+            do
+            {
+                read = channel.socket().getInputStream().read(data, 0, data.length);
+            }
+            while (read == 0);
+            if (read > 0)
+            {
+                end = read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import org.mule.api.context.WorkManager;
+import org.mule.api.retry.RetryPolicyTemplate;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Manage a non blocking ServerSocketChannel.
+ * <p/>
+ * A single selector thread accepts connections and reads from idle connections until a complete
+ * request head is available. Only then the connection is switched to blocking mode and handed to
+ * a worker that processes the request, so idle keep-alive connections do not hold a thread. Once
+ * the response is written, the worker hands the connection back to the selector.
+ */
+class NioHttpRequestDispatcher extends HttpRequestDispatcher
+{
+
+    private static Log logger = LogFactory.getLog(NioHttpRequestDispatcher.class);
+
+    private static final long SELECT_TIMEOUT = 1000;
+
+    private final ServerSocketChannel serverSocketChannel;
+    private final Selector selector;
+    private final Queue<NioHttpConnection> resumedConnections = new ConcurrentLinkedQueue<NioHttpConnection>();
+    private final List<NioHttpConnection> readyConnections = new ArrayList<NioHttpConnection>();
+
+    public NioHttpRequestDispatcher(final HttpConnector httpConnector, final RetryPolicyTemplate retryPolicyTemplate, final ServerSocketChannel serverSocketChannel, final WorkManager workManager) throws IOException
+    {
+        super(httpConnector, retryPolicyTemplate, serverSocketChannel.socket(), workManager);
+        this.serverSocketChannel = serverSocketChannel;
+        this.selector = Selector.open();
+        serverSocketChannel.configureBlocking(false);
+        serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    @Override
+    public void run()
+    {
+        long lastIdleCheck = System.currentTimeMillis();
+        while (!disconnect.get())
+        {
+            try
+            {
+                selector.select(SELECT_TIMEOUT);
+                registerResumedConnections();
+
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext())
+                {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if (!key.isValid())
+                    {
+                        continue;
+                    }
+                    if (key.isAcceptable())
+                    {
+                        accept();
+                    }
+                    else if (key.isReadable())
+                    {
+                        read(key);
+                    }
+                }
+
+                dispatchReadyConnections();
+
+                long now = System.currentTimeMillis();
+                if (now - lastIdleCheck >= SELECT_TIMEOUT)
+                {
+                    closeIdleConnections(now);
+                    lastIdleCheck = now;
+                }
+            }
+            catch (ClosedSelectorException e)
+            {
+                break;
+            }
+            catch (Exception e)
+            {
+                if (!httpConnector.isDisposed() && !disconnect.get())
+                {
+                    httpConnector.getMuleContext().getExceptionListener().handleException(e);
+                }
+            }
+        }
+        closeSelector();
+    }
+
+    private void accept() throws IOException
+    {
+        SocketChannel channel;
+        while ((channel = serverSocketChannel.accept()) != null)
+        {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new NioHttpConnection(channel, NioHttpConnection.DEFAULT_BUFFER_SIZE));
+        }
+    }
+
+    private void read(SelectionKey key)
+    {
+        NioHttpConnection connection = (NioHttpConnection) key.attachment();
+        int read;
+        try
+        {
+            read = connection.readAvailable();
+        }
+        catch (IOException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Closing connection after read failure: " + e.getMessage());
+            }
+            read = -1;
+        }
+
+        if (read < 0)
+        {
+            key.cancel();
+            connection.close();
+        }
+        else if (connection.isRequestHeadAvailable())
+        {
+            key.cancel();
+            readyConnections.add(connection);
+        }
+    }
+
+    private void registerResumedConnections()
+    {
+        NioHttpConnection connection;
+        while ((connection = resumedConnections.poll()) != null)
+        {
+            if (connection.isRequestHeadAvailable())
+            {
+                // a pipelined request was already read along with the previous one
+                readyConnections.add(connection);
+                continue;
+            }
+            try
+            {
+                connection.getChannel().register(selector, SelectionKey.OP_READ, connection);
+            }
+            catch (ClosedChannelException e)
+            {
+                connection.close();
+            }
+        }
+    }
+
+    private void dispatchReadyConnections() throws IOException
+    {
+        if (readyConnections.isEmpty())
+        {
+            return;
+        }
+
+        // flush the cancelled keys so the channels can be switched to blocking mode
+        selector.selectNow();
+        for (NioHttpConnection connection : readyConnections)
+        {
+            try
+            {
+                connection.getChannel().configureBlocking(true);
+                requestHandOffExecutor.execute(new NioHttpRequestDispatcherWork(httpConnector, this, connection));
+            }
+            catch (IOException e)
+            {
+                connection.close();
+            }
+            catch (RejectedExecutionException e)
+            {
+                logger.warn("Closing connection since the request could not be dispatched: " + e.getMessage());
+                connection.close();
+            }
+        }
+        readyConnections.clear();
+    }
+
+    private void closeIdleConnections(long now)
+    {
+        long keepAliveTimeout = httpConnector.getKeepAliveTimeout();
+        if (keepAliveTimeout <= 0)
+        {
+            return;
+        }
+        for (SelectionKey key : selector.keys())
+        {
+            NioHttpConnection connection = (NioHttpConnection) key.attachment();
+            if (connection != null && key.isValid() && now - connection.getLastActivity() > keepAliveTimeout)
+            {
+                key.cancel();
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Hands a connection whose request was processed back to the selector to wait for the
+     * next request.
+     */
+    void resume(NioHttpConnection connection)
+    {
+        if (disconnect.get())
+        {
+            connection.close();
+            return;
+        }
+        try
+        {
+            connection.getChannel().configureBlocking(false);
+        }
+        catch (IOException e)
+        {
+            connection.close();
+            return;
+        }
+        connection.recycle();
+        resumedConnections.add(connection);
+        selector.wakeup();
+    }
+
+    private void closeSelector()
+    {
+        try
+        {
+            for (SelectionKey key : selector.keys())
+            {
+                if (key.attachment() != null)
+                {
+                    ((NioHttpConnection) key.attachment()).close();
+                }
+            }
+            NioHttpConnection connection;
+            while ((connection = resumedConnections.poll()) != null)
+            {
+                connection.close();
+            }
+            selector.close();
+        }
+        catch (ClosedSelectorException e)
+        {
+            // already closed
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to close selector: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    void disconnect()
+    {
+        super.disconnect();
+        selector.wakeup();
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http;
+
+import org.mule.api.transport.NoReceiverForEndpointException;
+import org.mule.transport.http.i18n.HttpMessages;
+import org.mule.util.monitor.Expirable;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Dispatches a single HttpRequest read by a {@link NioHttpRequestDispatcher} to the appropriate
+ * MessageReceiver and hands the connection back to the dispatcher if it is to be kept alive.
+ */
+class NioHttpRequestDispatcherWork implements Runnable, Expirable
+{
+
+    private static Log logger = LogFactory.getLog(NioHttpRequestDispatcherWork.class);
+
+    private final HttpConnector httpConnector;
+    private final NioHttpRequestDispatcher dispatcher;
+    private final NioHttpConnection connection;
+    private HttpServerConnection httpServerConnection;
+
+    NioHttpRequestDispatcherWork(HttpConnector httpConnector, NioHttpRequestDispatcher dispatcher, NioHttpConnection connection)
+    {
+        this.httpConnector = httpConnector;
+        this.dispatcher = dispatcher;
+        this.connection = connection;
+    }
+
+    @Override
+    public void run()
+    {
+        boolean keepAlive = false;
+        try
+        {
+            long keepAliveTimeout = httpConnector.getKeepAliveTimeout();
+            String encoding = httpConnector.getMuleContext().getConfiguration().getDefaultEncoding();
+            httpServerConnection = connection.getServerConnection(encoding, httpConnector);
+            try
+            {
+                httpServerConnection.setKeepAlive(false);
+
+                // Only add a monitor if the timeout has been set
+                if (keepAliveTimeout > 0)
+                {
+                    httpConnector.getKeepAliveMonitor().addExpirable(
+                            keepAliveTimeout, TimeUnit.MILLISECONDS, this);
+                }
+
+                RequestLine requestLine = httpServerConnection.getRequestLine();
+                if (requestLine != null)
+                {
+                    try
+                    {
+                        HttpMessageReceiver httpMessageReceiver = httpConnector.lookupReceiver(connection.getChannel().socket(), requestLine);
+                        httpMessageReceiver.processRequest(httpServerConnection);
+                    }
+                    catch (NoReceiverForEndpointException e)
+                    {
+                        httpServerConnection.writeFailureResponse(HttpConstants.SC_NOT_FOUND, HttpMessages.cannotBindToAddress(httpServerConnection.getFullUri()).toString());
+                    }
+                }
+            }
+            finally
+            {
+                httpConnector.getKeepAliveMonitor().removeExpirable(this);
+                httpServerConnection.reset();
+            }
+            keepAlive = httpServerConnection.isKeepAlive() && httpServerConnection.isOpen();
+        }
+        catch (HttpMessageReceiver.EmptyRequestException e)
+        {
+            logger.debug("Discarding request since content was empty");
+        }
+        catch (HttpMessageReceiver.FailureProcessingRequestException e)
+        {
+            logger.debug("Closing socket due to failure during request processing");
+        }
+        catch (Exception e)
+        {
+            httpConnector.getMuleContext().getExceptionListener().handleException(e);
+        }
+        finally
+        {
+            if (keepAlive)
+            {
+                dispatcher.resume(connection);
+            }
+            else
+            {
+                logger.debug("Closing HTTP connection.");
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public void expired()
+    {
+        connection.close();
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.http.functional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.junit4.rule.DynamicPort;
+import org.mule.transport.http.HttpConstants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.httpclient.ChunkedInputStream;
+import org.apache.commons.httpclient.ContentLengthInputStream;
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpParser;
+import org.apache.commons.httpclient.StatusLine;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class HttpNonBlockingListenerTestCase extends FunctionalTestCase
+{
+
+    private static final String ENCODING = "US-ASCII";
+    private static final int IDLE_CONNECTIONS = 20;
+    private static final int SOCKET_TIMEOUT = 5000;
+
+    @Rule
+    public DynamicPort dynamicPort = new DynamicPort("port1");
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "http-non-blocking-listener-config.xml";
+    }
+
+    @Test
+    public void keepsConnectionAlive() throws Exception
+    {
+        Socket socket = connect();
+        try
+        {
+            for (int i = 0; i < 5; i++)
+            {
+                writeRequest(socket.getOutputStream(), "request " + i);
+                assertEquals("request " + i, readResponse(socket.getInputStream()));
+            }
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void processesPipelinedRequests() throws Exception
+    {
+        Socket socket = connect();
+        try
+        {
+            writeRequest(socket.getOutputStream(), "first");
+            writeRequest(socket.getOutputStream(), "second");
+            assertEquals("first", readResponse(socket.getInputStream()));
+            assertEquals("second", readResponse(socket.getInputStream()));
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void idleConnectionsDoNotHoldReceiverThreads() throws Exception
+    {
+        // the connector only has one receiver thread, so this would block if idle
+        // connections were pinned to a thread
+        List<Socket> sockets = new ArrayList<Socket>();
+        try
+        {
+            for (int i = 0; i < IDLE_CONNECTIONS; i++)
+            {
+                sockets.add(connect());
+            }
+            for (int i = IDLE_CONNECTIONS - 1; i >= 0; i--)
+            {
+                Socket socket = sockets.get(i);
+                writeRequest(socket.getOutputStream(), "connection " + i);
+                assertEquals("connection " + i, readResponse(socket.getInputStream()));
+            }
+        }
+        finally
+        {
+            for (Socket socket : sockets)
+            {
+                socket.close();
+            }
+        }
+    }
+
+    private Socket connect() throws IOException
+    {
+        Socket socket = new Socket("localhost", dynamicPort.getNumber());
+        socket.setSoTimeout(SOCKET_TIMEOUT);
+        return socket;
+    }
+
+    private void writeRequest(OutputStream out, String body) throws IOException
+    {
+        String request = "POST /echo HTTP/1.1\r\n"
+                         + "Host: localhost\r\n"
+                         + "Content-Type: text/plain\r\n"
+                         + "Content-Length: " + body.length() + "\r\n"
+                         + "\r\n"
+                         + body;
+        out.write(request.getBytes(ENCODING));
+        out.flush();
+    }
+
+    private String readResponse(InputStream in) throws IOException
+    {
+        StatusLine statusLine = new StatusLine(HttpParser.readLine(in, ENCODING));
+        assertEquals(HttpConstants.SC_OK, statusLine.getStatusCode());
+
+        long contentLength = -1;
+        boolean chunked = false;
+        for (Header header : HttpParser.parseHeaders(in, ENCODING))
+        {
+            if (HttpConstants.HEADER_CONTENT_LENGTH.equalsIgnoreCase(header.getName()))
+            {
+                contentLength = Long.parseLong(header.getValue().trim());
+            }
+            else if (HttpConstants.HEADER_TRANSFER_ENCODING.equalsIgnoreCase(header.getName()))
+            {
+                chunked = header.getValue().contains(HttpConstants.TRANSFER_ENCODING_CHUNKED);
+            }
+        }
+
+        if (chunked)
+        {
+            return IOUtils.toString(new ChunkedInputStream(in), ENCODING);
+        }
+
+        assertTrue(contentLength >= 0);
+        return IOUtils.toString(new ContentLengthInputStream(in, contentLength), ENCODING);
+    }
+}
@@ -8,6 +8,7 @@ package org.mule.transport.jdbc;
 
 import org.mule.api.DefaultMuleException;
 import org.mule.api.MuleContext;
+import org.mule.api.MuleEvent;
 import org.mule.api.MuleException;
 import org.mule.api.MuleMessage;
 import org.mule.api.config.MuleProperties;
@@ -34,6 +35,8 @@ import org.mule.config.i18n.MessageFactory;
 import org.mule.transaction.TransactionCoordination;
 import org.mule.transport.AbstractConnector;
 import org.mule.transport.ConnectException;
+import org.mule.transport.DispatchBatcher;
+import org.mule.transport.DispatchBatchers;
 import org.mule.transport.MessageDispatcherUtils;
 import org.mule.transport.jdbc.sqlstrategy.DefaultSqlStatementStrategyFactory;
 import org.mule.transport.jdbc.sqlstrategy.SqlStatementStrategyFactory;
@@ -64,6 +67,7 @@ public class JdbcConnector extends AbstractConnector implements Testable
     // declaration
     public static final String PROPERTY_POLLING_FREQUENCY = "pollingFrequency";
     public static final long DEFAULT_POLLING_FREQUENCY = 1000;
+    public static final long DEFAULT_DISPATCH_BATCH_LINGER_TIME = DispatchBatchers.DEFAULT_LINGER_TIME;
 
     private static final Pattern STATEMENT_ARGS = TemplateParser.WIGGLY_MULE_TEMPLATE_PATTERN;
 
@@ -95,6 +99,8 @@ public class JdbcConnector extends AbstractConnector implements Testable
      */
     protected boolean transactionPerMessage = true;
 
+    private final DispatchBatchers dispatchBatchers = new DispatchBatchers();
+
     private boolean useDispatcherPool = false;
     protected Map<OutboundEndpoint, MessageDispatcher> endpointDispatchers = new ConcurrentHashMap<OutboundEndpoint, MessageDispatcher>();
 
@@ -586,6 +592,35 @@ public class JdbcConnector extends AbstractConnector implements Testable
         this.queryTimeout = queryTimeout;
     }
 
+    public int getDispatchBatchSize()
+    {
+        return dispatchBatchers.getBatchSize();
+    }
+
+    public void setDispatchBatchSize(int dispatchBatchSize)
+    {
+        dispatchBatchers.setBatchSize(dispatchBatchSize);
+    }
+
+    public long getDispatchBatchLingerTime()
+    {
+        return dispatchBatchers.getLingerTime();
+    }
+
+    public void setDispatchBatchLingerTime(long dispatchBatchLingerTime)
+    {
+        dispatchBatchers.setLingerTime(dispatchBatchLingerTime);
+    }
+
+    /**
+     * @return the batcher coalescing the one-way dispatches to the given endpoint, or null if dispatch batching
+     *         is disabled
+     */
+    public DispatchBatcher<MuleEvent> getDispatchBatcher(OutboundEndpoint endpoint)
+    {
+        return dispatchBatchers.getBatcher(endpoint);
+    }
+
     @Override
     protected <T> T getOperationResourceFactory()
     {
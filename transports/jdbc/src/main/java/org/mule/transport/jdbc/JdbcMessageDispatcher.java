@@ -7,12 +7,17 @@
 package org.mule.transport.jdbc;
 
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.mule.DefaultMuleMessage;
 import org.mule.api.MuleEvent;
 import org.mule.api.MuleMessage;
 import org.mule.api.endpoint.OutboundEndpoint;
 import org.mule.transaction.TransactionCoordination;
 import org.mule.transport.AbstractMessageDispatcher;
+import org.mule.transport.DispatchBatcher;
+import org.mule.transport.jdbc.sqlstrategy.SimpleUpdateSqlStatementStrategy;
 import org.mule.transport.jdbc.sqlstrategy.SqlStatementStrategy;
 
 import org.apache.commons.logging.Log;
@@ -31,6 +36,15 @@ public class JdbcMessageDispatcher extends AbstractMessageDispatcher
     protected JdbcConnector connector;
     private SqlStatementStrategyExecutor sqlStatementExecutor = new SqlStatementStrategyExecutor();
 
+    private final DispatchBatcher.BatchExecutor<MuleEvent> batchExecutor = new DispatchBatcher.BatchExecutor<MuleEvent>()
+    {
+        @Override
+        public Exception[] execute(List<MuleEvent> events) throws Exception
+        {
+            return executeBatch(events);
+        }
+    };
+
     public JdbcMessageDispatcher(OutboundEndpoint endpoint)
     {
         super(endpoint);
@@ -50,8 +64,166 @@ public class JdbcMessageDispatcher extends AbstractMessageDispatcher
         {
             logger.debug("Dispatch event: " + event);
         }
-        
-        doSend(event);
+
+        DispatchBatcher<MuleEvent> batcher = connector.getDispatchBatcher(getEndpoint());
+        if (batcher != null && isBatchable(event))
+        {
+            batcher.dispatch(event, batchExecutor);
+        }
+        else
+        {
+            doSend(event);
+        }
+    }
+
+    /**
+     * Only simple updates executed outside of a transaction can be coalesced with
+     * other dispatches, as each batch is committed on its own connection.
+     */
+    protected boolean isBatchable(MuleEvent event) throws Exception
+    {
+        if (TransactionCoordination.getInstance().getTransaction() != null
+            || endpoint.getTransactionConfig().isTransacted())
+        {
+            return false;
+        }
+        SqlStatementStrategy strategy = connector.getSqlStatementStrategyFactory().create(
+            connector.getStatement(endpoint), event.getMessage().getPayload());
+        return strategy.getClass() == SimpleUpdateSqlStatementStrategy.class;
+    }
+
+    /**
+     * Executes the update of all the events as a single JDBC batch that is committed
+     * once. If the batch fails, it is rolled back and the events are executed one at a
+     * time, so that only the events that actually fail get an exception. If the commit
+     * fails, whether the updates were applied is unknown, so the failure is reported
+     * to all the events instead of executing them again.
+     */
+    protected Exception[] executeBatch(List<MuleEvent> events) throws Exception
+    {
+        List<String> paramNames = new ArrayList<String>();
+        String sql = connector.parseStatement(connector.getStatement(endpoint), paramNames);
+
+        Exception[] failures = new Exception[events.size()];
+        List<Integer> batched = new ArrayList<Integer>(events.size());
+        List<Object[]> batchParams = new ArrayList<Object[]>(events.size());
+        for (int i = 0; i < events.size(); i++)
+        {
+            MuleEvent event = events.get(i);
+            MuleMessage message = event.getMessage();
+            try
+            {
+                batchParams.add(connector.getParams(endpoint, paramNames, new DefaultMuleMessage(
+                    message.getPayload(), message, event.getMuleContext()), endpoint.getEndpointURI().getAddress()));
+                batched.add(i);
+            }
+            catch (Exception e)
+            {
+                failures[i] = e;
+            }
+        }
+        if (batched.isEmpty())
+        {
+            return failures;
+        }
+
+        Connection connection = (Connection) connector.getTransactionalResource(endpoint);
+        boolean autoCommit = connection.getAutoCommit();
+        try
+        {
+            if (autoCommit)
+            {
+                // so the statements of the batch are committed together
+                connection.setAutoCommit(false);
+            }
+
+            int[] rows;
+            try
+            {
+                rows = connector.getQueryRunnerFor(endpoint).batch(connection, sql,
+                    batchParams.toArray(new Object[batchParams.size()][]));
+            }
+            catch (Exception e)
+            {
+                rollbackQuietly(connection);
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("SQL batch failed, executing its " + batched.size() + " statement(s) one at a time", e);
+                }
+                for (int i : batched)
+                {
+                    try
+                    {
+                        doSend(events.get(i));
+                    }
+                    catch (Exception itemFailure)
+                    {
+                        failures[i] = itemFailure;
+                    }
+                }
+                return failures;
+            }
+
+            try
+            {
+                connection.commit();
+            }
+            catch (Exception e)
+            {
+                logger.warn("Failed to commit SQL batch of " + batched.size() + " statement(s): " + e.getMessage());
+                rollbackQuietly(connection);
+                for (int i : batched)
+                {
+                    failures[i] = e;
+                }
+                return failures;
+            }
+
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("SQL BATCH: " + sql + ", " + rows.length + " statement(s) executed");
+            }
+            return failures;
+        }
+        finally
+        {
+            closeQuietly(connection, autoCommit);
+        }
+    }
+
+    private void rollbackQuietly(Connection connection)
+    {
+        try
+        {
+            connection.rollback();
+        }
+        catch (Exception e)
+        {
+            logger.warn("Failed to rollback SQL batch: " + e.getMessage());
+        }
+    }
+
+    private void closeQuietly(Connection connection, boolean autoCommit)
+    {
+        try
+        {
+            if (autoCommit)
+            {
+                connection.setAutoCommit(true);
+            }
+        }
+        catch (Exception e)
+        {
+            logger.warn("Failed to restore auto-commit of connection: " + e.getMessage());
+        }
+        try
+        {
+            JdbcUtils.close(connection);
+        }
+        catch (Exception e)
+        {
+            logger.warn("Failed to close connection: " + e.getMessage());
+        }
     }
 
     @Override
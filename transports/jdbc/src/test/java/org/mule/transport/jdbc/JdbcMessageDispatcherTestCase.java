@@ -6,19 +6,35 @@
  */
 package org.mule.transport.jdbc;
 
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.MessageExchangePattern;
 import org.mule.api.endpoint.InboundEndpoint;
+import org.mule.api.endpoint.OutboundEndpoint;
+import org.mule.construct.Flow;
+import org.mule.tck.MuleTestUtils;
 import org.mule.tck.junit4.AbstractMuleContextTestCase;
 import org.mule.transport.jdbc.test.TestDataSource;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
 
 import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.ResultSetHandler;
 import org.junit.Test;
 
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doThrow;
 
 public class JdbcMessageDispatcherTestCase extends AbstractMuleContextTestCase
 {
@@ -39,6 +55,152 @@ public class JdbcMessageDispatcherTestCase extends AbstractMuleContextTestCase
         ep.request(0);
     }
 
+    @Test
+    public void executesConcurrentDispatchesAsSingleBatch() throws Exception
+    {
+        BatchQueryRunner queryRunner = new BatchQueryRunner(false);
+        OutboundEndpoint endpoint = createBatchingEndpoint(queryRunner);
+
+        Throwable[] failures = dispatchConcurrently(endpoint, "1", "2", "3");
+
+        assertThat(failures, is(new Throwable[3]));
+        assertThat(queryRunner.batches.size(), is(1));
+        assertThat(queryRunner.batches.get(0).length, is(3));
+        assertThat(queryRunner.updates.size(), is(0));
+    }
+
+    @Test
+    public void failedBatchIsExecutedOneUpdateAtATime() throws Exception
+    {
+        BatchQueryRunner queryRunner = new BatchQueryRunner(true);
+        OutboundEndpoint endpoint = createBatchingEndpoint(queryRunner);
+
+        Throwable[] failures = dispatchConcurrently(endpoint, "1", "fail", "3");
+
+        assertThat(failures[0], is(nullValue()));
+        assertThat(failures[1], is(instanceOf(Exception.class)));
+        assertThat(failures[2], is(nullValue()));
+        assertThat(queryRunner.batches.size(), is(1));
+        assertThat(queryRunner.updates.size(), is(3));
+    }
+
+    @Test
+    public void failedCommitIsReportedToAllEvents() throws Exception
+    {
+        BatchQueryRunner queryRunner = new BatchQueryRunner(false);
+        OutboundEndpoint endpoint = createBatchingEndpoint(queryRunner, new FailingCommitDataSource());
+
+        Throwable[] failures = dispatchConcurrently(endpoint, "1", "2", "3");
+
+        for (Throwable failure : failures)
+        {
+            assertThat(failure, is(instanceOf(Exception.class)));
+        }
+        assertThat(queryRunner.batches.size(), is(1));
+        assertThat(queryRunner.updates.size(), is(0));
+    }
+
+    private OutboundEndpoint createBatchingEndpoint(QueryRunner queryRunner) throws Exception
+    {
+        return createBatchingEndpoint(queryRunner, new TestDataSource());
+    }
+
+    private OutboundEndpoint createBatchingEndpoint(QueryRunner queryRunner, DataSource dataSource) throws Exception
+    {
+        muleContext.start();
+        JdbcConnector connector = new JdbcConnector(muleContext);
+        connector.setQueryRunner(queryRunner);
+        connector.setDataSource(dataSource);
+        connector.setQueries(Collections.singletonMap("insertTest", "insert into test values (#[payload:])"));
+        connector.setDispatchBatchSize(3);
+        connector.setDispatchBatchLingerTime(RECEIVE_TIMEOUT);
+        // dispatch in the calling threads, so that each of them gets the outcome of its event
+        connector.getDispatcherThreadingProfile().setDoThreading(false);
+        muleContext.getRegistry().registerConnector(connector);
+
+        return muleContext.getEndpointFactory().getOutboundEndpoint("jdbc://insertTest?exchangePattern=one-way");
+    }
+
+    private Throwable[] dispatchConcurrently(final OutboundEndpoint endpoint, String... payloads) throws Exception
+    {
+        final Flow flow = MuleTestUtils.getTestFlow(muleContext);
+        final Throwable[] failures = new Throwable[payloads.length];
+        Thread[] threads = new Thread[payloads.length];
+        for (int i = 0; i < payloads.length; i++)
+        {
+            final int index = i;
+            final String payload = payloads[i];
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        // messages can only be written by the thread that created them
+                        endpoint.process(new DefaultMuleEvent(new DefaultMuleMessage(payload, muleContext),
+                            MessageExchangePattern.ONE_WAY, flow));
+                    }
+                    catch (Throwable e)
+                    {
+                        failures[index] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join(RECEIVE_TIMEOUT);
+        }
+        return failures;
+    }
+
+    public static final class BatchQueryRunner extends QueryRunner
+    {
+        private final boolean failBatches;
+        private final List<Object[][]> batches = Collections.synchronizedList(new ArrayList<Object[][]>());
+        private final List<Object[]> updates = Collections.synchronizedList(new ArrayList<Object[]>());
+
+        public BatchQueryRunner(boolean failBatches)
+        {
+            this.failBatches = failBatches;
+        }
+
+        @Override
+        public int[] batch(Connection connection, String sql, Object[][] params) throws SQLException
+        {
+            batches.add(params);
+            if (failBatches)
+            {
+                throw new SQLException("Batch failed");
+            }
+            return new int[params.length];
+        }
+
+        @Override
+        public int update(Connection connection, String sql, Object[] params) throws SQLException
+        {
+            updates.add(params);
+            if ("fail".equals(params[0]))
+            {
+                throw new SQLException("Update failed");
+            }
+            return 1;
+        }
+    }
+
+    public static final class FailingCommitDataSource extends TestDataSource
+    {
+        @Override
+        public Connection getConnection() throws SQLException
+        {
+            Connection connection = super.getConnection();
+            doThrow(new SQLException("Commit failed")).when(connection).commit();
+            return connection;
+        }
+    }
+
     public static final class TestQueryRunner extends QueryRunner
     {
         @Override
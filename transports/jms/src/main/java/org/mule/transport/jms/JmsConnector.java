@@ -8,6 +8,7 @@ package org.mule.transport.jms;
 
 import org.mule.api.DefaultMuleException;
 import org.mule.api.MuleContext;
+import org.mule.api.MuleEvent;
 import org.mule.api.MuleException;
 import org.mule.api.MuleRuntimeException;
 import org.mule.api.construct.FlowConstruct;
@@ -15,6 +16,7 @@ import org.mule.api.context.notification.ClusterNodeNotificationListener;
 import org.mule.api.context.notification.ConnectionNotificationListener;
 import org.mule.api.endpoint.ImmutableEndpoint;
 import org.mule.api.endpoint.InboundEndpoint;
+import org.mule.api.endpoint.OutboundEndpoint;
 import org.mule.api.lifecycle.Disposable;
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.api.lifecycle.StartException;
@@ -32,6 +34,8 @@ import org.mule.routing.MessageFilter;
 import org.mule.transaction.TransactionCoordination;
 import org.mule.transport.AbstractConnector;
 import org.mule.transport.ConnectException;
+import org.mule.transport.DispatchBatcher;
+import org.mule.transport.DispatchBatchers;
 import org.mule.transport.jms.filters.JmsSelectorFilter;
 import org.mule.transport.jms.i18n.JmsMessages;
 import org.mule.transport.jms.jndi.JndiNameResolver;
@@ -103,6 +107,8 @@ public class JmsConnector extends AbstractConnector implements ExceptionListener
      */
     private boolean eagerConsumer = true;
 
+    private final DispatchBatchers dispatchBatchers = new DispatchBatchers();
+
     ////////////////////////////////////////////////////////////////////////
     // JMS Connection
     ////////////////////////////////////////////////////////////////////////
@@ -1166,6 +1172,35 @@ public class JmsConnector extends AbstractConnector implements ExceptionListener
         this.cacheJmsSessions = cacheJmsSessions;
     }
 
+    public int getDispatchBatchSize()
+    {
+        return dispatchBatchers.getBatchSize();
+    }
+
+    public void setDispatchBatchSize(int dispatchBatchSize)
+    {
+        dispatchBatchers.setBatchSize(dispatchBatchSize);
+    }
+
+    public long getDispatchBatchLingerTime()
+    {
+        return dispatchBatchers.getLingerTime();
+    }
+
+    public void setDispatchBatchLingerTime(long dispatchBatchLingerTime)
+    {
+        dispatchBatchers.setLingerTime(dispatchBatchLingerTime);
+    }
+
+    /**
+     * @return the batcher coalescing the one-way dispatches to the given endpoint, or null if
+     *         dispatch batching is disabled
+     */
+    public DispatchBatcher<MuleEvent> getDispatchBatcher(OutboundEndpoint endpoint)
+    {
+        return dispatchBatchers.getBatcher(endpoint);
+    }
+
     public ConnectionFactory getConnectionFactory()
     {
         return connectionFactory;
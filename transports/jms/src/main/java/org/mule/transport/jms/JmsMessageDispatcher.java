@@ -20,12 +20,14 @@ import org.mule.api.transport.DispatchException;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.transaction.TransactionCoordination;
 import org.mule.transport.AbstractMessageDispatcher;
+import org.mule.transport.DispatchBatcher;
 import org.mule.transport.jms.i18n.JmsMessages;
 import org.mule.util.ClassUtils;
 import org.mule.util.NumberUtils;
 import org.mule.util.concurrent.Latch;
 import org.mule.util.concurrent.WaitableBoolean;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.jms.DeliveryMode;
@@ -52,6 +54,15 @@ public class JmsMessageDispatcher extends AbstractMessageDispatcher
     private boolean disableTemporaryDestinations = false;
     private boolean returnOriginalMessageAsReply = false;
 
+    private final DispatchBatcher.BatchExecutor<MuleEvent> batchExecutor = new DispatchBatcher.BatchExecutor<MuleEvent>()
+    {
+        @Override
+        public Exception[] execute(List<MuleEvent> events) throws Exception
+        {
+            return executeBatch(events);
+        }
+    };
+
     public JmsMessageDispatcher(OutboundEndpoint endpoint)
     {
         super(endpoint);
@@ -74,7 +85,124 @@ public class JmsMessageDispatcher extends AbstractMessageDispatcher
         {
             throw new IllegalStateException("No JMS Connection");
         }
-        dispatchMessage(event, false);
+
+        DispatchBatcher<MuleEvent> batcher = connector.getDispatchBatcher(getEndpoint());
+        if (batcher != null && TransactionCoordination.getInstance().getTransaction() == null
+            && !endpoint.getTransactionConfig().isTransacted())
+        {
+            batcher.dispatch(event, batchExecutor);
+        }
+        else
+        {
+            dispatchMessage(event, false);
+        }
+    }
+
+    /**
+     * Sends the messages of all the events in a single transacted session that is committed
+     * once. If sending fails, the session is rolled back and the events are dispatched one
+     * at a time, so that only the events that actually fail get an exception. If the commit
+     * fails, whether the messages were delivered is unknown, so the failure is reported to
+     * all the events instead of sending them again.
+     */
+    protected Exception[] executeBatch(List<MuleEvent> events) throws Exception
+    {
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("dispatching batch of " + events.size() + " events on endpoint: " + endpoint.getEndpointURI());
+        }
+
+        Exception[] failures = new Exception[events.size()];
+        boolean topic = connector.getTopicResolver().isTopic(endpoint, true);
+        Session session = connector.getSession(true, topic);
+        MessageProducer producer = null;
+        try
+        {
+            try
+            {
+                Destination dest = connector.getJmsSupport().createDestination(session, endpoint);
+                producer = connector.getJmsSupport().createProducer(session, dest, topic);
+                for (int i = 0; i < events.size(); i++)
+                {
+                    MuleEvent event = events.get(i);
+                    Message msg;
+                    try
+                    {
+                        msg = toJmsMessage(event);
+                        Destination replyTo = getReplyToDestination(msg, session, event, false, topic);
+                        if (replyTo != null)
+                        {
+                            msg.setJMSReplyTo(replyTo);
+                        }
+                        processMessage(msg, event);
+                    }
+                    catch (Exception e)
+                    {
+                        failures[i] = e;
+                        continue;
+                    }
+                    send(producer, msg, event, topic);
+                }
+            }
+            catch (Exception e)
+            {
+                rollbackQuietly(session);
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("JMS batch failed, dispatching its events one at a time", e);
+                }
+                for (int i = 0; i < events.size(); i++)
+                {
+                    if (failures[i] == null)
+                    {
+                        try
+                        {
+                            dispatchMessage(events.get(i), false);
+                        }
+                        catch (Exception itemFailure)
+                        {
+                            failures[i] = itemFailure;
+                        }
+                    }
+                }
+                return failures;
+            }
+
+            try
+            {
+                session.commit();
+            }
+            catch (Exception e)
+            {
+                logger.warn("Failed to commit JMS batch on endpoint " + endpoint.getEndpointURI() + ": "
+                            + e.getMessage());
+                for (int i = 0; i < events.size(); i++)
+                {
+                    if (failures[i] == null)
+                    {
+                        failures[i] = e;
+                    }
+                }
+            }
+            return failures;
+        }
+        finally
+        {
+            connector.closeQuietly(producer);
+            connector.closeQuietly(session);
+        }
+    }
+
+    private void rollbackQuietly(Session session)
+    {
+        try
+        {
+            session.rollback();
+        }
+        catch (Exception e)
+        {
+            logger.warn("Failed to rollback jms session: " + e.getMessage());
+        }
     }
 
     @Override
@@ -128,17 +256,7 @@ public class JmsMessageDispatcher extends AbstractMessageDispatcher
             Destination dest = connector.getJmsSupport().createDestination(session, endpoint);
             producer = connector.getJmsSupport().createProducer(session, dest, topic);
 
-            Object message = event.getMessage().getPayload();
-            if (!(message instanceof Message))
-            {
-                throw new DispatchException(
-                        JmsMessages.checkTransformer("JMS message", message.getClass(), connector.getName()),
-                        event, getEndpoint());
-            }
-
-            Message msg = (Message) message;
-
-            MuleMessage eventMsg = event.getMessage();
+            Message msg = toJmsMessage(event);
 
             replyTo = getReplyToDestination(msg, session, event, useReplyToDestination, topic);
 
@@ -151,38 +269,7 @@ public class JmsMessageDispatcher extends AbstractMessageDispatcher
             //Allow overrides to alter the message if necessary
             processMessage(msg, event);
 
-            // QoS support
-            long ttl = eventMsg.getOutboundProperty(JmsConstants.TIME_TO_LIVE_PROPERTY, Message.DEFAULT_TIME_TO_LIVE);
-            int priority = eventMsg.getOutboundProperty(JmsConstants.PRIORITY_PROPERTY, Message.DEFAULT_PRIORITY);
-            boolean persistent= eventMsg.getOutboundProperty(JmsConstants.PERSISTENT_DELIVERY_PROPERTY, connector.isPersistentDelivery());
-
-            // If we are honouring the current QoS message headers we need to use the ones set on the current message
-            if (connector.isHonorQosHeaders())
-            {
-                Object priorityProp = eventMsg.getInboundProperty(JmsConstants.JMS_PRIORITY);
-                Object deliveryModeProp = eventMsg.getInboundProperty(JmsConstants.JMS_DELIVERY_MODE);
-
-                if (priorityProp != null)
-                {
-                    priority = NumberUtils.toInt(priorityProp);
-                }
-                if (deliveryModeProp != null)
-                {
-                    persistent = NumberUtils.toInt(deliveryModeProp) == DeliveryMode.PERSISTENT;
-                }
-            }
-
-            if (logger.isDebugEnabled())
-            {
-                logger.debug("Sending message of type " + ClassUtils.getSimpleName(msg.getClass()));
-                logger.debug("Sending JMS Message type " + msg.getJMSType() +
-                       "\n  JMSMessageID=" + msg.getJMSMessageID() +
-                       "\n  JMSCorrelationID=" + msg.getJMSCorrelationID() +
-                       "\n  JMSDeliveryMode=" + (persistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT) +
-                       "\n  JMSPriority=" + priority +
-                       "\n  JMSReplyTo=" + msg.getJMSReplyTo());
-            }
-            connector.getJmsSupport().send(producer, msg, persistent, priority, ttl, topic, endpoint);
+            send(producer, msg, event, topic);
 
             if (useReplyToDestination && replyTo != null)
             {
@@ -195,7 +282,7 @@ public class JmsMessageDispatcher extends AbstractMessageDispatcher
                     ReplyToListener listener = new ReplyToListener(l);
                     consumer.setMessageListener(listener);
 
-                    connector.getJmsSupport().send(producer, msg, persistent, priority, ttl, topic, endpoint);
+                    send(producer, msg, event, topic);
 
                     int timeout = event.getTimeout();
 
@@ -276,6 +363,56 @@ public class JmsMessageDispatcher extends AbstractMessageDispatcher
         }
     }
 
+    private Message toJmsMessage(MuleEvent event) throws DispatchException
+    {
+        Object message = event.getMessage().getPayload();
+        if (!(message instanceof Message))
+        {
+            throw new DispatchException(
+                    JmsMessages.checkTransformer("JMS message", message.getClass(), connector.getName()),
+                    event, getEndpoint());
+        }
+        return (Message) message;
+    }
+
+    private void send(MessageProducer producer, Message msg, MuleEvent event, boolean topic) throws JMSException
+    {
+        MuleMessage eventMsg = event.getMessage();
+
+        // QoS support
+        long ttl = eventMsg.getOutboundProperty(JmsConstants.TIME_TO_LIVE_PROPERTY, Message.DEFAULT_TIME_TO_LIVE);
+        int priority = eventMsg.getOutboundProperty(JmsConstants.PRIORITY_PROPERTY, Message.DEFAULT_PRIORITY);
+        boolean persistent= eventMsg.getOutboundProperty(JmsConstants.PERSISTENT_DELIVERY_PROPERTY, connector.isPersistentDelivery());
+
+        // If we are honouring the current QoS message headers we need to use the ones set on the current message
+        if (connector.isHonorQosHeaders())
+        {
+            Object priorityProp = eventMsg.getInboundProperty(JmsConstants.JMS_PRIORITY);
+            Object deliveryModeProp = eventMsg.getInboundProperty(JmsConstants.JMS_DELIVERY_MODE);
+
+            if (priorityProp != null)
+            {
+                priority = NumberUtils.toInt(priorityProp);
+            }
+            if (deliveryModeProp != null)
+            {
+                persistent = NumberUtils.toInt(deliveryModeProp) == DeliveryMode.PERSISTENT;
+            }
+        }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Sending message of type " + ClassUtils.getSimpleName(msg.getClass()));
+            logger.debug("Sending JMS Message type " + msg.getJMSType() +
+                   "\n  JMSMessageID=" + msg.getJMSMessageID() +
+                   "\n  JMSCorrelationID=" + msg.getJMSCorrelationID() +
+                   "\n  JMSDeliveryMode=" + (persistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT) +
+                   "\n  JMSPriority=" + priority +
+                   "\n  JMSReplyTo=" + msg.getJMSReplyTo());
+        }
+        connector.getJmsSupport().send(producer, msg, persistent, priority, ttl, topic, endpoint);
+    }
+
     protected MuleMessage createMessageWithJmsMessagePayload(Message jmsMessage) throws Exception
     {
         MuleMessage muleMessage = createMuleMessage(jmsMessage);
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jms;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.endpoint.ImmutableEndpoint;
+import org.mule.api.endpoint.OutboundEndpoint;
+import org.mule.api.transaction.TransactionConfig;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class JmsMessageDispatcherTestCase extends AbstractMuleContextTestCase
+{
+
+    private JmsConnector connector;
+    private JmsSupport jmsSupport;
+    private OutboundEndpoint endpoint;
+    private Session batchSession;
+    private Session fallbackSession;
+    private MessageProducer producer;
+    private JmsMessageDispatcher dispatcher;
+
+    @Before
+    public void setUpDispatcher() throws Exception
+    {
+        connector = mock(JmsConnector.class);
+        jmsSupport = mock(JmsSupport.class);
+        endpoint = mock(OutboundEndpoint.class);
+        batchSession = mock(Session.class);
+        fallbackSession = mock(Session.class);
+        producer = mock(MessageProducer.class);
+
+        when(endpoint.getConnector()).thenReturn(connector);
+        when(endpoint.getTransactionConfig()).thenReturn(mock(TransactionConfig.class));
+        when(connector.getTopicResolver()).thenReturn(mock(JmsTopicResolver.class));
+        when(connector.getJmsSupport()).thenReturn(jmsSupport);
+        when(connector.getSession(true, false)).thenReturn(batchSession);
+        when(connector.createOperationResource(endpoint)).thenReturn(fallbackSession);
+        when(jmsSupport.createProducer(any(Session.class), any(Destination.class), anyBoolean())).thenReturn(producer);
+
+        dispatcher = new JmsMessageDispatcher(endpoint);
+    }
+
+    @Test
+    public void sendsBatchInSingleCommit() throws Exception
+    {
+        List<Message> messages = createMessages(3);
+
+        Exception[] failures = dispatcher.executeBatch(createEvents(messages));
+
+        for (Exception failure : failures)
+        {
+            assertNull(failure);
+        }
+        for (Message message : messages)
+        {
+            verifySent(message, 1);
+        }
+        verify(batchSession, times(1)).commit();
+        verify(batchSession, never()).rollback();
+        verify(connector, never()).createOperationResource(any(ImmutableEndpoint.class));
+    }
+
+    @Test
+    public void failedSendDispatchesEventsOneAtATime() throws Exception
+    {
+        List<Message> messages = createMessages(3);
+        JMSException sendFailure = new JMSException("send failed");
+        failSending(messages.get(1), sendFailure);
+
+        Exception[] failures = dispatcher.executeBatch(createEvents(messages));
+
+        assertNull(failures[0]);
+        assertSame(sendFailure, failures[1]);
+        assertNull(failures[2]);
+        verify(batchSession, never()).commit();
+        verify(batchSession).rollback();
+        // the first message was sent by the rolled back batch and then again on its own
+        verifySent(messages.get(0), 2);
+        verifySent(messages.get(1), 2);
+        verifySent(messages.get(2), 1);
+    }
+
+    @Test
+    public void failedCommitIsReportedToAllEvents() throws Exception
+    {
+        List<Message> messages = createMessages(3);
+        JMSException commitFailure = new JMSException("commit failed");
+        doThrow(commitFailure).when(batchSession).commit();
+
+        Exception[] failures = dispatcher.executeBatch(createEvents(messages));
+
+        for (Exception failure : failures)
+        {
+            assertSame(commitFailure, failure);
+        }
+        for (Message message : messages)
+        {
+            verifySent(message, 1);
+        }
+        verify(connector, never()).createOperationResource(any(ImmutableEndpoint.class));
+    }
+
+    private List<Message> createMessages(int count)
+    {
+        List<Message> messages = new ArrayList<Message>();
+        for (int i = 0; i < count; i++)
+        {
+            messages.add(mock(Message.class));
+        }
+        return messages;
+    }
+
+    private List<MuleEvent> createEvents(List<Message> messages) throws Exception
+    {
+        List<MuleEvent> events = new ArrayList<MuleEvent>();
+        for (Message message : messages)
+        {
+            events.add(getTestEvent(message, muleContext));
+        }
+        return events;
+    }
+
+    private void failSending(Message message, JMSException failure) throws JMSException
+    {
+        doThrow(failure).when(jmsSupport).send(any(MessageProducer.class), eq(message), anyBoolean(),
+            anyInt(), anyLong(), anyBoolean(), any(ImmutableEndpoint.class));
+    }
+
+    private void verifySent(Message message, int times) throws JMSException
+    {
+        verify(jmsSupport, times(times)).send(any(MessageProducer.class), eq(message), anyBoolean(),
+            anyInt(), anyLong(), anyBoolean(), any(ImmutableEndpoint.class));
+    }
+}
@@ -28,7 +28,9 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Vector;
 
@@ -290,6 +292,39 @@ public class SftpClient
         return listDirectory(path, true, false);
     }
 
+    /**
+     * Lists the files of the working directory with their attributes, as returned by a
+     * single listing, so that their size and modification time can be checked without
+     * querying each file.
+     *
+     * @return the attributes of the files keyed by file name
+     */
+    public Map<String, SftpATTRS> listFileAttributes() throws IOException
+    {
+        try
+        {
+            Map<String, SftpATTRS> files = new LinkedHashMap<String, SftpATTRS>();
+            @SuppressWarnings("unchecked")
+            Vector<Object> entries = channelSftp.ls(".");
+            if (entries != null)
+            {
+                for (Object obj : entries)
+                {
+                    if (obj instanceof LsEntry && !((LsEntry) obj).getAttrs().isDir())
+                    {
+                        LsEntry entry = (LsEntry) obj;
+                        files.put(entry.getFilename(), entry.getAttrs());
+                    }
+                }
+            }
+            return files;
+        }
+        catch (SftpException e)
+        {
+            throw new IOException(e.getMessage());
+        }
+    }
+
     public String[] listDirectories() throws IOException
     {
         return listDirectory(".", false, true);
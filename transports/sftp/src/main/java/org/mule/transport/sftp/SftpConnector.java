@@ -111,6 +111,19 @@ public class SftpConnector extends AbstractConnector
      */
     private int maxConnectionPoolSize;
 
+    /**
+     * The number of files that a receiver retrieves and routes at the same time, each
+     * over its own connection. 1 routes the files one after the other in the polling
+     * thread.
+     */
+    private int maxConcurrentRetrievals = 1;
+
+    /**
+     * If set, receivers do not route a file again while it is listed unchanged after it
+     * has been processed.
+     */
+    private boolean cacheProcessedFiles = false;
+
     /**
      * Value that can be set via the System property
      * 'mule.sftp.transport.maxConnectionPoolSize'. If it's set the value is used
@@ -567,6 +580,26 @@ public class SftpConnector extends AbstractConnector
         return maxConnectionPoolSize;
     }
 
+    public int getMaxConcurrentRetrievals()
+    {
+        return maxConcurrentRetrievals;
+    }
+
+    public void setMaxConcurrentRetrievals(int maxConcurrentRetrievals)
+    {
+        this.maxConcurrentRetrievals = maxConcurrentRetrievals;
+    }
+
+    public boolean isCacheProcessedFiles()
+    {
+        return cacheProcessedFiles;
+    }
+
+    public void setCacheProcessedFiles(boolean cacheProcessedFiles)
+    {
+        this.cacheProcessedFiles = cacheProcessedFiles;
+    }
+
     public Boolean isKeepFileOnError()
     {
         return keepFileOnError;
@@ -19,18 +19,29 @@ import org.mule.api.transport.PropertyScope;
 import org.mule.construct.Flow;
 import org.mule.processor.strategy.SynchronousProcessingStrategy;
 import org.mule.transport.AbstractPollingMessageReceiver;
+import org.mule.transport.ProcessedFileCache;
 import org.mule.transport.sftp.notification.SftpNotifier;
 import org.mule.util.lock.LockFactory;
 
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
+import javax.resource.spi.work.Work;
+
 /**
  * <code>SftpMessageReceiver</code> polls and receives files from an sftp service
  * using jsch. This receiver produces an InputStream payload, which can be
  * materialized in a MessageDispatcher or Component.
+ * <p/>
+ * When the connector allows more than one concurrent retrieval, files are retrieved and
+ * routed by receiver threads, each over its own connection, and the polling thread waits
+ * while that many files are in progress.
  */
 public class SftpMessageReceiver extends AbstractPollingMessageReceiver
 {
@@ -38,6 +49,8 @@ public class SftpMessageReceiver extends AbstractPollingMessageReceiver
     private SftpReceiverRequesterUtil sftpRRUtil = null;
     private LockFactory lockFactory;
     private boolean poolOnPrimaryInstanceOnly;
+    private Semaphore retrievals;
+    private final Set<String> scheduledFiles = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     public SftpMessageReceiver(SftpConnector connector,
                                FlowConstruct flow,
@@ -91,12 +104,18 @@ public class SftpMessageReceiver extends AbstractPollingMessageReceiver
                     {
                         break;
                     }
+                    if (retrievals != null)
+                    {
+                        scheduleFile(file);
+                        continue;
+                    }
                     Lock fileLock = lockFactory.createLock(connector.getName() + file);
                     if (fileLock.tryLock(10, TimeUnit.MILLISECONDS))
                     {
                         try
                         {
                             routeFile(file);
+                            sftpRRUtil.fileProcessed(file);
                         }
                         catch (Exception e)
                         {
@@ -133,6 +152,16 @@ public class SftpMessageReceiver extends AbstractPollingMessageReceiver
             synchronousProcessing = ((Flow)getFlowConstruct()).getProcessingStrategy() instanceof SynchronousProcessingStrategy;
         }
         this.poolOnPrimaryInstanceOnly = Boolean.valueOf(System.getProperty("mule.transport.sftp.singlepollinstance","false")) || !synchronousProcessing;
+
+        SftpConnector sftpConnector = (SftpConnector) connector;
+        if (sftpConnector.getMaxConcurrentRetrievals() > 1)
+        {
+            retrievals = new Semaphore(sftpConnector.getMaxConcurrentRetrievals());
+        }
+        if (sftpConnector.isCacheProcessedFiles())
+        {
+            sftpRRUtil.setProcessedFileCache(new ProcessedFileCache());
+        }
     }
 
     @Override
@@ -141,6 +170,84 @@ public class SftpMessageReceiver extends AbstractPollingMessageReceiver
         return poolOnPrimaryInstanceOnly;
     }
 
+    /**
+     * Schedules the retrieval of a file that is not already in progress, waiting while
+     * the maximum number of files are being retrieved.
+     */
+    private void scheduleFile(final String file) throws Exception
+    {
+        if (!scheduledFiles.add(file))
+        {
+            return;
+        }
+        try
+        {
+            retrievals.acquire();
+        }
+        catch (InterruptedException e)
+        {
+            scheduledFiles.remove(file);
+            throw e;
+        }
+
+        try
+        {
+            getWorkManager().scheduleWork(new Work()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        retrieveFile(file);
+                    }
+                    finally
+                    {
+                        scheduledFiles.remove(file);
+                        retrievals.release();
+                    }
+                }
+
+                @Override
+                public void release()
+                {
+                    // no op
+                }
+            });
+        }
+        catch (Exception e)
+        {
+            scheduledFiles.remove(file);
+            retrievals.release();
+            throw e;
+        }
+    }
+
+    private void retrieveFile(String file)
+    {
+        Lock fileLock = lockFactory.createLock(connector.getName() + file);
+        if (fileLock.tryLock())
+        {
+            try
+            {
+                routeFile(file);
+                sftpRRUtil.fileProcessed(file);
+            }
+            catch (MessagingException e)
+            {
+                //Already handled by TransactionTemplate
+            }
+            catch (Exception e)
+            {
+                getEndpoint().getMuleContext().getExceptionListener().handleException(e);
+            }
+            finally
+            {
+                fileLock.unlock();
+            }
+        }
+    }
+
     protected void routeFile(final String path) throws Exception
     {
         ExecutionTemplate<MuleEvent> executionTemplate = createExecutionTemplate();
@@ -7,15 +7,20 @@
 package org.mule.transport.sftp;
 
 import org.mule.api.endpoint.ImmutableEndpoint;
+import org.mule.transport.ProcessedFileCache;
 import org.mule.transport.sftp.notification.SftpNotifier;
 import org.mule.util.FileUtils;
 
+import com.jcraft.jsch.SftpATTRS;
+
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -34,6 +39,8 @@ public class SftpReceiverRequesterUtil
     private final ImmutableEndpoint endpoint;
     private final FilenameFilter filenameFilter;
     private final SftpUtil sftpUtil;
+    private ProcessedFileCache processedFiles;
+    private final Map<String, SftpATTRS> listedAttributes = new ConcurrentHashMap<String, SftpATTRS>();
 
     public SftpReceiverRequesterUtil(ImmutableEndpoint endpoint)
     {
@@ -86,7 +93,7 @@ public class SftpReceiverRequesterUtil
             // Get size check parameter
             long sizeCheckDelayMs = sftpUtil.getSizeCheckWaitTime();
 
-            String[] files = client.listFiles();
+            String[] files = processedFiles == null ? client.listFiles() : listUnprocessedFiles(client);
 
             // Only return files that have completely been written and match
             // fileExtension
@@ -143,6 +150,51 @@ public class SftpReceiverRequesterUtil
         }
     }
 
+    /**
+     * Lists the files that are not held unchanged by the processed file cache, keeping
+     * their attributes until they are processed.
+     */
+    private String[] listUnprocessedFiles(SftpClient client) throws IOException
+    {
+        Map<String, SftpATTRS> attributes = client.listFileAttributes();
+        processedFiles.retainAll(attributes.keySet());
+        listedAttributes.keySet().retainAll(attributes.keySet());
+
+        List<String> files = new ArrayList<String>(attributes.size());
+        for (Map.Entry<String, SftpATTRS> file : attributes.entrySet())
+        {
+            SftpATTRS attrs = file.getValue();
+            if (!processedFiles.isProcessed(file.getKey(), attrs.getSize(), attrs.getMTime()))
+            {
+                listedAttributes.put(file.getKey(), attrs);
+                files.add(file.getKey());
+            }
+        }
+        return files.toArray(new String[files.size()]);
+    }
+
+    /**
+     * Sets the cache used to skip the files that have already been processed and are
+     * listed unchanged.
+     */
+    public void setProcessedFileCache(ProcessedFileCache processedFiles)
+    {
+        this.processedFiles = processedFiles;
+    }
+
+    /**
+     * Records in the processed file cache, if there is one, that the file has been
+     * processed with the size and modification time of its last listing.
+     */
+    public void fileProcessed(String fileName)
+    {
+        SftpATTRS attrs = listedAttributes.remove(fileName);
+        if (processedFiles != null && attrs != null)
+        {
+            processedFiles.processed(fileName, attrs.getSize(), attrs.getMTime());
+        }
+    }
+
     public InputStream retrieveFile(String fileName, SftpNotifier notifier) throws Exception
     {
         // Getting a new SFTP client dedicated to the SftpInputStream below
@@ -35,6 +35,8 @@ public class SftpNamespaceHandlerTestCase extends FunctionalTestCase
         assertEquals(1234, c.getFileAge());
         assertEquals("uploading", c.getTempDirOutbound());
         assertEquals(42, c.getMaxConnectionPoolSize());
+        assertEquals(4, c.getMaxConcurrentRetrievals());
+        assertTrue(c.isCacheProcessedFiles());
     }
 
     @Test
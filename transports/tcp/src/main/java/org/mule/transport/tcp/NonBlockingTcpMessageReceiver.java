@@ -0,0 +1,759 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import org.mule.api.MuleException;
+import org.mule.api.MuleMessage;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.construct.FlowConstruct;
+import org.mule.api.endpoint.InboundEndpoint;
+import org.mule.api.lifecycle.CreateException;
+import org.mule.api.transaction.Transaction;
+import org.mule.api.transaction.TransactionException;
+import org.mule.api.transport.Connector;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.transport.AbstractMessageReceiver;
+import org.mule.transport.AbstractReceiverWorker;
+import org.mule.transport.ConnectException;
+import org.mule.transport.tcp.i18n.TcpMessages;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkManager;
+
+/**
+ * <code>NonBlockingTcpMessageReceiver</code> acts like a TCP server that reads from
+ * non blocking channels, so that a connection only holds a receiver thread while one of
+ * its messages is being processed.
+ * <p/>
+ * Connections are accepted and read by a few selector threads, each of them serving many
+ * connections. Each selector thread reads into a single direct buffer that it reuses for
+ * all of its connections, and the bytes read are decoded by the {@link TcpFrameDecoder} of
+ * the connection. Complete messages are processed by receiver threads, in the order they
+ * were received, and reading from a connection is suspended while too many of its messages
+ * wait to be processed. Responses are written right away if the channel can take them, and
+ * otherwise by the selector thread once it can.
+ * <p/>
+ * Used by the {@link TcpConnector} instead of the {@link TcpMessageReceiver} when
+ * {@link TcpConnector#isNonBlockingReceiver()} is set and the protocol is a
+ * {@link NonBlockingTcpProtocol}.
+ */
+public class NonBlockingTcpMessageReceiver extends AbstractMessageReceiver
+{
+
+    private static final long SELECT_TIMEOUT = 1000;
+    private static final int DEFAULT_READ_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Reading from a connection is suspended while this many of its messages wait to be processed.
+     */
+    private static final int MAX_PENDING_FRAMES = 16;
+
+    private final NonBlockingTcpProtocol protocol;
+    private final AtomicInteger nextSelectorLoop = new AtomicInteger();
+    private ServerSocketChannel serverSocketChannel;
+    private SelectorLoop[] selectorLoops;
+
+    public NonBlockingTcpMessageReceiver(Connector connector, FlowConstruct flowConstruct, InboundEndpoint endpoint)
+            throws CreateException
+    {
+        super(connector, flowConstruct, endpoint);
+        protocol = (NonBlockingTcpProtocol) ((TcpConnector) connector).getTcpProtocol();
+    }
+
+    @Override
+    protected void doConnect() throws ConnectException
+    {
+        TcpConnector tcpConnector = (TcpConnector) connector;
+        URI uri = endpoint.getEndpointURI().getUri();
+
+        try
+        {
+            serverSocketChannel = tcpConnector.getServerSocketChannel(uri);
+            selectorLoops = new SelectorLoop[Math.max(1, tcpConnector.getSelectorThreads())];
+            for (int i = 0; i < selectorLoops.length; i++)
+            {
+                selectorLoops[i] = new SelectorLoop(getReadBufferSize());
+            }
+            serverSocketChannel.register(selectorLoops[0].selector, SelectionKey.OP_ACCEPT);
+        }
+        catch (Exception e)
+        {
+            closeServerSocketChannel();
+            stopSelectorLoops();
+            throw new ConnectException(TcpMessages.failedToBindToUri(uri), e, this);
+        }
+
+        try
+        {
+            for (SelectorLoop selectorLoop : selectorLoops)
+            {
+                getWorkManager().scheduleWork(selectorLoop, WorkManager.INDEFINITE, null, connector);
+            }
+        }
+        catch (WorkException e)
+        {
+            throw new ConnectException(CoreMessages.failedToScheduleWork(), e, this);
+        }
+    }
+
+    @Override
+    protected void doDisconnect() throws ConnectException
+    {
+        closeServerSocketChannel();
+        // the selector threads close the connections as they quit
+        stopSelectorLoops();
+    }
+
+    @Override
+    protected void doStart() throws MuleException
+    {
+        // nothing to do
+    }
+
+    @Override
+    protected void doStop() throws MuleException
+    {
+        // nothing to do
+    }
+
+    @Override
+    protected void doDispose()
+    {
+        closeServerSocketChannel();
+        stopSelectorLoops();
+        logger.info("Closed Tcp port");
+    }
+
+    private int getReadBufferSize()
+    {
+        int receiveBufferSize = ((TcpConnector) connector).getReceiveBufferSize();
+        return receiveBufferSize > 0 ? receiveBufferSize : DEFAULT_READ_BUFFER_SIZE;
+    }
+
+    private void closeServerSocketChannel()
+    {
+        if (serverSocketChannel != null)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Closing: " + serverSocketChannel);
+            }
+            try
+            {
+                serverSocketChannel.close();
+            }
+            catch (IOException e)
+            {
+                logger.warn("Failed to close server socket: " + e.getMessage(), e);
+            }
+            serverSocketChannel = null;
+        }
+    }
+
+    private void stopSelectorLoops()
+    {
+        if (selectorLoops != null)
+        {
+            for (SelectorLoop selectorLoop : selectorLoops)
+            {
+                if (selectorLoop != null)
+                {
+                    selectorLoop.stop();
+                }
+            }
+            selectorLoops = null;
+        }
+    }
+
+    private SelectorLoop nextSelectorLoop(SelectorLoop[] loops)
+    {
+        return loops[(nextSelectorLoop.getAndIncrement() & Integer.MAX_VALUE) % loops.length];
+    }
+
+    /**
+     * A selector thread. The first one also accepts the connections, and hands them to
+     * all the selector threads in turn.
+     */
+    private class SelectorLoop implements Work
+    {
+
+        private final Selector selector;
+        private final ByteBuffer readBuffer;
+        private final Queue<TcpConnection> updatedConnections = new ConcurrentLinkedQueue<TcpConnection>();
+        private volatile boolean running = true;
+
+        SelectorLoop(int readBufferSize) throws IOException
+        {
+            selector = Selector.open();
+            readBuffer = ByteBuffer.allocateDirect(readBufferSize);
+        }
+
+        public void run()
+        {
+            long lastIdleCheck = System.currentTimeMillis();
+            while (running)
+            {
+                try
+                {
+                    selector.select(SELECT_TIMEOUT);
+                    registerUpdatedConnections();
+
+                    Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                    while (selectedKeys.hasNext())
+                    {
+                        SelectionKey key = selectedKeys.next();
+                        selectedKeys.remove();
+                        if (!key.isValid())
+                        {
+                            continue;
+                        }
+                        if (key.isAcceptable())
+                        {
+                            accept((ServerSocketChannel) key.channel());
+                            continue;
+                        }
+
+                        TcpConnection connection = (TcpConnection) key.attachment();
+                        if (key.isWritable())
+                        {
+                            connection.flushPendingWrites();
+                        }
+                        if (key.isValid() && key.isReadable())
+                        {
+                            read(connection);
+                        }
+                        connection.updateInterestOps();
+                    }
+
+                    long now = System.currentTimeMillis();
+                    if (now - lastIdleCheck >= SELECT_TIMEOUT)
+                    {
+                        closeIdleConnections(now);
+                        lastIdleCheck = now;
+                    }
+                }
+                catch (ClosedSelectorException e)
+                {
+                    break;
+                }
+                catch (Exception e)
+                {
+                    if (running && !connector.isDisposed())
+                    {
+                        getEndpoint().getMuleContext().getExceptionListener().handleException(e);
+                    }
+                }
+            }
+            closeSelector();
+        }
+
+        private void accept(ServerSocketChannel serverChannel) throws IOException
+        {
+            SelectorLoop[] loops = selectorLoops;
+            SocketChannel channel;
+            while (loops != null && (channel = serverChannel.accept()) != null)
+            {
+                try
+                {
+                    ((TcpConnector) connector).configureSocket(TcpConnector.SERVER, channel.socket());
+                    channel.configureBlocking(false);
+                }
+                catch (IOException e)
+                {
+                    logger.warn("Closing connection that could not be configured: " + e.getMessage());
+                    channel.close();
+                    continue;
+                }
+                SelectorLoop selectorLoop = nextSelectorLoop(loops);
+                selectorLoop.update(new TcpConnection(channel, protocol.createFrameDecoder(), selectorLoop));
+            }
+        }
+
+        private void read(TcpConnection connection)
+        {
+            readBuffer.clear();
+            int read;
+            try
+            {
+                read = connection.channel.read(readBuffer);
+            }
+            catch (IOException e)
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Closing connection after read failure: " + e.getMessage());
+                }
+                connection.close();
+                return;
+            }
+
+            if (read < 0)
+            {
+                connection.endOfStream();
+            }
+            else if (read > 0)
+            {
+                connection.lastActivity = System.currentTimeMillis();
+                readBuffer.flip();
+                connection.decode(readBuffer);
+            }
+        }
+
+        private void closeIdleConnections(long now)
+        {
+            long keepAliveTimeout = ((TcpConnector) connector).getKeepAliveTimeout();
+            if (keepAliveTimeout <= 0)
+            {
+                return;
+            }
+            for (SelectionKey key : selector.keys())
+            {
+                TcpConnection connection = (TcpConnection) key.attachment();
+                if (connection != null && connection.isIdle(now, keepAliveTimeout))
+                {
+                    connection.close();
+                }
+            }
+        }
+
+        /**
+         * Registers the connection with this selector if it is new, and updates the
+         * operations it waits for otherwise. Can be called from any thread.
+         */
+        void update(TcpConnection connection)
+        {
+            if (!running)
+            {
+                connection.close();
+                return;
+            }
+            updatedConnections.add(connection);
+            selector.wakeup();
+        }
+
+        private void registerUpdatedConnections()
+        {
+            TcpConnection connection;
+            while ((connection = updatedConnections.poll()) != null)
+            {
+                if (connection.key == null)
+                {
+                    try
+                    {
+                        connection.key = connection.channel.register(selector, 0, connection);
+                    }
+                    catch (ClosedChannelException e)
+                    {
+                        connection.close();
+                        continue;
+                    }
+                }
+                connection.updateInterestOps();
+            }
+        }
+
+        void stop()
+        {
+            running = false;
+            selector.wakeup();
+        }
+
+        private void closeSelector()
+        {
+            try
+            {
+                for (SelectionKey key : selector.keys())
+                {
+                    if (key.attachment() != null)
+                    {
+                        ((TcpConnection) key.attachment()).close();
+                    }
+                }
+                TcpConnection connection;
+                while ((connection = updatedConnections.poll()) != null)
+                {
+                    connection.close();
+                }
+                selector.close();
+            }
+            catch (ClosedSelectorException e)
+            {
+                // already closed
+            }
+            catch (IOException e)
+            {
+                logger.warn("Failed to close selector: " + e.getMessage(), e);
+            }
+        }
+
+        public void release()
+        {
+            // nothing to do
+        }
+    }
+
+    /**
+     * A client connection. Reads and the selection key are only used by the selector
+     * thread, the rest of the state is guarded by the connection itself since the
+     * receiver threads take the messages and write the responses.
+     */
+    private class TcpConnection
+    {
+
+        private final SocketChannel channel;
+        private final TcpFrameDecoder decoder;
+        private final LinkedList<byte[]> frames = new LinkedList<byte[]>();
+        private final LinkedList<ByteBuffer> pendingWrites = new LinkedList<ByteBuffer>();
+        private final SelectorLoop selectorLoop;
+        private SelectionKey key;
+        private boolean processing;
+        private boolean readSuspended;
+        private boolean inputClosed;
+        private boolean closed;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        TcpConnection(SocketChannel channel, TcpFrameDecoder decoder, SelectorLoop selectorLoop)
+        {
+            this.channel = channel;
+            this.decoder = decoder;
+            this.selectorLoop = selectorLoop;
+        }
+
+        void decode(ByteBuffer buffer)
+        {
+            try
+            {
+                byte[] frame;
+                while ((frame = decoder.decode(buffer)) != null)
+                {
+                    addFrame(frame);
+                }
+            }
+            catch (IOException e)
+            {
+                close();
+                getEndpoint().getMuleContext().getExceptionListener().handleException(e);
+            }
+        }
+
+        void endOfStream()
+        {
+            try
+            {
+                byte[] frame = decoder.endOfStream();
+                if (frame != null)
+                {
+                    addFrame(frame);
+                }
+            }
+            catch (IOException e)
+            {
+                close();
+                getEndpoint().getMuleContext().getExceptionListener().handleException(e);
+                return;
+            }
+
+            synchronized (this)
+            {
+                // responses can still be written if the client only shut down its output
+                inputClosed = true;
+            }
+            closeIfDone();
+        }
+
+        private void addFrame(byte[] frame)
+        {
+            synchronized (this)
+            {
+                frames.add(frame);
+                if (processing)
+                {
+                    return;
+                }
+                processing = true;
+            }
+
+            try
+            {
+                getWorkManager().scheduleWork(new TcpFrameWorker(this), WorkManager.INDEFINITE, null, connector);
+            }
+            catch (WorkException e)
+            {
+                close();
+                getEndpoint().getMuleContext().getExceptionListener().handleException(e);
+            }
+        }
+
+        /**
+         * @return the next message to process, or null if there are none left, in which
+         *         case the receiver thread must stop processing messages of this connection
+         */
+        byte[] nextFrame()
+        {
+            boolean resumeRead;
+            byte[] frame;
+            synchronized (this)
+            {
+                frame = frames.poll();
+                if (frame == null)
+                {
+                    processing = false;
+                }
+                resumeRead = readSuspended && frames.size() < MAX_PENDING_FRAMES;
+                if (resumeRead)
+                {
+                    readSuspended = false;
+                }
+            }
+
+            if (resumeRead)
+            {
+                selectorLoop.update(this);
+            }
+            if (frame == null)
+            {
+                closeIfDone();
+            }
+            return frame;
+        }
+
+        void write(ByteBuffer data) throws IOException
+        {
+            synchronized (this)
+            {
+                if (closed)
+                {
+                    throw new ClosedChannelException();
+                }
+                if (pendingWrites.isEmpty())
+                {
+                    channel.write(data);
+                    if (!data.hasRemaining())
+                    {
+                        return;
+                    }
+                }
+                pendingWrites.add(data);
+            }
+            selectorLoop.update(this);
+        }
+
+        void flushPendingWrites()
+        {
+            try
+            {
+                synchronized (this)
+                {
+                    while (!pendingWrites.isEmpty())
+                    {
+                        ByteBuffer data = pendingWrites.getFirst();
+                        channel.write(data);
+                        if (data.hasRemaining())
+                        {
+                            return;
+                        }
+                        pendingWrites.removeFirst();
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Closing connection after write failure: " + e.getMessage());
+                }
+                close();
+                return;
+            }
+            closeIfDone();
+        }
+
+        /**
+         * Only called by the selector thread.
+         */
+        void updateInterestOps()
+        {
+            if (key == null || !key.isValid())
+            {
+                return;
+            }
+            int ops = 0;
+            synchronized (this)
+            {
+                readSuspended = frames.size() >= MAX_PENDING_FRAMES;
+                if (!inputClosed && !readSuspended)
+                {
+                    ops |= SelectionKey.OP_READ;
+                }
+                if (!pendingWrites.isEmpty())
+                {
+                    ops |= SelectionKey.OP_WRITE;
+                }
+            }
+            key.interestOps(ops);
+        }
+
+        synchronized boolean isIdle(long now, long keepAliveTimeout)
+        {
+            return !processing && pendingWrites.isEmpty() && now - lastActivity > keepAliveTimeout;
+        }
+
+        private void closeIfDone()
+        {
+            synchronized (this)
+            {
+                if (!inputClosed || processing || !frames.isEmpty() || !pendingWrites.isEmpty())
+                {
+                    return;
+                }
+            }
+            close();
+        }
+
+        void close()
+        {
+            synchronized (this)
+            {
+                if (closed)
+                {
+                    return;
+                }
+                closed = true;
+                frames.clear();
+                pendingWrites.clear();
+            }
+
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Closing connection: " + channel.socket().getRemoteSocketAddress());
+            }
+            try
+            {
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                logger.warn("Socket close failed with: " + e);
+            }
+        }
+    }
+
+    /**
+     * Processes the messages of a connection until there are none left.
+     */
+    private class TcpFrameWorker extends AbstractReceiverWorker
+    {
+
+        private final TcpConnection connection;
+
+        TcpFrameWorker(TcpConnection connection)
+        {
+            super(new ArrayList<Object>(1), NonBlockingTcpMessageReceiver.this, new ConnectionOutputStream(connection));
+            this.connection = connection;
+        }
+
+        @Override
+        protected void doRun()
+        {
+            byte[] frame;
+            while ((frame = connection.nextFrame()) != null)
+            {
+                messages.add(frame);
+                super.doRun();
+            }
+        }
+
+        @Override
+        protected void bindTransaction(Transaction tx) throws TransactionException
+        {
+            // nothing to do
+        }
+
+        @Override
+        protected Object preProcessMessage(Object message) throws Exception
+        {
+            return protocol.readFrame((byte[]) message);
+        }
+
+        @Override
+        protected void preRouteMuleMessage(MuleMessage message) throws Exception
+        {
+            super.preRouteMuleMessage(message);
+
+            SocketAddress clientAddress = connection.channel.socket().getRemoteSocketAddress();
+            if (clientAddress != null)
+            {
+                message.setOutboundProperty(MuleProperties.MULE_REMOTE_CLIENT_ADDRESS, clientAddress.toString());
+            }
+        }
+
+        @Override
+        protected void handleResults(List messages) throws Exception
+        {
+            // should send back only if remote synch is set or no outbound endpoints
+            if (endpoint.getExchangePattern().hasResponse())
+            {
+                for (Object message : messages)
+                {
+                    protocol.write(out, message);
+                    out.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Buffers what the protocol writes and hands it to the connection on each flush.
+     */
+    private static class ConnectionOutputStream extends ByteArrayOutputStream
+    {
+
+        private final TcpConnection connection;
+
+        ConnectionOutputStream(TcpConnection connection)
+        {
+            this.connection = connection;
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            if (size() > 0)
+            {
+                connection.write(ByteBuffer.wrap(toByteArray()));
+                reset();
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            flush();
+        }
+    }
+}
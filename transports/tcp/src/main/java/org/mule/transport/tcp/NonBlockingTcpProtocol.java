@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import java.io.IOException;
+
+/**
+ * A {@link TcpProtocol} whose messages can also be read from a non blocking channel. The
+ * framing of messages is decoded by a {@link TcpFrameDecoder} in the selector thread of the
+ * connection, and a receiver thread is only used once a complete message is available.
+ *
+ * @see NonBlockingTcpMessageReceiver
+ */
+public interface NonBlockingTcpProtocol extends TcpProtocol
+{
+
+    /**
+     * Creates the decoder for a new connection.
+     *
+     * @return a new decoder, or null if the messages of this protocol can not be read
+     *         without blocking
+     */
+    TcpFrameDecoder createFrameDecoder();
+
+    /**
+     * Creates the message from the bytes of a complete frame, as {@link #read(java.io.InputStream)}
+     * does from the bytes read from a stream. Called by the receiver thread that processes the
+     * message.
+     *
+     * @param frame the bytes decoded by a decoder created by this protocol
+     * @return the message, or null if there is no message to process
+     * @throws IOException if the message can not be created
+     */
+    Object readFrame(byte[] frame) throws IOException;
+
+}
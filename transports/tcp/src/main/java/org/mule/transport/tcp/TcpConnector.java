@@ -11,10 +11,13 @@ import org.mule.api.MuleContext;
 import org.mule.api.MuleException;
 import org.mule.api.MuleMessage;
 import org.mule.api.config.MuleProperties;
+import org.mule.api.construct.FlowConstruct;
 import org.mule.api.endpoint.ImmutableEndpoint;
+import org.mule.api.endpoint.InboundEndpoint;
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.api.transport.Connector;
 import org.mule.api.transport.MessageDispatcherFactory;
+import org.mule.api.transport.MessageReceiver;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.model.streaming.CallbackOutputStream;
 import org.mule.transport.AbstractConnector;
@@ -31,6 +34,7 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.URI;
+import java.nio.channels.ServerSocketChannel;
 
 import org.apache.commons.pool.impl.GenericKeyedObjectPool;
 
@@ -53,6 +57,7 @@ public class TcpConnector extends AbstractConnector
     public static final int DEFAULT_BUFFER_SIZE = INT_VALUE_NOT_SET;
     public static final int DEFAULT_BACKLOG = INT_VALUE_NOT_SET;
     public static final int DEFAULT_WAIT_TIMEOUT = INT_VALUE_NOT_SET;
+    public static final int DEFAULT_SELECTOR_THREADS = 2;
 
     // to clarify arg to configureSocket
     public static final boolean SERVER = false;
@@ -91,6 +96,13 @@ public class TcpConnector extends AbstractConnector
      */
     private boolean keepAlive = false;
 
+    /**
+     * If set, inbound connections are read by a few selector threads and a receiver thread
+     * is only used once a complete message has been received.
+     */
+    private boolean nonBlockingReceiver = false;
+    private int selectorThreads = DEFAULT_SELECTOR_THREADS;
+
     //TODO MULE-2300 remove once fixed
     private TcpSocketKey lastSocketKey;
 
@@ -463,6 +475,63 @@ public class TcpConnector extends AbstractConnector
         this.sendTcpNoDelay = sendTcpNoDelay;
     }
 
+    /**
+     * Whether inbound connections are read using {@link NonBlockingTcpMessageReceiver}.
+     * Only supported by protocols that implement {@link NonBlockingTcpProtocol} and are
+     * able to decode their messages without blocking.
+     */
+    public boolean isNonBlockingReceiver()
+    {
+        return nonBlockingReceiver;
+    }
+
+    public void setNonBlockingReceiver(boolean nonBlockingReceiver)
+    {
+        this.nonBlockingReceiver = nonBlockingReceiver;
+    }
+
+    /**
+     * The number of selector threads that read the connections of each inbound endpoint
+     * when {@link #isNonBlockingReceiver()} is set.
+     */
+    public int getSelectorThreads()
+    {
+        return selectorThreads;
+    }
+
+    public void setSelectorThreads(int selectorThreads)
+    {
+        this.selectorThreads = selectorThreads;
+    }
+
+    /**
+     * Creates a {@link NonBlockingTcpMessageReceiver} instead of the {@link TcpMessageReceiver}
+     * when {@link #isNonBlockingReceiver()} is set. Connectors and protocols that provide their
+     * own receiver or need blocking reads keep the receiver they configure.
+     */
+    @Override
+    protected MessageReceiver createReceiver(FlowConstruct flowConstruct, InboundEndpoint endpoint) throws Exception
+    {
+        MessageReceiver receiver = super.createReceiver(flowConstruct, endpoint);
+        if (isNonBlockingReceiver() && receiver.getClass().equals(TcpMessageReceiver.class))
+        {
+            if (isNonBlockingReceiverSupported())
+            {
+                return new NonBlockingTcpMessageReceiver(this, flowConstruct, endpoint);
+            }
+            logger.warn("Protocol " + getTcpProtocol().getClass().getName() + " can not be read without blocking, "
+                        + "using a blocking receiver for " + endpoint.getEndpointURI());
+        }
+        return receiver;
+    }
+
+    private boolean isNonBlockingReceiverSupported()
+    {
+        return getServerSocketFactory() instanceof TcpServerSocketFactory
+               && getTcpProtocol() instanceof NonBlockingTcpProtocol
+               && ((NonBlockingTcpProtocol) getTcpProtocol()).createFrameDecoder() != null;
+    }
+
     protected void setSocketFactory(AbstractTcpSocketFactory socketFactory)
     {
         this.socketFactory = socketFactory;
@@ -488,6 +557,21 @@ public class TcpConnector extends AbstractConnector
         return getServerSocketFactory().createServerSocket(uri, getReceiveBacklog(), isReuseAddress());
     }
 
+    /**
+     * Creates a non blocking server socket channel for the given URI. Only supported when the
+     * configured server socket factory is a {@link TcpServerSocketFactory}.
+     */
+    protected ServerSocketChannel getServerSocketChannel(URI uri) throws IOException
+    {
+        SimpleServerSocketFactory serverSocketFactory = getServerSocketFactory();
+        if (!(serverSocketFactory instanceof TcpServerSocketFactory))
+        {
+            throw new IOException("Server socket factory " + serverSocketFactory.getClass().getName()
+                                  + " does not support non blocking server sockets");
+        }
+        return ((TcpServerSocketFactory) serverSocketFactory).createServerSocketChannel(uri, getReceiveBacklog(), isReuseAddress());
+    }
+
     private static int valueOrDefault(int value, int threshhold, int deflt)
     {
         if (value < threshhold)
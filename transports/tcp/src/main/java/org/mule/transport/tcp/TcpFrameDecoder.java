@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the messages of a {@link NonBlockingTcpProtocol} incrementally, from the bytes
+ * read from a non blocking channel as they arrive. A decoder holds the state of a single
+ * connection and is only used by one thread at a time.
+ */
+public interface TcpFrameDecoder
+{
+
+    /**
+     * Consumes bytes from the buffer until a complete message is decoded or the buffer
+     * is empty. Bytes of a partial message are kept by the decoder until the next call.
+     * This is called again after each decoded message, even if the buffer is empty, so
+     * that messages kept by the decoder can be returned.
+     *
+     * @param buffer the bytes read from the connection
+     * @return the bytes of a complete message, or null if more bytes are needed
+     * @throws IOException if the bytes do not follow the protocol
+     */
+    byte[] decode(ByteBuffer buffer) throws IOException;
+
+    /**
+     * Called once the client has closed its side of the connection.
+     *
+     * @return the bytes of the last message, or null if there is none
+     * @throws IOException if the connection was closed in the middle of a message that
+     *             can not be completed
+     */
+    byte[] endOfStream() throws IOException;
+
+}
@@ -14,6 +14,7 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.URI;
+import java.nio.channels.ServerSocketChannel;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -24,17 +25,36 @@ public class TcpServerSocketFactory implements SimpleServerSocketFactory
 
     public ServerSocket createServerSocket(URI uri, int backlog, Boolean reuse) throws IOException
     {
-        String host = StringUtils.defaultIfEmpty(uri.getHost(), "localhost");
-        InetAddress inetAddress = InetAddress.getByName(host);
-
-        if ((inetAddress.equals(InetAddress.getLocalHost()) || host.trim().equals("localhost")) && TcpPropertyHelper.isBindingLocalhostToAllLocalInterfaces())
+        InetSocketAddress address = resolveAddress(uri);
+        if (address.getAddress().isAnyLocalAddress())
         {
-            logger.warn(TcpMessages.localhostBoundToAllLocalInterfaces());
-            return createServerSocket(uri.getPort(), backlog, reuse);
+            return createServerSocket(address.getPort(), backlog, reuse);
         }
         else
         {
-            return createServerSocket(inetAddress, uri.getPort(), backlog, reuse);
+            return createServerSocket(address.getAddress(), address.getPort(), backlog, reuse);
+        }
+    }
+
+    /**
+     * Creates a bound, non blocking server socket channel for the given URI, using the same
+     * address resolution and socket options as {@link #createServerSocket(URI, int, Boolean)}.
+     */
+    public ServerSocketChannel createServerSocketChannel(URI uri, int backlog, Boolean reuse) throws IOException
+    {
+        InetSocketAddress address = resolveAddress(uri);
+
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try
+        {
+            configure(channel.socket(), reuse, address, backlog);
+            channel.configureBlocking(false);
+            return channel;
+        }
+        catch (IOException e)
+        {
+            channel.close();
+            throw e;
         }
     }
 
@@ -48,6 +68,26 @@ public class TcpServerSocketFactory implements SimpleServerSocketFactory
         return configure(new ServerSocket(), reuse, new InetSocketAddress(port), backlog);
     }
 
+    /**
+     * Resolves the address to bind for the given URI, which is the wildcard address when
+     * a local host is bound to all the local interfaces.
+     */
+    private InetSocketAddress resolveAddress(URI uri) throws IOException
+    {
+        String host = StringUtils.defaultIfEmpty(uri.getHost(), "localhost");
+        InetAddress inetAddress = InetAddress.getByName(host);
+
+        if ((inetAddress.equals(InetAddress.getLocalHost()) || host.trim().equals("localhost")) && TcpPropertyHelper.isBindingLocalhostToAllLocalInterfaces())
+        {
+            logger.warn(TcpMessages.localhostBoundToAllLocalInterfaces());
+            return new InetSocketAddress(uri.getPort());
+        }
+        else
+        {
+            return new InetSocketAddress(inetAddress, uri.getPort());
+        }
+    }
+
     protected ServerSocket configure(ServerSocket socket, Boolean reuse, InetSocketAddress address, int backlog)
             throws IOException
     {
@@ -6,6 +6,7 @@
  */
 package org.mule.transport.tcp.protocols;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -54,6 +55,28 @@ public class CustomClassLoadingLengthProtocol extends LengthProtocol
         }
     }
 
+    @Override
+    public Object readFrame(byte[] frame) throws IOException
+    {
+        ClassLoaderObjectInputStream classLoaderIS = new ClassLoaderObjectInputStream(this.getClassLoader(),
+            new ByteArrayInputStream(frame));
+        try
+        {
+            return classLoaderIS.readObject();
+        }
+        catch (ClassNotFoundException e)
+        {
+            logger.warn(e.getMessage());
+            IOException iox = new IOException();
+            iox.initCause(e);
+            throw iox;
+        }
+        finally
+        {
+            classLoaderIS.close();
+        }
+    }
+
     public ClassLoader getClassLoader()
     {
         if (this.classLoader == null)
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp.protocols;
+
+import org.mule.transport.tcp.TcpFrameDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the frames of a {@link DirectProtocol}: whatever was available when the
+ * connection was read.
+ */
+class DirectFrameDecoder implements TcpFrameDecoder
+{
+
+    public byte[] decode(ByteBuffer buffer) throws IOException
+    {
+        if (!buffer.hasRemaining())
+        {
+            return null;
+        }
+        byte[] frame = new byte[buffer.remaining()];
+        buffer.get(frame);
+        return frame;
+    }
+
+    public byte[] endOfStream() throws IOException
+    {
+        return null;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp.protocols;
+
+import org.mule.transport.tcp.TcpFrameDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the frames of an {@link EOFProtocol}: all the bytes sent until the client closes
+ * its side of the connection.
+ */
+class EOFFrameDecoder implements TcpFrameDecoder
+{
+
+    private final FrameBuffer data = new FrameBuffer();
+
+    public byte[] decode(ByteBuffer buffer) throws IOException
+    {
+        data.append(buffer);
+        return null;
+    }
+
+    public byte[] endOfStream() throws IOException
+    {
+        return data.size() == 0 ? null : data.takeAll();
+    }
+}
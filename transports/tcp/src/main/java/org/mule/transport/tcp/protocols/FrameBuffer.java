@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp.protocols;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Holds the bytes of partial messages between the reads of a {@link org.mule.transport.tcp.TcpFrameDecoder}.
+ * The backing array is only allocated once there is something to hold, so idle connections
+ * do not use any memory for it.
+ */
+class FrameBuffer
+{
+
+    private static final byte[] EMPTY = new byte[0];
+    private static final int MIN_CAPACITY = 1024;
+
+    private byte[] data = EMPTY;
+    private int size;
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Moves all the remaining bytes of the buffer to the end of this one.
+     */
+    void append(ByteBuffer buffer)
+    {
+        int count = buffer.remaining();
+        if (size + count > data.length)
+        {
+            byte[] grown = new byte[Math.max(Math.max(MIN_CAPACITY, data.length * 2), size + count)];
+            System.arraycopy(data, 0, grown, 0, size);
+            data = grown;
+        }
+        buffer.get(data, size, count);
+        size += count;
+    }
+
+    /**
+     * @return the index of the first occurrence of the pattern at or after the given index,
+     *         or -1 if there is none
+     */
+    int indexOf(byte[] pattern, int fromIndex)
+    {
+        int last = size - pattern.length;
+        for (int i = Math.max(fromIndex, 0); i <= last; i++)
+        {
+            int j = 0;
+            while (j < pattern.length && data[i + j] == pattern[j])
+            {
+                j++;
+            }
+            if (j == pattern.length)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes and returns the first bytes of this buffer.
+     */
+    byte[] take(int length)
+    {
+        byte[] frame = new byte[length];
+        System.arraycopy(data, 0, frame, 0, length);
+        size -= length;
+        if (size == 0)
+        {
+            data = EMPTY;
+        }
+        else
+        {
+            System.arraycopy(data, length, data, 0, size);
+        }
+        return frame;
+    }
+
+    byte[] takeAll()
+    {
+        return take(size);
+    }
+}
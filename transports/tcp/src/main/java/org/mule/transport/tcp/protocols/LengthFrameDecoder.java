@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp.protocols;
+
+import org.mule.transport.tcp.TcpFrameDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the frames of a {@link LengthProtocol}: a four byte length followed by that many
+ * bytes of data. The data are copied straight into the array that is returned as the
+ * message, once the length is known.
+ */
+class LengthFrameDecoder implements TcpFrameDecoder
+{
+
+    private static final int SIZE_INT = 4;
+
+    private final int maxMessageLength;
+    private int length;
+    private int lengthBytesRead;
+    private byte[] frame;
+    private int position;
+
+    LengthFrameDecoder(int maxMessageLength)
+    {
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    public byte[] decode(ByteBuffer buffer) throws IOException
+    {
+        if (frame == null)
+        {
+            while (lengthBytesRead < SIZE_INT && buffer.hasRemaining())
+            {
+                length = (length << 8) | (buffer.get() & 0xFF);
+                lengthBytesRead++;
+            }
+            if (lengthBytesRead < SIZE_INT)
+            {
+                return null;
+            }
+            if (length < 0 || (maxMessageLength > 0 && length > maxMessageLength))
+            {
+                throw new IOException("Length " + length + " exceeds limit: " + maxMessageLength);
+            }
+            frame = new byte[length];
+            position = 0;
+        }
+
+        int count = Math.min(buffer.remaining(), frame.length - position);
+        buffer.get(frame, position, count);
+        position += count;
+        if (position < frame.length)
+        {
+            return null;
+        }
+
+        byte[] result = frame;
+        frame = null;
+        length = 0;
+        lengthBytesRead = 0;
+        return result;
+    }
+
+    /**
+     * A message that is not complete when the client closes the connection is discarded,
+     * as the blocking protocol does.
+     */
+    public byte[] endOfStream() throws IOException
+    {
+        return null;
+    }
+
+    /**
+     * @return whether part of a message has been decoded
+     */
+    boolean isDecoding()
+    {
+        return lengthBytesRead > 0;
+    }
+}
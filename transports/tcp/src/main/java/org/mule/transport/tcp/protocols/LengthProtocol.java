@@ -6,6 +6,8 @@
  */
 package org.mule.transport.tcp.protocols;
 
+import org.mule.transport.tcp.TcpFrameDecoder;
+
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -82,6 +84,19 @@ public class LengthProtocol extends DirectProtocol
         return buffer;
     }
 
+    @Override
+    public TcpFrameDecoder createFrameDecoder()
+    {
+        return new LengthFrameDecoder(getMaxMessageLength());
+    }
+
+    @Override
+    public Object readFrame(byte[] frame) throws IOException
+    {
+        // unlike the other byte protocols, an empty message is still a message
+        return frame;
+    }
+
     @Override
     protected void writeByteArray(OutputStream os, byte[] data) throws IOException
     {
@@ -32,6 +32,12 @@ public class MuleMessageEOFProtocol extends EOFProtocol implements MuleContextAw
         return messageWorker.doRead(super.read(is));
     }
 
+    @Override
+    public Object readFrame(byte[] frame) throws IOException
+    {
+        return messageWorker.doRead(super.readFrame(frame));
+    }
+
     @Override
     public void write(OutputStream os, Object unused) throws IOException
     {
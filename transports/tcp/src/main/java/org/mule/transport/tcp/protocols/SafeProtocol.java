@@ -7,12 +7,15 @@
 package org.mule.transport.tcp.protocols;
 
 import org.mule.ResponseOutputStream;
+import org.mule.transport.tcp.NonBlockingTcpProtocol;
+import org.mule.transport.tcp.TcpFrameDecoder;
 import org.mule.transport.tcp.TcpProtocol;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 
 /**
  * This precedes every message with a cookie.
@@ -21,11 +24,11 @@ import java.net.Socket;
  * You should probably change to LengthProtocol.
  * Remember - both sender and receiver must use the same protocol.
  */
-public class SafeProtocol implements TcpProtocol
+public class SafeProtocol implements NonBlockingTcpProtocol
 {
 
     public static final String COOKIE = "You are using SafeProtocol";
-    private TcpProtocol delegate = new LengthProtocol();
+    private LengthProtocol delegate = new LengthProtocol();
     private TcpProtocol cookieProtocol = new LengthProtocol(COOKIE.length());
 
     public Object read(InputStream is) throws IOException
@@ -52,6 +55,16 @@ public class SafeProtocol implements TcpProtocol
         delegate.write(os, data);
     }
 
+    public TcpFrameDecoder createFrameDecoder()
+    {
+        return new SafeFrameDecoder();
+    }
+
+    public Object readFrame(byte[] frame) throws IOException
+    {
+        return frame;
+    }
+
     public ResponseOutputStream createResponse(Socket socket) throws IOException
     {
         return new ResponseOutputStream(socket, new ProtocolStream(this, false, socket.getOutputStream()));
@@ -114,4 +127,59 @@ public class SafeProtocol implements TcpProtocol
         delegate = new LengthProtocol(maxMessageLength);
     }
 
+    /**
+     * Decodes the cookie and then the message that follows it, as {@link SafeProtocol#read(InputStream)}
+     * does.
+     */
+    private class SafeFrameDecoder implements TcpFrameDecoder
+    {
+
+        private final LengthFrameDecoder cookieDecoder = new LengthFrameDecoder(COOKIE.length());
+        private final LengthFrameDecoder delegateDecoder = new LengthFrameDecoder(delegate.getMaxMessageLength());
+        private boolean cookieDecoded;
+
+        public byte[] decode(ByteBuffer buffer) throws IOException
+        {
+            if (!cookieDecoded)
+            {
+                byte[] cookie;
+                try
+                {
+                    cookie = cookieDecoder.decode(buffer);
+                }
+                catch (IOException e)
+                {
+                    helpUser(e);
+                    return null;
+                }
+                if (cookie == null)
+                {
+                    return null;
+                }
+                if (!COOKIE.equals(new String(cookie)))
+                {
+                    helpUser();
+                }
+                cookieDecoded = true;
+            }
+
+            byte[] frame = delegateDecoder.decode(buffer);
+            if (frame != null)
+            {
+                cookieDecoded = false;
+            }
+            return frame;
+        }
+
+        public byte[] endOfStream() throws IOException
+        {
+            if (cookieDecoded || cookieDecoder.isDecoding())
+            {
+                // EOF after cookie but before data
+                helpUser();
+            }
+            return null;
+        }
+    }
+
 }
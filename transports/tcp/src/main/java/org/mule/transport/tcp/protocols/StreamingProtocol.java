@@ -6,6 +6,7 @@
  */
 package org.mule.transport.tcp.protocols;
 
+import org.mule.transport.tcp.TcpFrameDecoder;
 import org.mule.transport.tcp.TcpInputStream;
 import org.mule.transport.tcp.TcpProtocol;
 
@@ -31,6 +32,15 @@ public class StreamingProtocol extends EOFProtocol implements TcpProtocol
         return is;
     }
 
+    /**
+     * The stream is handed over as the message, so it can not be read without blocking.
+     */
+    @Override
+    public TcpFrameDecoder createFrameDecoder()
+    {
+        return null;
+    }
+
     /**
      * 
      * @param is
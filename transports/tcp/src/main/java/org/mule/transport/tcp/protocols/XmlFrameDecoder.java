@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp.protocols;
+
+import org.mule.transport.tcp.TcpFrameDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the frames of an {@link XmlMessageProtocol}: each document ends where the xml
+ * declaration of the next one starts. Unlike the blocking protocol the declaration is
+ * looked for in the raw bytes, so nothing is decoded using the platform encoding.
+ */
+class XmlFrameDecoder implements TcpFrameDecoder
+{
+
+    private static final byte[] XML_PATTERN = "<?xml".getBytes();
+
+    private final boolean untilNextDocument;
+    private final FrameBuffer data = new FrameBuffer();
+    private int searchFrom = 1;
+
+    /**
+     * @param untilNextDocument if true, a document is only complete once the next one
+     *            starts or the client closes the connection; otherwise whatever was read is
+     *            complete too, following {@link XmlMessageProtocol#isRepeat(int, int, int)}
+     */
+    XmlFrameDecoder(boolean untilNextDocument)
+    {
+        this.untilNextDocument = untilNextDocument;
+    }
+
+    public byte[] decode(ByteBuffer buffer) throws IOException
+    {
+        data.append(buffer);
+
+        // the search starts at the second byte, the first one is part of the current document
+        int patternIndex = data.indexOf(XML_PATTERN, searchFrom);
+        if (patternIndex > 0)
+        {
+            searchFrom = 1;
+            return data.take(patternIndex);
+        }
+        if (!untilNextDocument && data.size() > 0)
+        {
+            searchFrom = 1;
+            return data.takeAll();
+        }
+        // the start of the next declaration may already be there
+        searchFrom = Math.max(1, data.size() - XML_PATTERN.length + 1);
+        return null;
+    }
+
+    public byte[] endOfStream() throws IOException
+    {
+        searchFrom = 1;
+        return data.size() == 0 ? null : data.takeAll();
+    }
+}
@@ -6,6 +6,8 @@
  */
 package org.mule.transport.tcp.protocols;
 
+import org.mule.transport.tcp.TcpFrameDecoder;
+
 /**
  * Extend {@link org.mule.transport.tcp.protocols.XmlMessageProtocol} to continue reading
  * until either a new message or EOF is found.
@@ -27,4 +29,10 @@ public class XmlMessageEOFProtocol extends XmlMessageProtocol
         return patternIndex < 0;
     }
 
+    @Override
+    public TcpFrameDecoder createFrameDecoder()
+    {
+        return new XmlFrameDecoder(true);
+    }
+
 }
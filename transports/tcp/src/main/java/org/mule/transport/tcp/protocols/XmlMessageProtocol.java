@@ -6,6 +6,9 @@
  */
 package org.mule.transport.tcp.protocols;
 
+import org.mule.transport.tcp.NonBlockingTcpProtocol;
+import org.mule.transport.tcp.TcpFrameDecoder;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
@@ -45,7 +48,7 @@ import java.util.concurrent.ConcurrentMap;
  * be read later.
  * </p>
  */
-public class XmlMessageProtocol extends AbstractByteProtocol
+public class XmlMessageProtocol extends AbstractByteProtocol implements NonBlockingTcpProtocol
 {
     
     private static final String XML_PATTERN = "<?xml";
@@ -127,6 +130,16 @@ public class XmlMessageProtocol extends AbstractByteProtocol
         }
     }
 
+    public TcpFrameDecoder createFrameDecoder()
+    {
+        return new XmlFrameDecoder(false);
+    }
+
+    public Object readFrame(byte[] frame) throws IOException
+    {
+        return nullEmptyArray(frame);
+    }
+
     /**
      * Show we continue reading?  This class, following previous implementations, only
      * reads while input is saturated.
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertThat;
+
+import org.mule.api.MuleMessage;
+import org.mule.api.transport.MessageReceiver;
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.junit4.rule.DynamicPort;
+import org.mule.transport.tcp.protocols.LengthProtocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+public class NonBlockingTcpMessageReceiverTestCase extends FunctionalTestCase
+{
+
+    private static final int IDLE_CONNECTIONS = 20;
+    private static final int SOCKET_TIMEOUT = 5000;
+
+    private final LengthProtocol protocol = new LengthProtocol();
+
+    @Rule
+    public DynamicPort dynamicPort = new DynamicPort("port1");
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "tcp-non-blocking-receiver-config.xml";
+    }
+
+    @Test
+    public void usesNonBlockingReceiver() throws Exception
+    {
+        TcpConnector connector = (TcpConnector) muleContext.getRegistry().lookupConnector("tcpConnector");
+        for (MessageReceiver receiver : connector.getReceivers().values())
+        {
+            assertThat(receiver, instanceOf(NonBlockingTcpMessageReceiver.class));
+        }
+    }
+
+    @Test
+    public void receivesMessagesFromMuleClient() throws Exception
+    {
+        MuleMessage result = muleContext.getClient().send("tcp://localhost:" + dynamicPort.getNumber(), TEST_MESSAGE, null);
+
+        assertThat(result.getPayloadAsString(), is(TEST_MESSAGE + " Received"));
+    }
+
+    @Test
+    public void processesMessagesSentTogetherInOrder() throws Exception
+    {
+        Socket socket = connect();
+        try
+        {
+            ByteArrayOutputStream messages = new ByteArrayOutputStream();
+            for (int i = 0; i < 5; i++)
+            {
+                protocol.write(messages, "message " + i);
+            }
+            socket.getOutputStream().write(messages.toByteArray());
+            socket.getOutputStream().flush();
+
+            for (int i = 0; i < 5; i++)
+            {
+                assertThat(readResponse(socket), is("message " + i + " Received"));
+            }
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void partialMessagesDoNotHoldThreads() throws Exception
+    {
+        // more connections waiting for the rest of their message than receiver threads
+        List<Socket> idleSockets = new ArrayList<Socket>();
+        try
+        {
+            for (int i = 0; i < IDLE_CONNECTIONS; i++)
+            {
+                Socket socket = connect();
+                idleSockets.add(socket);
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeInt(TEST_MESSAGE.length());
+                out.write(TEST_MESSAGE.getBytes(), 0, 4);
+                out.flush();
+            }
+
+            Socket socket = connect();
+            try
+            {
+                protocol.write(socket.getOutputStream(), TEST_MESSAGE);
+                assertThat(readResponse(socket), is(TEST_MESSAGE + " Received"));
+            }
+            finally
+            {
+                socket.close();
+            }
+
+            // the partial messages can still be completed
+            Socket first = idleSockets.get(0);
+            first.getOutputStream().write(TEST_MESSAGE.getBytes(), 4, TEST_MESSAGE.length() - 4);
+            first.getOutputStream().flush();
+            assertThat(readResponse(first), is(TEST_MESSAGE + " Received"));
+        }
+        finally
+        {
+            for (Socket socket : idleSockets)
+            {
+                socket.close();
+            }
+        }
+    }
+
+    private Socket connect() throws Exception
+    {
+        Socket socket = new Socket("localhost", dynamicPort.getNumber());
+        socket.setSoTimeout(SOCKET_TIMEOUT);
+        return socket;
+    }
+
+    private String readResponse(Socket socket) throws Exception
+    {
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        byte[] response = new byte[in.readInt()];
+        in.readFully(response);
+        return new String(response);
+    }
+}
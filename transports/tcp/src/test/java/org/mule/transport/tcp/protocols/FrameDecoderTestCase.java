@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp.protocols;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+import org.mule.transport.tcp.TcpFrameDecoder;
+import org.mule.transport.tcp.TcpProtocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+@SmallTest
+public class FrameDecoderTestCase extends AbstractMuleTestCase
+{
+
+    @Test
+    public void decodesLengthFramesReadOneByteAtATime() throws Exception
+    {
+        LengthProtocol protocol = new LengthProtocol();
+        byte[] bytes = write(protocol, "first", "", "second");
+
+        List<String> messages = decodeInChunks(protocol.createFrameDecoder(), bytes, 1);
+
+        assertThat(messages.toString(), is("[first, , second]"));
+    }
+
+    @Test
+    public void decodesSeveralLengthFramesFromOneRead() throws Exception
+    {
+        LengthProtocol protocol = new LengthProtocol();
+        byte[] bytes = write(protocol, "first", "second", "third");
+
+        List<String> messages = decodeInChunks(protocol.createFrameDecoder(), bytes, bytes.length);
+
+        assertThat(messages.toString(), is("[first, second, third]"));
+    }
+
+    @Test
+    public void rejectsLengthFramesOverTheLimit() throws Exception
+    {
+        byte[] bytes = write(new LengthProtocol(), "too long");
+
+        try
+        {
+            decodeInChunks(new LengthProtocol(4).createFrameDecoder(), bytes, bytes.length);
+            fail("Frame over the limit was expected to fail");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void decodesSafeFramesReadInChunks() throws Exception
+    {
+        SafeProtocol protocol = new SafeProtocol();
+        byte[] bytes = write(protocol, "first", "second");
+
+        List<String> messages = decodeInChunks(protocol.createFrameDecoder(), bytes, 7);
+
+        assertThat(messages.toString(), is("[first, second]"));
+    }
+
+    @Test
+    public void rejectsFramesWithoutSafeCookie() throws Exception
+    {
+        byte[] bytes = write(new LengthProtocol(), "Not a SafeProtocol cookie!", "data");
+
+        try
+        {
+            decodeInChunks(new SafeProtocol().createFrameDecoder(), bytes, bytes.length);
+            fail("Missing cookie was expected to fail");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void decodesEofFrameOnceTheStreamEnds() throws Exception
+    {
+        TcpFrameDecoder decoder = new EOFProtocol().createFrameDecoder();
+        byte[] bytes = "first part, second part".getBytes();
+
+        assertThat(decodeInChunks(decoder, bytes, 5).isEmpty(), is(true));
+        assertThat(new String(decoder.endOfStream()), is("first part, second part"));
+        assertThat(decoder.endOfStream(), is(nullValue()));
+    }
+
+    @Test
+    public void splitsXmlDocumentsAcrossReads() throws Exception
+    {
+        TcpFrameDecoder decoder = new XmlMessageEOFProtocol().createFrameDecoder();
+        byte[] bytes = "<?xml version=\"1.0\"?><a/><?xml version=\"1.0\"?><b/>".getBytes();
+
+        List<String> messages = decodeInChunks(decoder, bytes, 3);
+
+        assertThat(messages.toString(), is("[<?xml version=\"1.0\"?><a/>]"));
+        assertThat(new String(decoder.endOfStream()), is("<?xml version=\"1.0\"?><b/>"));
+    }
+
+    @Test
+    public void xmlDocumentIsCompleteAtTheEndOfEachRead() throws Exception
+    {
+        TcpFrameDecoder decoder = new XmlMessageProtocol().createFrameDecoder();
+        byte[] bytes = "<?xml version=\"1.0\"?><a/><?xml version=\"1.0\"?><b/>".getBytes();
+
+        List<String> messages = decodeInChunks(decoder, bytes, bytes.length);
+
+        assertThat(messages.toString(), is("[<?xml version=\"1.0\"?><a/>, <?xml version=\"1.0\"?><b/>]"));
+        assertThat(decoder.endOfStream(), is(nullValue()));
+    }
+
+    @Test
+    public void streamingProtocolCanNotBeDecoded() throws Exception
+    {
+        assertThat(new StreamingProtocol().createFrameDecoder(), is(nullValue()));
+    }
+
+    private byte[] write(TcpProtocol protocol, String... messages) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String message : messages)
+        {
+            protocol.write(out, message);
+        }
+        return out.toByteArray();
+    }
+
+    private List<String> decodeInChunks(TcpFrameDecoder decoder, byte[] bytes, int chunkSize) throws IOException
+    {
+        List<String> messages = new ArrayList<String>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(chunkSize);
+        for (int offset = 0; offset < bytes.length; offset += chunkSize)
+        {
+            buffer.clear();
+            buffer.put(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+            buffer.flip();
+            byte[] frame;
+            while ((frame = decoder.decode(buffer)) != null)
+            {
+                messages.add(new String(frame));
+            }
+            assertThat(buffer.hasRemaining(), is(false));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,523 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.udp;
+
+import org.mule.DefaultMessageCollection;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.MuleMessage;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.construct.FlowConstruct;
+import org.mule.api.endpoint.InboundEndpoint;
+import org.mule.api.lifecycle.CreateException;
+import org.mule.api.transport.Connector;
+import org.mule.api.transport.PropertyScope;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.management.stats.ReceiverStatistics;
+import org.mule.management.stats.ReceiverStatisticsProvider;
+import org.mule.transport.AbstractMessageReceiver;
+import org.mule.transport.ConnectException;
+import org.mule.transport.udp.i18n.UdpMessages;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkManager;
+
+/**
+ * Receives UDP packets through a {@link DatagramChannel}, reading all the packets that are
+ * available into a fixed ring of reusable buffers and handing them to a single receiver
+ * thread, instead of scheduling work for every packet as {@link UdpMessageReceiver} does.
+ * <p/>
+ * The packets of a batch are routed one by one or, if
+ * {@link UdpConnector#isAggregateReceivedBatch()} is set, as a single
+ * {@link org.mule.api.MuleMessageCollection}. When all the buffers are waiting to be
+ * processed, the packets read so far are handed over and the receiver stops reading
+ * until a receiver thread returns a buffer. New packets wait in the socket receive
+ * buffer meanwhile, where the operating system drops them once it is full.
+ * <p/>
+ * The packets received and dropped, the responses that could not be sent and the periods
+ * during which reading was suspended are kept in the {@link ReceiverStatistics} of the
+ * receiver, which are published through JMX along with its endpoint.
+ */
+public class BatchingUdpMessageReceiver extends AbstractMessageReceiver
+    implements Work, ReceiverStatisticsProvider
+{
+
+    private static final long SELECT_TIMEOUT = 1000;
+
+    protected final AtomicBoolean disposing = new AtomicBoolean(false);
+
+    private final ReceiverStatistics statistics = new ReceiverStatistics();
+    private final AtomicLong receivedBatchCount = new AtomicLong();
+
+    private final int batchSize;
+    private final int bufferSize;
+    private final boolean aggregate;
+    private final BlockingQueue<PacketBuffer> freeBuffers;
+    private final URI uri;
+    private InetAddress inetAddress;
+
+    private DatagramChannel channel;
+    private Selector selector;
+
+    /**
+     * Whether the channel is not selected for reading because no buffer was free
+     */
+    private volatile boolean readSuspended;
+
+    public BatchingUdpMessageReceiver(Connector connector, FlowConstruct flowConstruct, InboundEndpoint endpoint)
+            throws CreateException
+    {
+        super(connector, flowConstruct, endpoint);
+
+        UdpConnector udpConnector = (UdpConnector) connector;
+        batchSize = udpConnector.getReceiveBatchSize();
+        bufferSize = udpConnector.getReceiveBufferSize();
+        aggregate = udpConnector.isAggregateReceivedBatch();
+
+        int bufferCount = Math.max(udpConnector.getReceivePacketBuffers(), batchSize);
+        freeBuffers = new ArrayBlockingQueue<PacketBuffer>(bufferCount);
+        for (int i = 0; i < bufferCount; i++)
+        {
+            freeBuffers.add(new PacketBuffer(bufferSize));
+        }
+
+        uri = endpoint.getEndpointURI().getUri();
+        try
+        {
+            if (!"null".equalsIgnoreCase(uri.getHost()))
+            {
+                inetAddress = InetAddress.getByName(uri.getHost());
+            }
+        }
+        catch (UnknownHostException e)
+        {
+            throw new CreateException(UdpMessages.failedToLocateHost(uri), e, this);
+        }
+    }
+
+    @Override
+    protected void doConnect() throws Exception
+    {
+        try
+        {
+            channel = createChannel();
+            selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_READ);
+            readSuspended = false;
+        }
+        catch (Exception e)
+        {
+            closeChannel();
+            throw new ConnectException(UdpMessages.failedToBind(uri), e, this);
+        }
+
+        disposing.set(false);
+        try
+        {
+            getWorkManager().scheduleWork(this, WorkManager.INDEFINITE, null, connector);
+        }
+        catch (WorkException e)
+        {
+            throw new ConnectException(CoreMessages.failedToScheduleWork(), e, this);
+        }
+    }
+
+    protected DatagramChannel createChannel() throws IOException
+    {
+        UdpConnector udpConnector = (UdpConnector) connector;
+        DatagramChannel channel = DatagramChannel.open();
+        if (udpConnector.getReceiveBufferSize() != Connector.INT_VALUE_NOT_SET)
+        {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, udpConnector.getReceiveBufferSize());
+        }
+        if (udpConnector.getSendBufferSize() != Connector.INT_VALUE_NOT_SET)
+        {
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, udpConnector.getSendBufferSize());
+        }
+        channel.setOption(StandardSocketOptions.SO_BROADCAST, udpConnector.isBroadcast());
+        channel.bind(inetAddress == null ? new InetSocketAddress(uri.getPort())
+                                         : new InetSocketAddress(inetAddress, uri.getPort()));
+        channel.configureBlocking(false);
+        return channel;
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception
+    {
+        // this will cause the selector thread to quit
+        disposing.set(true);
+        closeChannel();
+    }
+
+    @Override
+    protected void doStart() throws MuleException
+    {
+        // nothing to do
+    }
+
+    @Override
+    protected void doDispose()
+    {
+        disposing.set(true);
+        closeChannel();
+    }
+
+    private void closeChannel()
+    {
+        // not reading from a closed channel is not a suspension
+        statistics.resumed();
+        if (selector != null)
+        {
+            try
+            {
+                selector.close();
+            }
+            catch (IOException e)
+            {
+                logger.debug("Failed to close selector: " + e.getMessage());
+            }
+        }
+        if (channel != null && channel.isOpen())
+        {
+            logger.debug("Closing Udp channel: " + uri);
+            try
+            {
+                channel.close();
+                logger.info("Closed Udp channel: " + uri);
+            }
+            catch (IOException e)
+            {
+                logger.warn("Failed to close Udp channel " + uri + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public void run()
+    {
+        while (!disposing.get())
+        {
+            try
+            {
+                resumeReadIfBufferFree();
+                selector.select(SELECT_TIMEOUT);
+                selector.selectedKeys().clear();
+                if (!connector.isStarted())
+                {
+                    // leave the packets in the socket buffer until the connector starts
+                    Thread.sleep(SELECT_TIMEOUT / 10);
+                    continue;
+                }
+
+                List<PacketBuffer> batch;
+                while ((batch = readBatch()) != null)
+                {
+                    scheduleBatch(batch);
+                }
+            }
+            catch (Exception e)
+            {
+                if (!connector.isDisposed() && !disposing.get())
+                {
+                    logger.debug("Receive failed on channel: " + e, e);
+                    getEndpoint().getMuleContext().getExceptionListener().handleException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the packets that are available up to the batch size, or until no buffer is
+     * free.
+     *
+     * @return the buffers holding the packets or null if no packet was read
+     */
+    private List<PacketBuffer> readBatch() throws IOException
+    {
+        List<PacketBuffer> batch = null;
+        while (!readSuspended && (batch == null || batch.size() < batchSize))
+        {
+            PacketBuffer buffer = freeBuffers.poll();
+            if (buffer == null)
+            {
+                suspendRead();
+                break;
+            }
+
+            buffer.data.clear();
+            SocketAddress address = channel.receive(buffer.data);
+            if (address == null)
+            {
+                freeBuffers.add(buffer);
+                break;
+            }
+            buffer.packet.setData(buffer.data.array(), 0, buffer.data.position());
+            buffer.packet.setSocketAddress(address);
+            if (batch == null)
+            {
+                batch = new ArrayList<PacketBuffer>(batchSize);
+            }
+            batch.add(buffer);
+        }
+
+        if (batch != null)
+        {
+            statistics.addReceived(batch.size());
+            receivedBatchCount.incrementAndGet();
+            if (logger.isTraceEnabled())
+            {
+                logger.trace("Received " + batch.size() + " packets on: " + uri);
+            }
+        }
+        return batch;
+    }
+
+    private void scheduleBatch(List<PacketBuffer> batch)
+    {
+        try
+        {
+            getWorkManager().scheduleWork(new BatchWorker(batch), WorkManager.INDEFINITE, null, connector);
+        }
+        catch (WorkException e)
+        {
+            statistics.addDropped(batch.size());
+            returnBuffers(batch);
+            logger.error("Udp receiver interrupted: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stops selecting the channel for reading, so that the packets wait in the socket
+     * buffer until a buffer is returned.
+     */
+    private void suspendRead()
+    {
+        readSuspended = true;
+        channel.keyFor(selector).interestOps(0);
+        statistics.suspended();
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("No packet buffer free, suspended reading from: " + uri);
+        }
+    }
+
+    /**
+     * Selects the channel for reading again once a buffer was returned. Only invoked by
+     * the thread selecting the channel.
+     */
+    private void resumeReadIfBufferFree()
+    {
+        // the buffers are checked after readSuspended was set, so a buffer returned
+        // meanwhile is either seen here or its return wakes up the selector
+        if (readSuspended && !freeBuffers.isEmpty())
+        {
+            readSuspended = false;
+            channel.keyFor(selector).interestOps(SelectionKey.OP_READ);
+            statistics.resumed();
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Packet buffers returned, resumed reading from: " + uri);
+            }
+        }
+    }
+
+    private void returnBuffers(Collection<PacketBuffer> buffers)
+    {
+        freeBuffers.addAll(buffers);
+        if (readSuspended)
+        {
+            selector.wakeup();
+        }
+    }
+
+    public void release()
+    {
+        dispose();
+    }
+
+    public ReceiverStatistics getReceiverStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * @return the number of packets read from the channel and handed to a receiver thread
+     */
+    public long getReceivedPacketCount()
+    {
+        return statistics.getReceivedCount();
+    }
+
+    /**
+     * @return the number of batches handed to a receiver thread
+     */
+    public long getReceivedBatchCount()
+    {
+        return receivedBatchCount.get();
+    }
+
+    /**
+     * @return the number of packets that were read from the channel but not processed,
+     *         because no receiver thread could be scheduled
+     */
+    public long getDroppedPacketCount()
+    {
+        return statistics.getDroppedCount();
+    }
+
+    private static class PacketBuffer
+    {
+
+        private final ByteBuffer data;
+        private final DatagramPacket packet;
+
+        PacketBuffer(int size)
+        {
+            data = ByteBuffer.allocate(size);
+            packet = new DatagramPacket(data.array(), size);
+        }
+    }
+
+    protected class BatchWorker implements Work
+    {
+
+        private final List<PacketBuffer> batch;
+
+        public BatchWorker(List<PacketBuffer> batch)
+        {
+            this.batch = batch;
+        }
+
+        public void release()
+        {
+            // nothing to do
+        }
+
+        public void run()
+        {
+            if (aggregate)
+            {
+                routeCollection();
+            }
+            else
+            {
+                for (PacketBuffer buffer : batch)
+                {
+                    routePacket(buffer);
+                }
+            }
+        }
+
+        private void routeCollection()
+        {
+            try
+            {
+                DefaultMessageCollection collection = new DefaultMessageCollection(getEndpoint().getMuleContext());
+                try
+                {
+                    for (PacketBuffer buffer : batch)
+                    {
+                        collection.addMessage(createMessage(buffer));
+                    }
+                }
+                finally
+                {
+                    returnBuffers(batch);
+                }
+                routeMessage(collection);
+            }
+            catch (Exception e)
+            {
+                handleException(e);
+            }
+        }
+
+        private void routePacket(PacketBuffer buffer)
+        {
+            try
+            {
+                SocketAddress clientAddress = buffer.packet.getSocketAddress();
+                MuleMessage message;
+                try
+                {
+                    message = createMessage(buffer);
+                }
+                finally
+                {
+                    // the payload is a copy of the packet data, so the buffer can be reused
+                    returnBuffers(Collections.singletonList(buffer));
+                }
+
+                MuleEvent event = routeMessage(message);
+                MuleMessage returnMessage = event == null ? null : event.getMessage();
+                if (endpoint.getExchangePattern().hasResponse() && returnMessage != null)
+                {
+                    sendResponse(returnMessage.getPayloadAsBytes(), clientAddress);
+                }
+            }
+            catch (Exception e)
+            {
+                handleException(e);
+            }
+        }
+
+        /**
+         * Sends the response without blocking. When the socket send buffer has no room
+         * for it the response is dropped, as a blocking send would hold the receiver
+         * thread.
+         */
+        private void sendResponse(byte[] response, SocketAddress clientAddress) throws IOException
+        {
+            if (channel.send(ByteBuffer.wrap(response), clientAddress) == 0 && response.length > 0)
+            {
+                statistics.incDroppedResponses();
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("No room in the send buffer, dropped response to " + clientAddress
+                                 + " on: " + uri);
+                }
+            }
+        }
+
+        private MuleMessage createMessage(PacketBuffer buffer) throws Exception
+        {
+            MuleMessage message = createMuleMessage(buffer.packet, endpoint.getEncoding());
+            message.setProperty(MuleProperties.MULE_REMOTE_CLIENT_ADDRESS, buffer.packet.getSocketAddress(),
+                PropertyScope.INBOUND);
+            return message;
+        }
+
+        private void handleException(Exception e)
+        {
+            if (!disposing.get())
+            {
+                getEndpoint().getMuleContext().getExceptionListener().handleException(e);
+            }
+        }
+    }
+}
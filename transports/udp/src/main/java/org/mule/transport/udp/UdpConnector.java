@@ -12,6 +12,7 @@ import org.mule.api.construct.FlowConstruct;
 import org.mule.api.endpoint.ImmutableEndpoint;
 import org.mule.api.endpoint.InboundEndpoint;
 import org.mule.api.lifecycle.InitialisationException;
+import org.mule.api.transport.MessageReceiver;
 import org.mule.transport.AbstractConnector;
 
 import java.net.DatagramSocket;
@@ -29,12 +30,22 @@ public class UdpConnector extends AbstractConnector
     public static final String KEEP_SEND_SOCKET_OPEN_PROPERTY = "keepSendSocketOpen";
     public static final String ADDRESS_PROPERTY = "packet.address";
     public static final String PORT_PROPERTY = "packet.port";
+    public static final int DEFAULT_RECEIVE_BATCH_SIZE = 1;
+    public static final int DEFAULT_RECEIVE_PACKET_BUFFERS = 1024;
 
     protected int timeout = DEFAULT_SOCKET_TIMEOUT;
     protected int sendBufferSize = DEFAULT_BUFFER_SIZE;
     protected int receiveBufferSize = DEFAULT_BUFFER_SIZE;
     protected boolean keepSendSocketOpen = true;
     protected boolean broadcast;
+
+    /**
+     * If greater than one, inbound packets are read in batches by a
+     * {@link BatchingUdpMessageReceiver}.
+     */
+    protected int receiveBatchSize = DEFAULT_RECEIVE_BATCH_SIZE;
+    protected int receivePacketBuffers = DEFAULT_RECEIVE_PACKET_BUFFERS;
+    protected boolean aggregateReceivedBatch = false;
     protected GenericKeyedObjectPool dispatcherSocketsPool = new GenericKeyedObjectPool();
     protected UdpSocketFactory socketFactory;
 
@@ -159,6 +170,74 @@ public class UdpConnector extends AbstractConnector
         this.keepSendSocketOpen = keepSendSocketOpen;
     }
 
+    /**
+     * The maximum number of packets that are read from the channel and processed by a
+     * single receiver thread. When greater than one a {@link BatchingUdpMessageReceiver}
+     * is used to receive packets.
+     */
+    public int getReceiveBatchSize()
+    {
+        return receiveBatchSize;
+    }
+
+    public void setReceiveBatchSize(int receiveBatchSize)
+    {
+        if (receiveBatchSize < 1)
+        {
+            receiveBatchSize = DEFAULT_RECEIVE_BATCH_SIZE;
+        }
+        this.receiveBatchSize = receiveBatchSize;
+    }
+
+    /**
+     * The number of packet buffers of each batching receiver. While all the buffers wait
+     * to be processed, packets are left in the socket receive buffer.
+     */
+    public int getReceivePacketBuffers()
+    {
+        return receivePacketBuffers;
+    }
+
+    public void setReceivePacketBuffers(int receivePacketBuffers)
+    {
+        if (receivePacketBuffers < 1)
+        {
+            receivePacketBuffers = DEFAULT_RECEIVE_PACKET_BUFFERS;
+        }
+        this.receivePacketBuffers = receivePacketBuffers;
+    }
+
+    /**
+     * Whether the packets of a batch are routed as a single
+     * {@link org.mule.api.MuleMessageCollection} instead of one message each. Responses
+     * are not sent for aggregated packets.
+     */
+    public boolean isAggregateReceivedBatch()
+    {
+        return aggregateReceivedBatch;
+    }
+
+    public void setAggregateReceivedBatch(boolean aggregateReceivedBatch)
+    {
+        this.aggregateReceivedBatch = aggregateReceivedBatch;
+    }
+
+    /**
+     * Creates a {@link BatchingUdpMessageReceiver} instead of the {@link UdpMessageReceiver}
+     * when {@link #getReceiveBatchSize()} is greater than one. Connectors that provide their
+     * own receiver keep it.
+     */
+    @Override
+    protected MessageReceiver createReceiver(FlowConstruct flowConstruct, InboundEndpoint endpoint) throws Exception
+    {
+        MessageReceiver receiver = super.createReceiver(flowConstruct, endpoint);
+        if (receiveBatchSize > 1 && receiver.getClass().equals(UdpMessageReceiver.class))
+        {
+            return new BatchingUdpMessageReceiver(this, flowConstruct, endpoint);
+        }
+        return receiver;
+    }
+
     /**
      * Lookup a socket in the list of dispatcher sockets but don't create a new
      * socket
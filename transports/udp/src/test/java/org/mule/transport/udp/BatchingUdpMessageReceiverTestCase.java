@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.udp;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import org.mule.api.MuleEventContext;
+import org.mule.api.MuleMessage;
+import org.mule.api.MuleMessageCollection;
+import org.mule.api.transport.MessageReceiver;
+import org.mule.tck.functional.EventCallback;
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.junit4.rule.DynamicPort;
+import org.mule.tck.probe.JUnitProbe;
+import org.mule.tck.probe.PollingProber;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class BatchingUdpMessageReceiverTestCase extends FunctionalTestCase
+{
+
+    private static final int PACKETS = 50;
+    private static final int SOCKET_TIMEOUT = 5000;
+
+    @Rule
+    public DynamicPort dynamicPort1 = new DynamicPort("port1");
+
+    @Rule
+    public DynamicPort dynamicPort2 = new DynamicPort("port2");
+
+    @Rule
+    public DynamicPort dynamicPort3 = new DynamicPort("port3");
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "udp-batching-receiver-config.xml";
+    }
+
+    @Test
+    public void usesBatchingReceiver() throws Exception
+    {
+        UdpConnector connector = (UdpConnector) muleContext.getRegistry().lookupConnector("batchingConnector");
+        for (MessageReceiver receiver : connector.getReceivers().values())
+        {
+            assertThat(receiver, instanceOf(BatchingUdpMessageReceiver.class));
+        }
+    }
+
+    @Test
+    public void routesEveryPacket() throws Exception
+    {
+        final Set<String> payloads = Collections.synchronizedSet(new HashSet<String>());
+        final CountDownLatch latch = new CountDownLatch(PACKETS);
+        getFunctionalTestComponent("individual").setEventCallback(new EventCallback()
+        {
+            public void eventReceived(MuleEventContext context, Object component) throws Exception
+            {
+                payloads.add(context.getMessageAsString());
+                latch.countDown();
+            }
+        });
+
+        sendPackets(dynamicPort1.getNumber());
+
+        assertTrue(latch.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertThat(payloads.size(), is(PACKETS));
+        BatchingUdpMessageReceiver receiver = getReceiver("batchingConnector", dynamicPort1.getNumber());
+        assertThat(receiver.getReceivedPacketCount(), is((long) PACKETS));
+        assertThat(receiver.getDroppedPacketCount(), is(0L));
+    }
+
+    @Test
+    public void suspendsReadWhileNoBufferIsFree() throws Exception
+    {
+        final Set<String> payloads = Collections.synchronizedSet(new HashSet<String>());
+        final CountDownLatch latch = new CountDownLatch(PACKETS);
+        getFunctionalTestComponent("individual").setEventCallback(new EventCallback()
+        {
+            public void eventReceived(MuleEventContext context, Object component) throws Exception
+            {
+                payloads.add(context.getMessageAsString());
+                latch.countDown();
+            }
+        });
+        final BatchingUdpMessageReceiver receiver = getReceiver("batchingConnector", dynamicPort1.getNumber());
+        BlockingQueue<?> freeBuffers = (BlockingQueue<?>) getField(receiver, "freeBuffers");
+        List<Object> takenBuffers = new ArrayList<Object>();
+        freeBuffers.drainTo(takenBuffers);
+
+        sendPackets(dynamicPort1.getNumber());
+
+        new PollingProber(RECEIVE_TIMEOUT, 50).check(new JUnitProbe()
+        {
+            @Override
+            protected boolean test() throws Exception
+            {
+                DatagramChannel channel = (DatagramChannel) getField(receiver, "channel");
+                Selector selector = (Selector) getField(receiver, "selector");
+                assertThat(channel.keyFor(selector).interestOps(), is(0));
+                return true;
+            }
+
+            @Override
+            public String describeFailure()
+            {
+                return "Receiver did not stop reading while no buffer was free";
+            }
+        });
+        assertThat(receiver.getReceivedPacketCount(), is(0L));
+
+        // less buffers than the batch size, so the packets are read in partial batches
+        Method returnBuffers = BatchingUdpMessageReceiver.class.getDeclaredMethod("returnBuffers", Collection.class);
+        returnBuffers.setAccessible(true);
+        returnBuffers.invoke(receiver, takenBuffers.subList(0, 3));
+
+        assertTrue(latch.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertThat(payloads.size(), is(PACKETS));
+        assertThat(receiver.getReceivedPacketCount(), is((long) PACKETS));
+        assertThat(receiver.getDroppedPacketCount(), is(0L));
+        assertThat(receiver.getReceiverStatistics().getSuspendCount(), greaterThanOrEqualTo(1L));
+    }
+
+    @Test
+    public void countsResponseNotSentForLackOfRoom() throws Exception
+    {
+        final BatchingUdpMessageReceiver receiver = getReceiver("batchingConnector", dynamicPort2.getNumber());
+        Field channelField = BatchingUdpMessageReceiver.class.getDeclaredField("channel");
+        channelField.setAccessible(true);
+        final DatagramChannel channel = (DatagramChannel) channelField.get(receiver);
+
+        // reads from the actual channel, but has never room to send
+        DatagramChannel fullChannel = mock(DatagramChannel.class);
+        doAnswer(new Answer<SocketAddress>()
+        {
+            public SocketAddress answer(InvocationOnMock invocation) throws Throwable
+            {
+                return channel.receive((ByteBuffer) invocation.getArguments()[0]);
+            }
+        }).when(fullChannel).receive(any(ByteBuffer.class));
+        doReturn(0).when(fullChannel).send(any(ByteBuffer.class), any(SocketAddress.class));
+        channelField.set(receiver, fullChannel);
+        try
+        {
+            DatagramSocket socket = new DatagramSocket();
+            try
+            {
+                byte[] data = TEST_MESSAGE.getBytes();
+                socket.send(new DatagramPacket(data, data.length, InetAddress.getByName("localhost"),
+                    dynamicPort2.getNumber()));
+            }
+            finally
+            {
+                socket.close();
+            }
+
+            new PollingProber(RECEIVE_TIMEOUT, 50).check(new JUnitProbe()
+            {
+                @Override
+                protected boolean test() throws Exception
+                {
+                    assertThat(receiver.getReceiverStatistics().getDroppedResponseCount(), is(1L));
+                    return true;
+                }
+
+                @Override
+                public String describeFailure()
+                {
+                    return "Response not sent was not counted";
+                }
+            });
+        }
+        finally
+        {
+            channelField.set(receiver, channel);
+        }
+    }
+
+    @Test
+    public void sendsResponseToSender() throws Exception
+    {
+        DatagramSocket socket = new DatagramSocket();
+        try
+        {
+            socket.setSoTimeout(SOCKET_TIMEOUT);
+            byte[] data = TEST_MESSAGE.getBytes();
+            socket.send(new DatagramPacket(data, data.length, InetAddress.getByName("localhost"),
+                dynamicPort2.getNumber()));
+
+            DatagramPacket response = new DatagramPacket(new byte[1024], 1024);
+            socket.receive(response);
+            assertThat(new String(response.getData(), 0, response.getLength()), is(TEST_MESSAGE + " Received"));
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void aggregatesPacketsReadTogether() throws Exception
+    {
+        final Set<String> payloads = Collections.synchronizedSet(new HashSet<String>());
+        final CountDownLatch latch = new CountDownLatch(PACKETS);
+        getFunctionalTestComponent("aggregated").setEventCallback(new EventCallback()
+        {
+            public void eventReceived(MuleEventContext context, Object component) throws Exception
+            {
+                MuleMessage message = context.getMessage();
+                assertThat(message, instanceOf(MuleMessageCollection.class));
+                for (MuleMessage packet : ((MuleMessageCollection) message).getMessagesAsArray())
+                {
+                    payloads.add(packet.getPayloadAsString());
+                    latch.countDown();
+                }
+            }
+        });
+
+        sendPackets(dynamicPort3.getNumber());
+
+        assertTrue(latch.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS));
+        assertThat(payloads.size(), is(PACKETS));
+        BatchingUdpMessageReceiver receiver = getReceiver("aggregatingConnector", dynamicPort3.getNumber());
+        assertThat(receiver.getReceivedPacketCount(), is((long) PACKETS));
+    }
+
+    private void sendPackets(int port) throws Exception
+    {
+        DatagramSocket socket = new DatagramSocket();
+        try
+        {
+            InetAddress address = InetAddress.getByName("localhost");
+            for (int i = 0; i < PACKETS; i++)
+            {
+                byte[] data = (TEST_MESSAGE + i).getBytes();
+                socket.send(new DatagramPacket(data, data.length, address, port));
+            }
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    private Object getField(Object target, String name) throws Exception
+    {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    private BatchingUdpMessageReceiver getReceiver(String connectorName, int port)
+    {
+        UdpConnector connector = (UdpConnector) muleContext.getRegistry().lookupConnector(connectorName);
+        for (MessageReceiver receiver : connector.getReceivers().values())
+        {
+            if (receiver.getEndpointURI().getPort() == port)
+            {
+                return (BatchingUdpMessageReceiver) receiver;
+            }
+        }
+        throw new IllegalStateException("No receiver for port " + port);
+    }
+}
@@ -33,6 +33,9 @@ public class UdpNamespaceHandlerTestCase extends FunctionalTestCase
         assertEquals(3456, c.getSendBufferSize());
         assertEquals(true, c.isBroadcast());
         assertEquals(false, c.isKeepSendSocketOpen());
+        assertEquals(32, c.getReceiveBatchSize());
+        assertEquals(256, c.getReceivePacketBuffers());
+        assertEquals(true, c.isAggregateReceivedBatch());
 
         assertTrue(c.isConnected());
         assertTrue(c.isStarted());